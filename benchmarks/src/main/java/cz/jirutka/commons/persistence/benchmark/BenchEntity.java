@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.Persistable;
+
+/**
+ * Simple entity used in the benchmarks.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class BenchEntity implements Persistable {
+    
+    private Long id;
+    private String name;
+    private int age;
+
+    
+    public BenchEntity() {
+    }
+    
+    public BenchEntity(Long id, String name, int age) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+    }
+    
+    
+    @Override
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public int getAge() { return age; }
+    public void setAge(int age) { this.age = age; }
+    
+    
+    /**
+     * Subclass of the entity like the ones generated by ORM frameworks for
+     * lazy-loading proxies (e.g. <tt>BenchEntity_$$_javassist_1</tt>).
+     */
+    public static class Proxy extends BenchEntity {
+        
+        public Proxy() {
+        }
+        
+        public Proxy(Long id, String name, int age) {
+            super(id, name, age);
+        }
+    }
+    
+    /**
+     * Entity without any specific DAO registered (it's not a subclass of the
+     * <tt>BenchEntity</tt>).
+     */
+    public static class Unmapped implements Persistable {
+        
+        private Long id;
+        
+        public Unmapped() {
+        }
+        
+        public Unmapped(Long id) {
+            this.id = id;
+        }
+        
+        @Override
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+    }
+}
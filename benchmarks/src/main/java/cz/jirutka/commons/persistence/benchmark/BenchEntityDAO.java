@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.DelegatingSpecificDAO;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.RegisteredDAO;
+
+/**
+ * Specific DAO for the {@link BenchEntity}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+@RegisteredDAO
+public class BenchEntityDAO extends DelegatingSpecificDAO<BenchEntity, Long> {
+    
+    public BenchEntityDAO(GenericDAO genericDAO) {
+        super(genericDAO);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures removal of expired entities from a {@link RemoteDAO}: loading them
+ * by <tt>findByProperty()</tt> and deleting one by one (<tt>perRow</tt>), 
+ * vs. one <tt>deleteByProperty()</tt> call (<tt>bulk</tt>). The expired 
+ * entities are inserted again before each invocation, among the live ones.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkDeleteBenchmark {
+
+    private static final int LIVE = 1000;
+    private static final int EXPIRED = 1;
+
+    @Param({"perRow", "bulk"})
+    public String mode;
+
+    /** Number of the expired entities to delete. */
+    @Param({"10", "1000"})
+    public int expired;
+
+    /** CPU tokens burned per call of the backend. */
+    @Param({"0", "10000"})
+    public int latency;
+
+    private RemoteDAO store;
+
+
+    @Setup
+    public void setup() {
+        store = new RemoteDAO(latency);
+        store.configure(BenchEntity.class, new TableSpec().hashIndex("age"));
+
+        for (long i = 1; i <= LIVE; i++) {
+            store.save(new BenchEntity(-i, "live" + i, 0));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void insertExpired() {
+        for (long i = 1; i <= expired; i++) {
+            store.saveOrUpdate(new BenchEntity(i, "expired" + i, EXPIRED));
+        }
+    }
+
+
+    @Benchmark
+    public int deleteExpired() {
+        GenericDAO dao = store;
+
+        if (mode.equals("bulk")) {
+            return dao.deleteByProperty("age", EXPIRED, BenchEntity.class);
+        }
+        int count = 0;
+        for (BenchEntity entity : dao.findByProperty("age", EXPIRED, null, BenchEntity.class)) {
+            dao.delete(entity);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.DefaultSpecificDAORegistry;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.GenericDAODispatcher;
+import cz.jirutka.commons.persistence.dao.SpecificDAO;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the overhead of the {@link GenericDAODispatcher} and the {@link 
+ * DefaultSpecificDAORegistry} depending on the number of registered entity 
+ * classes. The backend is a {@link MapGenericDAO} with a single entity, so 
+ * the baseline <tt>direct*</tt> benchmarks show the cost of the lookup itself.
+ * 
+ * <ul>
+ *   <li><tt>hit</tt> - entity class with a specific DAO registered,</li>
+ *   <li><tt>miss</tt> - entity class without a specific DAO (falls to the 
+ *       generic DAO),</li>
+ *   <li><tt>proxySubclass</tt> - subclass of the registered entity class, as 
+ *       the ORM lazy-loading proxies.</li>
+ * </ul>
+ * 
+ * <p>The <tt>generated*</tt> benchmarks do the same with the {@link 
+ * GeneratedSpecificDAORegistry} and {@link GeneratedGenericDAODispatcher} 
+ * generated at build time for the {@link BenchEntityDAO}; the other entity 
+ * classes are registered in its fallback registry.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatcherBenchmark {
+    
+    private static final Long ID = 1L;
+    
+    /** Number of entity classes registered in the registry. */
+    @Param({"1", "10", "1000"})
+    public int registeredClasses;
+    
+    private GenericDAO genericDAO;
+    private BenchEntityDAO specificDAO;
+    private DefaultSpecificDAORegistry registry;
+    private GenericDAODispatcher dispatcher;
+    private GeneratedSpecificDAORegistry generatedRegistry;
+    private GeneratedGenericDAODispatcher generatedDispatcher;
+    private BenchEntity.Proxy proxy;
+
+    
+    @Setup
+    public void setup() {
+        genericDAO = new MapGenericDAO();
+        genericDAO.save(new BenchEntity(ID, "one", 42));
+        genericDAO.save(new BenchEntity.Unmapped(ID));
+        
+        proxy = new BenchEntity.Proxy(ID, "one", 42);
+        specificDAO = new BenchEntityDAO(genericDAO);
+        registry = new DefaultSpecificDAORegistry();
+        registry.register(specificDAO);
+        generatedRegistry = new GeneratedSpecificDAORegistry();
+        generatedRegistry.register(specificDAO);
+        
+        for (int i = 1; i < registeredClasses; i++) {
+            SpecificDAO dao = fakeDAO(syntheticEntityClass());
+            registry.register(dao);
+            generatedRegistry.register(dao);
+        }
+        dispatcher = new GenericDAODispatcher(genericDAO, registry);
+        generatedDispatcher = new GeneratedGenericDAODispatcher(genericDAO, generatedRegistry);
+    }
+    
+    
+    ///// Baseline /////
+    
+    @Benchmark
+    public BenchEntity directGenericDAO() {
+        return genericDAO.findByPrimaryKey(ID, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity directSpecificDAO() {
+        return specificDAO.findByPrimaryKey(ID);
+    }
+    
+    
+    ///// Registry lookup /////
+    
+    @Benchmark
+    public SpecificDAO registryHit() {
+        return registry.getDAO(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public SpecificDAO registryMiss() {
+        return registry.getDAO(BenchEntity.Unmapped.class);
+    }
+    
+    @Benchmark
+    public SpecificDAO registryProxySubclass() {
+        return registry.getDAO(BenchEntity.Proxy.class);
+    }
+    
+    
+    ///// Dispatch /////
+    
+    @Benchmark
+    public BenchEntity dispatchHit() {
+        return dispatcher.findByPrimaryKey(ID, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity.Unmapped dispatchMiss() {
+        return dispatcher.findByPrimaryKey(ID, BenchEntity.Unmapped.class);
+    }
+    
+    @Benchmark
+    public boolean dispatchProxySubclass() {
+        return dispatcher.isPersistent(proxy.getId(), proxy.getClass());
+    }
+    
+    
+    ///// Generated registry and dispatcher /////
+    
+    @Benchmark
+    public SpecificDAO generatedRegistryHit() {
+        return generatedRegistry.getDAO(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public SpecificDAO generatedRegistryMiss() {
+        return generatedRegistry.getDAO(BenchEntity.Unmapped.class);
+    }
+    
+    @Benchmark
+    public SpecificDAO generatedRegistryProxySubclass() {
+        return generatedRegistry.getDAO(BenchEntity.Proxy.class);
+    }
+    
+    @Benchmark
+    public BenchEntity generatedDispatchHit() {
+        return generatedDispatcher.findByPrimaryKey(ID, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity.Unmapped generatedDispatchMiss() {
+        return generatedDispatcher.findByPrimaryKey(ID, BenchEntity.Unmapped.class);
+    }
+    
+    @Benchmark
+    public boolean generatedDispatchProxySubclass() {
+        return generatedDispatcher.isPersistent(proxy.getId(), proxy.getClass());
+    }
+    
+    
+    ///// Helpers /////
+    
+    /**
+     * Create a new entity class. Each proxy class is defined in its own class
+     * loader, so it's a distinct class.
+     */
+    private static Class<? extends Persistable> syntheticEntityClass() {
+        ClassLoader loader = new ClassLoader(Persistable.class.getClassLoader()) { };
+        
+        return Proxy.newProxyInstance(loader, new Class<?>[]{ Persistable.class }, 
+                (proxy, method, args) -> null).getClass().asSubclass(Persistable.class);
+    }
+    
+    /**
+     * Create a specific DAO that only knows its entity class; the registry 
+     * doesn't call anything else.
+     */
+    private static SpecificDAO fakeDAO(final Class<? extends Persistable> entityClass) {
+        return (SpecificDAO) Proxy.newProxyInstance(SpecificDAO.class.getClassLoader(), 
+                new Class<?>[]{ SpecificDAO.class }, (proxy, method, args) -> {
+                    if ("getEntityClass".equals(method.getName())) {
+                        return entityClass;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.codec.EntityCodec;
+import cz.jirutka.commons.persistence.codec.EntityCodecFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the {@link EntityCodecFactory#BINARY binary} entity codec with 
+ * the {@link EntityCodecFactory#JAVA_SERIALIZATION Java serialization}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityCodecBenchmark {
+    
+    @Param({"binary", "java"})
+    public String codec;
+    
+    private EntityCodec<BenchEntity> entityCodec;
+    private BenchEntity entity;
+    private byte[] encoded;
+    
+    
+    @Setup
+    public void setup() {
+        EntityCodecFactory factory = codec.equals("binary") 
+                ? EntityCodecFactory.BINARY : EntityCodecFactory.JAVA_SERIALIZATION;
+        entityCodec = factory.codecFor(BenchEntity.class);
+        entity = new BenchEntity(123456L, "name123456", 42);
+        encoded = entityCodec.encode(entity);
+    }
+    
+    
+    @Benchmark
+    public byte[] encode() {
+        return entityCodec.encode(entity);
+    }
+    
+    @Benchmark
+    public BenchEntity decode() {
+        return entityCodec.decode(encoded);
+    }
+}
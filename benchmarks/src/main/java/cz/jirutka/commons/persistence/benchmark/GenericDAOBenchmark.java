@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.DefaultSpecificDAORegistry;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.GenericDAODispatcher;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.cache.CacheSpec;
+import cz.jirutka.commons.persistence.dao.cache.CachingGenericDAO;
+import cz.jirutka.commons.persistence.dao.coalescing.CoalescingGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import cz.jirutka.commons.persistence.dao.metrics.DAOMetrics;
+import cz.jirutka.commons.persistence.dao.metrics.InstrumentedGenericDAO;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the end-to-end cost of each {@link GenericDAO} operation against
+ * an in-memory backend, either the naive {@link MapGenericDAO} (<tt>map</tt>)
+ * or the {@link InMemoryGenericDAO} with indexes (<tt>indexed</tt>), directly
+ * or through one of the decorators:
+ * 
+ * <ul>
+ *   <li><tt>plain</tt> - the backend itself,</li>
+ *   <li><tt>dispatcher</tt> - {@link GenericDAODispatcher} with the 
+ *       {@link BenchEntityDAO} registered,</li>
+ *   <li><tt>caching</tt> - {@link CachingGenericDAO} with the entity, query
+ *       and natural key caches enabled,</li>
+ *   <li><tt>instrumented</tt> - {@link InstrumentedGenericDAO},</li>
+ *   <li><tt>coalescing</tt> - {@link CoalescingGenericDAO} (uncontended).</li>
+ * </ul>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenericDAOBenchmark {
+    
+    private static final int BATCH_SIZE = 10;
+    
+    @Param({"map", "indexed"})
+    public String backend;
+    
+    @Param({"plain", "dispatcher", "caching", "instrumented", "coalescing"})
+    public String decorator;
+    
+    /** Number of stored entities. */
+    @Param({"1000"})
+    public int size;
+    
+    private GenericDAO dao;
+    private List<BenchEntity> entities;
+    private List<Long> batchIds;
+    private PagingOrdering paging;
+    private BenchEntity example;
+    private String[] exampleProperties;
+    private int cursor;
+
+    
+    @Setup
+    public void setup() {
+        GenericDAO store = createBackend(backend, size);
+        entities = new ArrayList<BenchEntity>(size);
+        
+        for (long i = 1; i <= size; i++) {
+            BenchEntity entity = new BenchEntity(i, "name" + i, (int) (i % 100));
+            store.save(entity);
+            entities.add(entity);
+        }
+        dao = decorate(store, decorator);
+        
+        batchIds = new ArrayList<Long>(BATCH_SIZE);
+        for (long i = 1; i <= BATCH_SIZE; i++) {
+            batchIds.add(i);
+        }
+        paging = new PagingOrdering(20, 40).orderBy("age").orderBy("id");
+        example = new BenchEntity(null, null, 42);
+        exampleProperties = new String[]{ "age" };
+    }
+    
+    private static GenericDAO createBackend(String backend, int size) {
+        switch (backend) {
+            case "map":
+                return new MapGenericDAO();
+            case "indexed":
+                final AtomicLong sequence = new AtomicLong(size);
+                return new InMemoryGenericDAO().configure(BenchEntity.class, new TableSpec()
+                        .hashIndex("age")
+                        .sortedIndex("age", "id")
+                        .naturalKey("name")
+                        .idGenerator(() -> sequence.incrementAndGet()));
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+    
+    private static GenericDAO decorate(GenericDAO backend, String decorator) {
+        switch (decorator) {
+            case "plain":
+                return backend;
+            case "dispatcher":
+                DefaultSpecificDAORegistry registry = new DefaultSpecificDAORegistry();
+                registry.register(new BenchEntityDAO(backend));
+                return new GenericDAODispatcher(backend, registry);
+            case "caching":
+                return new CachingGenericDAO(backend, new CacheSpec(10000)
+                        .queryCacheSize(1000)
+                        .naturalKeyCacheSize(10000)
+                        .naturalKey((BenchEntity e) -> e.getName()));
+            case "instrumented":
+                return new InstrumentedGenericDAO(backend, new DAOMetrics());
+            case "coalescing":
+                return new CoalescingGenericDAO(backend);
+            default:
+                throw new IllegalArgumentException("Unknown decorator: " + decorator);
+        }
+    }
+    
+    /** Return the next stored entity (round-robin). */
+    private BenchEntity next() {
+        if (++cursor == entities.size()) {
+            cursor = 0;
+        }
+        return entities.get(cursor);
+    }
+    
+    
+    ///// Reads /////
+    
+    @Benchmark
+    public Long count() {
+        return dao.count(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> findByExample() {
+        return dao.findByExample(example, exampleProperties, paging, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity findByNaturalKey() {
+        return dao.findByNaturalKey(next().getName(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity findByPrimaryKey() {
+        return dao.findByPrimaryKey(next().getId(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public Map<Long, BenchEntity> findByPrimaryKeys() {
+        return dao.findByPrimaryKeys(batchIds, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> findByProperty() {
+        return dao.findByProperty("age", 42, paging, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> getAll() {
+        return dao.getAll(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> getPaginated() {
+        return dao.getPaginated(paging, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public boolean isPersistent() {
+        return dao.isPersistent(next().getId(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity load() {
+        return dao.load(next().getId(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public void scrollAll(Blackhole bh) {
+        try (EntityCursor<BenchEntity> it = dao.scrollAll(100, BenchEntity.class)) {
+            while (it.hasNext()) {
+                bh.consume(it.next());
+            }
+        }
+    }
+    
+    
+    ///// Writes /////
+    
+    /**
+     * Save a new entity and delete it, so the datastore doesn't grow.
+     */
+    @Benchmark
+    public Serializable saveAndDelete() {
+        BenchEntity entity = new BenchEntity(null, "new", 1);
+        Serializable id = dao.save(entity);
+        dao.delete(entity);
+        return id;
+    }
+    
+    @Benchmark
+    public void saveOrUpdate() {
+        dao.saveOrUpdate(next());
+    }
+    
+    @Benchmark
+    public void update() {
+        dao.update(next());
+    }
+    
+    @Benchmark
+    public void updateAll() {
+        List<Persistable> batch = new ArrayList<Persistable>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(next());
+        }
+        dao.updateAll(batch, BATCH_SIZE);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.cache.CacheSpec;
+import cz.jirutka.commons.persistence.dao.cache.CachingGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures lookups by the primary key of an entity with boxed <tt>Long</tt>
+ * identifiers (<tt>boxed</tt>, {@link BenchEntity}) vs. an entity with
+ * primitive identifiers (<tt>primitive</tt>, {@link LongIdPersistable}), in
+ * the {@link InMemoryGenericDAO} (<tt>indexed</tt>) or through the {@link
+ * CachingGenericDAO} (<tt>caching</tt>). The identifiers are looked up in
+ * random order and are out of the range of the <tt>Long</tt> cache, so the
+ * boxing allocates.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LongIdBenchmark {
+
+    private static final long FIRST_ID = 1000;
+
+    @Param({"boxed", "primitive"})
+    public String entity;
+
+    @Param({"indexed", "caching"})
+    public String backend;
+
+    /** Number of stored entities. */
+    @Param({"100000"})
+    public int size;
+
+    private GenericDAO dao;
+    private Class<? extends Persistable> entityClass;
+    private long[] ids;
+    private int cursor;
+
+
+    @Setup
+    public void setup() {
+        InMemoryGenericDAO store = new InMemoryGenericDAO();
+        entityClass = entity.equals("primitive") ? LongBenchEntity.class : BenchEntity.class;
+        ids = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            long id = FIRST_ID + i;
+            store.save(entity.equals("primitive")
+                    ? new LongBenchEntity(id, "name" + id)
+                    : new BenchEntity(id, "name" + id, 0));
+            ids[i] = id;
+        }
+        Random random = new Random(42);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+        switch (backend) {
+            case "indexed":
+                dao = store;
+                break;
+            case "caching":
+                dao = new CachingGenericDAO(store, new CacheSpec(size));
+                for (long id : ids) {
+                    dao.findByPrimaryKey(id, entityClass);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    private long next() {
+        if (++cursor == ids.length) {
+            cursor = 0;
+        }
+        return ids[cursor];
+    }
+
+
+    @Benchmark
+    public Persistable findByPrimaryKey() {
+        return dao.findByPrimaryKey(next(), entityClass);
+    }
+
+    @Benchmark
+    public Persistable findByLongId() {
+        return dao.findByLongId(next(), entityClass);
+    }
+
+    @Benchmark
+    public boolean isPersistent() {
+        return dao.isPersistent(next(), entityClass);
+    }
+
+    @Benchmark
+    public boolean isPersistentByLongId() {
+        return dao.isPersistentByLongId(next(), entityClass);
+    }
+
+
+    /**
+     * Entity with a primitive identifier.
+     */
+    public static class LongBenchEntity implements LongIdPersistable {
+
+        private long id;
+        private String name;
+
+        public LongBenchEntity() {
+        }
+
+        public LongBenchEntity(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public long getLongId() { return id; }
+        public void setId(long id) { this.id = id; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+    }
+}
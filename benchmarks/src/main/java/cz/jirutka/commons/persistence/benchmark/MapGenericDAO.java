@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simple in-memory implementation of the {@link GenericDAO} used as a backend
+ * in the benchmarks, so they measure the DAO layer and not a database. The
+ * instances are stored in a hash map per entity class, queries are evaluated
+ * by a full scan using the properties' getters.
+ * 
+ * <p>Entities must have a <tt>Long</tt> identifier with a setter; natural key 
+ * is the property <tt>name</tt>.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class MapGenericDAO implements GenericDAO {
+    
+    private static final String NATURAL_KEY_PROPERTY = "name";
+    
+    private final ConcurrentMap<Class, ConcurrentMap<Serializable, Persistable>> tables = 
+            new ConcurrentHashMap<Class, ConcurrentMap<Serializable, Persistable>>();
+    private final ConcurrentMap<Class, Map<String, Method>> getters = 
+            new ConcurrentHashMap<Class, Map<String, Method>>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return (long) table(clazz).size();
+    }
+
+    @Override
+    public void delete(Persistable entity) {
+        table(entity.getClass()).remove(entity.getId());
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        table(clazz).remove(id);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        
+        List<E> result = new ArrayList<E>();
+        for (E entity : this.<E>rows(clazz)) {
+            boolean matches = true;
+            for (String property : includeProperties) {
+                if (!Objects.equals(read(entity, property), read(exampleInstance, property))) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                result.add(entity);
+            }
+        }
+        return paginate(result, paging);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        
+        for (E entity : this.<E>rows(clazz)) {
+            if (naturalKey.equals(read(entity, NATURAL_KEY_PROPERTY))) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return (E) table(clazz).get(id);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        
+        List<E> result = new ArrayList<E>();
+        for (E entity : this.<E>rows(clazz)) {
+            if (Objects.equals(value, read(entity, property))) {
+                result.add(entity);
+            }
+        }
+        return paginate(result, paging);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        return new ArrayList<E>(this.<E>rows(clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return paginate(new ArrayList<E>(this.<E>rows(clazz)), paging);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return table(clazz).containsKey(id);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return findByPrimaryKey(id, clazz);
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        if (entity.getId() == null) {
+            assignId(entity, sequence.incrementAndGet());
+        }
+        table(entity.getClass()).put(entity.getId(), entity);
+        return entity.getId();
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        save(entity);
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        table(entity.getClass()).replace(entity.getId(), entity);
+    }
+    
+    
+    ///// Helpers /////
+    
+    private ConcurrentMap<Serializable, Persistable> table(Class<?> clazz) {
+        ConcurrentMap<Serializable, Persistable> table = tables.get(clazz);
+        if (table == null) {
+            tables.putIfAbsent(clazz, new ConcurrentHashMap<Serializable, Persistable>());
+            table = tables.get(clazz);
+        }
+        return table;
+    }
+    
+    private <E extends Persistable> Collection<E> rows(Class<?> clazz) {
+        return (Collection<E>) table(clazz).values();
+    }
+    
+    private <E extends Persistable> List<E> paginate(List<E> rows, PagingOrdering paging) {
+        if (paging == null) {
+            return rows;
+        }
+        if (paging.hasOrdering()) {
+            List<OrderBy> ordering = paging.isKeyset() ? paging.getKeysetOrdering() : paging.getOrdering();
+            rows.sort(comparator(ordering));
+            
+            if (paging.isKeyset()) {
+                List<Object> after = paging.getAfterValues();
+                List<E> filtered = new ArrayList<E>(rows.size());
+                for (E entity : rows) {
+                    if (compareTo(entity, after, ordering) > 0) {
+                        filtered.add(entity);
+                    }
+                }
+                rows = filtered;
+            }
+        }
+        int from = Math.min(paging.isKeyset() ? 0 : paging.getOffset(), rows.size());
+        int to = paging.getLimit() < 0 ? rows.size() : Math.min(from + paging.getLimit(), rows.size());
+        
+        return new ArrayList<E>(rows.subList(from, to));
+    }
+    
+    private Comparator<Persistable> comparator(final List<OrderBy> ordering) {
+        return (a, b) -> {
+            for (OrderBy order : ordering) {
+                int cmp = compare(read(a, order.getPropertyName()), read(b, order.getPropertyName()));
+                if (cmp != 0) {
+                    return order.isAscending() ? cmp : -cmp;
+                }
+            }
+            return 0;
+        };
+    }
+    
+    private int compareTo(Persistable entity, List<Object> values, List<OrderBy> ordering) {
+        for (int i = 0; i < ordering.size(); i++) {
+            OrderBy order = ordering.get(i);
+            int cmp = compare(read(entity, order.getPropertyName()), values.get(i));
+            if (cmp != 0) {
+                return order.isAscending() ? cmp : -cmp;
+            }
+        }
+        return 0;
+    }
+    
+    private static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+    
+    private Object read(Persistable entity, String property) {
+        Method getter = getters(entity.getClass()).get(property);
+        if (getter == null) {
+            throw new IllegalArgumentException("No property " + property + " in " + entity.getClass());
+        }
+        try {
+            return getter.invoke(entity);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private void assignId(Persistable entity, Long id) {
+        try {
+            for (PropertyDescriptor desc : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
+                if ("id".equals(desc.getName()) && desc.getWriteMethod() != null) {
+                    desc.getWriteMethod().invoke(entity, id);
+                    return;
+                }
+            }
+        } catch (IntrospectionException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException(ex);
+        }
+        throw new IllegalArgumentException("No writable property id in " + entity.getClass());
+    }
+    
+    private Map<String, Method> getters(Class<?> clazz) {
+        Map<String, Method> result = getters.get(clazz);
+        if (result == null) {
+            result = new HashMap<String, Method>();
+            try {
+                for (PropertyDescriptor desc : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+                    if (desc.getReadMethod() != null) {
+                        result.put(desc.getName(), desc.getReadMethod());
+                    }
+                }
+            } catch (IntrospectionException ex) {
+                throw new IllegalStateException(ex);
+            }
+            getters.put(clazz, result);
+        }
+        return result;
+    }
+}
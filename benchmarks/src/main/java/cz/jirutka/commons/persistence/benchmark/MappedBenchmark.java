@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.codec.EntityCodecFactory;
+import cz.jirutka.commons.persistence.dao.mapped.MappedGenericDAO;
+import cz.jirutka.commons.persistence.dao.mapped.MappedStoreSpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the {@link MappedGenericDAO} with the Java serialization or the 
+ * binary codec: lookups by the primary key (index probe and decoding of the 
+ * mapped record), index-only operations, appending updates (with automatic 
+ * compaction) and reopening of a cleanly closed store.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappedBenchmark {
+    
+    @Param({"java", "binary"})
+    public String codec;
+    
+    /** Number of stored entities. */
+    @Param({"100000"})
+    public int size;
+    
+    private Path directory;
+    private MappedGenericDAO dao;
+    
+    
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("mapped-bench");
+        dao = open();
+        for (long i = 1; i <= size; i++) {
+            dao.save(new BenchEntity(i, "name" + i, (int) (i % 100)));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        dao.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    private MappedGenericDAO open() {
+        return new MappedGenericDAO(directory).configure(BenchEntity.class, new MappedStoreSpec()
+                .segmentSize(16 << 20)
+                .initialCapacity(size)
+                .codec(codec.equals("binary") ? EntityCodecFactory.BINARY : EntityCodecFactory.JAVA_SERIALIZATION));
+    }
+    
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+    
+    
+    @Benchmark
+    public Long count() {
+        return dao.count(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity findByPrimaryKey() {
+        return dao.findByPrimaryKey(randomId(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public boolean isPersistent() {
+        return dao.isPersistent(randomId(), BenchEntity.class);
+    }
+    
+    @Benchmark
+    public void update() {
+        long id = randomId();
+        dao.update(new BenchEntity(id, "name" + id, (int) (id % 100)));
+    }
+    
+    /**
+     * Close the store and open it again (the index file is reused).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public Long reopen() {
+        dao.close();
+        dao = open();
+        return dao.count(BenchEntity.class);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.PagingSnapshot;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures construction, hashing and comparison of the {@link PagingOrdering}
+ * and {@link OrderBy}, which are used e.g. as keys of the query cache.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PagingOrderingBenchmark {
+    
+    private OrderBy orderBy;
+    private PagingOrdering paging;
+    private PagingOrdering pagingCopy;
+    private PagingOrdering keyset;
+    private PagingSnapshot snapshot;
+    private String continuationToken;
+    private BenchEntity lastRow;
+    
+    // non-final, so JIT can't constant-fold them
+    private String property = "name";
+    private int limit = 20;
+    private int offset = 40;
+
+    
+    @Setup
+    public void setup() {
+        orderBy = OrderBy.desc(property);
+        paging = newPaging();
+        pagingCopy = newPaging();
+        snapshot = paging.snapshot();
+        lastRow = new BenchEntity(123L, "foo", 42);
+        keyset = new PagingOrdering().limit(limit).orderBy(property).orderBy("age", OrderBy.DESC);
+        continuationToken = keyset.continuationToken(lastRow);
+    }
+    
+    
+    ///// OrderBy /////
+    
+    @Benchmark
+    public OrderBy orderByConstruct() {
+        return new OrderBy(property, OrderBy.ASC);
+    }
+    
+    @Benchmark
+    public int orderByHashCode() {
+        return orderBy.hashCode();
+    }
+    
+    
+    ///// PagingOrdering /////
+    
+    @Benchmark
+    public PagingOrdering pagingConstruct() {
+        return newPaging();
+    }
+    
+    @Benchmark
+    public int pagingHashCode() {
+        return paging.hashCode();
+    }
+    
+    @Benchmark
+    public boolean pagingEquals() {
+        return paging.equals(pagingCopy);
+    }
+    
+    @Benchmark
+    public int pagingConstructAndHash() {
+        return newPaging().hashCode();
+    }
+    
+    
+    ///// PagingSnapshot /////
+    
+    @Benchmark
+    public PagingSnapshot snapshotConstruct() {
+        return paging.snapshot();
+    }
+    
+    @Benchmark
+    public int snapshotHashCode() {
+        return snapshot.hashCode();
+    }
+    
+    
+    ///// Keyset pagination /////
+    
+    @Benchmark
+    public PagingOrdering keysetAfterValues() {
+        return new PagingOrdering().limit(limit).orderBy(property).after(123L, "foo");
+    }
+    
+    @Benchmark
+    public PagingOrdering keysetAfterRow() {
+        return new PagingOrdering().limit(limit).orderBy(property).orderBy("age", OrderBy.DESC).after(lastRow);
+    }
+    
+    @Benchmark
+    public String continuationTokenEncode() {
+        return keyset.continuationToken(lastRow);
+    }
+    
+    @Benchmark
+    public PagingOrdering continuationTokenDecode() {
+        return new PagingOrdering().limit(limit).orderBy(property).orderBy("age", OrderBy.DESC)
+                .after(continuationToken);
+    }
+    
+    
+    private PagingOrdering newPaging() {
+        return new PagingOrdering(limit, offset).orderBy(property).orderBy("age", OrderBy.DESC);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the compiled {@link PropertyAccessors} with reflective getter calls 
+ * for in-memory sorting by {@link OrderBy} and matching by example.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertyAccessBenchmark {
+    
+    private static final List<OrderBy> ORDERING = Arrays.asList(OrderBy.asc("age"), OrderBy.desc("name"));
+    private static final String[] EXAMPLE_PROPERTIES = { "age", "name" };
+    
+    @Param({"1000"})
+    public int size;
+    
+    private List<BenchEntity> entities;
+    private BenchEntity example;
+    private Method[] getters;
+
+    
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Random random = new Random(42);
+        entities = new ArrayList<BenchEntity>(size);
+        for (long i = 0; i < size; i++) {
+            entities.add(new BenchEntity(i, "name" + random.nextInt(size / 10), random.nextInt(100)));
+        }
+        example = new BenchEntity(null, "name7", 42);
+        getters = new Method[]{ BenchEntity.class.getMethod("getAge"), BenchEntity.class.getMethod("getName") };
+    }
+    
+    
+    @Benchmark
+    public List<BenchEntity> sortCompiled() {
+        List<BenchEntity> list = new ArrayList<BenchEntity>(entities);
+        list.sort(PropertyAccessors.forClass(BenchEntity.class).comparator(ORDERING));
+        return list;
+    }
+    
+    @Benchmark
+    public List<BenchEntity> sortReflective() {
+        List<BenchEntity> list = new ArrayList<BenchEntity>(entities);
+        list.sort(new Comparator<BenchEntity>() {
+            public int compare(BenchEntity a, BenchEntity b) {
+                int cmp = ((Integer) invoke(getters[0], a)).compareTo((Integer) invoke(getters[0], b));
+                return cmp != 0 ? cmp : -((String) invoke(getters[1], a)).compareTo((String) invoke(getters[1], b));
+            }
+        });
+        return list;
+    }
+    
+    @Benchmark
+    public int matchCompiled() {
+        Predicate<BenchEntity> matcher = PropertyAccessors.forClass(BenchEntity.class)
+                .exampleMatcher(example, EXAMPLE_PROPERTIES);
+        int count = 0;
+        for (BenchEntity entity : entities) {
+            if (matcher.test(entity)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int matchReflective() {
+        Object[] values = { invoke(getters[0], example), invoke(getters[1], example) };
+        int count = 0;
+        for (BenchEntity entity : entities) {
+            if (Objects.equals(invoke(getters[0], entity), values[0]) 
+                    && Objects.equals(invoke(getters[1], entity), values[1])) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    
+    private static Object invoke(Method getter, Object bean) {
+        try {
+            return getter.invoke(bean);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link InMemoryGenericDAO} with a simulated round-trip to a remote 
+ * datastore: each call of the lookups by the primary key or property, the 
+ * updates and the deletes burns the given number of CPU tokens (batch 
+ * updates once per batch, bulk deletes once per call, not per instance).
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class RemoteDAO extends InMemoryGenericDAO {
+
+    private final int latency;
+
+    public RemoteDAO(int latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        Blackhole.consumeCPU(latency);
+        return super.findByPrimaryKey(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> List<E> findByProperty(String property, Object value, PagingOrdering paging, 
+            Class<E> clazz) {
+        Blackhole.consumeCPU(latency);
+        return super.findByProperty(property, value, paging, clazz);
+    }
+
+    @Override
+    public void delete(Persistable entity) {
+        Blackhole.consumeCPU(latency);
+        super.delete(entity);
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        Blackhole.consumeCPU(latency);
+        return super.deleteByProperty(property, value, clazz);
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        Blackhole.consumeCPU(latency);
+        super.update(entity);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (int i = 0; i < entities.size(); i += batchSize) {
+            Blackhole.consumeCPU(latency);
+        }
+        for (Persistable entity : entities) {
+            super.update(entity);
+        }
+    }
+}
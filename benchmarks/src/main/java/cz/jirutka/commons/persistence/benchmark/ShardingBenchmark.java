@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import cz.jirutka.commons.persistence.dao.shard.ShardFunction;
+import cz.jirutka.commons.persistence.dao.shard.ShardedGenericDAO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures overhead of the {@link ShardedGenericDAO} over the given number 
+ * of indexed {@link InMemoryGenericDAO} shards: routing of single-instance 
+ * operations, splitting of batches, and scatter-gather of ordered pages with
+ * the k-way merge. One shard means the unsharded backend itself.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardingBenchmark {
+    
+    @Param({"1", "4"})
+    public int shards;
+    
+    /** Number of stored entities. */
+    @Param({"10000"})
+    public int size;
+    
+    private GenericDAO dao;
+    private List<Long> batchIds;
+    private PagingOrdering paging;
+    private PagingOrdering keysetPaging;
+
+    
+    @Setup
+    public void setup() {
+        List<InMemoryGenericDAO> backends = new ArrayList<InMemoryGenericDAO>(shards);
+        for (int i = 0; i < shards; i++) {
+            backends.add(new InMemoryGenericDAO().configure(BenchEntity.class, new TableSpec()
+                    .hashIndex("age")
+                    .sortedIndex("age", "id")
+                    .naturalKey("name")));
+        }
+        dao = shards == 1 ? backends.get(0) : new ShardedGenericDAO(backends, ShardFunction.MODULO_HASH);
+        
+        for (long i = 1; i <= size; i++) {
+            dao.save(new BenchEntity(i, "name" + i, (int) (i % 100)));
+        }
+        batchIds = new ArrayList<Long>();
+        for (long i = 1; i <= 100; i += 10) {
+            batchIds.add(i);
+        }
+        paging = new PagingOrdering(20, 200).orderBy("age").orderBy("id");
+        keysetPaging = new PagingOrdering().limit(20).orderBy("age").orderBy("id").after(5000L, 50);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        if (dao instanceof ShardedGenericDAO) {
+            ((ShardedGenericDAO) dao).close();
+        }
+    }
+    
+    
+    @Benchmark
+    public Long count() {
+        return dao.count(BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity findByNaturalKey() {
+        return dao.findByNaturalKey("name4242", BenchEntity.class);
+    }
+    
+    @Benchmark
+    public BenchEntity findByPrimaryKey() {
+        return dao.findByPrimaryKey(4242L, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public Map<Long, BenchEntity> findByPrimaryKeys() {
+        return dao.findByPrimaryKeys(batchIds, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> getPaginatedKeyset() {
+        return dao.getPaginated(keysetPaging, BenchEntity.class);
+    }
+    
+    @Benchmark
+    public List<BenchEntity> getPaginatedOffset() {
+        return dao.getPaginated(paging, BenchEntity.class);
+    }
+}
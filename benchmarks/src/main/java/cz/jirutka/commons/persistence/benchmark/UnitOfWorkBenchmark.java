@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.unitofwork.UnitOfWork;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures a request that looks up an entity and updates it several times, 
+ * either directly on a {@link RemoteDAO} (<tt>direct</tt>), or within 
+ * a {@link UnitOfWork} that is committed at the end (<tt>unitOfWork</tt>). 
+ * In the <tt>unchanged</tt> variant the updates don't modify the entity.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UnitOfWorkBenchmark {
+
+    private static final int SIZE = 1000;
+
+    @Param({"direct", "unitOfWork"})
+    public String mode;
+
+    /** Number of lookups and updates of the entity per request. */
+    @Param({"3"})
+    public int repeats;
+
+    /** CPU tokens burned per call of the backend. */
+    @Param({"0", "10000"})
+    public int latency;
+
+    private GenericDAO store;
+    private long id;
+
+
+    @Setup
+    public void setup() {
+        store = new RemoteDAO(latency);
+        for (long i = 1; i <= SIZE; i++) {
+            store.save(new BenchEntity(i, "name" + i, 0));
+        }
+    }
+
+    private long nextId() {
+        id = id % SIZE + 1;
+        return id;
+    }
+
+
+    @Benchmark
+    public void modified() {
+        request(true);
+    }
+
+    @Benchmark
+    public void unchanged() {
+        request(false);
+    }
+
+    private void request(boolean modify) {
+        long entityId = nextId();
+        UnitOfWork uow = mode.equals("unitOfWork") ? new UnitOfWork(store) : null;
+        GenericDAO dao = uow != null ? uow : store;
+
+        for (int i = 0; i < repeats; i++) {
+            BenchEntity entity = dao.findByPrimaryKey(entityId, BenchEntity.class);
+            if (modify) {
+                entity.setAge(entity.getAge() + 1);
+            }
+            dao.update(entity);
+        }
+        if (uow != null) {
+            uow.commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.benchmark;
+
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.writebehind.WriteBehindGenericDAO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures updates of frequently changing entities written directly to the
+ * {@link InMemoryGenericDAO} (<tt>direct</tt>) vs. through the {@link
+ * WriteBehindGenericDAO} (<tt>writeBehind</tt>), with a simulated round-trip
+ * of the given number of CPU tokens per call, see {@link RemoteDAO}. The
+ * entities are updated round-robin, so with fewer hot keys more updates are
+ * merged before a flush.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBehindBenchmark {
+
+    @Param({"direct", "writeBehind"})
+    public String mode;
+
+    /** Number of distinct updated entities. */
+    @Param({"100", "10000"})
+    public int hotKeys;
+
+    /** CPU tokens burned per call of the backend. */
+    @Param({"0", "10000"})
+    public int latency;
+
+    private GenericDAO dao;
+    private List<BenchEntity> entities;
+    private int cursor;
+
+
+    @Setup
+    public void setup() {
+        GenericDAO store = new RemoteDAO(latency);
+        entities = new ArrayList<BenchEntity>(hotKeys);
+
+        for (long i = 1; i <= hotKeys; i++) {
+            BenchEntity entity = new BenchEntity(i, "name" + i, 0);
+            store.save(entity);
+            entities.add(entity);
+        }
+        switch (mode) {
+            case "direct":
+                dao = store;
+                break;
+            case "writeBehind":
+                dao = new WriteBehindGenericDAO(store, 500, 100, TimeUnit.MILLISECONDS, 5000);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (dao instanceof WriteBehindGenericDAO) {
+            ((WriteBehindGenericDAO) dao).close();
+        }
+    }
+
+
+    @Benchmark
+    public void update() {
+        if (++cursor == entities.size()) {
+            cursor = 0;
+        }
+        dao.update(entities.get(cursor));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence;
+
+import java.io.Serializable;
+
+/**
+ * Persistable class with a primitive <tt>long</tt> identifier. DAOs, caches 
+ * and indexes that know about this contract may key the instances on the 
+ * primitive value, without boxing it on every lookup (see 
+ * {@link cz.jirutka.commons.persistence.dao.GenericDAO#findByLongId(long, Class)
+ * GenericDAO.findByLongId()}).
+ * 
+ * <p>The {@link #getId()} must return the same value boxed as a {@link Long},
+ * or <tt>null</tt> when the identifier is not assigned yet; that's what the
+ * default implementation does.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public interface LongIdPersistable extends Persistable {
+    
+    /**
+     * Returns an identifier (i.e. Primary Key) of the entity.
+     * 
+     * @return identifier, or <tt>0</tt> if not assigned yet
+     */
+    long getLongId();
+    
+    /**
+     * @return the {@linkplain #getLongId() identifier} as <tt>Long</tt>, or 
+     *         <tt>null</tt> if not assigned yet
+     */
+    @Override
+    default Serializable getId() {
+        long id = getLongId();
+        return id != 0 ? id : null;
+    }
+    
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact binary codec of instances of one class, built from the class' 
+ * fields (like the Java serialization, i.e. all non-static and non-transient
+ * fields including the inherited ones).
+ * 
+ * <p>The encoded form is a sequence of fields, each prefixed with a key that 
+ * consists of a tag of the field (hash of its name), a logical type (e.g. 
+ * integer, string or UUID) and a wire type (how to skip the value). Integral
+ * numbers, booleans and dates are encoded as ZigZag varints, so small values
+ * take one byte; floating-point numbers in fixed 4 or 8 bytes; strings, byte
+ * arrays, enums (by the constant's name), big numbers and UUIDs as 
+ * length-prefixed bytes. Values of other types (e.g. collections or 
+ * associated entities) are encoded using the Java serialization, each field 
+ * separately. <tt>null</tt> values are encoded as a key only.</p>
+ * 
+ * <p>The schema evolves with the class: fields are matched by name, so an 
+ * encoded field that has been removed from the class is skipped and a field 
+ * added to the class keeps the value assigned by the no-arg constructor. 
+ * A field whose type has been changed is decoded only if the new type has the
+ * same logical type, i.e. between integral numbers (e.g. <tt>int</tt> to 
+ * <tt>Long</tt>), from <tt>float</tt> to <tt>double</tt>, between 
+ * enums, or between a primitive and its wrapper. Otherwise it's skipped, 
+ * so the field keeps the value assigned by the constructor; a serialized 
+ * value is decoded if it's an instance of the new type.</p>
+ * 
+ * <p>Instances are created using the no-arg constructor (it may be private)
+ * and fields are accessed via method handles, without boxing of primitives.
+ * Instances of subclasses are encoded with the class name in front and 
+ * decoded using codec of the subclass. Codecs are cached per class and 
+ * thread-safe.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ * @param <T> the encoded type
+ */
+public final class BinaryEntityCodec<T> implements EntityCodec<T> {
+    
+    private static final ClassValue<BinaryEntityCodec<?>> CACHE = new ClassValue<BinaryEntityCodec<?>>() {
+        protected BinaryEntityCodec<?> computeValue(Class<?> type) {
+            return new BinaryEntityCodec<Object>((Class<Object>) type);
+        }
+    };
+    
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+    private final Map<Integer, FieldCodec> fieldsByTag = new HashMap<Integer, FieldCodec>();
+    private final ConcurrentMap<String, BinaryEntityCodec<?>> subclasses = new ConcurrentHashMap<String, BinaryEntityCodec<?>>();
+    
+    
+    private BinaryEntityCodec(Class<T> type) {
+        if (type.isInterface() || type.isArray() || type.isPrimitive()) {
+            throw new IllegalArgumentException("Cannot create codec for " + type.getName());
+        }
+        this.type = type;
+        this.constructor = findConstructor(type);
+        
+        Deque<Class<?>> hierarchy = new ArrayDeque<Class<?>>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        List<FieldCodec> codecs = new ArrayList<FieldCodec>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && !field.isSynthetic()) {
+                    FieldCodec codec = FieldCodec.forField(field);
+                    FieldCodec existing = fieldsByTag.put(codec.tag, codec);
+                    if (existing != null) {
+                        throw new IllegalArgumentException(String.format(
+                                "Fields %s and %s of %s have the same name or tag, rename one of them",
+                                existing.name, codec.name, type.getName()));
+                    }
+                    codec.index = codecs.size();
+                    codecs.add(codec);
+                }
+            }
+        }
+        this.fields = codecs.toArray(new FieldCodec[codecs.size()]);
+    }
+    
+    /**
+     * Return codec of the given class.
+     * 
+     * @param type the class to encode; it should have a no-arg constructor 
+     *        (required for decoding)
+     * @return the cached codec
+     * @throws IllegalArgumentException if it's not a concrete or abstract 
+     *         class, or some field can't be accessed
+     */
+    public static <T> BinaryEntityCodec<T> forClass(Class<T> type) {
+        return (BinaryEntityCodec<T>) CACHE.get(type);
+    }
+    
+    
+    /**
+     * @return the encoded class
+     */
+    public Class<T> getType() { return type; }
+    
+    /**
+     * @throws IllegalArgumentException if the class of the instance doesn't 
+     *         have a no-arg constructor
+     */
+    @Override
+    public byte[] encode(T value) {
+        BinaryOutput out = new BinaryOutput(64);
+        
+        if (value.getClass() == type) {
+            out.writeString("");
+            writeFields(value, out);
+        } else {
+            out.writeString(value.getClass().getName());
+            forClass(value.getClass()).writeFields(value, out);
+        }
+        return out.toByteArray();
+    }
+    
+    @Override
+    public T decode(ByteBuffer buffer, int offset, int length) {
+        BinaryInput in = new BinaryInput(buffer, offset, length);
+        
+        String className = in.readString();
+        BinaryEntityCodec<?> codec = className.isEmpty() ? this : subclassCodec(className);
+        
+        return type.cast(codec.readFields(in));
+    }
+    
+    
+    private void writeFields(Object value, BinaryOutput out) {
+        if (constructor == null) {
+            throw new IllegalArgumentException(type.getName() + " doesn't have a no-arg constructor");
+        }
+        try {
+            for (FieldCodec field : fields) {
+                field.write(value, out);
+            }
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private Object readFields(BinaryInput in) {
+        if (constructor == null) {
+            throw new IllegalArgumentException(type.getName() + " doesn't have a no-arg constructor");
+        }
+        try {
+            Object bean = constructor.invokeExact();
+            
+            // fields are usually in the same order as they've been written
+            int next = 0;
+            while (in.hasRemaining()) {
+                long key = in.readVarint();
+                int tag = (int) (key >>> FieldCodec.TYPE_BITS);
+                int logicalType = (int) (key >>> 3) & 0xf;
+                int wireType = (int) (key & 7);
+                
+                FieldCodec field = next < fields.length && fields[next].tag == tag 
+                        ? fields[next] : fieldsByTag.get(tag);
+                if (field != null) {
+                    field.read(bean, wireType, logicalType, in);
+                    next = field.index + 1;
+                } else {
+                    FieldCodec.skip(wireType, in);
+                }
+            }
+            return bean;
+            
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private BinaryEntityCodec<?> subclassCodec(String className) {
+        BinaryEntityCodec<?> codec = subclasses.get(className);
+        
+        if (codec == null) {
+            try {
+                Class<?> subclass = Class.forName(className, false, type.getClassLoader());
+                if (!type.isAssignableFrom(subclass)) {
+                    throw new IllegalArgumentException(className + " is not a subclass of " + type.getName());
+                }
+                codec = forClass(subclass);
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalArgumentException("Unknown class of encoded instance: " + className, ex);
+            }
+            subclasses.putIfAbsent(className, codec);
+        }
+        return codec;
+    }
+    
+    private static MethodHandle findConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class));
+            
+        } catch (NoSuchMethodException ex) {
+            return null;
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalArgumentException("Cannot access constructor of " + type.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader of the encodings written by the {@link BinaryOutput} from a region 
+ * of a byte buffer. It reads from its own view of the buffer, so it doesn't 
+ * modify position of the given buffer and the region is not copied.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class BinaryInput {
+    
+    private final ByteBuffer buffer;
+    
+    
+    BinaryInput(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer.duplicate();
+        // cast for compatibility of the bytecode with Java 8
+        ((Buffer) this.buffer).limit(offset + length).position(offset);
+    }
+    
+    
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+    
+    int readByte() {
+        ensureRemaining(1);
+        return buffer.get();
+    }
+    
+    long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+    
+    long readZigZag() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    int readFixed32() {
+        int result = 0;
+        for (int i = 0; i < 32; i += 8) {
+            result |= (readByte() & 0xFF) << i;
+        }
+        return result;
+    }
+    
+    long readFixed64() {
+        long result = 0;
+        for (int i = 0; i < 64; i += 8) {
+            result |= (long) (readByte() & 0xFF) << i;
+        }
+        return result;
+    }
+    
+    /**
+     * @return length-prefixed bytes
+     */
+    byte[] readBytes() {
+        return readRaw(readLength());
+    }
+    
+    /**
+     * @return length-prefixed UTF-8 string
+     */
+    String readString() {
+        int length = readLength();
+        if (length == 0) {
+            return "";
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            skip(length);
+            return value;
+        }
+        return new String(readRaw(length), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return length prefix of bytes
+     */
+    int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed payload, length exceeds the remaining bytes");
+        }
+        return (int) length;
+    }
+    
+    /**
+     * @return bytes of the given length
+     */
+    byte[] readRaw(int length) {
+        ensureRemaining(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    /**
+     * @return position in the underlying buffer
+     */
+    int position() {
+        return buffer.position();
+    }
+    
+    void skip(int bytes) {
+        ensureRemaining(bytes);
+        ((Buffer) buffer).position(buffer.position() + bytes);
+    }
+    
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            throw new IllegalArgumentException("Malformed payload, unexpected end");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte array with writers of the primitive encodings used by the 
+ * {@link BinaryEntityCodec}: unsigned and ZigZag varints, little-endian 
+ * fixed-size numbers and length-prefixed bytes.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class BinaryOutput {
+    
+    private byte[] buffer;
+    private int size = 0;
+    
+    
+    BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+    
+    
+    /**
+     * @return copy of the written bytes
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+    
+    /**
+     * Write the value as unsigned varint (7 bits per byte, least significant 
+     * group first).
+     */
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+    
+    /**
+     * Write the value as ZigZag-encoded varint, so numbers with small absolute
+     * value take few bytes even if negative.
+     */
+    void writeZigZag(long value) {
+        writeVarint(zigZag(value));
+    }
+    
+    void writeFixed32(int value) {
+        ensureCapacity(4);
+        for (int i = 0; i < 4; i++, value >>>= 8) {
+            buffer[size++] = (byte) value;
+        }
+    }
+    
+    void writeFixed64(long value) {
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++, value >>>= 8) {
+            buffer[size++] = (byte) value;
+        }
+    }
+    
+    void writeBytes(byte[] bytes) {
+        writeVarint(bytes.length);
+        writeRaw(bytes);
+    }
+    
+    void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    /**
+     * Write the string as length-prefixed UTF-8.
+     */
+    void writeString(String value) {
+        int length = value.length();
+        
+        // fast path for ASCII, without the intermediate byte array
+        ensureCapacity(length + 5);
+        int start = size;
+        writeVarint(length);
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch >= 0x80) {
+                size = start;
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[size++] = (byte) ch;
+        }
+    }
+    
+    
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    /**
+     * @return number of bytes of the value encoded as unsigned varint
+     */
+    static int varintSize(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            bytes++;
+            value >>>= 7;
+        }
+        return bytes;
+    }
+    
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+}
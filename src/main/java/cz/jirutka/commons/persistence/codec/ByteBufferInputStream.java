@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream that reads a region of a (mapped) byte buffer without copying
+ * it and without changing the buffer's position.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class ByteBufferInputStream extends InputStream {
+    
+    private final ByteBuffer buffer;
+    private final int end;
+    private int position;
+    
+    
+    ByteBufferInputStream(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer.duplicate();
+        this.position = offset;
+        this.end = offset + length;
+    }
+    
+    
+    @Override
+    public int read() {
+        return position < end ? buffer.get(position++) & 0xff : -1;
+    }
+    
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        int count = Math.min(length, end - position);
+        // cast for compatibility of the bytecode with Java 8
+        ((Buffer) buffer).position(position);
+        buffer.get(bytes, offset, count);
+        position += count;
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, end - position));
+        position += count;
+        return count;
+    }
+    
+    @Override
+    public int available() {
+        return end - position;
+    }
+}
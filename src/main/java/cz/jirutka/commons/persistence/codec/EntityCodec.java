@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec that converts instances of one class (i.e. an entity class) to bytes
+ * and back, for caches, off-heap stores and transports that keep instances 
+ * in a serialized form. Codecs are obtained from an {@link EntityCodecFactory}.
+ * 
+ * <p>Decoded instance is a new copy, equal to the encoded one in the values 
+ * of its persistent state. Implementations must be thread-safe.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * @param <T> the encoded type
+ */
+public interface EntityCodec<T> {
+    
+    /**
+     * Encode the given instance (of the codec's type or its subclass).
+     * 
+     * @param value the instance to encode, not <tt>null</tt>
+     * @return the encoded bytes
+     * @throws IllegalArgumentException if the instance can't be encoded
+     */
+    byte[] encode(T value);
+    
+    /**
+     * Decode instance from the given region of the buffer. The buffer's 
+     * position and limit are not modified, so it can be shared (e.g. a mapped
+     * file).
+     * 
+     * @param buffer the buffer to read from
+     * @param offset offset of the encoded bytes in the buffer
+     * @param length number of the encoded bytes
+     * @return the decoded instance
+     * @throws IllegalArgumentException if the bytes are malformed
+     */
+    T decode(ByteBuffer buffer, int offset, int length);
+    
+    /**
+     * Decode instance from the given bytes.
+     * 
+     * @param bytes the encoded bytes
+     * @return the decoded instance
+     * @throws IllegalArgumentException if the bytes are malformed
+     */
+    default T decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
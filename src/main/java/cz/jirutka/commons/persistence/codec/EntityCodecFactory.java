@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+/**
+ * Provider of {@link EntityCodec}s for entity classes; the service provider 
+ * interface of pluggable serialization formats.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public interface EntityCodecFactory {
+    
+    /**
+     * Codecs using the Java serialization, see {@link JavaSerializationCodec}.
+     */
+    EntityCodecFactory JAVA_SERIALIZATION = JavaSerializationCodec::forClass;
+    
+    /**
+     * Compact schema-based binary codecs, see {@link BinaryEntityCodec}.
+     */
+    EntityCodecFactory BINARY = BinaryEntityCodec::forClass;
+    
+    
+    /**
+     * Return codec for the given class. The codec is used also for instances 
+     * of its subclasses.
+     * 
+     * @param type the class
+     * @return the codec
+     * @throws IllegalArgumentException if instances of the class can't be 
+     *         encoded by this kind of codec
+     */
+    <T> EntityCodec<T> codecFor(Class<T> type);
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+import static cz.jirutka.commons.persistence.codec.ValueCodec.*;
+
+/**
+ * Encoding of one field in the {@link BinaryEntityCodec}: the key (tag of 
+ * the field, the logical type and the wire type), followed by the value. The field is accessed
+ * via method handles adapted to the primitive type, so primitive values are
+ * not boxed.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+abstract class FieldCodec {
+    
+    /** Number of bits of the tag, so the key fits into 4 bytes. */
+    private static final int TAG_BITS = 21;
+    
+    /** Number of bits of the logical type and the wire type in the key. */
+    static final int TYPE_BITS = 7;
+    
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    final String name;
+    final int tag;
+    final int logicalType;
+    final MethodHandle getter;
+    final MethodHandle setter;
+    
+    /** Position of the field in the codec of its class. */
+    int index;
+    
+    
+    private FieldCodec(Field field, Class<?> valueType, int logicalType) throws IllegalAccessException {
+        field.setAccessible(true);
+        this.name = field.getName();
+        this.tag = tagOf(name);
+        this.logicalType = logicalType;
+        this.getter = MethodHandles.explicitCastArguments(LOOKUP.unreflectGetter(field), 
+                MethodType.methodType(valueType, Object.class));
+        this.setter = MethodHandles.explicitCastArguments(LOOKUP.unreflectSetter(field), 
+                MethodType.methodType(void.class, Object.class, valueType));
+    }
+    
+    /**
+     * Create codec of the given field.
+     * 
+     * @param field a non-static field
+     * @return the codec
+     * @throws IllegalArgumentException if the field is not accessible
+     */
+    static FieldCodec forField(Field field) {
+        Class<?> type = field.getType();
+        try {
+            if (type == double.class) {
+                return new DoubleField(field);
+            } else if (type == float.class) {
+                return new FloatField(field);
+            } else if (type.isPrimitive()) {
+                return new IntegralField(field);
+            } else {
+                return new ObjectField(field);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Cannot access field " + field, ex);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Cannot access field " + field, ex);
+        }
+    }
+    
+    /**
+     * @return tag of the field with the given name, i.e. FNV-1a hash of the 
+     *         name truncated to 21 bits
+     */
+    static int tagOf(String name) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x01000193;
+        }
+        return hash & ((1 << TAG_BITS) - 1);
+    }
+    
+    /**
+     * Skip value of the given wire type.
+     */
+    static void skip(int wireType, BinaryInput in) {
+        switch (wireType) {
+            case VARINT:     in.readVarint(); break;
+            case FIXED64:    in.skip(8); break;
+            case FIXED32:    in.skip(4); break;
+            case NULL:       break;
+            case BYTES:
+            case SERIALIZED: in.skip(in.readLength()); break;
+            default:
+                throw new IllegalArgumentException("Malformed payload, unknown wire type: " + wireType);
+        }
+    }
+    
+    
+    /**
+     * Write the key and value of this field of the given bean.
+     */
+    abstract void write(Object bean, BinaryOutput out) throws Throwable;
+    
+    /**
+     * Read value of the given wire type and logical type and set it to this 
+     * field of the given bean. If the value is not compatible with the field 
+     * (its type has been changed to another logical type), it's skipped.
+     */
+    abstract void read(Object bean, int wireType, int logicalType, BinaryInput in) throws Throwable;
+    
+    /**
+     * Write the key; <tt>null</tt> and serialized values are not bound to any
+     * logical type.
+     */
+    final void writeKey(int wireType, BinaryOutput out) {
+        int type = wireType == NULL || wireType == SERIALIZED ? LogicalType.ANY : logicalType;
+        out.writeVarint((long) tag << TYPE_BITS | type << 3 | wireType);
+    }
+    
+    
+    /**
+     * Field of an integral primitive type, or boolean (as 0 or 1).
+     */
+    private static final class IntegralField extends FieldCodec {
+        
+        IntegralField(Field field) throws IllegalAccessException {
+            super(field, long.class, LogicalType.ofPrimitive(field.getType()));
+        }
+        
+        void write(Object bean, BinaryOutput out) throws Throwable {
+            writeKey(VARINT, out);
+            out.writeZigZag((long) getter.invokeExact(bean));
+        }
+        
+        void read(Object bean, int wireType, int logicalType, BinaryInput in) throws Throwable {
+            if (wireType == VARINT && logicalType == this.logicalType) {
+                setter.invokeExact(bean, in.readZigZag());
+            } else {
+                skip(wireType, in);
+            }
+        }
+    }
+    
+    private static final class DoubleField extends FieldCodec {
+        
+        DoubleField(Field field) throws IllegalAccessException {
+            super(field, double.class, LogicalType.FLOATING);
+        }
+        
+        void write(Object bean, BinaryOutput out) throws Throwable {
+            writeKey(FIXED64, out);
+            out.writeFixed64(Double.doubleToRawLongBits((double) getter.invokeExact(bean)));
+        }
+        
+        void read(Object bean, int wireType, int logicalType, BinaryInput in) throws Throwable {
+            if (logicalType != this.logicalType) {
+                skip(wireType, in);
+            } else if (wireType == FIXED64) {
+                setter.invokeExact(bean, Double.longBitsToDouble(in.readFixed64()));
+            } else if (wireType == FIXED32) {
+                setter.invokeExact(bean, (double) Float.intBitsToFloat(in.readFixed32()));
+            } else {
+                skip(wireType, in);
+            }
+        }
+    }
+    
+    private static final class FloatField extends FieldCodec {
+        
+        FloatField(Field field) throws IllegalAccessException {
+            super(field, float.class, LogicalType.FLOATING);
+        }
+        
+        void write(Object bean, BinaryOutput out) throws Throwable {
+            writeKey(FIXED32, out);
+            out.writeFixed32(Float.floatToRawIntBits((float) getter.invokeExact(bean)));
+        }
+        
+        void read(Object bean, int wireType, int logicalType, BinaryInput in) throws Throwable {
+            if (wireType == FIXED32 && logicalType == this.logicalType) {
+                setter.invokeExact(bean, Float.intBitsToFloat(in.readFixed32()));
+            } else {
+                skip(wireType, in);
+            }
+        }
+    }
+    
+    /**
+     * Field of a reference type. <tt>null</tt> is encoded as a key without 
+     * value; values without a {@link ValueCodec} are serialized.
+     */
+    private static final class ObjectField extends FieldCodec {
+        
+        private final Class<?> type;
+        private final ValueCodec codec;
+        private final ClassLoader classLoader;
+        
+        ObjectField(Field field) throws IllegalAccessException {
+            this(field, ValueCodec.forType(field.getType()));
+        }
+        
+        private ObjectField(Field field, ValueCodec codec) throws IllegalAccessException {
+            super(field, Object.class, codec != null ? codec.logicalType : LogicalType.ANY);
+            this.type = field.getType();
+            this.codec = codec;
+            this.classLoader = field.getDeclaringClass().getClassLoader();
+        }
+        
+        void write(Object bean, BinaryOutput out) throws Throwable {
+            Object value = (Object) getter.invokeExact(bean);
+            
+            if (value == null) {
+                writeKey(NULL, out);
+            } else if (codec != null && codec.accepts(value)) {
+                writeKey(codec.wireType, out);
+                codec.write(value, out);
+            } else {
+                writeKey(SERIALIZED, out);
+                out.writeBytes(JavaSerializationCodec.serialize(value));
+            }
+        }
+        
+        void read(Object bean, int wireType, int logicalType, BinaryInput in) throws Throwable {
+            if (wireType == NULL) {
+                setter.invokeExact(bean, (Object) null);
+                
+            } else if (codec != null && wireType == codec.wireType && logicalType == codec.logicalType) {
+                setter.invokeExact(bean, codec.read(in));
+                
+            } else if (wireType == SERIALIZED) {
+                byte[] bytes = in.readBytes();
+                Object value = JavaSerializationCodec.deserialize(
+                        ByteBuffer.wrap(bytes), 0, bytes.length, classLoader);
+                if (type.isInstance(value)) {
+                    setter.invokeExact(bean, value);
+                }
+            } else {
+                skip(wireType, in);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec that uses the Java serialization, i.e. {@link ObjectOutputStream}. It 
+ * supports any serializable object graph, but it's slow and the encoded form 
+ * is big (it contains full descriptors of the classes). Classes are resolved 
+ * with the class loader of the codec's type.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * @param <T> the encoded type
+ */
+public final class JavaSerializationCodec<T> implements EntityCodec<T> {
+    
+    private final Class<T> type;
+    
+    
+    private JavaSerializationCodec(Class<T> type) {
+        this.type = type;
+    }
+    
+    /**
+     * @param type the class to encode, must implement {@link Serializable}
+     * @return the codec
+     * @throws IllegalArgumentException if the class is not serializable
+     */
+    public static <T> JavaSerializationCodec<T> forClass(Class<T> type) {
+        if (!Serializable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getName() + " is not Serializable");
+        }
+        return new JavaSerializationCodec<T>(type);
+    }
+    
+    
+    @Override
+    public byte[] encode(T value) {
+        return serialize(value);
+    }
+    
+    @Override
+    public T decode(ByteBuffer buffer, int offset, int length) {
+        return type.cast(deserialize(buffer, offset, length, type.getClassLoader()));
+    }
+    
+    
+    static byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to serialize " + value.getClass().getName(), ex);
+        }
+    }
+    
+    /**
+     * Deserialize an object directly from the given region of the buffer.
+     * 
+     * @param classLoader the class loader to resolve classes with
+     */
+    static Object deserialize(ByteBuffer buffer, int offset, int length, ClassLoader classLoader) {
+        try (ObjectInputStream in = new LoaderObjectInputStream(
+                new ByteBufferInputStream(buffer, offset, length), classLoader)) {
+            return in.readObject();
+            
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to deserialize object", ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Failed to deserialize object", ex);
+        }
+    }
+    
+    
+    private static final class LoaderObjectInputStream extends ObjectInputStream {
+        
+        private final ClassLoader classLoader;
+        
+        LoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+        
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException ex) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static cz.jirutka.commons.persistence.codec.BinaryOutput.varintSize;
+import static cz.jirutka.commons.persistence.codec.BinaryOutput.zigZag;
+
+/**
+ * Encoding of values of one reference type in the {@link BinaryEntityCodec}:
+ * wrappers of primitives, strings, enums, byte arrays, big numbers, dates and
+ * UUIDs. Values of other types are encoded using the Java serialization.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+abstract class ValueCodec {
+    
+    /** Wire types, i.e. how to skip the encoded value. */
+    static final int 
+            VARINT = 0, FIXED64 = 1, BYTES = 2, NULL = 3, SERIALIZED = 4, FIXED32 = 5;
+    
+    /**
+     * Logical types, i.e. how to interpret the encoded value. Many types share
+     * the same wire type, so a value is decoded only into a field of the same
+     * logical type.
+     */
+    static final class LogicalType {
+        static final int 
+                ANY = 0, INTEGER = 1, BOOLEAN = 2, CHARACTER = 3, FLOATING = 4, STRING = 5, 
+                BYTE_ARRAY = 6, BIG_INTEGER = 7, BIG_DECIMAL = 8, UUID = 9, DATE = 10, 
+                LOCAL_DATE = 11, INSTANT = 12, LOCAL_DATE_TIME = 13, ENUM = 14;
+        
+        private LogicalType() {}
+        
+        /**
+         * @return logical type of the given primitive type
+         */
+        static int ofPrimitive(Class<?> type) {
+            if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == char.class) {
+                return CHARACTER;
+            } else if (type == double.class || type == float.class) {
+                return FLOATING;
+            }
+            return INTEGER;
+        }
+    }
+    
+    private static final Map<Class<?>, ValueCodec> CODECS = new HashMap<Class<?>, ValueCodec>();
+    
+    static {
+        register(new ValueCodec(Long.class, VARINT, LogicalType.INTEGER) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Long) value); }
+            Object read(BinaryInput in) { return in.readZigZag(); }
+        });
+        register(new ValueCodec(Integer.class, VARINT, LogicalType.INTEGER) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Integer) value); }
+            Object read(BinaryInput in) { return (int) in.readZigZag(); }
+        });
+        register(new ValueCodec(Short.class, VARINT, LogicalType.INTEGER) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Short) value); }
+            Object read(BinaryInput in) { return (short) in.readZigZag(); }
+        });
+        register(new ValueCodec(Byte.class, VARINT, LogicalType.INTEGER) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Byte) value); }
+            Object read(BinaryInput in) { return (byte) in.readZigZag(); }
+        });
+        register(new ValueCodec(Character.class, VARINT, LogicalType.CHARACTER) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Character) value); }
+            Object read(BinaryInput in) { return (char) in.readZigZag(); }
+        });
+        register(new ValueCodec(Boolean.class, VARINT, LogicalType.BOOLEAN) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag((Boolean) value ? 1 : 0); }
+            Object read(BinaryInput in) { return in.readZigZag() != 0; }
+        });
+        register(new ValueCodec(Double.class, FIXED64, LogicalType.FLOATING) {
+            void write(Object value, BinaryOutput out) { out.writeFixed64(Double.doubleToRawLongBits((Double) value)); }
+            Object read(BinaryInput in) { return Double.longBitsToDouble(in.readFixed64()); }
+        });
+        register(new ValueCodec(Float.class, FIXED32, LogicalType.FLOATING) {
+            void write(Object value, BinaryOutput out) { out.writeFixed32(Float.floatToRawIntBits((Float) value)); }
+            Object read(BinaryInput in) { return Float.intBitsToFloat(in.readFixed32()); }
+        });
+        register(new ValueCodec(String.class, BYTES, LogicalType.STRING) {
+            void write(Object value, BinaryOutput out) { out.writeString((String) value); }
+            Object read(BinaryInput in) { return in.readString(); }
+        });
+        register(new ValueCodec(byte[].class, BYTES, LogicalType.BYTE_ARRAY) {
+            void write(Object value, BinaryOutput out) { out.writeBytes((byte[]) value); }
+            Object read(BinaryInput in) { return in.readBytes(); }
+        });
+        register(new ValueCodec(BigInteger.class, BYTES, LogicalType.BIG_INTEGER) {
+            void write(Object value, BinaryOutput out) { out.writeBytes(((BigInteger) value).toByteArray()); }
+            Object read(BinaryInput in) { return new BigInteger(in.readBytes()); }
+        });
+        // scale and two's-complement bytes of the unscaled value
+        register(new ValueCodec(BigDecimal.class, BYTES, LogicalType.BIG_DECIMAL) {
+            void write(Object value, BinaryOutput out) {
+                BigDecimal decimal = (BigDecimal) value;
+                byte[] unscaled = decimal.unscaledValue().toByteArray();
+                out.writeVarint(varintSize(zigZag(decimal.scale())) + unscaled.length);
+                out.writeZigZag(decimal.scale());
+                out.writeRaw(unscaled);
+            }
+            Object read(BinaryInput in) {
+                int end = in.readLength() + in.position();
+                int scale = (int) in.readZigZag();
+                return new BigDecimal(new BigInteger(in.readRaw(end - in.position())), scale);
+            }
+        });
+        register(new ValueCodec(UUID.class, BYTES, LogicalType.UUID) {
+            void write(Object value, BinaryOutput out) {
+                out.writeVarint(16);
+                out.writeFixed64(((UUID) value).getMostSignificantBits());
+                out.writeFixed64(((UUID) value).getLeastSignificantBits());
+            }
+            Object read(BinaryInput in) {
+                in.readLength();
+                return new UUID(in.readFixed64(), in.readFixed64());
+            }
+        });
+        register(new ValueCodec(Date.class, VARINT, LogicalType.DATE) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag(((Date) value).getTime()); }
+            Object read(BinaryInput in) { return new Date(in.readZigZag()); }
+        });
+        register(new ValueCodec(LocalDate.class, VARINT, LogicalType.LOCAL_DATE) {
+            void write(Object value, BinaryOutput out) { out.writeZigZag(((LocalDate) value).toEpochDay()); }
+            Object read(BinaryInput in) { return LocalDate.ofEpochDay(in.readZigZag()); }
+        });
+        register(new ValueCodec(Instant.class, BYTES, LogicalType.INSTANT) {
+            void write(Object value, BinaryOutput out) {
+                Instant instant = (Instant) value;
+                long seconds = zigZag(instant.getEpochSecond());
+                out.writeVarint(varintSize(seconds) + varintSize(instant.getNano()));
+                out.writeVarint(seconds);
+                out.writeVarint(instant.getNano());
+            }
+            Object read(BinaryInput in) {
+                in.readLength();
+                return Instant.ofEpochSecond(in.readZigZag(), in.readVarint());
+            }
+        });
+        register(new ValueCodec(LocalDateTime.class, BYTES, LogicalType.LOCAL_DATE_TIME) {
+            void write(Object value, BinaryOutput out) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                long days = zigZag(dateTime.toLocalDate().toEpochDay());
+                long nanos = dateTime.toLocalTime().toNanoOfDay();
+                out.writeVarint(varintSize(days) + varintSize(nanos));
+                out.writeVarint(days);
+                out.writeVarint(nanos);
+            }
+            Object read(BinaryInput in) {
+                in.readLength();
+                LocalDate date = LocalDate.ofEpochDay(in.readZigZag());
+                return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readVarint()));
+            }
+        });
+    }
+    
+    final Class<?> type;
+    final int wireType;
+    final int logicalType;
+    
+    
+    ValueCodec(Class<?> type, int wireType, int logicalType) {
+        this.type = type;
+        this.wireType = wireType;
+        this.logicalType = logicalType;
+    }
+    
+    /**
+     * Return codec of values of the given declared type.
+     * 
+     * @param type the declared type of a field
+     * @return the codec, or <tt>null</tt> if values of the type must be 
+     *         serialized
+     */
+    static ValueCodec forType(Class<?> type) {
+        if (type.isEnum()) {
+            return new EnumCodec(type);
+        }
+        return CODECS.get(type);
+    }
+    
+    private static void register(ValueCodec codec) {
+        CODECS.put(codec.type, codec);
+    }
+    
+    
+    /**
+     * @return <tt>true</tt> if this codec can encode the given value; values 
+     *         of subclasses of the declared type are serialized
+     */
+    boolean accepts(Object value) {
+        return value.getClass() == type;
+    }
+    
+    abstract void write(Object value, BinaryOutput out);
+    
+    abstract Object read(BinaryInput in);
+    
+    
+    /**
+     * Enums are encoded by the name of the constant; unknown constant (e.g. 
+     * removed from the enum) is decoded as <tt>null</tt>.
+     */
+    private static final class EnumCodec extends ValueCodec {
+        
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+        
+        EnumCodec(Class<?> type) {
+            super(type, BYTES, LogicalType.ENUM);
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+        
+        @Override
+        boolean accepts(Object value) {
+            return ((Enum<?>) value).getDeclaringClass() == type;
+        }
+        
+        void write(Object value, BinaryOutput out) {
+            out.writeString(((Enum<?>) value).name());
+        }
+        
+        Object read(BinaryInput in) {
+            return constants.get(in.readString());
+        }
+    }
+}
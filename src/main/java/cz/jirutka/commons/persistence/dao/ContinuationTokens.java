@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encoder and decoder of the opaque continuation tokens used for the keyset
+ * pagination, see {@link PagingOrdering#continuationToken}.
+ * 
+ * <p>The token is an URL-safe Base64 of a simple tagged binary format. Tokens
+ * come from untrusted clients, so only a fixed set of value types is 
+ * supported and no Java deserialization is involved. Strings are encoded as
+ * UTF-8 with a length prefix, so their length is not limited.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+final class ContinuationTokens {
+    
+    private static final byte
+            NULL = 0, STRING = 1, LONG = 2, INTEGER = 3, SHORT = 4, BYTE = 5,
+            DOUBLE = 6, FLOAT = 7, BOOLEAN = 8, CHAR = 9, DECIMAL = 10, 
+            BIGINT = 11, DATE = 12, UUID_ = 13;
+    
+    
+    private ContinuationTokens() {}
+    
+    
+    /**
+     * @param signature signature of the ordering the values belong to
+     * @param values the values to encode
+     * @return the token
+     * @throws IllegalArgumentException if some value is of unsupported type
+     */
+    static String encode(int signature, List<?> values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(signature);
+            out.writeShort(values.size());
+            for (Object value : values) {
+                writeValue(out, value);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // can't happen with byte array
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+    
+    /**
+     * @param signature expected signature of the ordering
+     * @param token the token to decode
+     * @return the decoded values
+     * @throws IllegalArgumentException if the token is malformed or was 
+     *         created for a different ordering
+     */
+    static List<Object> decode(int signature, String token) {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            
+            if (in.readInt() != signature) {
+                throw new IllegalArgumentException("Continuation token doesn't match the ordering");
+            }
+            int size = in.readUnsignedShort();
+            List<Object> values = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(readValue(in));
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Malformed continuation token");
+            }
+            return values;
+            
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Malformed continuation token", ex);
+        }
+    }
+    
+    
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIGINT);
+            writeString(out, value.toString());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            out.writeByte(UUID_);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported type of keyset value: " + value.getClass().getName());
+        }
+    }
+    
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:    return null;
+            case STRING:  return readString(in);
+            case LONG:    return in.readLong();
+            case INTEGER: return in.readInt();
+            case SHORT:   return in.readShort();
+            case BYTE:    return in.readByte();
+            case DOUBLE:  return in.readDouble();
+            case FLOAT:   return in.readFloat();
+            case BOOLEAN: return in.readBoolean();
+            case CHAR:    return in.readChar();
+            case DECIMAL: return new BigDecimal(readString(in));
+            case BIGINT:  return new BigInteger(readString(in));
+            case DATE:    return new Date(in.readLong());
+            case UUID_:   return new UUID(in.readLong(), in.readLong());
+            default:
+                throw new IllegalArgumentException("Malformed continuation token");
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("Malformed continuation token");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -18,38 +18,115 @@ package cz.jirutka.commons.persistence.dao;
 
 import cz.jirutka.commons.persistence.Persistable;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.ClassUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Default implementation of the {@linkplain SpecificDAORegistry} interface for 
- * generic {@linkplain SpecificDAO} that stores DAOs in internal hashmap.
+ * generic {@linkplain SpecificDAO}.
+ * 
+ * <p>When there's no DAO registered directly for the requested class, this
+ * registry looks for a DAO registered for the nearest superclass and then for 
+ * any of its interfaces. So it works also with proxied entities (i.e. runtime 
+ * subclasses generated by the ORM) and with entity inheritance. The result of
+ * this resolution is memoized per concrete class (including the case when
+ * there's no suitable DAO), so every next lookup is just a single read from
+ * a concurrent map without any locking or allocation.</p>
+ * 
+ * <p>Registration may be done at runtime, even concurrently with lookups. It 
+ * replaces the whole dispatch table (copy-on-write), so memoized entries can 
+ * never outlive the registrations they were resolved from.</p>
  *
  * @author Jakub Jirutka <jakub@jirutka.cz>
- * @version 2012-06-12
+ * @version 2026-10-17
  * @since 1.0
  */
 public class DefaultSpecificDAORegistry implements SpecificDAORegistry<SpecificDAO> {
     
     private static final Logger LOG = LoggerFactory.getLogger(DefaultSpecificDAORegistry.class);
     
-    private final Map<Class, SpecificDAO> registry = new HashMap<Class, SpecificDAO>();
+    private volatile DispatchTable table = new DispatchTable(new HashMap<Class, SpecificDAO>());
 
     
     @Override
     public boolean containsDAO(Class<? extends Persistable> entityClass) {
-        return registry.containsKey(entityClass);
+        return getDAO(entityClass) != null;
     }
 
     @Override
     public SpecificDAO getDAO(Class<? extends Persistable> entityClass) {
-        return registry.get(entityClass);
+        return table.lookup(entityClass);
+    }
+    
+    /**
+     * @param entityClass an entity class
+     * @return <tt>true</tt> if there's a DAO registered directly for the 
+     *         given class (not resolved from its superclass or interface)
+     */
+    boolean isRegistered(Class<?> entityClass) {
+        return table.registrations.containsKey(entityClass);
     }
 
     @Override
-    public void register(SpecificDAO specificDAO) {
+    public synchronized void register(SpecificDAO specificDAO) {
         LOG.info("Registering Specific DAO for entity class: {}", specificDAO.getEntityClass());
-        registry.put(specificDAO.getEntityClass(), specificDAO);
+        
+        Map<Class, SpecificDAO> registrations = new HashMap<Class, SpecificDAO>(table.registrations);
+        registrations.put(specificDAO.getEntityClass(), specificDAO);
+        table = new DispatchTable(registrations);
+    }
+    
+    
+    /**
+     * Immutable set of registrations with a lazily populated memo of resolved
+     * concrete classes.
+     */
+    private static final class DispatchTable {
+        
+        /** Marker of the memoized negative result (ConcurrentMap can't hold null). */
+        private static final Object NONE = new Object();
+        
+        private final Map<Class, SpecificDAO> registrations;
+        private final ConcurrentMap<Class, Object> resolved;
+        
+        
+        DispatchTable(Map<Class, SpecificDAO> registrations) {
+            this.registrations = registrations;
+            this.resolved = new ConcurrentHashMap<Class, Object>(
+                    Math.max(16, registrations.size() * 2));
+        }
+        
+        
+        SpecificDAO lookup(Class<?> entityClass) {
+            Object dao = resolved.get(entityClass);
+            
+            if (dao == null) {
+                dao = resolve(entityClass);
+                resolved.putIfAbsent(entityClass, dao != null ? dao : NONE);
+            }
+            return dao != NONE ? (SpecificDAO) dao : null;
+        }
+        
+        private SpecificDAO resolve(Class<?> entityClass) {
+            for (Class<?> c = entityClass; c != null; c = c.getSuperclass()) {
+                SpecificDAO dao = registrations.get(c);
+                if (dao != null) {
+                    return dao;
+                }
+            }
+            List<Class<?>> interfaces = ClassUtils.getAllInterfaces(entityClass);
+            for (Class<?> iface : interfaces) {
+                SpecificDAO dao = registrations.get(iface);
+                if (dao != null) {
+                    return dao;
+                }
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+
+/**
+ * {@link DelegatingSpecificDAO} for an entity with a primitive <tt>long</tt>
+ * identifier. The lookups by the primitive identifier are delegated to the 
+ * {@link GenericDAO#findByLongId(long, Class) findByLongId()} and 
+ * {@link GenericDAO#isPersistentByLongId(long, Class) isPersistentByLongId()},
+ * so they don't box it when the generic DAO doesn't.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ *
+ * @param <E> an entity class type
+ */
+public abstract class DelegatingLongIdSpecificDAO <E extends LongIdPersistable> 
+        extends DelegatingSpecificDAO<E, Long> implements LongIdSpecificDAO<E> {
+    
+    
+    public DelegatingLongIdSpecificDAO(GenericDAO genericDAO) {
+        super(genericDAO);
+    }
+    /**
+     * @see DelegatingSpecificDAO#DelegatingSpecificDAO(GenericDAO, Class)
+     */
+    protected DelegatingLongIdSpecificDAO(GenericDAO genericDAO, Class<E> entityClass) {
+        super(genericDAO, entityClass);
+    }
+    
+    /**
+     * @see DelegatingSpecificDAO#DelegatingSpecificDAO()
+     */
+    public DelegatingLongIdSpecificDAO() {
+        super();
+    }
+    
+    
+    @Override
+    public E findByPrimaryKey(long id) {
+        return getGenericDAO().findByLongId(id, entityClass);
+    }
+    
+    @Override
+    public boolean isPersistent(long id) {
+        return getGenericDAO().isPersistentByLongId(id, entityClass);
+    }
+    
+}
@@ -18,10 +18,13 @@ package cz.jirutka.commons.persistence.dao;
 
 import cz.jirutka.commons.persistence.Persistable;
 import java.io.Serializable;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import org.apache.commons.lang3.reflect.TypeUtils;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +45,13 @@ public abstract class DelegatingSpecificDAO
         <E extends Persistable, ID extends Serializable> implements SpecificDAO<E, ID> {
 
     private static final Logger LOG = LoggerFactory.getLogger(DelegatingSpecificDAO.class);
+    
+    /** Entity classes resolved from the type arguments, per DAO class. */
+    private static final ClassValue<Class<?>> ENTITY_CLASSES = new ClassValue<Class<?>>() {
+        protected Class<?> computeValue(Class<?> daoClass) {
+            return determineEntityClass(daoClass);
+        }
+    };
 
     protected final Class<E> entityClass;
     private GenericDAO genericDAO;
@@ -49,9 +59,20 @@ public abstract class DelegatingSpecificDAO
 
 
     public DelegatingSpecificDAO(GenericDAO genericDAO) {
+        this(genericDAO, null);
+    }
+
+    /**
+     * Create the DAO for the given entity class, so it's not resolved from 
+     * the type arguments via reflection.
+     * 
+     * @param genericDAO underlying generic DAO
+     * @param entityClass the entity class, or <tt>null</tt> to resolve it
+     */
+    protected DelegatingSpecificDAO(GenericDAO genericDAO, Class<E> entityClass) {
         this.genericDAO = genericDAO;
-        this.entityClass = determineEntityClass();
-        LOG.debug("Initializing {} for entity {}", this.getClass().getSimpleName(), entityClass.getSimpleName());
+        this.entityClass = entityClass != null ? entityClass : (Class<E>) ENTITY_CLASSES.get(this.getClass());
+        LOG.debug("Initializing {} for entity {}", this.getClass().getSimpleName(), this.entityClass.getSimpleName());
     }
     /**
      * If you want to use non-parametric constructor, then you MUST 
@@ -83,11 +104,34 @@ public abstract class DelegatingSpecificDAO
         this.genericDAO = genericDAO;
     }
     
-    private Class<E> determineEntityClass() {
-        TypeVariable<?> typeVarE = DelegatingSpecificDAO.class.getTypeParameters()[0];
-        Type implType = this.getClass();
+    /**
+     * Resolve the type argument <tt>E</tt> by walking up the superclasses. 
+     * It's done by hand, because the <tt>TypeUtils</tt> of commons-lang3 3.1
+     * fail on Java 8+ for hierarchies deeper than one level.
+     */
+    private static Class<?> determineEntityClass(Class<?> daoClass) {
+        Map<TypeVariable<?>, Type> bindings = new HashMap<TypeVariable<?>, Type>();
+        
+        for (Class<?> type = daoClass; type != DelegatingSpecificDAO.class; type = type.getSuperclass()) {
+            Type superType = type.getGenericSuperclass();
+            if (!(superType instanceof ParameterizedType)) {
+                continue;
+            }
+            ParameterizedType parameterized = (ParameterizedType) superType;
+            TypeVariable<?>[] vars = ((Class<?>) parameterized.getRawType()).getTypeParameters();
+            Type[] args = parameterized.getActualTypeArguments();
+            
+            for (int i = 0; i < vars.length; i++) {
+                Type arg = args[i];
+                bindings.put(vars[i], bindings.containsKey(arg) ? bindings.get(arg) : arg);
+            }
+        }
+        Type entityType = bindings.get(DelegatingSpecificDAO.class.getTypeParameters()[0]);
         
-        return (Class<E>) TypeUtils.getTypeArguments(implType, DelegatingSpecificDAO.class).get(typeVarE);
+        if (entityType instanceof ParameterizedType) {
+            entityType = ((ParameterizedType) entityType).getRawType();
+        }
+        return entityType instanceof Class ? (Class<?>) entityType : null;
     }
 
 
@@ -108,6 +152,21 @@ public abstract class DelegatingSpecificDAO
         genericDAO.delete(id, entityClass);
     }
 
+    @Override
+    public void deleteAll(Collection<? extends E> entities, int batchSize) {
+        genericDAO.deleteAll(entities, batchSize);
+    }
+
+    @Override
+    public int deleteByExample(E exampleInstance, String[] includeProperties) {
+        return genericDAO.deleteByExample(exampleInstance, includeProperties, entityClass);
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value) {
+        return genericDAO.deleteByProperty(property, value, entityClass);
+    }
+
     @Override
     public List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging) {
         return genericDAO.findByExample(exampleInstance, includeProperties, paging, entityClass);
@@ -123,6 +182,11 @@ public abstract class DelegatingSpecificDAO
         return genericDAO.findByPrimaryKey(id, entityClass);
     }
 
+    @Override
+    public Map<ID, E> findByPrimaryKeys(Collection<ID> ids) {
+        return genericDAO.findByPrimaryKeys(ids, entityClass);
+    }
+
     @Override
     public List<E> findByProperty(String property, Object value, PagingOrdering paging) {
         return genericDAO.findByProperty(property, value, paging, entityClass);
@@ -153,14 +217,54 @@ public abstract class DelegatingSpecificDAO
         return (ID) genericDAO.save(entity);
     }
 
+    @Override
+    public List<ID> saveAll(Collection<? extends E> entities, int batchSize) {
+        return (List) genericDAO.saveAll(entities, batchSize);
+    }
+
     @Override
     public void saveOrUpdate(E entity) {
         genericDAO.saveOrUpdate(entity);
     }
 
+    @Override
+    public void saveOrUpdateAll(Collection<? extends E> entities, int batchSize) {
+        genericDAO.saveOrUpdateAll(entities, batchSize);
+    }
+
+    @Override
+    public EntityCursor<E> scrollAll(int chunkSize) {
+        return genericDAO.scrollAll(chunkSize, entityClass);
+    }
+
     @Override
     public void update(E entity) {
         genericDAO.update(entity);
     }
 
+    @Override
+    public void updateAll(Collection<? extends E> entities, int batchSize) {
+        genericDAO.updateAll(entities, batchSize);
+    }
+
+    @Override
+    public int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values) {
+        return genericDAO.updateByExample(exampleInstance, includeProperties, values, entityClass);
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values) {
+        return genericDAO.updateByProperty(property, value, values, entityClass);
+    }
+
+    @Override
+    public void updateProperties(E entity, String... properties) {
+        genericDAO.updateProperties(entity, properties);
+    }
+
+    @Override
+    public void updateProperties(ID id, Map<String, Object> values) {
+        genericDAO.updateProperties(id, values, entityClass);
+    }
+
 }
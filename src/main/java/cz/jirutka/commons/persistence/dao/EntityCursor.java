@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Forward-only iterator over persistent instances that are fetched from the
+ * datastore lazily, in chunks. Only the current chunk is held in memory, so 
+ * it can be used to process tables of any size.
+ * 
+ * <p>The cursor may hold some resources of the datastore (i.e. an open JDBC 
+ * result set), so it must be always {@linkplain #close() closed}, preferably
+ * using the try-with-resources statement.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * 
+ * @param <E> an entity type
+ */
+public interface EntityCursor<E> extends Iterator<E>, AutoCloseable {
+    
+    /**
+     * Release all resources held by this cursor. Calling this method more 
+     * than once has no effect.
+     */
+    @Override
+    void close();
+    
+    /**
+     * Return a sequential stream backed by this cursor. Closing the stream 
+     * closes the cursor.
+     * 
+     * @return the stream of remaining instances
+     */
+    default Stream<E> stream() {
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reading and writing of entity properties for the default implementations
+ * of the partial and bulk updates in {@link GenericDAO} and {@link 
+ * SpecificDAO}, so the public interfaces don't depend on the {@link 
+ * PropertyAccessors}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+final class EntityProperties {
+    
+    private EntityProperties() {}
+    
+    
+    /**
+     * Read values of the given properties of the given instance.
+     * 
+     * @param entity an instance
+     * @param properties names of the properties
+     * @return the values keyed by the property names, in the given order
+     * @throws IllegalArgumentException if there's no such readable property
+     */
+    static Map<String, Object> read(Persistable entity, String... properties) {
+        PropertyAccessors<Persistable> accessors = accessorsOf(entity);
+        Map<String, Object> values = new LinkedHashMap<String, Object>(properties.length * 4 / 3 + 1);
+        
+        for (String property : properties) {
+            values.put(property, accessors.getter(property).get(entity));
+        }
+        return values;
+    }
+    
+    /**
+     * Set the given values to the properties of the given instance.
+     * 
+     * @param entity an instance
+     * @param values values of the properties keyed by the property names
+     * @throws IllegalArgumentException if there's no such writable property,
+     *         or the value is not assignable to it
+     */
+    static void write(Persistable entity, Map<String, Object> values) {
+        PropertyAccessors<Persistable> accessors = accessorsOf(entity);
+        
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            accessors.write(entity, entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Set the given values to the properties of all the given instances and 
+     * write them using the given batch update. It's the default 
+     * implementation of the <tt>updateByXXX()</tt> methods.
+     * 
+     * @param entities the matched instances
+     * @param values values of the properties keyed by the property names
+     * @param updateAll the batch update, i.e. <tt>updateAll()</tt> of the DAO
+     * @return number of the updated instances
+     */
+    static <E extends Persistable> int updateAll(List<E> entities, Map<String, Object> values, 
+            Consumer<List<E>> updateAll) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        for (E entity : entities) {
+            write(entity, values);
+        }
+        updateAll.accept(entities);
+        return entities.size();
+    }
+    
+    
+    private static PropertyAccessors<Persistable> accessorsOf(Persistable entity) {
+        return (PropertyAccessors<Persistable>) PropertyAccessors.forClass(entity.getClass());
+    }
+}
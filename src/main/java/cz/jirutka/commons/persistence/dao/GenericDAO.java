@@ -16,9 +16,14 @@
  */
 package cz.jirutka.commons.persistence.dao;
 
+import cz.jirutka.commons.persistence.LongIdPersistable;
 import cz.jirutka.commons.persistence.Persistable;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contract for the Generic DAO that provides common operations on datastore.
@@ -56,6 +61,73 @@ public interface GenericDAO {
      */
     void delete(Serializable id, Class<? extends Persistable> clazz);
     
+
+    /**
+     * Remove the given persistent instances from the datastore. The instances 
+     * may be of different entity classes.
+     * 
+     * <p>Implementations should send the deletes of the same entity class in
+     * batches of the given size (i.e. as one JDBC batch). The default 
+     * implementation simply calls {@link #delete(Persistable)} for each 
+     * instance.</p>
+     *
+     * @param entities the instances to be removed
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            delete(entity);
+        }
+    }
+    
+    
+    /**
+     * Remove all persistent instances of the given entity class that are 
+     * equal in listed properties with the example instance.
+     * 
+     * <p>Implementations should override it to remove the instances by one
+     * statement without loading them, i.e. a bulk DELETE. The default 
+     * implementation loads all the matched instances using {@link 
+     * #findByExample(Persistable, String[], PagingOrdering, Class) 
+     * findByExample()} and removes them using {@link #deleteAll(Collection,
+     * int) deleteAll()}, so it costs the same as doing it by hand.</p>
+     *
+     * @param exampleInstance an example instance
+     * @param includeProperties properties to match with
+     * @param clazz an entity class
+     * @return number of the removed instances
+     */
+    default <E extends Persistable>
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        List<E> entities = findByExample(exampleInstance, includeProperties, null, clazz);
+        deleteAll(entities, 0);
+        return entities.size();
+    }
+    
+    
+    /**
+     * Remove all persistent instances of the given entity class with the 
+     * given property value.
+     * 
+     * <p>Implementations should override it to remove the instances by one
+     * statement without loading them, i.e. a bulk DELETE. The default 
+     * implementation loads all the matched instances using {@link 
+     * #findByProperty(String, Object, PagingOrdering, Class) findByProperty()}
+     * and removes them using {@link #deleteAll(Collection, int) deleteAll()},
+     * so it costs the same as doing it by hand.</p>
+     *
+     * @param property a property name to match with
+     * @param value the property value
+     * @param clazz an entity class
+     * @return number of the removed instances
+     */
+    default int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        List<? extends Persistable> entities = findByProperty(property, value, null, clazz);
+        deleteAll(entities, 0);
+        return entities.size();
+    }
+    
     
     /**
      * Find persistent instances of the given entity class that are equal in 
@@ -90,6 +162,25 @@ public interface GenericDAO {
             E findByNaturalKey(Object naturalKey, Class<E> clazz);
     
     
+    /**
+     * Return the persistent instance of the given entity class with the given
+     * primitive identifier, see {@link LongIdPersistable}. It behaves just 
+     * like {@link #findByPrimaryKey(Serializable, Class) findByPrimaryKey()}.
+     * 
+     * <p>The default implementation boxes the identifier and calls 
+     * <tt>findByPrimaryKey()</tt>. Implementations that key on primitive 
+     * identifiers should override it to avoid the boxing.</p>
+     *
+     * @param id a primary key
+     * @param clazz an entity class
+     * @return the persistent instance
+     */
+    default <E extends Persistable>
+            E findByLongId(long id, Class<E> clazz) {
+        return findByPrimaryKey(id, clazz);
+    }
+    
+    
     /**
      * Return the persistent instance of the given entity class with the given 
      * identifier. When no such instance exist, it may return <tt>null</tt> or 
@@ -101,6 +192,36 @@ public interface GenericDAO {
      */
     <E extends Persistable> 
             E findByPrimaryKey(Serializable id, Class<E> clazz);
+    
+    
+    /**
+     * Return the persistent instances of the given entity class with the given
+     * identifiers. Identifiers of non-existing instances are skipped, so the
+     * returned map may be smaller than the given collection.
+     * 
+     * <p>The default implementation simply calls {@link 
+     * #findByPrimaryKey(Serializable, Class) findByPrimaryKey()} for each 
+     * identifier (so it may throw <tt>NoResultException</tt> when the 
+     * implementation does). Implementations should override it to fetch 
+     * instances in chunks, i.e. using an IN-list query.</p>
+     *
+     * @param ids primary keys
+     * @param clazz an entity class
+     * @return map of the found instances keyed by their identifiers, in the
+     *         iteration order of the given identifiers
+     */
+    default <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        
+        Map<ID, E> result = new LinkedHashMap<ID, E>(ids.size() * 4 / 3 + 1);
+        for (ID id : ids) {
+            E entity = findByPrimaryKey(id, clazz);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
 
 
     /**
@@ -150,6 +271,23 @@ public interface GenericDAO {
     boolean isPersistent(Serializable id, Class<? extends Persistable> clazz);
 
     
+    /**
+     * Return <code>true</code> if some instance of the given entity class and
+     * the given primitive identifier is persistent, see {@link 
+     * LongIdPersistable}.
+     * 
+     * <p>The default implementation boxes the identifier and calls {@link 
+     * #isPersistent(Serializable, Class) isPersistent()}.</p>
+     *
+     * @param id a primary key
+     * @param clazz an entity class
+     * @return <tt>true</tt> if there is some instance, <tt>false</tt> otherwise
+     */
+    default boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        return isPersistent(id, clazz);
+    }
+
+    
     /**
      * Return lazy-loaded persistent instance of the given entity class with the 
      * given identifier, assuming that the instance exists. This method might 
@@ -182,6 +320,29 @@ public interface GenericDAO {
     Serializable save(Persistable entity);
 
     
+    /**
+     * Persist the given transient instances, see {@link #save(Persistable)}. 
+     * The instances may be of different entity classes.
+     * 
+     * <p>Implementations should send the inserts of the same entity class in
+     * batches of the given size (i.e. as one JDBC batch). The default 
+     * implementation simply calls {@link #save(Persistable)} for each 
+     * instance.</p>
+     *
+     * @param entities transient instances of entity classes
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     * @return the generated identifiers in the same order as the given instances
+     */
+    default List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        List<Serializable> ids = new ArrayList<Serializable>(entities.size());
+        for (Persistable entity : entities) {
+            ids.add(save(entity));
+        }
+        return ids;
+    }
+
+    
     /**
      * Either {@linkplain #save() save()} or {@linkplain #update() update()} the 
      * given instance, depending upon its state.
@@ -191,6 +352,52 @@ public interface GenericDAO {
     void saveOrUpdate(Persistable entity);
 
     
+    /**
+     * Either save or update the given instances, see {@link 
+     * #saveOrUpdate(Persistable)}. The instances may be of different entity 
+     * classes.
+     * 
+     * <p>Implementations should send the statements of the same entity class 
+     * in batches of the given size (i.e. as one JDBC batch). The default 
+     * implementation simply calls {@link #saveOrUpdate(Persistable)} for each 
+     * instance.</p>
+     *
+     * @param entities transient or detached instances
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            saveOrUpdate(entity);
+        }
+    }
+
+    
+    /**
+     * Return a cursor over all persistent instances of the given entity class.
+     * Unlike {@link #getAll(Class) getAll()}, the instances are fetched lazily
+     * in chunks of the given size, so memory usage doesn't depend on the 
+     * number of instances. The returned cursor must be closed!
+     * 
+     * <p>The default implementation fetches the chunks using {@link 
+     * #getPaginated(PagingOrdering, Class) getPaginated()}, see {@link 
+     * PaginatingCursor}, ordered by the {@linkplain 
+     * PagingOrdering#DEFAULT_ID_PROPERTY default} identifier property. 
+     * Implementations should override it to use a real cursor of the 
+     * datastore (i.e. a JDBC result set with fetch size), or at least to give
+     * the cursor their identifier property, if it's named differently.</p>
+     *
+     * @param chunkSize number of instances to fetch at once, zero or negative
+     *        for the implementation's default
+     * @param clazz an entity class
+     * @return the cursor
+     */
+    default <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return new PaginatingCursor<E>(chunkSize, paging -> getPaginated(paging, clazz));
+    }
+
+    
     /**
      * Update the state of the persistent instance with the given detached 
      * instance. The instance must not be already binded with the current session
@@ -201,4 +408,120 @@ public interface GenericDAO {
      */
     void update(Persistable entity);
 
+    
+    /**
+     * Update the state of the persistent instances with the given detached
+     * instances, see {@link #update(Persistable)}. The instances may be of 
+     * different entity classes.
+     * 
+     * <p>Implementations should send the updates of the same entity class in
+     * batches of the given size (i.e. as one JDBC batch). The default 
+     * implementation simply calls {@link #update(Persistable)} for each 
+     * instance.</p>
+     *
+     * @param entities detached instances containing updated state
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            update(entity);
+        }
+    }
+
+    
+    /**
+     * Set the given properties of all persistent instances of the given 
+     * entity class that are equal in listed properties with the example 
+     * instance.
+     * 
+     * <p>Implementations should override it to update the instances by one 
+     * statement without loading them, i.e. a bulk UPDATE. The default 
+     * implementation loads all the matched instances using {@link 
+     * #findByExample(Persistable, String[], PagingOrdering, Class) 
+     * findByExample()}, sets the values and updates them as a whole using 
+     * {@link #updateAll(Collection, int) updateAll()}, so it costs the same
+     * as doing it by hand.</p>
+     *
+     * @param exampleInstance an example instance
+     * @param includeProperties properties to match with
+     * @param values new values of the properties keyed by the property names
+     * @param clazz an entity class
+     * @return number of the updated instances
+     */
+    default <E extends Persistable>
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        List<E> entities = findByExample(exampleInstance, includeProperties, null, clazz);
+        return EntityProperties.updateAll(entities, values, found -> updateAll(found, 0));
+    }
+
+    
+    /**
+     * Set the given properties of all persistent instances of the given 
+     * entity class with the given property value.
+     * 
+     * <p>Implementations should override it to update the instances by one 
+     * statement without loading them, i.e. a bulk UPDATE. The default 
+     * implementation loads all the matched instances using {@link 
+     * #findByProperty(String, Object, PagingOrdering, Class) findByProperty()},
+     * sets the values and updates them as a whole using {@link 
+     * #updateAll(Collection, int) updateAll()}, so it costs the same as doing
+     * it by hand.</p>
+     *
+     * @param property a property name to match with
+     * @param value the property value
+     * @param values new values of the properties keyed by the property names
+     * @param clazz an entity class
+     * @return number of the updated instances
+     */
+    default int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        List<? extends Persistable> entities = findByProperty(property, value, null, clazz);
+        return EntityProperties.updateAll(entities, values, found -> updateAll(found, 0));
+    }
+
+    
+    /**
+     * Update only the given properties of the persistent instance with their
+     * values from the given instance. Other properties of the persistent 
+     * instance are left untouched.
+     * 
+     * <p>The default implementation reads the values and calls {@link 
+     * #updateProperties(Serializable, Map, Class)}.</p>
+     *
+     * @param entity a detached instance containing updated state
+     * @param properties names of the properties to update
+     */
+    default void updateProperties(Persistable entity, String... properties) {
+        updateProperties(entity.getId(), EntityProperties.read(entity, properties), entity.getClass());
+    }
+
+    
+    /**
+     * Set the given properties of the persistent instance of the given entity
+     * class with the given identifier.
+     * 
+     * <p>Implementations should override it to write just the given 
+     * properties without loading the instance, i.e. using an UPDATE statement
+     * with only the given columns. The default implementation is not cheaper 
+     * than a full update: it loads the instance using {@link 
+     * #findByPrimaryKey(Serializable, Class) findByPrimaryKey()}, sets the
+     * values and {@linkplain #update(Persistable) updates} it as a whole.</p>
+     *
+     * @param id a primary key
+     * @param values new values of the properties keyed by the property names
+     * @param clazz an entity class
+     * @throws IllegalStateException if there's no such instance (the default
+     *         implementation)
+     */
+    default void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        Persistable entity = findByPrimaryKey(id, clazz);
+        if (entity == null) {
+            throw new IllegalStateException(String.format(
+                    "No persistent instance of %s with id %s", clazz.getName(), id));
+        }
+        EntityProperties.write(entity, values);
+        update(entity);
+    }
+
 }
@@ -18,7 +18,13 @@ package cz.jirutka.commons.persistence.dao;
 
 import cz.jirutka.commons.persistence.Persistable;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Basic implementation of the DAO Dispatcher pattern [1] for {@link GenericDAO}. 
@@ -31,11 +37,22 @@ import java.util.List;
  * call is delegated to it. Otherwise, it's simply delegated to the generic DAO.
  * </p>
  * 
+ * <p>Every call does exactly one {@linkplain SpecificDAORegistry#getDAO(Class) 
+ * lookup} in the registry, so the cost of dispatching depends only on the 
+ * registry implementation. The {@link DefaultSpecificDAORegistry} resolves 
+ * each entity class only once and may be safely used from multiple threads.
+ * </p>
+ * 
+ * <p>Batch operations (i.e. {@link #saveAll(Collection, int) saveAll()}) 
+ * accept instances of different entity classes. They are split into groups by 
+ * the entity class, keeping the original order inside each group, and every 
+ * group is dispatched separately, so it can be sent as a single batch.</p>
+ * 
  * <p><i>(1) The DAO Dispatcher pattern and concept of this DAO architecture is 
  * idea of Pavel Micka (pavel.micka@flexibase.net). Thanks.<i></p>
  *
  * @author Jakub Jirutka <jakub@jirutka.cz>
- * @version 2012-06-12
+ * @version 2026-10-16
  * @since 1.0
  */
 public class GenericDAODispatcher implements GenericDAO {
@@ -61,8 +78,9 @@ public class GenericDAODispatcher implements GenericDAO {
 
     @Override
     public Long count(Class<? extends Persistable> clazz) {
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).count();
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.count();
         } else {
             return genericDAO.count(clazz);
         }
@@ -70,8 +88,9 @@ public class GenericDAODispatcher implements GenericDAO {
 
     @Override
     public void delete(Persistable entity) {
-        if (registry.containsDAO(entity.getClass())) {
-            registry.getDAO(entity.getClass()).delete(entity);
+        SpecificDAO dao = registry.getDAO(entity.getClass());
+        if (dao != null) {
+            dao.delete(entity);
         } else {
             genericDAO.delete(entity);
         }
@@ -79,19 +98,55 @@ public class GenericDAODispatcher implements GenericDAO {
 
     @Override
     public void delete(Serializable id, Class<? extends Persistable> clazz) {
-        if (registry.containsDAO(clazz)) {
-            registry.getDAO(clazz).delete(id);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            dao.delete(id);
         } else {
             genericDAO.delete(id, clazz);
         }
     }
 
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (List<Persistable> group : groupByClass(entities).values()) {
+            SpecificDAO dao = registry.getDAO(group.get(0).getClass());
+            if (dao != null) {
+                dao.deleteAll(group, batchSize);
+            } else {
+                genericDAO.deleteAll(group, batchSize);
+            }
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.deleteByExample(exampleInstance, includeProperties);
+        } else {
+            return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.deleteByProperty(property, value);
+        } else {
+            return genericDAO.deleteByProperty(property, value, clazz);
+        }
+    }
+
     @Override
     public <E extends Persistable> 
             List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
         
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).findByExample(exampleInstance, includeProperties, paging);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.findByExample(exampleInstance, includeProperties, paging);
         } else {
             return genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
         }
@@ -101,30 +156,64 @@ public class GenericDAODispatcher implements GenericDAO {
     public <E extends Persistable> 
             E findByNaturalKey(Object naturalKey, Class<E> clazz) {
 
-        if (registry.containsDAO(clazz)) {
-            return (E) registry.getDAO(clazz).findByNaturalKey(naturalKey);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return (E) dao.findByNaturalKey(naturalKey);
         } else {
             return genericDAO.findByNaturalKey(naturalKey, clazz);
         }
     }
 
+    /**
+     * Delegates to the specific DAO's primitive overload if it's a {@link 
+     * LongIdSpecificDAO}, otherwise the identifier is boxed for the specific
+     * DAO.
+     */
+    @Override
+    public <E extends Persistable> 
+            E findByLongId(long id, Class<E> clazz) {
+
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao instanceof LongIdSpecificDAO) {
+            return (E) ((LongIdSpecificDAO) dao).findByPrimaryKey(id);
+        } else if (dao != null) {
+            return (E) dao.findByPrimaryKey(Long.valueOf(id));
+        } else {
+            return genericDAO.findByLongId(id, clazz);
+        }
+    }
+
     @Override
     public <E extends Persistable> 
             E findByPrimaryKey(Serializable id, Class<E> clazz) {
 
-        if (registry.containsDAO(clazz)) {
-            return (E) registry.getDAO(clazz).findByPrimaryKey(id);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return (E) dao.findByPrimaryKey(id);
         } else {
             return genericDAO.findByPrimaryKey(id, clazz);
         }
     }
 
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.findByPrimaryKeys(ids);
+        } else {
+            return genericDAO.findByPrimaryKeys(ids, clazz);
+        }
+    }
+
     @Override
     public <E extends Persistable> 
             List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
         
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).findByProperty(property, value, paging);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.findByProperty(property, value, paging);
         } else {
             return genericDAO.findByProperty(property, value, paging, clazz);
         }
@@ -134,8 +223,9 @@ public class GenericDAODispatcher implements GenericDAO {
     public <E extends Persistable> 
             List<E> getAll(Class<E> clazz) {
         
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).getAll();
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.getAll();
         } else {
             return genericDAO.getAll(clazz);
         }
@@ -145,8 +235,9 @@ public class GenericDAODispatcher implements GenericDAO {
     public <E extends Persistable> 
             List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
         
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).getPaginated(paging);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.getPaginated(paging);
         } else {
             return genericDAO.getPaginated(paging, clazz);
         }
@@ -154,19 +245,36 @@ public class GenericDAODispatcher implements GenericDAO {
 
     @Override
     public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
-        if (registry.containsDAO(clazz)) {
-            return registry.getDAO(clazz).isPersistent(id);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.isPersistent(id);
         } else {
             return genericDAO.isPersistent(id, clazz);
         }
     }
 
+    /**
+     * @see #findByLongId(long, Class)
+     */
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao instanceof LongIdSpecificDAO) {
+            return ((LongIdSpecificDAO) dao).isPersistent(id);
+        } else if (dao != null) {
+            return dao.isPersistent(Long.valueOf(id));
+        } else {
+            return genericDAO.isPersistentByLongId(id, clazz);
+        }
+    }
+
     @Override
     public <E extends Persistable> 
             E load(Serializable id, Class<E> clazz) {
         
-        if (registry.containsDAO(clazz)) {
-            return (E) registry.getDAO(clazz).load(id);
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return (E) dao.load(id);
         } else {
             return genericDAO.load(id, clazz);
         }
@@ -174,29 +282,155 @@ public class GenericDAODispatcher implements GenericDAO {
 
     @Override
     public Serializable save(Persistable entity) {
-        if (registry.containsDAO(entity.getClass())) {
-            return registry.getDAO(entity.getClass()).save(entity);
+        SpecificDAO dao = registry.getDAO(entity.getClass());
+        if (dao != null) {
+            return dao.save(entity);
         } else {
             return genericDAO.save(entity);
         }
     }
 
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        Map<Class, List<Persistable>> groups = groupByClass(entities);
+        Map<Class, Iterator<Serializable>> groupsIds = new HashMap<Class, Iterator<Serializable>>(groups.size());
+        
+        for (Map.Entry<Class, List<Persistable>> group : groups.entrySet()) {
+            SpecificDAO dao = registry.getDAO(group.getKey());
+            List<Serializable> ids = dao != null
+                    ? dao.saveAll(group.getValue(), batchSize)
+                    : genericDAO.saveAll(group.getValue(), batchSize);
+            
+            if (groups.size() == 1) {
+                return ids;
+            }
+            groupsIds.put(group.getKey(), ids.iterator());
+        }
+        // restore order of the given entities
+        List<Serializable> result = new ArrayList<Serializable>(entities.size());
+        for (Persistable entity : entities) {
+            result.add(groupsIds.get(entity.getClass()).next());
+        }
+        return result;
+    }
+
     @Override
     public void saveOrUpdate(Persistable entity) {
-        if (registry.containsDAO(entity.getClass())) {
-            registry.getDAO(entity.getClass()).saveOrUpdate(entity);
+        SpecificDAO dao = registry.getDAO(entity.getClass());
+        if (dao != null) {
+            dao.saveOrUpdate(entity);
         } else {
             genericDAO.saveOrUpdate(entity);
         }
     }
 
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (List<Persistable> group : groupByClass(entities).values()) {
+            SpecificDAO dao = registry.getDAO(group.get(0).getClass());
+            if (dao != null) {
+                dao.saveOrUpdateAll(group, batchSize);
+            } else {
+                genericDAO.saveOrUpdateAll(group, batchSize);
+            }
+        }
+    }
+
+    @Override
+    public <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.scrollAll(chunkSize);
+        } else {
+            return genericDAO.scrollAll(chunkSize, clazz);
+        }
+    }
+
     @Override
     public void update(Persistable entity) {
-        if (registry.containsDAO(entity.getClass())) {
-            registry.getDAO(entity.getClass()).update(entity);
+        SpecificDAO dao = registry.getDAO(entity.getClass());
+        if (dao != null) {
+            dao.update(entity);
         } else {
             genericDAO.update(entity);
         }
     }
 
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (List<Persistable> group : groupByClass(entities).values()) {
+            SpecificDAO dao = registry.getDAO(group.get(0).getClass());
+            if (dao != null) {
+                dao.updateAll(group, batchSize);
+            } else {
+                genericDAO.updateAll(group, batchSize);
+            }
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.updateByExample(exampleInstance, includeProperties, values);
+        } else {
+            return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            return dao.updateByProperty(property, value, values);
+        } else {
+            return genericDAO.updateByProperty(property, value, values, clazz);
+        }
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        SpecificDAO dao = registry.getDAO(entity.getClass());
+        if (dao != null) {
+            dao.updateProperties(entity, properties);
+        } else {
+            genericDAO.updateProperties(entity, properties);
+        }
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        SpecificDAO dao = registry.getDAO(clazz);
+        if (dao != null) {
+            dao.updateProperties(id, values);
+        } else {
+            genericDAO.updateProperties(id, values, clazz);
+        }
+    }
+    
+    
+    /**
+     * Split the given entities into groups by their class. Groups are ordered 
+     * by the first occurrence of the class and each group keeps the order of 
+     * the given entities.
+     */
+    private static Map<Class, List<Persistable>> groupByClass(Collection<? extends Persistable> entities) {
+        Map<Class, List<Persistable>> groups = new LinkedHashMap<Class, List<Persistable>>(4);
+        
+        for (Persistable entity : entities) {
+            List<Persistable> group = groups.get(entity.getClass());
+            if (group == null) {
+                group = new ArrayList<Persistable>();
+                groups.put(entity.getClass(), group);
+            }
+            group.add(entity);
+        }
+        return groups;
+    }
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+import java.util.Map;
+
+/**
+ * Specific DAO for an entity with a primitive <tt>long</tt> identifier. It 
+ * adds overloads of the identifier-based operations that take the primitive
+ * value; these are kept out of the {@link SpecificDAO} itself, so the 
+ * <tt>int</tt> arguments are not captured by them in DAOs of entities with 
+ * other types of identifier.
+ * 
+ * <p>The default implementations simply box the identifier.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ *
+ * @param <E> an entity type
+ */
+public interface LongIdSpecificDAO <E extends LongIdPersistable> extends SpecificDAO<E, Long> {
+    
+    /**
+     * @see SpecificDAO#delete(java.io.Serializable)
+     * @param id a primary key
+     */
+    default void delete(long id) {
+        delete(Long.valueOf(id));
+    }
+    
+    /**
+     * @see SpecificDAO#findByPrimaryKey(java.io.Serializable)
+     * @param id a primary key
+     * @return the persistent instance
+     */
+    default E findByPrimaryKey(long id) {
+        return findByPrimaryKey(Long.valueOf(id));
+    }
+    
+    /**
+     * @see SpecificDAO#isPersistent(java.io.Serializable)
+     * @param id a primary key
+     * @return <tt>true</tt> if there is some instance, <tt>false</tt> otherwise
+     */
+    default boolean isPersistent(long id) {
+        return isPersistent(Long.valueOf(id));
+    }
+    
+    /**
+     * @see SpecificDAO#load(java.io.Serializable)
+     * @param id a primary key
+     * @return the persistent instance
+     */
+    default E load(long id) {
+        return load(Long.valueOf(id));
+    }
+    
+    /**
+     * @see SpecificDAO#updateProperties(java.io.Serializable, Map)
+     * @param id a primary key
+     * @param values new values of the properties keyed by the property names
+     */
+    default void updateProperties(long id, Map<String, Object> values) {
+        updateProperties(Long.valueOf(id), values);
+    }
+    
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Implementation of the {@link EntityCursor} that fetches chunks by repeated 
+ * paginated queries. It's used as a fallback for datastores that doesn't 
+ * support real (server-side) cursors.
+ * 
+ * <p>The chunks are ordered by the identifier property and fetched in the
+ * {@linkplain PagingOrdering keyset mode}, i.e. each chunk starts right after
+ * the identifier of the last instance of the previous one. Thus no instance
+ * is skipped or returned twice and fetching a chunk doesn't have to scan all 
+ * the preceding instances as with an offset.</p>
+ * 
+ * <p>Datastores written before the keyset mode ignore the {@linkplain 
+ * PagingOrdering#getAfterValues() after values} and return the first chunk 
+ * again. When a chunk doesn't start after the last identifier, the cursor 
+ * detects it, discards the chunk and falls back to the limit/offset 
+ * pagination for the rest of the iteration.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ * 
+ * @param <E> an entity type
+ */
+public class PaginatingCursor<E extends Persistable> implements EntityCursor<E> {
+    
+    /** Chunk size used when non-positive one is given. */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    
+    private final int chunkSize;
+    private final String idProperty;
+    private final Function<PagingOrdering, List<E>> pageLoader;
+    
+    private Iterator<E> chunk = Collections.<E>emptyList().iterator();
+    private Serializable firstId;
+    private Serializable lastId;
+    private int fetched = 0;
+    private boolean keyset = true;
+    private boolean exhausted = false;
+    
+    
+    /**
+     * Create a new cursor that orders the chunks by the {@linkplain 
+     * PagingOrdering#DEFAULT_ID_PROPERTY default} identifier property.
+     * 
+     * @param chunkSize number of instances to fetch at once, zero or negative
+     *        for {@link #DEFAULT_CHUNK_SIZE}
+     * @param pageLoader function that fetches a page for the given paging,
+     *        i.e. <tt>paging -> genericDAO.getPaginated(paging, clazz)</tt>
+     */
+    public PaginatingCursor(int chunkSize, Function<PagingOrdering, List<E>> pageLoader) {
+        this(chunkSize, PagingOrdering.DEFAULT_ID_PROPERTY, pageLoader);
+    }
+    
+    /**
+     * Create a new cursor.
+     * 
+     * @param chunkSize number of instances to fetch at once, zero or negative
+     *        for {@link #DEFAULT_CHUNK_SIZE}
+     * @param idProperty name of the identifier property to order the chunks by
+     * @param pageLoader function that fetches a page for the given paging,
+     *        i.e. <tt>paging -> genericDAO.getPaginated(paging, clazz)</tt>
+     */
+    public PaginatingCursor(int chunkSize, String idProperty, Function<PagingOrdering, List<E>> pageLoader) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        this.idProperty = idProperty;
+        this.pageLoader = pageLoader;
+    }
+    
+    
+    @Override
+    public boolean hasNext() {
+        if (!chunk.hasNext() && !exhausted) {
+            List<E> page = fetch();
+            
+            if (keyset && lastId != null && !page.isEmpty() && !follows(page.get(0).getId())) {
+                keyset = false;
+                page = fetch();
+            }
+            exhausted = page.size() < chunkSize;
+            if (!page.isEmpty()) {
+                if (firstId == null) {
+                    firstId = page.get(0).getId();
+                }
+                lastId = page.get(page.size() - 1).getId();
+                fetched += page.size();
+            }
+            chunk = page.iterator();
+        }
+        return chunk.hasNext();
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    @Override
+    public void close() {
+        exhausted = true;
+        chunk = Collections.<E>emptyList().iterator();
+    }
+    
+    
+    private List<E> fetch() {
+        PagingOrdering paging = new PagingOrdering(chunkSize, keyset ? 0 : fetched)
+                .idProperty(idProperty)
+                .orderBy(idProperty);
+        // ordered by the identifier, so it's also the only order value
+        if (keyset && lastId != null) {
+            paging.after(lastId, lastId);
+        }
+        return pageLoader.apply(paging);
+    }
+    
+    /**
+     * Whether the given identifier follows the last one, i.e. the datastore
+     * has respected the after values. Identifiers that are not comparable 
+     * are checked only for a repeated chunk.
+     */
+    private boolean follows(Serializable id) {
+        if (id instanceof Comparable && id.getClass() == lastId.getClass()) {
+            return ((Comparable<Object>) id).compareTo(lastId) > 0;
+        }
+        return !id.equals(lastId) && !id.equals(firstId);
+    }
+}
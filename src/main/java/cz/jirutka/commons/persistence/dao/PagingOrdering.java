@@ -16,8 +16,12 @@
  */
 package cz.jirutka.commons.persistence.dao;
 
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -25,9 +29,32 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 /**
  * This class holds information for paging & ordering in one object to
  * simplify DAO methods.
+ * 
+ * <h3>Keyset pagination</h3>
+ * 
+ * <p>Besides the common limit/offset pagination, it supports also the keyset
+ * (seek) pagination. Instead of an offset, the caller gives the values of the
+ * ordered properties of the last row it has seen, and the next page starts
+ * right after that row. Deep pages are then as fast as the first one, because
+ * the datastore doesn't have to scan and throw away all the preceding rows.
+ * The identifier property is used as a tie-breaker for stable ordering, see 
+ * {@link #getKeysetOrdering()}.</p>
+ * 
+ * <pre>
+ * PagingOrdering paging = new PagingOrdering().limit(20).orderBy("created", DESC);
+ * List&lt;Post&gt; page = dao.getPaginated(paging, Post.class);
+ * String token = paging.continuationToken(page.get(page.size() - 1));
+ * // ...
+ * List&lt;Post&gt; next = dao.getPaginated(paging.after(token), Post.class);
+ * </pre>
+ * 
+ * <p>Implementations of DAO in keyset mode ignore the offset and select only
+ * the rows that follow the {@linkplain #getAfterValues() after values} in the
+ * {@linkplain #getKeysetOrdering() keyset ordering}, i.e. for the ordering 
+ * <tt>a asc, id asc</tt>: <tt>a &gt; :a or (a = :a and id &gt; :id)</tt>.</p>
  *
  * @author Jakub Jirutka <jakub@jirutka.cz>
- * @version 2012-06-15
+ * @version 2026-10-17
  * @since 1.0
  */
 public class PagingOrdering implements Serializable {
@@ -35,9 +62,14 @@ public class PagingOrdering implements Serializable {
     /** Null object */
     public static final PagingOrdering NONE = new PagingOrdering();
     
+    /** Default name of the identifier property used as a tie-breaker. */
+    public static final String DEFAULT_ID_PROPERTY = "id";
+    
     private int limit = -1;
     private int offset = 0;
     private List<OrderBy> ordering = new ArrayList<OrderBy>(1);
+    private String idProperty = DEFAULT_ID_PROPERTY;
+    private List<Object> afterValues;
 
     
     
@@ -127,6 +159,66 @@ public class PagingOrdering implements Serializable {
         ordering.add(new OrderBy(propertyName, ascending));
         return this;
     }
+    
+    /**
+     * Switch to the keyset mode and start the page right after the row with 
+     * the given identifier and values of the ordered properties.
+     * 
+     * <p>When the {@linkplain #getOrdering() ordering} already contains the 
+     * {@linkplain #getIdProperty() identifier property}, the identifier is 
+     * not appended as a tie-breaker, so the <tt>orderValues</tt> must contain
+     * it at its position in the ordering (the <tt>lastId</tt> is ignored).</p>
+     * 
+     * @param lastId identifier of the last row seen
+     * @param orderValues values of the last row seen, one for each {@linkplain 
+     *        #getOrdering() ordering}, in the same order
+     * @return this (for method-chain)
+     */
+    public PagingOrdering after(Serializable lastId, Object... orderValues) {
+        List<Object> values = new ArrayList<Object>(orderValues.length + 1);
+        values.addAll(Arrays.asList(orderValues));
+        if (!isOrderedById()) {
+            values.add(lastId);
+        }
+        this.afterValues = values;
+        return this;
+    }
+    
+    /**
+     * Switch to the keyset mode and start the page right after the given row.
+     * Values of the ordered properties are read from the row using its 
+     * getters.
+     * 
+     * @param lastRow the last row seen
+     * @return this (for method-chain)
+     */
+    public PagingOrdering after(Persistable lastRow) {
+        this.afterValues = readKeysetValues(lastRow);
+        return this;
+    }
+    
+    /**
+     * Switch to the keyset mode and start the page at position described by
+     * the given continuation token.
+     * 
+     * @param continuationToken token created by {@link 
+     *        #continuationToken(Persistable)} with the same ordering
+     * @return this (for method-chain)
+     * @throws IllegalArgumentException if the token is malformed or was 
+     *         created for a different ordering
+     */
+    public PagingOrdering after(String continuationToken) {
+        this.afterValues = ContinuationTokens.decode(keysetSignature(), continuationToken);
+        return this;
+    }
+    
+    /**
+     * Fluent alternative for {@link #setIdProperty(String) setIdProperty()}.
+     */
+    public PagingOrdering idProperty(String idProperty) {
+        this.idProperty = idProperty;
+        return this;
+    }
 
     
     ///// Normal interface /////
@@ -174,6 +266,137 @@ public class PagingOrdering implements Serializable {
     public boolean hasOrdering() {
         return !ordering.isEmpty();
     }
+    
+    /**
+     * @return name of the identifier property used as a tie-breaker in the 
+     *         keyset mode (default <tt>id</tt>)
+     */
+    public String getIdProperty() { return idProperty; }
+    /**
+     * Set name of the identifier property used as a tie-breaker in the
+     * keyset mode.
+     * 
+     * @param idProperty name of the identifier property
+     */
+    public void setIdProperty(String idProperty) { this.idProperty = idProperty; }
+
+    
+    ///// Keyset pagination /////
+    
+    /**
+     * @return <tt>true</tt> if the keyset mode is used, <tt>false</tt> 
+     *         if the limit/offset
+     */
+    public boolean isKeyset() {
+        return afterValues != null;
+    }
+    
+    /**
+     * Return the ordering extended with the identifier property as the last 
+     * order, unless it's already ordered by it. The identifier is ordered in
+     * the same direction as the last order (ascending when there's no 
+     * ordering). This ordering must be used in the keyset mode.
+     * 
+     * @return the ordering with a tie-breaker
+     */
+    public List<OrderBy> getKeysetOrdering() {
+        if (isOrderedById()) {
+            return ordering;
+        }
+        boolean ascending = ordering.isEmpty() || ordering.get(ordering.size() - 1).isAscending();
+        
+        List<OrderBy> result = new ArrayList<OrderBy>(ordering.size() + 1);
+        result.addAll(ordering);
+        result.add(new OrderBy(idProperty, ascending));
+        return result;
+    }
+    
+    /**
+     * Return the values of the last row seen, one for each order of the 
+     * {@linkplain #getKeysetOrdering() keyset ordering}, in the same order.
+     * 
+     * @return the values, or <tt>null</tt> if not in keyset mode
+     * @throws IllegalStateException if number of the values doesn't match
+     *         the ordering
+     */
+    public List<Object> getAfterValues() {
+        if (afterValues == null) {
+            return null;
+        }
+        if (afterValues.size() != getKeysetOrdering().size()) {
+            throw new IllegalStateException(String.format(
+                    "Expected %d keyset values for ordering %s, but got %d",
+                    getKeysetOrdering().size(), getKeysetOrdering(), afterValues.size()));
+        }
+        return Collections.unmodifiableList(afterValues);
+    }
+    
+    /**
+     * Set values of the last row seen in the keyset mode, one for each order 
+     * of the {@linkplain #getKeysetOrdering() keyset ordering}.
+     * 
+     * @param afterValues the values, or <tt>null</tt> to switch back to the 
+     *        limit/offset mode
+     */
+    public void setAfterValues(List<?> afterValues) {
+        this.afterValues = afterValues != null ? new ArrayList<Object>(afterValues) : null;
+    }
+    
+    /**
+     * Create an opaque continuation token for the page that follows the given
+     * row. The token can be passed to the client and then back to {@link 
+     * #after(String)} to fetch the next page.
+     * 
+     * @param lastRow the last row of the current page
+     * @return the token
+     * @throws IllegalArgumentException if some of the ordered properties is
+     *         of type that is not supported by the token
+     */
+    public String continuationToken(Persistable lastRow) {
+        return ContinuationTokens.encode(keysetSignature(), readKeysetValues(lastRow));
+    }
+    
+    
+    private boolean isOrderedById() {
+        for (OrderBy order : ordering) {
+            if (order.getPropertyName().equals(idProperty)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private int keysetSignature() {
+        return getKeysetOrdering().toString().hashCode();
+    }
+    
+    private List<Object> readKeysetValues(Persistable row) {
+        List<OrderBy> keysetOrdering = getKeysetOrdering();
+        List<Object> values = new ArrayList<Object>(keysetOrdering.size());
+        
+        for (OrderBy order : keysetOrdering) {
+            values.add(order.getPropertyName().equals(idProperty) 
+                    ? row.getId() 
+                    : readProperty(row, order.getPropertyName()));
+        }
+        return values;
+    }
+    
+    private static Object readProperty(Object bean, String propertyPath) {
+        PropertyAccessors<Object> accessors = (PropertyAccessors<Object>) PropertyAccessors.forClass(bean.getClass());
+        return accessors.getter(propertyPath).get(bean);
+    }
+
+    
+    /**
+     * Create an immutable snapshot of the current state that can be used as 
+     * a key in hash maps.
+     * 
+     * @return the snapshot
+     */
+    public PagingSnapshot snapshot() {
+        return new PagingSnapshot(this);
+    }
 
     
     @Override
@@ -186,6 +409,8 @@ public class PagingOrdering implements Serializable {
                 .append(limit, other.limit)
                 .append(offset, other.offset)
                 .append(ordering, other.ordering)
+                .append(idProperty, other.idProperty)
+                .append(afterValues, other.afterValues)
                 .isEquals();
     }
 
@@ -195,6 +420,8 @@ public class PagingOrdering implements Serializable {
                 .append(limit)
                 .append(offset)
                 .append(ordering)
+                .append(idProperty)
+                .append(afterValues)
                 .toHashCode();
     }
     
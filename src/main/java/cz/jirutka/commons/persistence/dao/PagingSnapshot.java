@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Immutable snapshot of the {@link PagingOrdering}. Unlike the 
+ * <tt>PagingOrdering</tt>, it can be safely used as a key in hash maps 
+ * (i.e. in a query cache). The hash code is computed once on creation.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ * 
+ * @see PagingOrdering#snapshot()
+ */
+public final class PagingSnapshot implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int limit;
+    private final int offset;
+    private final List<OrderBy> ordering;
+    private final String idProperty;
+    private final List<Object> afterValues;
+    private final int hash;
+    
+    
+    PagingSnapshot(PagingOrdering paging) {
+        this.limit = paging.getLimit();
+        this.offset = paging.getOffset();
+        this.ordering = Collections.unmodifiableList(new ArrayList<OrderBy>(paging.getOrdering()));
+        this.idProperty = paging.getIdProperty();
+        this.afterValues = paging.isKeyset() 
+                ? Collections.unmodifiableList(new ArrayList<Object>(paging.getAfterValues())) 
+                : null;
+        this.hash = new HashCodeBuilder(7, 17)
+                .append(limit)
+                .append(offset)
+                .append(ordering)
+                .append(idProperty)
+                .append(afterValues)
+                .toHashCode();
+    }
+    
+    
+    /**
+     * @return maximum number of results (-1 for non-limit)
+     */
+    public int getLimit() { return limit; }
+    
+    /**
+     * @return results offset, numbered from 0
+     */
+    public int getOffset() { return offset; }
+    
+    /**
+     * @return unmodifiable list of ordering
+     */
+    public List<OrderBy> getOrdering() { return ordering; }
+    
+    /**
+     * @return name of the identifier property used as a tie-breaker
+     */
+    public String getIdProperty() { return idProperty; }
+    
+    /**
+     * @return unmodifiable list of the keyset values, or <tt>null</tt> if not
+     *         in keyset mode
+     */
+    public List<Object> getAfterValues() { return afterValues; }
+    
+    /**
+     * Create a new mutable <tt>PagingOrdering</tt> with the same state.
+     * 
+     * @return a new instance of <tt>PagingOrdering</tt>
+     */
+    public PagingOrdering toPagingOrdering() {
+        PagingOrdering paging = new PagingOrdering(limit, offset, new ArrayList<OrderBy>(ordering));
+        paging.setIdProperty(idProperty);
+        if (afterValues != null) {
+            paging.setAfterValues(afterValues);
+        }
+        return paging;
+    }
+
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        
+        final PagingSnapshot other = (PagingSnapshot) obj;
+        return hash == other.hash && new EqualsBuilder()
+                .append(limit, other.limit)
+                .append(offset, other.offset)
+                .append(ordering, other.ordering)
+                .append(idProperty, other.idProperty)
+                .append(afterValues, other.afterValues)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PagingSnapshot[limit=%d, offset=%d, ordering=%s%s]", limit, offset, ordering,
+                afterValues != null ? ", after=" + afterValues : "");
+    }
+}
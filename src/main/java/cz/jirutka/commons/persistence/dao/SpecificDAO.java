@@ -18,7 +18,11 @@ package cz.jirutka.commons.persistence.dao;
 
 import cz.jirutka.commons.persistence.Persistable;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -59,6 +63,57 @@ public interface SpecificDAO <E extends Persistable, ID extends Serializable> {
      */
     void delete(ID id);
     
+
+    /**
+     * Remove the given persistent instances from the datastore in batches of
+     * the given size. The default implementation simply calls {@link 
+     * #delete(Persistable) delete()} for each instance.
+     *
+     * @param entities the instances to be removed
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void deleteAll(Collection<? extends E> entities, int batchSize) {
+        for (E entity : entities) {
+            delete(entity);
+        }
+    }
+    
+    
+    /**
+     * Remove all persistent instances that are equal in listed properties 
+     * with the example instance, see {@link GenericDAO#deleteByExample(
+     * Persistable, String[], Class)}. The default implementation loads all
+     * the matched instances and removes them using {@link 
+     * #deleteAll(Collection, int) deleteAll()}.
+     *
+     * @param exampleInstance an example instance
+     * @param includeProperties properties to match with
+     * @return number of the removed instances
+     */
+    default int deleteByExample(E exampleInstance, String[] includeProperties) {
+        List<E> entities = findByExample(exampleInstance, includeProperties, null);
+        deleteAll(entities, 0);
+        return entities.size();
+    }
+    
+    
+    /**
+     * Remove all persistent instances with the given property value, see 
+     * {@link GenericDAO#deleteByProperty(String, Object, Class)}. The default
+     * implementation loads all the matched instances and removes them using 
+     * {@link #deleteAll(Collection, int) deleteAll()}.
+     *
+     * @param property a property name to match with
+     * @param value the property value
+     * @return number of the removed instances
+     */
+    default int deleteByProperty(String property, Object value) {
+        List<E> entities = findByProperty(property, value, null);
+        deleteAll(entities, 0);
+        return entities.size();
+    }
+    
     
     /**
      * Find persistent instances that are equal in listed properties with the 
@@ -96,6 +151,28 @@ public interface SpecificDAO <E extends Persistable, ID extends Serializable> {
      * @return the persistent instance
      */
     E findByPrimaryKey(ID id);
+    
+    
+    /**
+     * Return the persistent instances with the given identifiers. Identifiers 
+     * of non-existing instances are skipped. The default implementation simply
+     * calls {@link #findByPrimaryKey(Serializable) findByPrimaryKey()} for 
+     * each identifier.
+     *
+     * @param ids primary keys
+     * @return map of the found instances keyed by their identifiers, in the
+     *         iteration order of the given identifiers
+     */
+    default Map<ID, E> findByPrimaryKeys(Collection<ID> ids) {
+        Map<ID, E> result = new LinkedHashMap<ID, E>(ids.size() * 4 / 3 + 1);
+        for (ID id : ids) {
+            E entity = findByPrimaryKey(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
 
 
     /**
@@ -166,6 +243,25 @@ public interface SpecificDAO <E extends Persistable, ID extends Serializable> {
     ID save(E entity);
 
     
+    /**
+     * Persist the given transient instances in batches of the given size. The 
+     * default implementation simply calls {@link #save(Persistable) save()} 
+     * for each instance.
+     *
+     * @param entities transient instances of a persistent class
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     * @return the generated identifiers in the same order as the given instances
+     */
+    default List<ID> saveAll(Collection<? extends E> entities, int batchSize) {
+        List<ID> ids = new ArrayList<ID>(entities.size());
+        for (E entity : entities) {
+            ids.add(save(entity));
+        }
+        return ids;
+    }
+
+    
     /**
      * Either {@linkplain #save() save()} or {@linkplain #update() update()} the 
      * given instance, depending upon its state.
@@ -175,6 +271,39 @@ public interface SpecificDAO <E extends Persistable, ID extends Serializable> {
     void saveOrUpdate(E entity);
 
     
+    /**
+     * Either save or update the given instances in batches of the given size.
+     * The default implementation simply calls {@link #saveOrUpdate(Persistable)
+     * saveOrUpdate()} for each instance.
+     *
+     * @param entities transient or detached instances
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void saveOrUpdateAll(Collection<? extends E> entities, int batchSize) {
+        for (E entity : entities) {
+            saveOrUpdate(entity);
+        }
+    }
+
+    
+    /**
+     * Return a cursor over all persistent instances that fetches them lazily
+     * in chunks of the given size. The returned cursor must be closed! The
+     * default implementation fetches the chunks using {@link 
+     * #getPaginated(PagingOrdering) getPaginated()}, ordered by the 
+     * {@linkplain PagingOrdering#DEFAULT_ID_PROPERTY default} identifier 
+     * property, see {@link PaginatingCursor}.
+     *
+     * @param chunkSize number of instances to fetch at once, zero or negative
+     *        for the implementation's default
+     * @return the cursor
+     */
+    default EntityCursor<E> scrollAll(int chunkSize) {
+        return new PaginatingCursor<E>(chunkSize, this::getPaginated);
+    }
+
+    
     /**
      * Update the state of the persistent instance with the given detached 
      * instance. The instance must not be already binded with the current session
@@ -185,6 +314,97 @@ public interface SpecificDAO <E extends Persistable, ID extends Serializable> {
      */
     void update(E entity);
     
+
+    /**
+     * Update the state of the persistent instances with the given detached 
+     * instances in batches of the given size. The default implementation 
+     * simply calls {@link #update(Persistable) update()} for each instance.
+     *
+     * @param entities detached instances containing updated state
+     * @param batchSize maximal number of statements in one batch, zero or
+     *        negative for the implementation's default
+     */
+    default void updateAll(Collection<? extends E> entities, int batchSize) {
+        for (E entity : entities) {
+            update(entity);
+        }
+    }
+
+    
+    /**
+     * Set the given properties of all persistent instances that are equal in
+     * listed properties with the example instance, see {@link 
+     * GenericDAO#updateByExample(Persistable, String[], Map, Class)}. The 
+     * default implementation loads all the matched instances, sets the values
+     * and updates them as a whole using {@link #updateAll(Collection, int) 
+     * updateAll()}.
+     *
+     * @param exampleInstance an example instance
+     * @param includeProperties properties to match with
+     * @param values new values of the properties keyed by the property names
+     * @return number of the updated instances
+     */
+    default int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values) {
+        List<E> entities = findByExample(exampleInstance, includeProperties, null);
+        return EntityProperties.updateAll(entities, values, found -> updateAll(found, 0));
+    }
+
+    
+    /**
+     * Set the given properties of all persistent instances with the given 
+     * property value, see {@link GenericDAO#updateByProperty(String, Object,
+     * Map, Class)}. The default implementation loads all the matched 
+     * instances, sets the values and updates them as a whole using {@link 
+     * #updateAll(Collection, int) updateAll()}.
+     *
+     * @param property a property name to match with
+     * @param value the property value
+     * @param values new values of the properties keyed by the property names
+     * @return number of the updated instances
+     */
+    default int updateByProperty(String property, Object value, Map<String, Object> values) {
+        List<E> entities = findByProperty(property, value, null);
+        return EntityProperties.updateAll(entities, values, found -> updateAll(found, 0));
+    }
+
+    
+    /**
+     * Update only the given properties of the persistent instance with their
+     * values from the given instance, see {@link 
+     * GenericDAO#updateProperties(Persistable, String...)}. The default 
+     * implementation reads the values and calls {@link 
+     * #updateProperties(Serializable, Map)}.
+     *
+     * @param entity a detached instance containing updated state
+     * @param properties names of the properties to update
+     */
+    default void updateProperties(E entity, String... properties) {
+        updateProperties((ID) entity.getId(), EntityProperties.read(entity, properties));
+    }
+    
+    /**
+     * Set the given properties of the persistent instance with the given 
+     * identifier, see {@link GenericDAO#updateProperties(Serializable, Map, 
+     * Class)}. Implementations should override it to write the properties 
+     * without loading the instance. The default implementation loads the 
+     * instance, sets the values and {@linkplain #update(Persistable) updates}
+     * it as a whole.
+     *
+     * @param id a primary key
+     * @param values new values of the properties keyed by the property names
+     * @throws IllegalStateException if there's no such instance (the default
+     *         implementation)
+     */
+    default void updateProperties(ID id, Map<String, Object> values) {
+        E entity = findByPrimaryKey(id);
+        if (entity == null) {
+            throw new IllegalStateException(String.format(
+                    "No persistent instance of %s with id %s", getEntityClass().getName(), id));
+        }
+        EntityProperties.write(entity, values);
+        update(entity);
+    }
+    
     /**
      * Return the entity class of this DAO.
      * 
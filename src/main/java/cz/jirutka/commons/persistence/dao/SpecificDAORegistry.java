@@ -39,10 +39,12 @@ public interface SpecificDAORegistry <DAO extends SpecificDAO> {
     boolean containsDAO(Class<? extends Persistable> entityClass);
     
     /**
-     * Return the specific DAO for the given entity class.
+     * Return the specific DAO for the given entity class, or <tt>null</tt> if 
+     * this registry doesn't contain any suitable DAO. The dispatcher relies on 
+     * this contract to dispatch with a single lookup.
      * 
      * @param entityClass an entity class
-     * @return the <tt>SpecificDAO</tt> instance
+     * @return the <tt>SpecificDAO</tt> instance or <tt>null</tt>
      */
     DAO getDAO(Class<? extends Persistable> entityClass);
     
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import java.util.List;
+import org.apache.commons.lang3.ClassUtils;
+
+/**
+ * Base class of the {@linkplain SpecificDAORegistry registries} generated at 
+ * build time by the {@link 
+ * cz.jirutka.commons.persistence.processor.SpecificDAOProcessor 
+ * SpecificDAOProcessor}. The generated subclass knows all the specific DAOs 
+ * annotated with {@link RegisteredDAO} in the compiled sources and their 
+ * entity classes, so there is no
+ * reflection on registration or lookup. Each known entity class 
+ * has an index, the DAOs are held in typed fields and looked up by a switch.
+ * The index of a class is resolved once and then memoized in a {@link 
+ * ClassValue}, so the dispatch costs one identity lookup and a switch.
+ * 
+ * <p>A class that is not known, i.e. a proxy subclass of the entity, is 
+ * resolved to the nearest known superclass and then to any of its interfaces 
+ * (like in the {@link DefaultSpecificDAORegistry}) and memoized. DAOs not 
+ * known at build time are held in a {@link DefaultSpecificDAORegistry}. The 
+ * resolution considers both, so a DAO registered at runtime for the class 
+ * itself, or for a nearer superclass, takes precedence over a known DAO of 
+ * a superclass. The memo is discarded on every registration.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public abstract class StaticSpecificDAORegistry implements SpecificDAORegistry<SpecificDAO> {
+    
+    private final DefaultSpecificDAORegistry fallback = new DefaultSpecificDAORegistry();
+    
+    private volatile ClassValue<Integer> resolved = newResolver();
+    
+    
+    /**
+     * Return index of the given known entity class.
+     * 
+     * @param entityClass an entity class
+     * @return the index, or <tt>-1</tt> if the class is not known
+     */
+    protected abstract int exactIndexOf(Class<?> entityClass);
+    
+    /**
+     * @param index an index of the known entity class
+     * @return the DAO registered for the entity class, or <tt>null</tt>
+     */
+    protected abstract SpecificDAO daoAt(int index);
+    
+    /**
+     * Register the given DAO if it's one of the known DAO classes (or its 
+     * subclass). Called under the lock.
+     * 
+     * @param specificDAO a <tt>SpecificDAO</tt> instance
+     * @return <tt>true</tt> if registered, <tt>false</tt> if not known
+     */
+    protected abstract boolean registerKnown(SpecificDAO specificDAO);
+    
+    
+    /**
+     * Return index of the known entity class that is the given class or its 
+     * nearest superclass or interface.
+     * 
+     * @param entityClass an entity class
+     * @return the index, or <tt>-1</tt> if there's no such known class with 
+     *         a registered DAO, or there's a nearer DAO registered at runtime
+     */
+    public final int indexOf(Class<?> entityClass) {
+        return resolved.get(entityClass);
+    }
+
+    @Override
+    public boolean containsDAO(Class<? extends Persistable> entityClass) {
+        return getDAO(entityClass) != null;
+    }
+
+    @Override
+    public SpecificDAO getDAO(Class<? extends Persistable> entityClass) {
+        int index = indexOf(entityClass);
+        SpecificDAO dao = index >= 0 ? daoAt(index) : null;
+        
+        return dao != null ? dao : fallback.getDAO(entityClass);
+    }
+
+    @Override
+    public synchronized void register(SpecificDAO specificDAO) {
+        if (!registerKnown(specificDAO)) {
+            fallback.register(specificDAO);
+        }
+        resolved = newResolver();
+    }
+    
+    
+    private ClassValue<Integer> newResolver() {
+        return new ClassValue<Integer>() {
+            protected Integer computeValue(Class<?> type) {
+                return resolveIndex(type);
+            }
+        };
+    }
+    
+    private int resolveIndex(Class<?> entityClass) {
+        for (Class<?> c = entityClass; c != null; c = c.getSuperclass()) {
+            if (fallback.isRegistered(c)) {
+                return -1;
+            }
+            int index = exactIndexOf(c);
+            if (index >= 0 && daoAt(index) != null) {
+                return index;
+            }
+        }
+        List<Class<?>> interfaces = ClassUtils.getAllInterfaces(entityClass);
+        for (Class<?> iface : interfaces) {
+            if (fallback.isRegistered(iface)) {
+                return -1;
+            }
+            int index = exactIndexOf(iface);
+            if (index >= 0 && daoAt(index) != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of the {@link GenericDAO}. Every operation returns
+ * immediately with a future that is completed with the result of the 
+ * corresponding <tt>GenericDAO</tt> operation, or exceptionally with the 
+ * exception it has thrown. See the <tt>GenericDAO</tt> for description of
+ * the operations.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ * 
+ * @see ExecutorAsyncGenericDAO
+ */
+public interface AsyncGenericDAO {
+
+    CompletableFuture<Long> count(Class<? extends Persistable> clazz);
+
+    CompletableFuture<Void> delete(Persistable entity);
+
+    CompletableFuture<Void> delete(Serializable id, Class<? extends Persistable> clazz);
+
+    CompletableFuture<Void> deleteAll(Collection<? extends Persistable> entities, int batchSize);
+
+    <E extends Persistable> 
+            CompletableFuture<Integer> deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz);
+
+    CompletableFuture<Integer> deleteByProperty(String property, Object value, Class<? extends Persistable> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<List<E>> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<E> findByLongId(long id, Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<E> findByNaturalKey(Object naturalKey, Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<E> findByPrimaryKey(Serializable id, Class<E> clazz);
+
+    <ID extends Serializable, E extends Persistable> 
+            CompletableFuture<Map<ID, E>> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<List<E>> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<List<E>> getAll(Class<E> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<List<E>> getPaginated(PagingOrdering paging, Class<E> clazz);
+
+    CompletableFuture<Boolean> isPersistent(Serializable id, Class<? extends Persistable> clazz);
+
+    CompletableFuture<Boolean> isPersistentByLongId(long id, Class<? extends Persistable> clazz);
+
+    <E extends Persistable> 
+            CompletableFuture<E> load(Serializable id, Class<E> clazz);
+
+    CompletableFuture<Serializable> save(Persistable entity);
+
+    CompletableFuture<List<Serializable>> saveAll(Collection<? extends Persistable> entities, int batchSize);
+
+    CompletableFuture<Void> saveOrUpdate(Persistable entity);
+
+    CompletableFuture<Void> saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize);
+
+    /**
+     * Open the cursor asynchronously. Note that iterating over the returned 
+     * cursor may block when fetching the next chunk.
+     */
+    <E extends Persistable> 
+            CompletableFuture<EntityCursor<E>> scrollAll(int chunkSize, Class<E> clazz);
+
+    CompletableFuture<Void> update(Persistable entity);
+
+    CompletableFuture<Void> updateAll(Collection<? extends Persistable> entities, int batchSize);
+
+    <E extends Persistable> 
+            CompletableFuture<Integer> updateByExample(E exampleInstance, String[] includeProperties, 
+                    Map<String, Object> values, Class<E> clazz);
+
+    CompletableFuture<Integer> updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz);
+
+    CompletableFuture<Void> updateProperties(Persistable entity, String... properties);
+
+    CompletableFuture<Void> updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz);
+
+}
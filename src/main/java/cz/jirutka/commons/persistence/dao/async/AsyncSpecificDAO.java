@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.SpecificDAO;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of the {@link SpecificDAO}. See the 
+ * <tt>SpecificDAO</tt> for description of the operations.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * 
+ * @param <E> an entity type
+ * @param <ID> a primary key type
+ * 
+ * @see DelegatingAsyncSpecificDAO
+ */
+public interface AsyncSpecificDAO <E extends Persistable, ID extends Serializable> {
+
+    CompletableFuture<Long> count();
+
+    CompletableFuture<Void> delete(E entity);
+
+    CompletableFuture<Void> delete(ID id);
+
+    CompletableFuture<Void> deleteAll(Collection<? extends E> entities, int batchSize);
+
+    CompletableFuture<Integer> deleteByExample(E exampleInstance, String[] includeProperties);
+
+    CompletableFuture<Integer> deleteByProperty(String property, Object value);
+
+    CompletableFuture<List<E>> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging);
+
+    CompletableFuture<E> findByNaturalKey(Object naturalKey);
+
+    CompletableFuture<E> findByPrimaryKey(ID id);
+
+    CompletableFuture<Map<ID, E>> findByPrimaryKeys(Collection<ID> ids);
+
+    CompletableFuture<List<E>> findByProperty(String property, Object value, PagingOrdering paging);
+
+    CompletableFuture<List<E>> getAll();
+
+    CompletableFuture<List<E>> getPaginated(PagingOrdering paging);
+
+    CompletableFuture<Boolean> isPersistent(ID id);
+
+    CompletableFuture<E> load(ID id);
+
+    CompletableFuture<ID> save(E entity);
+
+    CompletableFuture<List<ID>> saveAll(Collection<? extends E> entities, int batchSize);
+
+    CompletableFuture<Void> saveOrUpdate(E entity);
+
+    CompletableFuture<Void> saveOrUpdateAll(Collection<? extends E> entities, int batchSize);
+
+    CompletableFuture<EntityCursor<E>> scrollAll(int chunkSize);
+
+    CompletableFuture<Void> update(E entity);
+
+    CompletableFuture<Void> updateAll(Collection<? extends E> entities, int batchSize);
+
+    CompletableFuture<Integer> updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values);
+
+    CompletableFuture<Integer> updateByProperty(String property, Object value, Map<String, Object> values);
+
+    CompletableFuture<Void> updateProperties(E entity, String... properties);
+
+    CompletableFuture<Void> updateProperties(ID id, Map<String, Object> values);
+
+    /**
+     * Return the entity class of this DAO.
+     * 
+     * @return the entity class
+     */
+    Class<E> getEntityClass();
+
+}
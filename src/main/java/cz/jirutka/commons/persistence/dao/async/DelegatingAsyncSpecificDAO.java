@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementation of the {@link AsyncSpecificDAO} that simply delegates all 
+ * calls to the given instance of {@link AsyncGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ *
+ * @param <E> an entity class type
+ * @param <ID> an identifier type
+ */
+public class DelegatingAsyncSpecificDAO 
+        <E extends Persistable, ID extends Serializable> implements AsyncSpecificDAO<E, ID> {
+    
+    protected final Class<E> entityClass;
+    private final AsyncGenericDAO genericDAO;
+    
+    
+    /**
+     * @param genericDAO the underlying asynchronous generic DAO
+     * @param entityClass the entity class of this DAO
+     */
+    public DelegatingAsyncSpecificDAO(AsyncGenericDAO genericDAO, Class<E> entityClass) {
+        this.genericDAO = genericDAO;
+        this.entityClass = entityClass;
+    }
+
+    
+    @Override
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+    
+    /**
+     * @return underlying asynchronous generic DAO
+     */
+    protected AsyncGenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+    
+    
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return genericDAO.count(entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(E entity) {
+        return genericDAO.delete(entity);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(ID id) {
+        return genericDAO.delete(id, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAll(Collection<? extends E> entities, int batchSize) {
+        return genericDAO.deleteAll(entities, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteByExample(E exampleInstance, String[] includeProperties) {
+        return genericDAO.deleteByExample(exampleInstance, includeProperties, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteByProperty(String property, Object value) {
+        return genericDAO.deleteByProperty(property, value, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<List<E>> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging) {
+        return genericDAO.findByExample(exampleInstance, includeProperties, paging, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<E> findByNaturalKey(Object naturalKey) {
+        return genericDAO.findByNaturalKey(naturalKey, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<E> findByPrimaryKey(ID id) {
+        return genericDAO.findByPrimaryKey(id, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Map<ID, E>> findByPrimaryKeys(Collection<ID> ids) {
+        return genericDAO.findByPrimaryKeys(ids, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<List<E>> findByProperty(String property, Object value, PagingOrdering paging) {
+        return genericDAO.findByProperty(property, value, paging, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<List<E>> getAll() {
+        return genericDAO.getAll(entityClass);
+    }
+
+    @Override
+    public CompletableFuture<List<E>> getPaginated(PagingOrdering paging) {
+        return genericDAO.getPaginated(paging, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPersistent(ID id) {
+        return genericDAO.isPersistent(id, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<E> load(ID id) {
+        return genericDAO.load(id, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<ID> save(E entity) {
+        return (CompletableFuture) genericDAO.save(entity);
+    }
+
+    @Override
+    public CompletableFuture<List<ID>> saveAll(Collection<? extends E> entities, int batchSize) {
+        return (CompletableFuture) genericDAO.saveAll(entities, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdate(E entity) {
+        return genericDAO.saveOrUpdate(entity);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdateAll(Collection<? extends E> entities, int batchSize) {
+        return genericDAO.saveOrUpdateAll(entities, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<EntityCursor<E>> scrollAll(int chunkSize) {
+        return genericDAO.scrollAll(chunkSize, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Void> update(E entity) {
+        return genericDAO.update(entity);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAll(Collection<? extends E> entities, int batchSize) {
+        return genericDAO.updateAll(entities, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateByExample(E exampleInstance, String[] includeProperties, 
+            Map<String, Object> values) {
+        return genericDAO.updateByExample(exampleInstance, includeProperties, values, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateByProperty(String property, Object value, Map<String, Object> values) {
+        return genericDAO.updateByProperty(property, value, values, entityClass);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateProperties(E entity, String... properties) {
+        return genericDAO.updateProperties(entity, properties);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateProperties(ID id, Map<String, Object> values) {
+        return genericDAO.updateProperties(id, values, entityClass);
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of the {@link AsyncGenericDAO} that runs operations of the 
+ * given blocking {@link GenericDAO} on an executor.
+ * 
+ * <p>By default it uses a new executor that starts a virtual thread for each
+ * operation, when running on Java 21 or newer, otherwise a cached pool of 
+ * daemon threads. The number of operations running concurrently on the 
+ * underlying DAO may be limited, so fanning out many independent lookups 
+ * doesn't exhaust the connection pool; operations over the limit wait in a 
+ * queue without blocking any thread.</p>
+ * 
+ * <p>Note that the operations are executed on other threads than the caller,
+ * so they don't participate in the caller's thread-bound transaction (if 
+ * any).</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class ExecutorAsyncGenericDAO implements AsyncGenericDAO, AutoCloseable {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutorAsyncGenericDAO.class);
+    
+    private final GenericDAO genericDAO;
+    private final LimitingExecutor executor;
+    private final ExecutorService ownExecutor;
+    
+    
+    /**
+     * Create a new instance with the default executor.
+     * 
+     * @param genericDAO the underlying blocking DAO
+     * @param maxConcurrency maximum number of operations running concurrently
+     *        on the underlying DAO
+     */
+    public ExecutorAsyncGenericDAO(GenericDAO genericDAO, int maxConcurrency) {
+        this(genericDAO, createDefaultExecutor(), maxConcurrency, true);
+    }
+    
+    /**
+     * Create a new instance with the given executor. The executor is not 
+     * shut down by {@link #close()}.
+     * 
+     * @param genericDAO the underlying blocking DAO
+     * @param executor the executor to run operations on
+     * @param maxConcurrency maximum number of operations running concurrently
+     *        on the underlying DAO
+     */
+    public ExecutorAsyncGenericDAO(GenericDAO genericDAO, ExecutorService executor, int maxConcurrency) {
+        this(genericDAO, executor, maxConcurrency, false);
+    }
+    
+    private ExecutorAsyncGenericDAO(GenericDAO genericDAO, ExecutorService executor, int maxConcurrency, boolean own) {
+        this.genericDAO = genericDAO;
+        this.executor = new LimitingExecutor(executor, maxConcurrency, (task, ex) -> {
+            if (task instanceof Operation) {
+                ((Operation<?>) task).future.completeExceptionally(ex);
+            } else {
+                LOG.error("Queued task " + task + " has been rejected by the executor", ex);
+            }
+        });
+        this.ownExecutor = own ? executor : null;
+    }
+    
+    
+    /**
+     * Create an executor that starts a new virtual thread for each task when
+     * running on Java 21+, or a cached thread pool with daemon threads 
+     * otherwise.
+     * 
+     * @return a new executor
+     */
+    public static ExecutorService createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            LOG.debug("Virtual threads are not available, using platform threads");
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "async-dao-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    /**
+     * Shut down the executor, if it was created by this instance. Already 
+     * submitted operations are completed.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * @return the underlying blocking DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+    
+    /**
+     * Run the given operation asynchronously on the executor.
+     * 
+     * @param operation the operation
+     * @return future of the operation's result
+     */
+    protected <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        Operation<T> task = new Operation<T>(operation);
+        executor.execute(task);
+        return task.future;
+    }
+    
+    /**
+     * Run the given operation asynchronously on the executor.
+     * 
+     * @param operation the operation
+     * @return future completed when the operation is done
+     */
+    protected CompletableFuture<Void> submit(final Runnable operation) {
+        return submit(() -> {
+            operation.run();
+            return null;
+        });
+    }
+    
+    
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public CompletableFuture<Long> count(Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.count(clazz));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Persistable entity) {
+        return submit(() -> genericDAO.delete(entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Serializable id, Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.delete(id, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        return submit(() -> genericDAO.deleteAll(entities, batchSize));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<Integer> deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        return submit(() -> genericDAO.deleteByExample(exampleInstance, includeProperties, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteByProperty(String property, Object value, 
+            Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.deleteByProperty(property, value, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<List<E>> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return submit(() -> genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<E> findByLongId(long id, Class<E> clazz) {
+        return submit(() -> genericDAO.findByLongId(id, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<E> findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        return submit(() -> genericDAO.findByNaturalKey(naturalKey, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<E> findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return submit(() -> genericDAO.findByPrimaryKey(id, clazz));
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable> 
+            CompletableFuture<Map<ID, E>> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        return submit(() -> genericDAO.findByPrimaryKeys(ids, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<List<E>> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return submit(() -> genericDAO.findByProperty(property, value, paging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<List<E>> getAll(Class<E> clazz) {
+        return submit(() -> genericDAO.getAll(clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<List<E>> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return submit(() -> genericDAO.getPaginated(paging, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.isPersistent(id, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.isPersistentByLongId(id, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<E> load(Serializable id, Class<E> clazz) {
+        return submit(() -> genericDAO.load(id, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Serializable> save(Persistable entity) {
+        return submit(() -> genericDAO.save(entity));
+    }
+
+    @Override
+    public CompletableFuture<List<Serializable>> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        return submit(() -> genericDAO.saveAll(entities, batchSize));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdate(Persistable entity) {
+        return submit(() -> genericDAO.saveOrUpdate(entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        return submit(() -> genericDAO.saveOrUpdateAll(entities, batchSize));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<EntityCursor<E>> scrollAll(int chunkSize, Class<E> clazz) {
+        return submit(() -> genericDAO.scrollAll(chunkSize, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Persistable entity) {
+        return submit(() -> genericDAO.update(entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        return submit(() -> genericDAO.updateAll(entities, batchSize));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            CompletableFuture<Integer> updateByExample(E exampleInstance, String[] includeProperties, 
+                    Map<String, Object> values, Class<E> clazz) {
+        return submit(() -> genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.updateByProperty(property, value, values, clazz));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateProperties(Persistable entity, String... properties) {
+        return submit(() -> genericDAO.updateProperties(entity, properties));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateProperties(Serializable id, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        return submit(() -> genericDAO.updateProperties(id, values, clazz));
+    }
+    
+    
+    /**
+     * Task that completes the future with the result of the operation. Unlike
+     * {@link CompletableFuture#supplyAsync(Supplier, java.util.concurrent.Executor)},
+     * it exposes the future, so it can be completed exceptionally when the 
+     * task is rejected by the executor after being queued.
+     */
+    private static class Operation<T> implements Runnable {
+        
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Supplier<T> supplier;
+        
+        Operation(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+        
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(new CompletionException(ex));
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that runs at most the given number of tasks at once on the
+ * underlying executor. Tasks over the limit are queued (without blocking 
+ * any thread) and submitted as soon as some running task completes.
+ * 
+ * <p>It's used to limit the number of concurrent calls to a backend, so 
+ * fanning out many independent operations doesn't exhaust its connection 
+ * pool.</p>
+ * 
+ * <p>When the underlying executor rejects the task of the caller of {@link 
+ * #execute(Runnable)}, the exception is propagated to the caller. A queued 
+ * task of another caller may be rejected later, when there may be no caller
+ * and no running task to retry it. Such a task is dropped and passed to the
+ * rejection handler together with the exception, so its owner can be 
+ * notified (i.e. its future completed exceptionally). The default handler 
+ * just logs it.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class LimitingExecutor implements Executor {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(LimitingExecutor.class);
+    
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final BiConsumer<Runnable, RuntimeException> rejectionHandler;
+    private final Deque<Runnable> queue = new ConcurrentLinkedDeque<Runnable>();
+    private final AtomicInteger running = new AtomicInteger();
+    
+    
+    /**
+     * @param executor the underlying executor, it should not reject tasks
+     * @param maxConcurrency maximum number of concurrently running tasks
+     */
+    public LimitingExecutor(Executor executor, int maxConcurrency) {
+        this(executor, maxConcurrency, (task, ex) -> 
+                LOG.error("Queued task " + task + " has been rejected by the executor", ex));
+    }
+    
+    /**
+     * @param executor the underlying executor, it should not reject tasks
+     * @param maxConcurrency maximum number of concurrently running tasks
+     * @param rejectionHandler callback for queued tasks of other callers 
+     *        that have been rejected by the underlying executor
+     */
+    public LimitingExecutor(Executor executor, int maxConcurrency, 
+            BiConsumer<Runnable, RuntimeException> rejectionHandler) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.rejectionHandler = rejectionHandler;
+    }
+    
+    
+    @Override
+    public void execute(Runnable task) {
+        queue.add(task);
+        drain(task);
+    }
+    
+    /**
+     * @return number of currently running tasks
+     */
+    public int getRunningCount() {
+        return running.get();
+    }
+    
+    /**
+     * @return approximate number of tasks waiting for a free slot
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    /**
+     * @return maximum number of concurrently running tasks
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    
+    /**
+     * Submit the queued tasks to the underlying executor while there's 
+     * a free slot.
+     * 
+     * @param own the task submitted by the caller, or <tt>null</tt>
+     */
+    private void drain(Runnable own) {
+        while (!queue.isEmpty()) {
+            int current = running.get();
+            if (current >= maxConcurrency) {
+                return;  // some running task will drain the queue when done
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            final Runnable task = queue.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                continue;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            running.decrementAndGet();
+                            drain(null);
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                running.decrementAndGet();
+                if (task == own) {
+                    throw ex;
+                }
+                // the task belongs to another caller that may be gone already
+                rejectionHandler.accept(task, ex);
+            }
+        }
+    }
+}
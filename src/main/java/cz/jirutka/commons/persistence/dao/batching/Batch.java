@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.batching;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Identifiers of one entity class collected to be fetched at once, each with
+ * a future of its instance. Not thread-safe, it must be guarded by the owner
+ * until it's dispatched.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class Batch {
+    
+    final Class<? extends Persistable> clazz;
+    final Map<Serializable, CompletableFuture<Persistable>> pending = 
+            new LinkedHashMap<Serializable, CompletableFuture<Persistable>>();
+    boolean closed = false;
+    
+    
+    Batch(Class<? extends Persistable> clazz) {
+        this.clazz = clazz;
+    }
+    
+    
+    /**
+     * @return future of the instance with the given identifier; the same 
+     *         future for the same identifier
+     */
+    CompletableFuture<Persistable> add(Serializable id) {
+        CompletableFuture<Persistable> future = pending.get(id);
+        if (future == null) {
+            future = new CompletableFuture<Persistable>();
+            pending.put(id, future);
+        }
+        return future;
+    }
+    
+    int size() {
+        return pending.size();
+    }
+    
+    /**
+     * Fetch all the instances using {@link GenericDAO#findByPrimaryKeys(
+     * java.util.Collection, Class) findByPrimaryKeys()} and complete their 
+     * futures; with <tt>null</tt> for the missing ones, or exceptionally if 
+     * the fetch has failed. It never throws an exception.
+     */
+    void dispatch(GenericDAO genericDAO) {
+        Map<Serializable, ? extends Persistable> found;
+        try {
+            found = genericDAO.findByPrimaryKeys(pending.keySet(), clazz);
+        } catch (RuntimeException | Error ex) {
+            for (CompletableFuture<Persistable> future : pending.values()) {
+                future.completeExceptionally(ex);
+            }
+            return;
+        }
+        for (Map.Entry<Serializable, CompletableFuture<Persistable>> entry : pending.entrySet()) {
+            entry.getValue().complete(found.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.batching;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Explicit scope that collects lookups by identifier without blocking and 
+ * fetches them at once, one batch per entity class, when {@linkplain 
+ * #dispatch() dispatched} (i.e. DataLoader). A batch that reaches the maximum
+ * size is fetched immediately. 
+ * 
+ * <pre>
+ * try (BatchScope scope = batchingDAO.openScope()) {
+ *     for (Order order : orders) {
+ *         scope.load(order.getCustomerId(), Customer.class)
+ *              .thenAccept(order::setCustomer);
+ *     }
+ * }  // the customers are fetched here
+ * </pre>
+ * 
+ * <p>It's thread-safe, so the lookups may be added by concurrent tasks. The 
+ * futures are completed on the thread that dispatches the batch.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * 
+ * @see BatchingGenericDAO#openScope()
+ */
+public final class BatchScope implements AutoCloseable {
+    
+    private final GenericDAO genericDAO;
+    private final int maxBatchSize;
+    private final Map<Class, Batch> batches = new LinkedHashMap<Class, Batch>();
+    
+    
+    BatchScope(GenericDAO genericDAO, int maxBatchSize) {
+        this.genericDAO = genericDAO;
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    
+    /**
+     * Add lookup of the instance of the given entity class with the given 
+     * identifier to the batch.
+     * 
+     * @param id a primary key
+     * @param clazz an entity class
+     * @return future completed with the instance, or <tt>null</tt> if it 
+     *         doesn't exist, when the batch is dispatched
+     */
+    public <E extends Persistable> CompletableFuture<E> load(Serializable id, Class<E> clazz) {
+        Batch full = null;
+        CompletableFuture<Persistable> future;
+        
+        synchronized (batches) {
+            Batch batch = batches.get(clazz);
+            if (batch == null) {
+                batches.put(clazz, batch = new Batch(clazz));
+            }
+            future = batch.add(id);
+            
+            if (batch.size() >= maxBatchSize) {
+                batches.remove(clazz);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            full.dispatch(genericDAO);
+        }
+        return future.thenApply(clazz::cast);
+    }
+    
+    /**
+     * Fetch all the collected lookups, one batch per entity class. If a fetch
+     * fails, the futures of its batch are completed exceptionally.
+     */
+    public void dispatch() {
+        List<Batch> pending;
+        synchronized (batches) {
+            pending = new ArrayList<Batch>(batches.values());
+            batches.clear();
+        }
+        for (Batch batch : pending) {
+            batch.dispatch(genericDAO);
+        }
+    }
+    
+    /**
+     * {@linkplain #dispatch() Dispatch} the remaining lookups.
+     */
+    @Override
+    public void close() {
+        dispatch();
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.batching;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator of the {@link GenericDAO} that collects individual {@link 
+ * #findByPrimaryKey(Serializable, Class) findByPrimaryKey()} calls of 
+ * concurrent tasks and fetches them at once using {@link 
+ * GenericDAO#findByPrimaryKeys(Collection, Class) findByPrimaryKeys()}, 
+ * one batch per entity class.
+ * 
+ * <p>The first call of an entity class opens a batch and waits for the 
+ * configured window. The calls of other threads that come within the window
+ * join the batch. When the window elapses, the first caller fetches the whole
+ * batch, or the caller that fills it up to the maximum size, immediately. 
+ * Every caller then gets its own instance, or <tt>null</tt> if it doesn't 
+ * exist, or the exception of the fetch. The batch is fetched on the thread 
+ * (and in the transaction, if any) of one of the callers, no other threads 
+ * are used. Waiting threads are parked using <tt>java.util.concurrent</tt> 
+ * locks, so it works with virtual threads as well.</p>
+ * 
+ * <p>The window adds latency to every lookup, so it should be short, i.e. 
+ * a millisecond. It pays off when many tasks run in parallel and each loads 
+ * instances one by one, i.e. when resolving associations of a page of 
+ * results.</p>
+ * 
+ * <p>Alternatively, a {@linkplain #openScope() scope} collects lookups 
+ * without waiting and fetches them when it's {@linkplain BatchScope#dispatch()
+ * dispatched}.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class BatchingGenericDAO implements GenericDAO {
+    
+    private final GenericDAO genericDAO;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ConcurrentMap<Class, Collector> collectors = new ConcurrentHashMap<Class, Collector>();
+    
+    
+    /**
+     * @param genericDAO the underlying generic DAO
+     * @param window how long to wait for other lookups before the batch is 
+     *        fetched
+     * @param unit unit of the window
+     * @param maxBatchSize maximum number of identifiers in one batch
+     */
+    public BatchingGenericDAO(GenericDAO genericDAO, long window, TimeUnit unit, int maxBatchSize) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.genericDAO = genericDAO;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    
+    /**
+     * Open a new scope that collects lookups and fetches them in batches when
+     * dispatched. The scope doesn't use the window.
+     * 
+     * @return the scope
+     */
+    public BatchScope openScope() {
+        return new BatchScope(genericDAO, maxBatchSize);
+    }
+    
+    /**
+     * @return the underlying generic DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+    
+    
+    ///// Batched operations /////
+
+    /**
+     * Find the instance in a batch with lookups of other threads. It returns 
+     * <tt>null</tt> when no such instance exists.
+     */
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return clazz.cast(await(collectorFor(clazz).lookup(id)));
+    }
+    
+    
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return genericDAO.count(clazz);
+    }
+
+    @Override
+    public void delete(Persistable entity) {
+        genericDAO.delete(entity);
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        genericDAO.delete(id, clazz);
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        genericDAO.deleteAll(entities, batchSize);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        return genericDAO.deleteByProperty(property, value, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        return genericDAO.findByNaturalKey(naturalKey, clazz);
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        return genericDAO.findByPrimaryKeys(ids, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.findByProperty(property, value, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        return genericDAO.getAll(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.getPaginated(paging, clazz);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return genericDAO.isPersistent(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return genericDAO.load(id, clazz);
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        return genericDAO.save(entity);
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        return genericDAO.saveAll(entities, batchSize);
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        genericDAO.saveOrUpdate(entity);
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        genericDAO.saveOrUpdateAll(entities, batchSize);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return genericDAO.scrollAll(chunkSize, clazz);
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        genericDAO.update(entity);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        genericDAO.updateAll(entities, batchSize);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        return genericDAO.updateByProperty(property, value, values, clazz);
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        genericDAO.updateProperties(entity, properties);
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        genericDAO.updateProperties(id, values, clazz);
+    }
+    
+    
+    ///// Helpers /////
+    
+    private Collector collectorFor(Class<? extends Persistable> clazz) {
+        Collector collector = collectors.get(clazz);
+        if (collector == null) {
+            collector = new Collector(clazz);
+            Collector existing = collectors.putIfAbsent(clazz, collector);
+            if (existing != null) {
+                collector = existing;
+            }
+        }
+        return collector;
+    }
+    
+    private static Persistable await(CompletableFuture<Persistable> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+    
+    
+    /**
+     * Collects lookups of one entity class into the open batch.
+     */
+    private final class Collector {
+        
+        private final Class<? extends Persistable> clazz;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition closed = lock.newCondition();
+        private Batch open;
+        
+        Collector(Class<? extends Persistable> clazz) {
+            this.clazz = clazz;
+        }
+        
+        /**
+         * Add the identifier into the open batch, or open a new one, and 
+         * dispatch the batch if this caller is responsible for it: either it
+         * has opened the batch and the window has elapsed, or it has filled 
+         * it up.
+         * 
+         * @return future of the instance
+         */
+        CompletableFuture<Persistable> lookup(Serializable id) {
+            Batch batch;
+            CompletableFuture<Persistable> future;
+            boolean dispatch;
+            
+            lock.lock();
+            try {
+                boolean leader = open == null;
+                if (leader) {
+                    open = new Batch(clazz);
+                }
+                batch = open;
+                future = batch.add(id);
+                
+                if (batch.size() >= maxBatchSize) {
+                    close(batch);
+                    dispatch = true;
+                } else if (leader) {
+                    dispatch = awaitWindow(batch);
+                } else {
+                    dispatch = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (dispatch) {
+                batch.dispatch(genericDAO);
+            }
+            return future;
+        }
+        
+        /**
+         * Wait until the window elapses or the batch is filled up by another
+         * thread. Must be called with the lock held.
+         * 
+         * @return <tt>true</tt> if the window has elapsed and this thread has
+         *         closed the batch, <tt>false</tt> if it was closed by the 
+         *         thread that has filled it up
+         */
+        private boolean awaitWindow(Batch batch) {
+            long remaining = windowNanos;
+            boolean interrupted = false;
+            
+            while (!batch.closed && remaining > 0) {
+                try {
+                    remaining = closed.awaitNanos(remaining);
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (batch.closed) {
+                return false;
+            }
+            close(batch);
+            return true;
+        }
+        
+        private void close(Batch batch) {
+            batch.closed = true;
+            if (open == batch) {
+                open = null;
+            }
+            closed.signalAll();
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.util.ConcurrentLongMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent size-bounded cache with frequency-aware eviction (TinyLFU).
+ * 
+ * <p>Entries are kept in a LRU list, but a new entry is admitted into a full
+ * cache only if its key is accessed more frequently than the key of the LRU 
+ * victim (according to {@link FrequencySketch}). So one-off lookups, i.e. 
+ * a scan over many keys, can't flush out the hot entries.</p>
+ * 
+ * <p>Reads are lock-free; reordering of the LRU list on read is skipped when
+ * the lock is currently held by another thread. All structural modifications
+ * are done under the lock.</p>
+ * 
+ * <p>To avoid caching a value that was loaded before a concurrent write, the 
+ * loader must obtain a {@linkplain #stamp() stamp} before loading and pass 
+ * it to {@link #put(Object, Object, long) put()}. When any entry has been 
+ * invalidated since then, the value is not cached.</p>
+ * 
+ * <p>A cache created with <tt>longKeys</tt> stores the entries keyed by 
+ * primitive longs, so lookups via {@link #get(long)} don't box the key. 
+ * Its keys must be {@link Long}s; lookups of other keys are misses and their
+ * writes are ignored.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ * 
+ * @param <K> a key type
+ * @param <V> a value type
+ */
+final class BoundedCache<K, V> {
+    
+    private final ConcurrentMap<K, Node<K, V>> data;            // null for long keys
+    private final ConcurrentLongMap<Node<K, V>> longData;      // null for object keys
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final FrequencySketch sketch;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Node<K, V> lru = new Node<K, V>(null, 0, null, 0);  // list sentinel
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    
+    
+    /**
+     * @param maximumSize maximum number of entries
+     * @param expireAfterWriteNanos time to live of the entries in 
+     *        nanoseconds, zero for no expiration
+     */
+    BoundedCache(int maximumSize, long expireAfterWriteNanos) {
+        this(maximumSize, expireAfterWriteNanos, false);
+    }
+    
+    /**
+     * @param maximumSize maximum number of entries
+     * @param expireAfterWriteNanos time to live of the entries in 
+     *        nanoseconds, zero for no expiration
+     * @param longKeys whether to store the keys as primitive longs
+     */
+    BoundedCache(int maximumSize, long expireAfterWriteNanos, boolean longKeys) {
+        if (longKeys) {
+            this.data = null;
+            this.longData = new ConcurrentLongMap<Node<K, V>>(Math.min(maximumSize, 1024));
+        } else {
+            this.data = new ConcurrentHashMap<K, Node<K, V>>(Math.min(maximumSize, 1024));
+            this.longData = null;
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.sketch = new FrequencySketch(maximumSize);
+        lru.prev = lru.next = lru;
+    }
+    
+    
+    /**
+     * Return the cached value for the given key and record the access.
+     * 
+     * @param key the key
+     * @return the value, or <tt>null</tt> if not cached or expired
+     */
+    V get(K key) {
+        if (longData != null) {
+            return key instanceof Long ? get(((Long) key).longValue()) : null;
+        }
+        sketch.increment(key);
+        return hit(data.get(key));
+    }
+    
+    /**
+     * Same as {@link #get(Object)}, but without boxing the key if this cache 
+     * has long keys.
+     * 
+     * @param key the key
+     * @return the value, or <tt>null</tt> if not cached or expired
+     */
+    V get(long key) {
+        if (longData == null) {
+            return get((K) Long.valueOf(key));
+        }
+        sketch.increment(key);
+        return hit(longData.get(key));
+    }
+    
+    /**
+     * @param key the key
+     * @return <tt>true</tt> if there's a live entry for the key
+     */
+    boolean contains(K key) {
+        Node<K, V> node = lookup(key);
+        return node != null && !isExpired(node);
+    }
+    
+    /**
+     * Same as {@link #contains(Object)}, but without boxing the key if this 
+     * cache has long keys.
+     */
+    boolean contains(long key) {
+        if (longData == null) {
+            return contains((K) Long.valueOf(key));
+        }
+        Node<K, V> node = longData.get(key);
+        return node != null && !isExpired(node);
+    }
+    
+    /**
+     * Return the current stamp to be used for {@link #put(Object, Object, 
+     * long) put()}. It must be obtained <i>before</i> loading the value.
+     * 
+     * @return the stamp
+     */
+    long stamp() {
+        return invalidations.get();
+    }
+    
+    /**
+     * Put the value loaded from the datastore into the cache, unless some
+     * entry has been invalidated since the given stamp was obtained or the
+     * admission policy rejects it.
+     * 
+     * @param key the key
+     * @param value the value
+     * @param stamp the stamp obtained before loading the value
+     */
+    void put(K key, V value, long stamp) {
+        if (longData != null) {
+            if (key instanceof Long) {
+                put(((Long) key).longValue(), value, stamp);
+            }
+            return;
+        }
+        lock.lock();
+        try {
+            if (invalidations.get() == stamp) {
+                doPut(key, 0, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Same as {@link #put(Object, Object, long)}, but without boxing the key 
+     * if this cache has long keys.
+     * 
+     * @param key the key
+     * @param value the value
+     * @param stamp the stamp obtained before loading the value
+     */
+    void put(long key, V value, long stamp) {
+        if (longData == null) {
+            put((K) Long.valueOf(key), value, stamp);
+            return;
+        }
+        lock.lock();
+        try {
+            if (invalidations.get() == stamp) {
+                doPut(null, key, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Replace the value for the given key with the written one.
+     * 
+     * @param key the key
+     * @param value the value
+     */
+    void refresh(K key, V value) {
+        invalidations.incrementAndGet();
+        if (longData != null && !(key instanceof Long)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (longData != null) {
+                doPut(null, (Long) key, value);
+            } else {
+                doPut(key, 0, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Remove the entry for the given key, if any.
+     * 
+     * @param key the key
+     */
+    void invalidate(K key) {
+        invalidations.incrementAndGet();
+        lock.lock();
+        try {
+            Node<K, V> node;
+            if (longData != null) {
+                node = key instanceof Long ? longData.remove((Long) key) : null;
+            } else {
+                node = data.remove(key);
+            }
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Remove all the entries.
+     */
+    void invalidateAll() {
+        invalidations.incrementAndGet();
+        lock.lock();
+        try {
+            if (longData != null) {
+                longData.clear();
+            } else {
+                data.clear();
+            }
+            lru.prev = lru.next = lru;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return snapshot of statistics of this cache
+     */
+    CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), rejections.sum(), size());
+    }
+    
+    
+    private int size() {
+        return longData != null ? longData.size() : data.size();
+    }
+    
+    private Node<K, V> lookup(K key) {
+        if (longData != null) {
+            return key instanceof Long ? longData.get((Long) key) : null;
+        }
+        return data.get(key);
+    }
+    
+    /**
+     * Record a hit or miss of the looked up node and move it to the tail of
+     * the LRU list.
+     */
+    private V hit(Node<K, V> node) {
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(node)) {
+            remove(node);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        
+        if (lock.tryLock()) {
+            try {
+                if (node.next != null) {
+                    unlink(node);
+                    linkLast(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+    
+    /**
+     * @param key the key, or <tt>null</tt> if this cache has long keys
+     * @param longKey the key if this cache has long keys
+     */
+    private void doPut(K key, long longKey, V value) {
+        long expiresAt = expireAfterWriteNanos > 0 ? System.nanoTime() + expireAfterWriteNanos : 0;
+        
+        Node<K, V> node = longData != null ? longData.get(longKey) : data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            unlink(node);
+            linkLast(node);
+            return;
+        }
+        if (size() >= maximumSize) {
+            Node<K, V> victim = lru.next;
+            
+            if (!isExpired(victim) && frequency(key, longKey) <= frequency(victim.key, victim.longKey)) {
+                rejections.increment();
+                return;
+            }
+            if (longData != null) {
+                longData.remove(victim.longKey);
+            } else {
+                data.remove(victim.key);
+            }
+            unlink(victim);
+            evictions.increment();
+        }
+        node = new Node<K, V>(key, longKey, value, expiresAt);
+        if (longData != null) {
+            longData.put(longKey, node);
+        } else {
+            data.put(key, node);
+        }
+        linkLast(node);
+    }
+    
+    private void remove(Node<K, V> node) {
+        lock.lock();
+        try {
+            boolean removed = longData != null 
+                    ? longData.remove(node.longKey, node) 
+                    : data.remove(node.key, node);
+            if (removed) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private int frequency(K key, long longKey) {
+        return longData != null ? sketch.frequency(longKey) : sketch.frequency(key);
+    }
+    
+    private boolean isExpired(Node<K, V> node) {
+        return node.expiresAt != 0 && node.expiresAt - System.nanoTime() <= 0;
+    }
+    
+    private void linkLast(Node<K, V> node) {
+        node.prev = lru.prev;
+        node.next = lru;
+        lru.prev.next = node;
+        lru.prev = node;
+    }
+    
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = null;
+    }
+    
+    
+    private static final class Node<K, V> {
+        
+        final K key;          // null for long keys
+        final long longKey;
+        volatile V value;
+        volatile long expiresAt;
+        
+        // guarded by lock
+        Node<K, V> prev, next;
+
+        Node(K key, long longKey, V value, long expiresAt) {
+            this.key = key;
+            this.longKey = longKey;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
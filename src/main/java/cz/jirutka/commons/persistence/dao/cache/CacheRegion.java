@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+import cz.jirutka.commons.persistence.Persistable;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Caches of one entity class: the identity cache and (optionally) the query
+ * cache and the natural key cache.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class CacheRegion {
+    
+    final CacheSpec spec;
+    final BoundedCache<Serializable, Persistable> entities;
+    final BoundedCache<QueryKey, List<Serializable>> queries;
+    final BoundedCache<Object, Serializable> naturalKeys;
+    final BoundedCache<Object, Boolean> missingNaturalKeys;
+    
+    
+    /**
+     * @param spec the cache specification
+     * @param longIds whether the entities have primitive identifiers, see 
+     *        {@link LongIdPersistable}
+     */
+    CacheRegion(CacheSpec spec, boolean longIds) {
+        this.spec = spec;
+        this.entities = new BoundedCache<Serializable, Persistable>(
+                spec.getMaximumSize(), spec.getExpireAfterWriteNanos(), longIds);
+        this.queries = spec.getQueryCacheSize() > 0
+                ? new BoundedCache<QueryKey, List<Serializable>>(
+                        spec.getQueryCacheSize(), spec.getExpireAfterWriteNanos())
+                : null;
+        this.naturalKeys = spec.getNaturalKeyCacheSize() > 0
+                ? new BoundedCache<Object, Serializable>(
+                        spec.getNaturalKeyCacheSize(), spec.getExpireAfterWriteNanos())
+                : null;
+        this.missingNaturalKeys = naturalKeys != null && spec.getNegativeNaturalKeyNanos() > 0
+                ? new BoundedCache<Object, Boolean>(
+                        spec.getNaturalKeyCacheSize(), spec.getNegativeNaturalKeyNanos())
+                : null;
+    }
+    
+    
+    /**
+     * @return natural key of the given instance, or <tt>null</tt> if the 
+     *         extractor is not specified
+     */
+    Object naturalKeyOf(Persistable entity) {
+        return spec.getNaturalKeyExtractor() != null ? spec.getNaturalKeyExtractor().apply(entity) : null;
+    }
+    
+    
+    /**
+     * Invalidate the deleted instance with the given identifier (if known) 
+     * and everything that may depend on it.
+     * 
+     * @param id identifier of the deleted instance, or <tt>null</tt>
+     */
+    void deleted(Serializable id) {
+        if (id != null) {
+            entities.invalidate(id);
+        }
+        invalidateQueries();
+        // mappings to deleted instances are verified on read
+        if (spec.getNaturalKeyExtractor() == null) {
+            invalidateNaturalKeys(null);
+        }
+    }
+    
+    /**
+     * Invalidate or refresh the written instance and invalidate everything 
+     * that may depend on it.
+     * 
+     * @param id identifier of the written instance, or <tt>null</tt>
+     * @param entity the written instance
+     * @param refresh whether to put the instance into the identity cache
+     */
+    void written(Serializable id, Persistable entity, boolean refresh) {
+        if (id != null) {
+            if (refresh) {
+                entities.refresh(id, entity);
+            } else {
+                entities.invalidate(id);
+            }
+        }
+        invalidateQueries();
+        invalidateNaturalKeys(entity);
+    }
+    
+    void invalidateQueries() {
+        if (queries != null) {
+            queries.invalidateAll();
+        }
+    }
+    
+    /**
+     * Invalidate the natural keys affected by write of the given instance. 
+     * When the natural key extractor is not specified, or the instance is 
+     * not known, then all the natural keys are invalidated. Otherwise it's 
+     * enough to invalidate the negative entry for the new natural key; the 
+     * mappings from old natural keys are verified on read.
+     * 
+     * @param entity the written instance, or <tt>null</tt> if unknown
+     */
+    void invalidateNaturalKeys(Persistable entity) {
+        if (naturalKeys == null) {
+            return;
+        }
+        if (entity == null || spec.getNaturalKeyExtractor() == null) {
+            naturalKeys.invalidateAll();
+            if (missingNaturalKeys != null) {
+                missingNaturalKeys.invalidateAll();
+            }
+        } else if (missingNaturalKeys != null) {
+            Object naturalKey = naturalKeyOf(entity);
+            if (naturalKey != null) {
+                missingNaturalKeys.invalidate(naturalKey);
+            }
+        }
+    }
+    
+    void invalidateAll() {
+        entities.invalidateAll();
+        invalidateQueries();
+        invalidateNaturalKeys(null);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.Persistable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Specification of a cache for one entity class, see {@link CachingGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class CacheSpec {
+    
+    private final int maximumSize;
+    private long expireAfterWriteNanos = 0;
+    private boolean refreshOnWrite = false;
+    private int queryCacheSize = 0;
+    private int naturalKeyCacheSize = 0;
+    private Function<Persistable, ?> naturalKeyExtractor;
+    private long negativeNaturalKeyNanos = TimeUnit.SECONDS.toNanos(1);
+    
+    
+    /**
+     * Create a new specification of cache with the given size limit and 
+     * without expiration.
+     * 
+     * @param maximumSize maximum number of cached instances
+     */
+    public CacheSpec(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+    }
+    
+    
+    ///// Fluent interface /////
+    
+    /**
+     * Expire cached instances after the given time since they were loaded.
+     * 
+     * @param duration the time to live, zero for no expiration
+     * @param unit unit of the duration
+     * @return this (for method-chain)
+     */
+    public CacheSpec expireAfterWrite(long duration, TimeUnit unit) {
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+    
+    /**
+     * Put the written instance into the cache after save/update instead of 
+     * just invalidating the cached one. Use this only when the datastore 
+     * doesn't modify the written state (i.e. by triggers or generated 
+     * columns).
+     * 
+     * @param refreshOnWrite <tt>true</tt> to refresh, <tt>false</tt> to invalidate
+     * @return this (for method-chain)
+     */
+    public CacheSpec refreshOnWrite(boolean refreshOnWrite) {
+        this.refreshOnWrite = refreshOnWrite;
+        return this;
+    }
+    
+    /**
+     * Cache also results of queries (findByProperty and getPaginated) as lists
+     * of identifiers. Any write to the entity class invalidates all its 
+     * cached queries.
+     * 
+     * @param queryCacheSize maximum number of cached queries, zero to disable
+     * @return this (for method-chain)
+     */
+    public CacheSpec queryCacheSize(int queryCacheSize) {
+        this.queryCacheSize = queryCacheSize;
+        return this;
+    }
+    
+    /**
+     * Cache also mapping of natural keys to identifiers, so {@code 
+     * findByNaturalKey()} becomes a lookup in the identity cache. Not found 
+     * natural keys are cached too, for a short time (see {@link 
+     * #negativeNaturalKeyTtl(long, TimeUnit)}).
+     * 
+     * <p>Unless the {@linkplain #naturalKey(Function) natural key extractor} is
+     * specified, any write to the entity class invalidates all the cached 
+     * natural keys.</p>
+     * 
+     * @param naturalKeyCacheSize maximum number of cached natural keys, zero
+     *        to disable
+     * @return this (for method-chain)
+     */
+    public CacheSpec naturalKeyCacheSize(int naturalKeyCacheSize) {
+        this.naturalKeyCacheSize = naturalKeyCacheSize;
+        return this;
+    }
+    
+    /**
+     * Specify how to get the natural key of an instance, i.e. 
+     * <tt>User::getLogin</tt>. It allows to verify mapping of the natural key
+     * against the cached instance and to invalidate only the affected keys 
+     * on write.
+     * 
+     * @param naturalKeyExtractor function that returns the natural key of 
+     *        the given instance
+     * @return this (for method-chain)
+     */
+    public <E extends Persistable> CacheSpec naturalKey(Function<E, ?> naturalKeyExtractor) {
+        this.naturalKeyExtractor = (Function<Persistable, ?>) naturalKeyExtractor;
+        return this;
+    }
+    
+    /**
+     * Set for how long to remember that there's no instance with the natural 
+     * key (default 1 second).
+     * 
+     * @param duration the time to live, zero to disable negative caching
+     * @param unit unit of the duration
+     * @return this (for method-chain)
+     */
+    public CacheSpec negativeNaturalKeyTtl(long duration, TimeUnit unit) {
+        this.negativeNaturalKeyNanos = unit.toNanos(duration);
+        return this;
+    }
+    
+    
+    ///// Normal interface /////
+    
+    /**
+     * @return maximum number of cached instances
+     */
+    public int getMaximumSize() { return maximumSize; }
+    
+    /**
+     * @return time to live in nanoseconds, zero for no expiration
+     */
+    public long getExpireAfterWriteNanos() { return expireAfterWriteNanos; }
+    
+    /**
+     * @return <tt>true</tt> if written instances are put into the cache
+     */
+    public boolean isRefreshOnWrite() { return refreshOnWrite; }
+    
+    /**
+     * @return maximum number of cached queries, zero if disabled
+     */
+    public int getQueryCacheSize() { return queryCacheSize; }
+    
+    /**
+     * @return maximum number of cached natural keys, zero if disabled
+     */
+    public int getNaturalKeyCacheSize() { return naturalKeyCacheSize; }
+    
+    /**
+     * @return function that returns the natural key of an instance, or 
+     *         <tt>null</tt> if not specified
+     */
+    public Function<Persistable, ?> getNaturalKeyExtractor() { return naturalKeyExtractor; }
+    
+    /**
+     * @return time to live of not found natural keys in nanoseconds
+     */
+    public long getNegativeNaturalKeyNanos() { return negativeNaturalKeyNanos; }
+    
+    
+    @Override
+    public String toString() {
+        return String.format("CacheSpec[maximumSize=%d, expireAfterWrite=%dms, refreshOnWrite=%s, "
+                + "queryCacheSize=%d, naturalKeyCacheSize=%d]",
+                maximumSize, TimeUnit.NANOSECONDS.toMillis(expireAfterWriteNanos), refreshOnWrite, 
+                queryCacheSize, naturalKeyCacheSize);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of statistics of a cache.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class CacheStats implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long rejectionCount;
+    private final long size;
+
+    
+    public CacheStats(long hitCount, long missCount, long evictionCount, long rejectionCount, long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.rejectionCount = rejectionCount;
+        this.size = size;
+    }
+    
+    
+    /**
+     * @return number of lookups that returned a cached value
+     */
+    public long getHitCount() { return hitCount; }
+    
+    /**
+     * @return number of lookups that didn't find a (live) cached value
+     */
+    public long getMissCount() { return missCount; }
+    
+    /**
+     * @return number of entries evicted due to the size limit
+     */
+    public long getEvictionCount() { return evictionCount; }
+    
+    /**
+     * @return number of entries that were not admitted into the full cache,
+     *         because they were accessed less frequently than the eviction 
+     *         victim
+     */
+    public long getRejectionCount() { return rejectionCount; }
+    
+    /**
+     * @return approximate number of entries in the cache
+     */
+    public long getSize() { return size; }
+    
+    /**
+     * @return ratio of hits to all lookups, or 1.0 if there were no lookups
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("CacheStats[hits=%d, misses=%d, evictions=%d, rejections=%d, size=%d]",
+                hitCount, missCount, evictionCount, rejectionCount, size);
+    }
+}
@@ -0,0 +1,743 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Decorator of the {@link GenericDAO} that caches persistent instances found 
+ * by the primary key (identity cache).
+ * 
+ * <p>Each entity class has its own bounded cache according to the {@link 
+ * CacheSpec} {@linkplain #configure(Class, CacheSpec) configured} for it, or 
+ * the default one. Instances of entity classes without a specification are 
+ * not cached at all. All writes done through this decorator invalidate (or 
+ * refresh) the cached instances after the underlying DAO returns; bulk 
+ * writes (<tt>deleteByXXX()</tt>, <tt>updateByXXX()</tt>) invalidate all
+ * cached instances of the entity class. Written instances are evicted even
+ * when the underlying DAO fails, since they may be written already. Note 
+ * that the cache is not transaction-aware and doesn't know about writes done
+ * by other means.</p>
+ * 
+ * <p>Cached instances are shared between all callers, so they must not be 
+ * modified (other than to be written through this DAO).</p>
+ * 
+ * <p>When enabled by {@link CacheSpec#queryCacheSize(int)}, results of 
+ * {@link #findByProperty(String, Object, PagingOrdering, Class) findByProperty()} 
+ * and {@link #getPaginated(PagingOrdering, Class) getPaginated()} are cached
+ * too, as lists of identifiers keyed by the query parameters and a {@linkplain 
+ * PagingOrdering#snapshot() snapshot} of the paging. Cached results are 
+ * rebuilt from the identity cache and the missing instances are fetched by 
+ * {@link #findByPrimaryKeys(Collection, Class) findByPrimaryKeys()}. Any write
+ * to the entity class invalidates all its cached queries. The property value 
+ * used as a query parameter must be immutable.</p>
+ * 
+ * <p>When enabled by {@link CacheSpec#naturalKeyCacheSize(int)}, mapping of 
+ * natural keys to identifiers is cached as well, so {@link 
+ * #findByNaturalKey(Object, Class) findByNaturalKey()} is served by the 
+ * identity cache. Natural keys without an instance are remembered for a short
+ * time.</p>
+ * 
+ * <p>The identity cache of a {@link LongIdPersistable} class is keyed by 
+ * primitive identifiers, so {@link #findByLongId(long, Class) findByLongId()}
+ * doesn't box them.</p>
+ * 
+ * <p>It can be used as the generic DAO of the {@link 
+ * cz.jirutka.commons.persistence.dao.GenericDAODispatcher GenericDAODispatcher}
+ * and its specific DAOs, so they will be cached as well.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class CachingGenericDAO implements GenericDAO {
+    
+    private final GenericDAO genericDAO;
+    private final CacheSpec defaultSpec;
+    private final ConcurrentMap<Class, CacheSpec> specs = new ConcurrentHashMap<Class, CacheSpec>();
+    private final ConcurrentMap<Class, CacheRegion> regions = new ConcurrentHashMap<Class, CacheRegion>();
+    
+
+    /**
+     * Create a new instance that caches only the entity classes configured 
+     * later via {@link #configure(Class, CacheSpec) configure()}.
+     * 
+     * @param genericDAO the underlying generic DAO
+     */
+    public CachingGenericDAO(GenericDAO genericDAO) {
+        this(genericDAO, null);
+    }
+    
+    /**
+     * Create a new instance that caches all entity classes.
+     * 
+     * @param genericDAO the underlying generic DAO
+     * @param defaultSpec specification of cache for entity classes that are 
+     *        not configured explicitly, or <tt>null</tt> to not cache them
+     */
+    public CachingGenericDAO(GenericDAO genericDAO, CacheSpec defaultSpec) {
+        this.genericDAO = genericDAO;
+        this.defaultSpec = defaultSpec;
+    }
+    
+    
+    /**
+     * Set specification of the cache for the given entity class. It must be 
+     * called before the first access to this class.
+     * 
+     * @param entityClass an entity class
+     * @param spec specification of the cache
+     * @return this (for method-chain)
+     */
+    public CachingGenericDAO configure(Class<? extends Persistable> entityClass, CacheSpec spec) {
+        specs.put(entityClass, spec);
+        return this;
+    }
+    
+    /**
+     * Return statistics of the cache for the given entity class.
+     * 
+     * @param entityClass an entity class
+     * @return the statistics, or <tt>null</tt> if not cached
+     */
+    public CacheStats getStats(Class<? extends Persistable> entityClass) {
+        CacheRegion region = regions.get(entityClass);
+        return region != null ? region.entities.stats() : null;
+    }
+    
+    /**
+     * @return statistics of the caches for all cached entity classes
+     */
+    public Map<Class, CacheStats> getStats() {
+        Map<Class, CacheStats> result = new HashMap<Class, CacheStats>(regions.size());
+        for (Map.Entry<Class, CacheRegion> entry : regions.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().entities.stats());
+        }
+        return result;
+    }
+    
+    /**
+     * Return statistics of the natural key cache for the given entity class
+     * (only the positive mappings).
+     * 
+     * @param entityClass an entity class
+     * @return the statistics, or <tt>null</tt> if natural keys are not cached
+     */
+    public CacheStats getNaturalKeyStats(Class<? extends Persistable> entityClass) {
+        CacheRegion region = regions.get(entityClass);
+        return region != null && region.naturalKeys != null ? region.naturalKeys.stats() : null;
+    }
+    
+    /**
+     * Return statistics of the query cache for the given entity class.
+     * 
+     * @param entityClass an entity class
+     * @return the statistics, or <tt>null</tt> if queries are not cached
+     */
+    public CacheStats getQueryStats(Class<? extends Persistable> entityClass) {
+        CacheRegion region = regions.get(entityClass);
+        return region != null && region.queries != null ? region.queries.stats() : null;
+    }
+    
+    /**
+     * Remove all cached instances of the given entity class (and its 
+     * subclasses).
+     * 
+     * @param entityClass an entity class
+     */
+    public void invalidate(Class<? extends Persistable> entityClass) {
+        for (Map.Entry<Class, CacheRegion> entry : regions.entrySet()) {
+            if (isRelated(entry.getKey(), entityClass)) {
+                entry.getValue().invalidateAll();
+            }
+        }
+    }
+    
+    /**
+     * Remove all cached instances.
+     */
+    public void invalidateAll() {
+        for (CacheRegion region : regions.values()) {
+            region.invalidateAll();
+        }
+    }
+    
+    /**
+     * @return the underlying generic DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+    
+    
+    ///// Cached operations /////
+    
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        
+        CacheRegion region = regionFor(clazz);
+        if (region == null || region.naturalKeys == null) {
+            return genericDAO.findByNaturalKey(naturalKey, clazz);
+        }
+        if (region.missingNaturalKeys != null && region.missingNaturalKeys.get(naturalKey) != null) {
+            return null;
+        }
+        Serializable id = region.naturalKeys.get(naturalKey);
+        if (id != null) {
+            E entity = findByPrimaryKey(id, clazz);
+            
+            if (entity != null && (region.spec.getNaturalKeyExtractor() == null 
+                    || naturalKey.equals(region.naturalKeyOf(entity)))) {
+                return entity;
+            }
+            // the instance has been deleted or its natural key has changed
+            region.naturalKeys.invalidate(naturalKey);
+        }
+        long naturalKeyStamp = region.naturalKeys.stamp();
+        long missingStamp = region.missingNaturalKeys != null ? region.missingNaturalKeys.stamp() : 0;
+        long entityStamp = region.entities.stamp();
+        
+        E entity = genericDAO.findByNaturalKey(naturalKey, clazz);
+        
+        if (entity == null) {
+            if (region.missingNaturalKeys != null) {
+                region.missingNaturalKeys.put(naturalKey, Boolean.TRUE, missingStamp);
+            }
+        } else if (entity.getId() != null) {
+            region.naturalKeys.put(naturalKey, entity.getId(), naturalKeyStamp);
+            region.entities.put(entity.getId(), entity, entityStamp);
+        }
+        return entity;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByLongId(long id, Class<E> clazz) {
+        
+        CacheRegion region = regionFor(clazz);
+        if (region == null) {
+            return genericDAO.findByLongId(id, clazz);
+        }
+        BoundedCache<Serializable, Persistable> cache = region.entities;
+        
+        E entity = (E) cache.get(id);
+        if (entity == null) {
+            long stamp = cache.stamp();
+            entity = genericDAO.findByLongId(id, clazz);
+            if (entity != null) {
+                cache.put(id, entity, stamp);
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        
+        CacheRegion region = regionFor(clazz);
+        if (region == null) {
+            return genericDAO.findByPrimaryKey(id, clazz);
+        }
+        BoundedCache<Serializable, Persistable> cache = region.entities;
+        
+        E entity = (E) cache.get(id);
+        if (entity == null) {
+            long stamp = cache.stamp();
+            entity = genericDAO.findByPrimaryKey(id, clazz);
+            if (entity != null) {
+                cache.put(id, entity, stamp);
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable> 
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        
+        CacheRegion region = regionFor(clazz);
+        if (region == null) {
+            return genericDAO.findByPrimaryKeys(ids, clazz);
+        }
+        BoundedCache<Serializable, Persistable> cache = region.entities;
+        
+        Map<ID, E> cached = new HashMap<ID, E>();
+        List<ID> missing = new ArrayList<ID>();
+        
+        for (ID id : ids) {
+            E entity = (E) cache.get(id);
+            if (entity != null) {
+                cached.put(id, entity);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ordered(ids, cached);
+        }
+        long stamp = cache.stamp();
+        Map<ID, E> loaded = genericDAO.findByPrimaryKeys(missing, clazz);
+        
+        for (Map.Entry<ID, E> entry : loaded.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue(), stamp);
+        }
+        if (cached.isEmpty()) {
+            return loaded;
+        }
+        cached.putAll(loaded);
+        return ordered(ids, cached);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        CacheRegion region = regionFor(clazz);
+        
+        return (region != null && region.entities.contains(id)) || genericDAO.isPersistent(id, clazz);
+    }
+
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        CacheRegion region = regionFor(clazz);
+        
+        return (region != null && region.entities.contains(id)) || genericDAO.isPersistentByLongId(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        
+        return cachedQuery(QueryKey.byProperty(property, value, paging), clazz, 
+                () -> genericDAO.findByProperty(property, value, paging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        
+        return cachedQuery(QueryKey.paginated(paging), clazz, 
+                () -> genericDAO.getPaginated(paging, clazz));
+    }
+
+    /**
+     * Return the cached instance when available. Otherwise delegate to the
+     * underlying DAO, but don't cache the result, since it may be an 
+     * uninitialized proxy.
+     */
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        
+        CacheRegion region = regionFor(clazz);
+        E entity = region != null ? (E) region.entities.get(id) : null;
+        
+        return entity != null ? entity : genericDAO.load(id, clazz);
+    }
+    
+    
+    ///// Invalidating operations /////
+
+    @Override
+    public void delete(Persistable entity) {
+        try {
+            genericDAO.delete(entity);
+        } finally {
+            evict(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        try {
+            genericDAO.delete(id, clazz);
+        } finally {
+            evict(id, clazz);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            genericDAO.deleteAll(entities, batchSize);
+        } finally {
+            for (Persistable entity : entities) {
+                evict(entity.getId(), entity.getClass());
+            }
+        }
+    }
+
+    /**
+     * Delete the matched instances and {@linkplain #invalidate(Class) 
+     * invalidate} the caches of the class, because the affected identifiers 
+     * are not known. The caches are invalidated even if it fails, since some
+     * instances may be deleted already.
+     */
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        try {
+            return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+        } finally {
+            invalidate(clazz);
+        }
+    }
+
+    /**
+     * Delete the matched instances and {@linkplain #invalidate(Class) 
+     * invalidate} the caches of the class, see {@link 
+     * #deleteByExample(Persistable, String[], Class)}.
+     */
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.deleteByProperty(property, value, clazz);
+        } finally {
+            invalidate(clazz);
+        }
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        Serializable id = null;
+        try {
+            id = genericDAO.save(entity);
+        } finally {
+            written(id != null ? id : entity.getId(), entity, id != null);
+        }
+        return id;
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        List<Serializable> ids = null;
+        try {
+            ids = genericDAO.saveAll(entities, batchSize);
+        } finally {
+            writtenAll(entities, ids, ids != null);
+        }
+        return ids;
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        boolean succeeded = false;
+        try {
+            genericDAO.saveOrUpdate(entity);
+            succeeded = true;
+        } finally {
+            written(entity.getId(), entity, succeeded);
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        boolean succeeded = false;
+        try {
+            genericDAO.saveOrUpdateAll(entities, batchSize);
+            succeeded = true;
+        } finally {
+            writtenAll(entities, null, succeeded);
+        }
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        boolean succeeded = false;
+        try {
+            genericDAO.update(entity);
+            succeeded = true;
+        } finally {
+            written(entity.getId(), entity, succeeded);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        boolean succeeded = false;
+        try {
+            genericDAO.updateAll(entities, batchSize);
+            succeeded = true;
+        } finally {
+            writtenAll(entities, null, succeeded);
+        }
+    }
+
+    /**
+     * Update the matched instances and {@linkplain #invalidate(Class) 
+     * invalidate} the caches of the class, see {@link 
+     * #deleteByExample(Persistable, String[], Class)}.
+     */
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        try {
+            return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+        } finally {
+            invalidate(clazz);
+        }
+    }
+
+    /**
+     * Update the matched instances and {@linkplain #invalidate(Class) 
+     * invalidate} the caches of the class, see {@link 
+     * #deleteByExample(Persistable, String[], Class)}.
+     */
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.updateByProperty(property, value, values, clazz);
+        } finally {
+            invalidate(clazz);
+        }
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        try {
+            genericDAO.updateProperties(entity, properties);
+        } finally {
+            updated(entity.getId(), entity, entity.getClass());
+        }
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        try {
+            genericDAO.updateProperties(id, values, clazz);
+        } finally {
+            updated(id, null, clazz);
+        }
+    }
+    
+    
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return genericDAO.count(clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        return genericDAO.getAll(clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return genericDAO.scrollAll(chunkSize, clazz);
+    }
+    
+    
+    ///// Helpers /////
+    
+    private CacheRegion regionFor(Class<?> clazz) {
+        CacheRegion region = regions.get(clazz);
+        
+        if (region == null) {
+            CacheSpec spec = specs.containsKey(clazz) ? specs.get(clazz) : defaultSpec;
+            if (spec == null) {
+                return null;
+            }
+            region = new CacheRegion(spec, LongIdPersistable.class.isAssignableFrom(clazz));
+            CacheRegion existing = regions.putIfAbsent(clazz, region);
+            if (existing != null) {
+                region = existing;
+            }
+        }
+        return region;
+    }
+    
+    private <E extends Persistable> 
+            List<E> cachedQuery(QueryKey key, Class<E> clazz, Supplier<List<E>> query) {
+        
+        CacheRegion region = regionFor(clazz);
+        if (region == null || region.queries == null) {
+            return query.get();
+        }
+        List<Serializable> ids = region.queries.get(key);
+        if (ids != null) {
+            List<E> result = resolve(region, ids, clazz);
+            if (result != null) {
+                return result;
+            }
+            // some instance doesn't exist anymore, so the result is stale
+            region.queries.invalidate(key);
+        }
+        long queryStamp = region.queries.stamp();
+        long entityStamp = region.entities.stamp();
+        List<E> result = query.get();
+        
+        ids = new ArrayList<Serializable>(result.size());
+        for (E entity : result) {
+            Serializable id = entity.getId();
+            if (id == null) {
+                return result;
+            }
+            ids.add(id);
+            region.entities.put(id, entity, entityStamp);
+        }
+        region.queries.put(key, Collections.unmodifiableList(ids), queryStamp);
+        
+        return result;
+    }
+    
+    /**
+     * Rebuild result of a query from the identity cache, or fetch the missing
+     * instances.
+     * 
+     * @return the instances, or <tt>null</tt> if some doesn't exist
+     */
+    private <E extends Persistable> 
+            List<E> resolve(CacheRegion region, List<Serializable> ids, Class<E> clazz) {
+        
+        List<E> result = new ArrayList<E>(ids.size());
+        List<Serializable> missing = null;
+        
+        for (Serializable id : ids) {
+            E entity = (E) region.entities.get(id);
+            if (entity == null) {
+                if (missing == null) {
+                    missing = new ArrayList<Serializable>();
+                }
+                missing.add(id);
+            }
+            result.add(entity);
+        }
+        if (missing == null) {
+            return result;
+        }
+        long stamp = region.entities.stamp();
+        Map<Serializable, E> loaded = genericDAO.findByPrimaryKeys(missing, clazz);
+        if (loaded.size() < missing.size()) {
+            return null;
+        }
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                E entity = loaded.get(ids.get(i));
+                region.entities.put(ids.get(i), entity, stamp);
+                result.set(i, entity);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Invalidate the deleted instance in the caches of all classes related to
+     * the given one (i.e. superclass and proxy subclass).
+     */
+    private void evict(Serializable id, Class<?> clazz) {
+        for (Map.Entry<Class, CacheRegion> entry : regions.entrySet()) {
+            if (isRelated(entry.getKey(), clazz)) {
+                entry.getValue().deleted(id);
+            }
+        }
+    }
+    
+    /**
+     * Invalidate or refresh the written instance in the caches of all related
+     * classes.
+     */
+    private void written(Serializable id, Persistable entity) {
+        for (Map.Entry<Class, CacheRegion> entry : regions.entrySet()) {
+            CacheRegion region = entry.getValue();
+            
+            if (isRelated(entry.getKey(), entity.getClass())) {
+                boolean refresh = region.spec.isRefreshOnWrite() && entry.getKey().isInstance(entity);
+                region.written(id, entity, refresh);
+            }
+        }
+    }
+    
+    /**
+     * Invalidate or refresh the written instance. When the write has failed,
+     * the instance is just evicted, since it may be written already.
+     */
+    private void written(Serializable id, Persistable entity, boolean succeeded) {
+        if (succeeded) {
+            written(id, entity);
+        } else {
+            evict(id, entity.getClass());
+        }
+    }
+    
+    /**
+     * Invalidate or refresh the instances written by a bulk operation, see 
+     * {@link #written(Serializable, Persistable, boolean)}.
+     * 
+     * @param ids identifiers of the instances in the same order, or 
+     *        <tt>null</tt> to read them from the instances
+     */
+    private void writtenAll(Collection<? extends Persistable> entities, List<Serializable> ids, boolean succeeded) {
+        int i = 0;
+        for (Persistable entity : entities) {
+            written(ids != null ? ids.get(i++) : entity.getId(), entity, succeeded);
+        }
+    }
+    
+    /**
+     * Invalidate the partially updated instance in the caches of all related 
+     * classes. It's never refreshed, because the given instance may not hold
+     * the whole state.
+     */
+    private void updated(Serializable id, Persistable entity, Class<?> clazz) {
+        for (Map.Entry<Class, CacheRegion> entry : regions.entrySet()) {
+            if (isRelated(entry.getKey(), clazz)) {
+                entry.getValue().written(id, entity, false);
+            }
+        }
+    }
+    
+    private static boolean isRelated(Class<?> a, Class<?> b) {
+        return a.isAssignableFrom(b) || b.isAssignableFrom(a);
+    }
+    
+    private static <ID, E> Map<ID, E> ordered(Collection<ID> ids, Map<ID, E> found) {
+        Map<ID, E> result = new LinkedHashMap<ID, E>(found.size() * 4 / 3 + 1);
+        for (ID id : ids) {
+            E entity = found.get(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+}
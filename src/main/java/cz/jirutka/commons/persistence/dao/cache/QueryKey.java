@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.PagingSnapshot;
+import java.util.Arrays;
+
+/**
+ * Immutable key of a query in the query cache, with precomputed hash code.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class QueryKey {
+    
+    private final String kind;
+    private final Object[] params;
+    private final int hash;
+    
+    
+    private QueryKey(String kind, Object... params) {
+        this.kind = kind;
+        this.params = params;
+        this.hash = 31 * kind.hashCode() + Arrays.deepHashCode(params);
+    }
+    
+    static QueryKey paginated(PagingOrdering paging) {
+        return new QueryKey("paginated", snapshot(paging));
+    }
+    
+    static QueryKey byProperty(String property, Object value, PagingOrdering paging) {
+        return new QueryKey("property", property, value, snapshot(paging));
+    }
+    
+    private static PagingSnapshot snapshot(PagingOrdering paging) {
+        return paging != null ? paging.snapshot() : null;
+    }
+    
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof QueryKey)) return false;
+        
+        final QueryKey other = (QueryKey) obj;
+        return hash == other.hash 
+                && kind.equals(other.kind) 
+                && Arrays.deepEquals(params, other.params);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return kind + Arrays.deepToString(params);
+    }
+}
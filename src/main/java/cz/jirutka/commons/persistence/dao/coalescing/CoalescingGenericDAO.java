@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.coalescing;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decorator of the {@link GenericDAO} that collapses concurrent identical 
+ * lookups into one call of the underlying DAO (single-flight). When a thread
+ * calls {@link #findByPrimaryKey(Serializable, Class) findByPrimaryKey()} or 
+ * {@link #findByNaturalKey(Object, Class) findByNaturalKey()} while another 
+ * thread is already looking up the same key of the same entity class, it 
+ * doesn't call the underlying DAO, but waits for the in-flight call and gets 
+ * its result, or the same exception.
+ * 
+ * <p>It protects the datastore from a stampede of lookups of a hot key, i.e. 
+ * when the key expires in a cache. It's therefore meant to be placed between
+ * the {@link cz.jirutka.commons.persistence.dao.cache.CachingGenericDAO 
+ * CachingGenericDAO} and the datastore.</p>
+ * 
+ * <p>A write to an entity class detaches in-flight lookups of the written 
+ * instance (by identifier) and all in-flight lookups by natural key of the 
+ * class, its subclasses and superclasses, so the lookups started after the 
+ * write never get the state read before it. A bulk write 
+ * (<tt>deleteByXXX()</tt>, <tt>updateByXXX()</tt>) detaches all in-flight 
+ * lookups of the related classes.</p>
+ * 
+ * <p>Note that the collapsed lookups receive the very same instance, loaded
+ * on the thread (and in the transaction, if any) of the first caller. Use it
+ * only with datastores that return detached instances.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class CoalescingGenericDAO implements GenericDAO {
+    
+    private final GenericDAO genericDAO;
+    private final ConcurrentMap<Lookup, InFlightCall> inFlight = new ConcurrentHashMap<Lookup, InFlightCall>();
+    private final ConcurrentMap<Class, Counters> counters = new ConcurrentHashMap<Class, Counters>();
+    
+    
+    /**
+     * @param genericDAO the underlying generic DAO
+     */
+    public CoalescingGenericDAO(GenericDAO genericDAO) {
+        this.genericDAO = genericDAO;
+    }
+    
+    
+    /**
+     * Return statistics of the lookups of the given entity class.
+     * 
+     * @param entityClass an entity class
+     * @return the statistics, or <tt>null</tt> if there were no lookups yet
+     */
+    public CoalescingStats getStats(Class<? extends Persistable> entityClass) {
+        Counters counter = counters.get(entityClass);
+        return counter != null ? counter.snapshot() : null;
+    }
+    
+    /**
+     * @return statistics of the lookups for all looked up entity classes
+     */
+    public Map<Class, CoalescingStats> getStats() {
+        Map<Class, CoalescingStats> result = new HashMap<Class, CoalescingStats>(counters.size());
+        for (Map.Entry<Class, Counters> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+    
+    /**
+     * @return the underlying generic DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+    
+    
+    ///// Coalesced operations /////
+    
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        return coalesce(new Lookup(true, naturalKey, clazz), 
+                () -> genericDAO.findByNaturalKey(naturalKey, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return coalesce(new Lookup(false, id, clazz), 
+                () -> genericDAO.findByPrimaryKey(id, clazz));
+    }
+    
+    
+    ///// Detaching operations /////
+
+    @Override
+    public void delete(Persistable entity) {
+        try {
+            genericDAO.delete(entity);
+        } finally {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        try {
+            genericDAO.delete(id, clazz);
+        } finally {
+            detach(id, clazz);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            genericDAO.deleteAll(entities, batchSize);
+        } finally {
+            detach(entities);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        try {
+            return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+        } finally {
+            detach(null, clazz);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.deleteByProperty(property, value, clazz);
+        } finally {
+            detach(null, clazz);
+        }
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        try {
+            return genericDAO.save(entity);
+        } finally {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            return genericDAO.saveAll(entities, batchSize);
+        } finally {
+            detach(entities);
+        }
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        try {
+            genericDAO.saveOrUpdate(entity);
+        } finally {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            genericDAO.saveOrUpdateAll(entities, batchSize);
+        } finally {
+            detach(entities);
+        }
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        try {
+            genericDAO.update(entity);
+        } finally {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            genericDAO.updateAll(entities, batchSize);
+        } finally {
+            detach(entities);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        try {
+            return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+        } finally {
+            detach(null, clazz);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.updateByProperty(property, value, values, clazz);
+        } finally {
+            detach(null, clazz);
+        }
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        try {
+            genericDAO.updateProperties(entity, properties);
+        } finally {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        try {
+            genericDAO.updateProperties(id, values, clazz);
+        } finally {
+            detach(id, clazz);
+        }
+    }
+    
+    
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return genericDAO.count(clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        return genericDAO.findByPrimaryKeys(ids, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.findByProperty(property, value, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        return genericDAO.getAll(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return genericDAO.getPaginated(paging, clazz);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return genericDAO.isPersistent(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return genericDAO.load(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return genericDAO.scrollAll(chunkSize, clazz);
+    }
+    
+    
+    ///// Helpers /////
+    
+    /**
+     * Execute the given lookup, unless the same lookup is already in flight;
+     * then wait for its result.
+     */
+    private <T> T coalesce(Lookup key, Supplier<T> lookup) {
+        Counters counter = countersFor(key.clazz);
+        InFlightCall call = new InFlightCall();
+        InFlightCall existing = inFlight.putIfAbsent(key, call);
+        
+        // the underlying DAO may call the same lookup on the same thread
+        if (existing != null && existing.leader != Thread.currentThread()) {
+            counter.coalesced.increment();
+            return (T) await(existing.result);
+        }
+        counter.calls.increment();
+        if (existing != null) {
+            return lookup.get();
+        }
+        try {
+            T result = lookup.get();
+            inFlight.remove(key, call);
+            call.result.complete(result);
+            return result;
+            
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, call);
+            call.result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+    
+    private static Object await(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+    
+    /**
+     * Detach in-flight lookups of the instance with the given identifier (if 
+     * known) and all in-flight lookups by natural key of the related classes.
+     */
+    private void detach(Serializable id, Class<?> clazz) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        for (Lookup key : inFlight.keySet()) {
+            if ((key.naturalKey || id == null || Objects.equals(key.key, id)) && isRelated(key.clazz, clazz)) {
+                inFlight.remove(key);
+            }
+        }
+    }
+    
+    private void detach(Collection<? extends Persistable> entities) {
+        for (Persistable entity : entities) {
+            detach(entity.getId(), entity.getClass());
+        }
+    }
+    
+    private Counters countersFor(Class<?> clazz) {
+        Counters counter = counters.get(clazz);
+        if (counter == null) {
+            counter = new Counters();
+            Counters existing = counters.putIfAbsent(clazz, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+    
+    private static boolean isRelated(Class<?> a, Class<?> b) {
+        return a.isAssignableFrom(b) || b.isAssignableFrom(a);
+    }
+    
+    
+    ///// Inner classes /////
+    
+    private static final class Lookup {
+        
+        final boolean naturalKey;
+        final Object key;
+        final Class<?> clazz;
+        
+        Lookup(boolean naturalKey, Object key, Class<?> clazz) {
+            this.naturalKey = naturalKey;
+            this.key = key;
+            this.clazz = clazz;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Lookup)) return false;
+            
+            Lookup other = (Lookup) obj;
+            return naturalKey == other.naturalKey && clazz == other.clazz && Objects.equals(key, other.key);
+        }
+        
+        @Override
+        public int hashCode() {
+            return (31 * clazz.hashCode() + Objects.hashCode(key)) * 31 + (naturalKey ? 1 : 0);
+        }
+    }
+    
+    private static final class InFlightCall {
+        
+        final Thread leader = Thread.currentThread();
+        final CompletableFuture<Object> result = new CompletableFuture<Object>();
+    }
+    
+    private static final class Counters {
+        
+        final LongAdder calls = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        
+        CoalescingStats snapshot() {
+            return new CoalescingStats(calls.sum(), coalesced.sum());
+        }
+    }
+}
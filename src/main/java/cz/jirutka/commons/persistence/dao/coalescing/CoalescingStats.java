@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.coalescing;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of statistics of the request coalescing for one entity 
+ * class, see {@link CoalescingGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class CoalescingStats implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long callCount;
+    private final long coalescedCount;
+
+    
+    public CoalescingStats(long callCount, long coalescedCount) {
+        this.callCount = callCount;
+        this.coalescedCount = coalescedCount;
+    }
+    
+    
+    /**
+     * @return number of lookups that were sent to the underlying DAO
+     */
+    public long getCallCount() { return callCount; }
+    
+    /**
+     * @return number of lookups that were collapsed into an in-flight call
+     *         of another thread
+     */
+    public long getCoalescedCount() { return coalescedCount; }
+    
+    /**
+     * @return ratio of the collapsed lookups to all lookups, or 0.0 if there 
+     *         were no lookups
+     */
+    public double getCoalescedRate() {
+        long requests = callCount + coalescedCount;
+        return requests == 0 ? 0.0 : (double) coalescedCount / requests;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("CoalescingStats[calls=%d, coalesced=%d]", callCount, coalescedCount);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary form and hash of identifiers, as stored in the records and the 
+ * primary index. Equal identifiers must have the same binary form; it holds
+ * for the common types of identifiers (numbers, strings, UUIDs) and for types
+ * with a deterministic serialized form.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class Ids {
+    
+    private static final byte SERIALIZED = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte STRING = 3;
+    private static final byte UUID_TAG = 4;
+    
+    private Ids() {}
+    
+    
+    /**
+     * @return the binary form of the given identifier
+     */
+    static byte[] encode(Serializable id) {
+        if (id instanceof Long) {
+            return ByteBuffer.allocate(9).put(LONG).putLong((Long) id).array();
+        }
+        if (id instanceof Integer) {
+            return ByteBuffer.allocate(5).put(INTEGER).putInt((Integer) id).array();
+        }
+        if (id instanceof String) {
+            byte[] chars = ((String) id).getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(chars.length + 1).put(STRING).put(chars).array();
+        }
+        if (id instanceof UUID) {
+            UUID uuid = (UUID) id;
+            return ByteBuffer.allocate(17).put(UUID_TAG)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits()).array();
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            bytes.write(SERIALIZED);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(id);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to serialize identifier: " + id, ex);
+        }
+    }
+    
+    /**
+     * @return 64-bit hash of the given binary form of identifier (FNV-1a with
+     *         the MurmurHash3 finalizer)
+     */
+    static long hash(byte[] id) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : id) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+    
+    /**
+     * @return hash of the binary form of identifier stored in the given buffer
+     */
+    static long hash(ByteBuffer buffer, int offset, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+    
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
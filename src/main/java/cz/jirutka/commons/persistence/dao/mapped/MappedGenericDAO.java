@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.codec.EntityCodecFactory;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of the {@link GenericDAO} that keeps instances in 
+ * memory-mapped files, intended for large read-mostly datasets.
+ * 
+ * <p>Each entity class has its own store in the given directory: an 
+ * append-only log of serialized instances split into segment files, and an 
+ * off-heap primary index (an open-addressing hash table in a mapped file) 
+ * from the identifier to the location of the record. Neither the instances 
+ * nor the index are kept on the Java heap, so even tens of millions of 
+ * instances don't put pressure on the garbage collector. Lookups by the 
+ * primary key read the record directly from the mapped file, 
+ * {@link #isPersistent(Serializable, Class) isPersistent()} and 
+ * {@link #count(Class) count()} don't touch the records at all.</p>
+ * 
+ * <p>Writes append a new version of the record, the old one becomes dead. 
+ * When the dead records exceed the {@linkplain 
+ * MappedStoreSpec#compactionThreshold(double) threshold}, the store is 
+ * compacted, i.e. the live records are copied into new segments. On {@link 
+ * #close()}, the state is saved into the index file, so the next open is 
+ * immediate; after a crash, the index is rebuilt from the log.</p>
+ * 
+ * <p>There are no secondary indexes, queries by properties and ordered 
+ * queries decode and scan all instances of the class. Instances are encoded
+ * by the {@linkplain MappedStoreSpec#codec(EntityCodecFactory) configured} 
+ * codec, the Java serialization by default; each read returns a new copy. Instances of a 
+ * subclass of a configured entity class are stored in the store of the 
+ * configured class.</p>
+ * 
+ * <p>This class is thread-safe. Reads run concurrently, writes to one store 
+ * are serialized. The directory must not be used by more than one instance 
+ * (or process) at a time.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class MappedGenericDAO implements GenericDAO, AutoCloseable {
+    
+    private final Path directory;
+    private final ConcurrentMap<Class, MappedStoreSpec> specs = new ConcurrentHashMap<Class, MappedStoreSpec>();
+    private final ConcurrentMap<Class, MappedStore> stores = new ConcurrentHashMap<Class, MappedStore>();
+    
+    
+    /**
+     * @param directory the directory with the store files; it's created if 
+     *        doesn't exist
+     */
+    public MappedGenericDAO(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create directory " + directory, ex);
+        }
+    }
+    
+    
+    /**
+     * Set specification of the store for the given entity class. It must be 
+     * called before the first access to this class.
+     * 
+     * @param entityClass an entity class
+     * @param spec specification of the store
+     * @return this (for method-chain)
+     */
+    public MappedGenericDAO configure(Class<? extends Persistable> entityClass, MappedStoreSpec spec) {
+        specs.put(entityClass, spec);
+        return this;
+    }
+    
+    /**
+     * Compact stores of all entity classes opened so far, regardless of the 
+     * ratio of dead records.
+     */
+    public void compact() {
+        for (MappedStore store : stores.values()) {
+            try {
+                store.compact();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+    
+    /**
+     * Write recent changes of all entity classes to the disk.
+     */
+    public void flush() {
+        for (MappedStore store : stores.values()) {
+            store.flush();
+        }
+    }
+    
+    /**
+     * Remove all instances of all entity classes opened so far.
+     */
+    public void clear() {
+        for (MappedStore store : stores.values()) {
+            try {
+                store.clear();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+    
+    /**
+     * Write everything to the disk and close the stores. Instances of this 
+     * class can't be used after close.
+     */
+    public void close() {
+        for (MappedStore store : stores.values()) {
+            store.close();
+        }
+    }
+    
+    
+    ///// Reads /////
+    
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        MappedStore store = storeFor(clazz);
+        if (store.entityClass == clazz) {
+            return (long) store.size();
+        }
+        long count = 0;
+        for (Iterator<Persistable> it = store.iterator(clazz); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        
+        MappedStore store = storeFor(clazz);
+        return (List<E>) store.select(clazz, includeProperties, 
+                exampleValues(store, exampleInstance, includeProperties), paging);
+    }
+
+    /**
+     * Find instance by the natural key declared in the {@link MappedStoreSpec};
+     * it scans all instances of the class.
+     */
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        
+        MappedStore store = storeFor(clazz);
+        String property = store.spec.getNaturalKey();
+        if (property == null) {
+            throw new UnsupportedOperationException("No natural key declared for " + clazz.getName());
+        }
+        List<Persistable> result = store.select(clazz, new String[]{ property }, new Object[]{ naturalKey }, 
+                new PagingOrdering(1, 0));
+        
+        return result.isEmpty() ? null : (E) result.get(0);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        
+        Persistable entity = storeFor(clazz).get(id);
+        return clazz.isInstance(entity) ? (E) entity : null;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return (List<E>) storeFor(clazz).select(clazz, new String[]{ property }, new Object[]{ value }, paging);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        
+        List<E> result = new ArrayList<E>();
+        for (Iterator<Persistable> it = storeFor(clazz).iterator(clazz); it.hasNext(); ) {
+            result.add((E) it.next());
+        }
+        return result;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return (List<E>) storeFor(clazz).select(clazz, new String[0], new Object[0], paging);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        MappedStore store = storeFor(clazz);
+        return store.entityClass == clazz ? store.contains(id) : findByPrimaryKey(id, clazz) != null;
+    }
+
+    /**
+     * Same as {@link #findByPrimaryKey(Serializable, Class) findByPrimaryKey()},
+     * instances are never proxied.
+     */
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return findByPrimaryKey(id, clazz);
+    }
+
+    /**
+     * Return a cursor over all instances of the given entity class. It 
+     * iterates over a snapshot of the primary index and deserializes the 
+     * instances one by one, the chunk size is ignored.
+     */
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        
+        final Iterator<Persistable> iterator = storeFor(clazz).iterator(clazz);
+        
+        return new EntityCursor<E>() {
+            public boolean hasNext() { return iterator.hasNext(); }
+            public E next() { return (E) iterator.next(); }
+            public void close() { }
+        };
+    }
+    
+    
+    ///// Writes /////
+
+    @Override
+    public void delete(Persistable entity) {
+        delete(entity.getId(), entity.getClass());
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        try {
+            storeFor(clazz).delete(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Remove the matched instances atomically; it scans all instances of 
+     * the class.
+     */
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        
+        MappedStore store = storeFor(clazz);
+        try {
+            return store.deleteWhere(clazz, includeProperties, exampleValues(store, exampleInstance, includeProperties));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Remove the matched instances atomically; it scans all instances of 
+     * the class.
+     */
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        try {
+            return storeFor(clazz).deleteWhere(clazz, new String[]{ property }, new Object[]{ value });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if an instance with the same identifier 
+     *         already exists
+     */
+    @Override
+    public Serializable save(Persistable entity) {
+        return write(entity, true, false);
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        write(entity, false, false);
+    }
+
+    /**
+     * @throws IllegalStateException if there's no instance with the same 
+     *         identifier
+     */
+    @Override
+    public void update(Persistable entity) {
+        write(entity, false, true);
+    }
+
+    /**
+     * Read the stored instance, set the properties and store it again, 
+     * atomically.
+     * 
+     * @throws IllegalStateException if there's no such instance
+     */
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        try {
+            storeFor(clazz).writeProperties(id, values);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Set the properties of the matched instances atomically; it scans all 
+     * instances of the class.
+     */
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        
+        MappedStore store = storeFor(clazz);
+        try {
+            return store.writePropertiesWhere(clazz, includeProperties, 
+                    exampleValues(store, exampleInstance, includeProperties), values);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Set the properties of the matched instances atomically; it scans all 
+     * instances of the class.
+     */
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        try {
+            return storeFor(clazz).writePropertiesWhere(clazz, new String[]{ property }, new Object[]{ value }, values);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    
+    ///// Helpers /////
+    
+    private Serializable write(Persistable entity, boolean insert, boolean update) {
+        try {
+            return storeFor(entity.getClass()).write(entity, insert, update);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private static Object[] exampleValues(MappedStore store, Persistable exampleInstance, String[] includeProperties) {
+        Object[] values = new Object[includeProperties.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = store.read(exampleInstance, includeProperties[i]);
+        }
+        return values;
+    }
+    
+    /**
+     * Return store for the given entity class, i.e. store of the nearest 
+     * configured superclass (or the class itself), or a new store with the 
+     * default specification.
+     */
+    private MappedStore storeFor(Class<? extends Persistable> clazz) {
+        MappedStore store = stores.get(clazz);
+        
+        if (store == null) {
+            Class<? extends Persistable> storeClass = clazz;
+            for (Class<?> c = clazz; c != null && Persistable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                if (specs.containsKey(c)) {
+                    storeClass = c.asSubclass(Persistable.class);
+                    break;
+                }
+            }
+            if (storeClass != clazz) {
+                store = storeFor(storeClass);
+            } else {
+                store = openStore(clazz);
+            }
+            MappedStore existing = stores.putIfAbsent(clazz, store);
+            if (existing != null) {
+                store = existing;
+            }
+        }
+        return store;
+    }
+    
+    /**
+     * Open store of the given class; it's synchronized so the same files are 
+     * never opened twice.
+     */
+    private synchronized MappedStore openStore(Class<? extends Persistable> clazz) {
+        MappedStore store = stores.get(clazz);
+        if (store != null) {
+            return store;
+        }
+        MappedStoreSpec spec = specs.get(clazz);
+        try {
+            store = new MappedStore(clazz, spec != null ? spec : new MappedStoreSpec(), directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open store of " + clazz.getName(), ex);
+        }
+        stores.put(clazz, store);
+        return store;
+    }
+}
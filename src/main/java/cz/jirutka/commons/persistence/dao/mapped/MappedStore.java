@@ -0,0 +1,682 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.codec.EntityCodec;
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import cz.jirutka.commons.persistence.dao.property.PropertyGetter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static cz.jirutka.commons.persistence.dao.mapped.OffHeapIndex.EMPTY;
+
+/**
+ * File-backed store of instances of one entity class (and its subclasses): 
+ * an append-only log of records in mapped {@link Segment segments} and the 
+ * {@link OffHeapIndex primary index}. 
+ * 
+ * <p>Lookups by identifier read the record directly from the mapped segment, 
+ * the payload is decoded by the {@link EntityCodec} only when the instance is
+ * returned. Writes 
+ * append a new record and update the index; the replaced and deleted records 
+ * become dead and are removed by {@linkplain #compact() compaction}, which 
+ * copies the live records (as they are, without deserialization) into new 
+ * segments.</p>
+ * 
+ * <p>When the store is cleanly {@linkplain #close() closed}, the index file 
+ * is just mapped again on open. Otherwise the index is rebuilt by replaying
+ * the log; a partially written record at the end of a segment is discarded.
+ * </p>
+ * 
+ * <p>Reads hold a shared lock only while locating the records, writes hold 
+ * an exclusive lock.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+final class MappedStore {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(MappedStore.class);
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    
+    final Class<? extends Persistable> entityClass;
+    final MappedStoreSpec spec;
+    private final Path directory;
+    private final String baseName;
+    private final PropertyAccessors<Persistable> accessors;
+    private final EntityCodec<Persistable> codec;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+    private OffHeapIndex index;
+    private Segment active;
+    private long totalBytes;
+    private long deadBytes;
+    private boolean closed = false;
+    
+    
+    /**
+     * Open the store of the given entity class in the given directory, or 
+     * create a new one.
+     */
+    MappedStore(Class<? extends Persistable> entityClass, MappedStoreSpec spec, Path directory) throws IOException {
+        this.entityClass = entityClass;
+        this.spec = spec;
+        this.directory = directory;
+        this.baseName = entityClass.getName();
+        this.accessors = (PropertyAccessors<Persistable>) PropertyAccessors.forClass(entityClass);
+        this.codec = (EntityCodec<Persistable>) spec.getCodecFactory().codecFor(entityClass);
+        
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, baseName + ".*.seg")) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                String number = name.substring(baseName.length() + 1, name.length() - 4);
+                if (number.matches("[0-9]+")) {
+                    int n = Integer.parseInt(number);
+                    segments.put(n, Segment.open(path, n, spec.getSegmentSize()));
+                }
+            }
+        }
+        index = OffHeapIndex.open(indexPath());
+        
+        if (index != null && !segments.isEmpty() && index.getActiveSegment() == segments.lastKey()) {
+            active = segments.lastEntry().getValue();
+            active.writePosition = index.getWritePosition();
+            totalBytes = index.getTotalBytes();
+            deadBytes = index.getDeadBytes();
+            LOG.debug("Opened store of {} with {} instances", baseName, index.size());
+        } else {
+            rebuild();
+        }
+        if (active == null) {
+            active = createSegment(1);
+        }
+    }
+    
+    
+    ///// Reads /////
+    
+    /**
+     * @return the instance with the given identifier, or <tt>null</tt>
+     */
+    Persistable get(Serializable id) {
+        byte[] idBytes = Ids.encode(id);
+        Segment segment;
+        int offset;
+        
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            long location = index.get(Ids.hash(idBytes), hasId(idBytes));
+            if (location == EMPTY) {
+                return null;
+            }
+            segment = segments.get(Segment.segmentOf(location));
+            offset = Segment.offsetOf(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // the segment stays mapped even if it's compacted meanwhile
+        return decode(segment, offset);
+    }
+    
+    /**
+     * @return <tt>true</tt> if there's an instance with the given identifier
+     */
+    boolean contains(Serializable id) {
+        byte[] idBytes = Ids.encode(id);
+        
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return index.get(Ids.hash(idBytes), hasId(idBytes)) != EMPTY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return number of the stored instances
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Return iterator over a snapshot of the stored instances of the given 
+     * type. The instances are deserialized lazily, in no particular order.
+     */
+    Iterator<Persistable> iterator(final Class<?> type) {
+        final long[] locations;
+        final Map<Integer, Segment> snapshot;
+        
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            locations = index.locations();
+            snapshot = new TreeMap<Integer, Segment>(segments);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Iterator<Persistable>() {
+            private int position = 0;
+            private Persistable next;
+            
+            public boolean hasNext() {
+                while (next == null && position < locations.length) {
+                    long location = locations[position++];
+                    Persistable entity = decode(snapshot.get(Segment.segmentOf(location)), Segment.offsetOf(location));
+                    if (type.isInstance(entity)) {
+                        next = entity;
+                    }
+                }
+                return next != null;
+            }
+            
+            public Persistable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Persistable result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+    
+    /**
+     * Find instances of the given type whose properties are equal to the 
+     * given values, and apply the paging. It scans all the instances; ordered 
+     * results are sorted by the {@linkplain PagingOrdering#getKeysetOrdering()
+     * keyset ordering}, unordered are read only up to the limit.
+     */
+    List<Persistable> select(Class<?> type, String[] props, Object[] values, PagingOrdering paging) {
+        if (paging == null) {
+            paging = PagingOrdering.NONE;
+        }
+        Predicate<Persistable> matcher = props.length > 0 ? accessors.matcher(props, values) : null;
+        boolean ordered = paging.hasOrdering() || paging.isKeyset();
+        int wanted = !ordered && paging.getLimit() >= 0 ? paging.getOffset() + paging.getLimit() : -1;
+        
+        List<Persistable> matched = new ArrayList<Persistable>();
+        for (Iterator<Persistable> it = iterator(type); it.hasNext() && matched.size() != wanted; ) {
+            Persistable entity = it.next();
+            if (matcher == null || matcher.test(entity)) {
+                matched.add(entity);
+            }
+        }
+        int from = paging.getOffset();
+        if (ordered) {
+            List<OrderBy> ordering = paging.getKeysetOrdering();
+            Comparator<Persistable> comparator = accessors.comparator(ordering);
+            matched.sort(comparator);
+            
+            if (paging.isKeyset()) {
+                from = firstAfter(matched, paging.getAfterValues(), ordering);
+            }
+        }
+        from = Math.min(from, matched.size());
+        int to = paging.getLimit() < 0 ? matched.size() : Math.min(from + paging.getLimit(), matched.size());
+        
+        return new ArrayList<Persistable>(matched.subList(from, to));
+    }
+    
+    Object read(Persistable entity, String property) {
+        return accessors.getter(property).get(entity);
+    }
+    
+    
+    ///// Writes /////
+    
+    /**
+     * Store the given instance. When it doesn't have an identifier yet, a new
+     * one is generated (if the generator is specified) and set.
+     * 
+     * @param entity the instance to store
+     * @param insert <tt>true</tt> if an instance with the same identifier must
+     *        not exist yet
+     * @param update <tt>true</tt> if an instance with the same identifier must
+     *        exist already
+     * @return the identifier
+     * @throws IllegalStateException if the insert/update condition is violated
+     */
+    Serializable write(Persistable entity, boolean insert, boolean update) throws IOException {
+        Serializable id = entity.getId();
+        
+        if (id == null) {
+            if (update || spec.getIdGenerator() == null) {
+                throw new IllegalArgumentException("Cannot store instance without identifier");
+            }
+            id = spec.getIdGenerator().get();
+            accessors.write(entity, spec.getIdProperty(), id);
+        }
+        byte[] idBytes = Ids.encode(id);
+        if (idBytes.length > 0xffff) {
+            throw new IllegalArgumentException("Identifier is too big: " + id);
+        }
+        byte[] payload = codec.encode(entity);
+        long hash = Ids.hash(idBytes);
+        LongPredicate matcher = hasId(idBytes);
+        
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (insert || update) {
+                boolean exists = index.get(hash, matcher) != EMPTY;
+                if (insert && exists) {
+                    throw new IllegalStateException(String.format(
+                            "Instance of %s with id %s already exists", entityClass.getName(), id));
+                }
+                if (update && !exists) {
+                    throw new IllegalStateException(String.format(
+                            "No persistent instance of %s with id %s", entityClass.getName(), id));
+                }
+            }
+            long old = index.put(hash, append(Segment.PUT, idBytes, payload), matcher);
+            if (old != EMPTY) {
+                deadBytes += sizeAt(old);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return id;
+    }
+    
+    /**
+     * Read the stored instance, set the given properties and store it again,
+     * atomically.
+     * 
+     * @param id identifier of the instance
+     * @param values new values of the properties keyed by the property names
+     * @throws IllegalStateException if there's no such instance
+     */
+    void writeProperties(Serializable id, Map<String, Object> values) throws IOException {
+        if (values.containsKey(spec.getIdProperty())) {
+            throw new IllegalArgumentException("Cannot update identifier of " + entityClass.getName());
+        }
+        lock.writeLock().lock();
+        try {
+            Persistable entity = get(id);
+            if (entity == null) {
+                throw new IllegalStateException(String.format(
+                        "No persistent instance of %s with id %s", entityClass.getName(), id));
+            }
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                accessors.write(entity, entry.getKey(), entry.getValue());
+            }
+            write(entity, false, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Set the given properties of all stored instances of the given type 
+     * whose properties are equal to the given values, atomically. It scans 
+     * all the instances.
+     * 
+     * @param type the entity class or its subclass
+     * @param props names of the properties to match
+     * @param matchValues values of the properties to match
+     * @param values new values of the properties keyed by the property names
+     * @return number of the updated instances
+     */
+    int writePropertiesWhere(Class<?> type, String[] props, Object[] matchValues, Map<String, Object> values) 
+            throws IOException {
+        if (values.containsKey(spec.getIdProperty())) {
+            throw new IllegalArgumentException("Cannot update identifier of " + entityClass.getName());
+        }
+        lock.writeLock().lock();
+        try {
+            List<Persistable> matched = select(type, props, matchValues, null);
+            for (Persistable entity : matched) {
+                for (Map.Entry<String, Object> entry : values.entrySet()) {
+                    accessors.write(entity, entry.getKey(), entry.getValue());
+                }
+                write(entity, false, true);
+            }
+            return matched.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * @return <tt>true</tt> if the instance was deleted, <tt>false</tt> if 
+     *         there was no such instance
+     */
+    boolean delete(Serializable id) throws IOException {
+        byte[] idBytes = Ids.encode(id);
+        long hash = Ids.hash(idBytes);
+        LongPredicate matcher = hasId(idBytes);
+        
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (index.get(hash, matcher) == EMPTY) {
+                return false;
+            }
+            long location = append(Segment.DELETE, idBytes, NO_PAYLOAD);
+            long old = index.remove(hash, matcher);
+            deadBytes += sizeAt(old) + sizeAt(location);
+            
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove all stored instances of the given type whose properties are 
+     * equal to the given values, atomically. It scans all the instances.
+     * 
+     * @param type the entity class or its subclass
+     * @param props names of the properties
+     * @param values values of the properties
+     * @return number of the removed instances
+     */
+    int deleteWhere(Class<?> type, String[] props, Object[] values) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int count = 0;
+            for (Persistable entity : select(type, props, values, null)) {
+                if (delete(entity.getId())) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Copy the live records into new segments and delete the old ones. 
+     * Concurrent writes are blocked for the duration, reads are blocked only
+     * while locating records.
+     */
+    void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<Segment> obsolete = new ArrayList<Segment>(segments.values());
+            long before = totalBytes;
+            
+            active.force();
+            active = createSegment(segments.lastKey() + 1);
+            totalBytes = 0;
+            try {
+                index.relocateAll(location -> copy(location));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            active.force();
+            
+            // the obsolete segments are deleted from the oldest, so the log
+            // can be replayed if the process crashes in the meantime
+            for (Segment segment : obsolete) {
+                if (segment != active) {
+                    segments.remove(segment.number);
+                    segment.delete();
+                }
+            }
+            deadBytes = 0;
+            LOG.debug("Compacted store of {}: {} -> {} bytes", new Object[]{ baseName, before, totalBytes });
+            
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove all instances, i.e. delete all the files and create new ones.
+     */
+    void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (Segment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            index = OffHeapIndex.create(indexPath(), spec.getInitialCapacity());
+            active = createSegment(1);
+            totalBytes = 0;
+            deadBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Write the active segment to the disk.
+     */
+    void flush() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            active.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Write everything to the disk and store the state into the index file,
+     * so the store can be opened quickly. Calling this method more than once 
+     * has no effect.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (Segment segment : segments.values()) {
+                segment.force();
+            }
+            index.close(active.number, active.writePosition, totalBytes, deadBytes);
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    
+    ///// Helpers /////
+    
+    /**
+     * Rebuild the index by replaying the log.
+     */
+    private void rebuild() throws IOException {
+        long start = System.nanoTime();
+        index = OffHeapIndex.create(indexPath(), spec.getInitialCapacity());
+        totalBytes = 0;
+        deadBytes = 0;
+        
+        for (Segment segment : segments.values()) {
+            int offset = 0;
+            for (int size; (size = segment.check(offset)) != 0; offset += size) {
+                if (size < 0) {
+                    LOG.warn("Discarding corrupted record at offset {} of {}", offset, segment.path);
+                    segment.writePosition = offset;
+                    segment.truncate();
+                    break;
+                }
+                replay(segment, offset, size);
+            }
+            segment.writePosition = offset;
+            totalBytes += offset;
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        
+        LOG.info("Rebuilt primary index of {} with {} instances in {} ms", 
+                new Object[]{ baseName, index.size(), (System.nanoTime() - start) / 1000000 });
+    }
+    
+    private void replay(Segment segment, int offset, int size) throws IOException {
+        byte[] idBytes = new byte[segment.idLengthAt(offset)];
+        for (int i = 0; i < idBytes.length; i++) {
+            idBytes[i] = segment.buffer.get(segment.idOffset(offset) + i);
+        }
+        long hash = Ids.hash(idBytes);
+        
+        if (segment.typeAt(offset) == Segment.PUT) {
+            long old = index.put(hash, Segment.location(segment.number, offset), hasId(idBytes));
+            if (old != EMPTY) {
+                deadBytes += sizeAt(old);
+            }
+        } else {
+            long old = index.remove(hash, hasId(idBytes));
+            deadBytes += size + (old != EMPTY ? sizeAt(old) : 0);
+        }
+    }
+    
+    /**
+     * Append a record to the active segment, or to a new one if it's full.
+     * 
+     * @return location of the record
+     */
+    private long append(byte type, byte[] idBytes, byte[] payload) throws IOException {
+        int size = Segment.recordSize(idBytes.length, payload.length);
+        if (size > spec.getSegmentSize()) {
+            throw new IllegalArgumentException(String.format(
+                    "Serialized instance of %s has %d bytes, it doesn't fit into segment", baseName, size));
+        }
+        ensureSpace(size);
+        totalBytes += size;
+        return Segment.location(active.number, active.append(type, idBytes, payload));
+    }
+    
+    /**
+     * Copy the record at the given location to the active segment.
+     * 
+     * @return the new location
+     */
+    private long copy(long location) {
+        Segment source = segments.get(Segment.segmentOf(location));
+        int offset = Segment.offsetOf(location);
+        int size = source.sizeAt(offset);
+        try {
+            ensureSpace(size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        totalBytes += size;
+        return Segment.location(active.number, active.appendCopy(source, offset));
+    }
+    
+    private void ensureSpace(int size) throws IOException {
+        if (active.remaining() < size) {
+            active.force();
+            active = createSegment(active.number + 1);
+        }
+    }
+    
+    private void compactIfNeeded() throws IOException {
+        double threshold = spec.getCompactionThreshold();
+        if (threshold > 0 && totalBytes >= spec.getSegmentSize() && deadBytes > totalBytes * threshold) {
+            compact();
+        }
+    }
+    
+    private Segment createSegment(int number) throws IOException {
+        Path path = directory.resolve(String.format("%s.%06d.seg", baseName, number));
+        Files.deleteIfExists(path);
+        Segment segment = Segment.open(path, number, spec.getSegmentSize());
+        segments.put(number, segment);
+        return segment;
+    }
+    
+    private Path indexPath() {
+        return directory.resolve(baseName + ".index");
+    }
+    
+    private int sizeAt(long location) {
+        return segments.get(Segment.segmentOf(location)).sizeAt(Segment.offsetOf(location));
+    }
+    
+    /**
+     * @return predicate that checks if the record at the given location has
+     *         the given identifier
+     */
+    private LongPredicate hasId(final byte[] idBytes) {
+        return location -> segments.get(Segment.segmentOf(location)).hasId(Segment.offsetOf(location), idBytes);
+    }
+    
+    private Persistable decode(Segment segment, int offset) {
+        return codec.decode(segment.buffer, segment.payloadOffset(offset), segment.payloadLength(offset));
+    }
+    
+    private int firstAfter(List<Persistable> sorted, List<Object> afterValues, List<OrderBy> ordering) {
+        int low = 0, high = sorted.size();
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTo(sorted.get(mid), afterValues, ordering) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    private int compareTo(Persistable entity, List<Object> values, List<OrderBy> ordering) {
+        for (int i = 0; i < ordering.size(); i++) {
+            OrderBy order = ordering.get(i);
+            int cmp = PropertyGetter.compareValues(accessors.getter(order.getPropertyName()).get(entity), values.get(i));
+            if (cmp != 0) {
+                return order.isAscending() ? cmp : -cmp;
+            }
+        }
+        return 0;
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store of " + baseName + " is closed");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import cz.jirutka.commons.persistence.codec.EntityCodecFactory;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/**
+ * Specification of a file-backed store for one entity class, see {@link 
+ * MappedGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class MappedStoreSpec {
+    
+    /** Default size of a segment file: 256 MiB. */
+    public static final int DEFAULT_SEGMENT_SIZE = 256 << 20;
+    
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private double compactionThreshold = 0.5;
+    private int initialCapacity = 1024;
+    private String naturalKey;
+    private String idProperty = PagingOrdering.DEFAULT_ID_PROPERTY;
+    private Supplier<? extends Serializable> idGenerator;
+    private EntityCodecFactory codecFactory = EntityCodecFactory.JAVA_SERIALIZATION;
+    
+    
+    ///// Fluent interface /////
+    
+    /**
+     * Set size of the segment files (default 256 MiB). Each segment is mapped
+     * into memory as a whole, so it must not be bigger than 2 GiB. One record
+     * (a serialized instance) must fit into one segment.
+     * 
+     * @param bytes size of a segment in bytes
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec segmentSize(int bytes) {
+        if (bytes < 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 1024 bytes");
+        }
+        this.segmentSize = bytes;
+        return this;
+    }
+    
+    /**
+     * Set the ratio of dead records (overwritten or deleted instances) to all 
+     * records in the segments that triggers compaction after a write (default 
+     * 0.5). The compaction is not triggered while the store occupies less than
+     * one segment.
+     * 
+     * @param ratio the ratio between 0 and 1, zero to disable automatic 
+     *        compaction
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec compactionThreshold(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("compactionThreshold must be between 0 and 1");
+        }
+        this.compactionThreshold = ratio;
+        return this;
+    }
+    
+    /**
+     * Set the expected number of instances, so the primary index doesn't have
+     * to be resized while it's being filled (default 1024).
+     * 
+     * @param capacity expected number of instances
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec initialCapacity(int capacity) {
+        this.initialCapacity = capacity;
+        return this;
+    }
+    
+    /**
+     * Declare the natural key (identifier) property, so <tt>findByNaturalKey()</tt>
+     * can be used. There's no index on it, the lookup scans all instances.
+     * 
+     * @param property name of the property
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec naturalKey(String property) {
+        this.naturalKey = property;
+        return this;
+    }
+    
+    /**
+     * Set name of the identifier property (default <tt>id</tt>). A generated
+     * identifier is written to this property and it can't be changed by 
+     * a partial update.
+     * 
+     * @param property name of the property
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec idProperty(String property) {
+        this.idProperty = property;
+        return this;
+    }
+    
+    /**
+     * Set the generator of identifiers for instances saved without an 
+     * identifier. By default, the identifier must be assigned before save.
+     * 
+     * @param idGenerator supplier of unique identifiers
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec idGenerator(Supplier<? extends Serializable> idGenerator) {
+        this.idGenerator = idGenerator;
+        return this;
+    }
+    
+    /**
+     * Set the codec used to encode instances into the records (default 
+     * {@link EntityCodecFactory#JAVA_SERIALIZATION}). The codec can't be 
+     * changed for existing files.
+     * 
+     * @param codecFactory factory of the entity class' codec, e.g. {@link 
+     *        EntityCodecFactory#BINARY}
+     * @return this (for method-chain)
+     */
+    public MappedStoreSpec codec(EntityCodecFactory codecFactory) {
+        this.codecFactory = codecFactory;
+        return this;
+    }
+    
+    
+    ///// Normal interface /////
+    
+    /**
+     * @return size of a segment in bytes
+     */
+    public int getSegmentSize() { return segmentSize; }
+    
+    /**
+     * @return ratio of dead records that triggers compaction, zero if disabled
+     */
+    public double getCompactionThreshold() { return compactionThreshold; }
+    
+    /**
+     * @return expected number of instances
+     */
+    public int getInitialCapacity() { return initialCapacity; }
+    
+    /**
+     * @return name of the natural key property, or <tt>null</tt> if not declared
+     */
+    public String getNaturalKey() { return naturalKey; }
+    
+    /**
+     * @return name of the identifier property
+     */
+    public String getIdProperty() { return idProperty; }
+    
+    /**
+     * @return the generator of identifiers, or <tt>null</tt> if not specified
+     */
+    public Supplier<? extends Serializable> getIdGenerator() { return idGenerator; }
+    
+    /**
+     * @return factory of the codec
+     */
+    public EntityCodecFactory getCodecFactory() { return codecFactory; }
+}
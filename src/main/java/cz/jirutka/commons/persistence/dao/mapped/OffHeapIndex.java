@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Primary index that maps hashes of identifiers to locations of records, 
+ * stored in a memory-mapped file, so it doesn't occupy the Java heap and 
+ * survives restart.
+ * 
+ * <p>It's an open-addressing hash table with linear probing. Each slot has 16
+ * bytes: the hash of the identifier and the location of the record (zero for
+ * an empty slot, -1 for a removed one). Different identifiers may have the 
+ * same hash, so the caller verifies the identifier stored in the record.</p>
+ * 
+ * <p>The file begins with a header that holds also the state of the store.
+ * The state is valid only if the file was cleanly {@linkplain #close() 
+ * closed}; the clean flag is cleared when it's opened.</p>
+ * 
+ * <p>Not thread-safe, access must be guarded by the owner.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class OffHeapIndex {
+    
+    static final long EMPTY = 0;
+    static final long REMOVED = -1;
+    
+    private static final long MAGIC = 0x4350494458310001L;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+    
+    // header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_CLEAN = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_SIZE = 16;
+    private static final int H_REMOVED = 20;
+    private static final int H_ACTIVE_SEGMENT = 24;
+    private static final int H_WRITE_POSITION = 28;
+    private static final int H_TOTAL_BYTES = 32;
+    private static final int H_DEAD_BYTES = 40;
+    
+    private final Path path;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int mask;
+    private int size;
+    private int removed;
+    
+    
+    private OffHeapIndex(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(H_CAPACITY);
+        this.mask = capacity - 1;
+        this.size = buffer.getInt(H_SIZE);
+        this.removed = buffer.getInt(H_REMOVED);
+    }
+    
+    /**
+     * Open the index file, if it exists and was cleanly closed. Its clean 
+     * flag is cleared.
+     * 
+     * @return the index, or <tt>null</tt> if there's no valid index file
+     */
+    static OffHeapIndex open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return null;
+        }
+        MappedByteBuffer buffer = map(path, Files.size(path));
+        if (buffer.getLong(H_MAGIC) != MAGIC || buffer.getInt(H_CLEAN) != 1 
+                || buffer.capacity() != HEADER_SIZE + (long) buffer.getInt(H_CAPACITY) * SLOT_SIZE) {
+            return null;
+        }
+        buffer.putInt(H_CLEAN, 0);
+        buffer.force();
+        
+        return new OffHeapIndex(path, buffer);
+    }
+    
+    /**
+     * Create a new empty index file for the given expected number of entries,
+     * replacing the existing one.
+     */
+    static OffHeapIndex create(Path path, int expectedSize) throws IOException {
+        Files.deleteIfExists(path);
+        return new OffHeapIndex(path, allocate(path, capacityFor(expectedSize)));
+    }
+    
+    
+    ///// Lookups /////
+    
+    /**
+     * @param hash hash of the identifier
+     * @param matches predicate that checks if the record at the given location
+     *        has the wanted identifier
+     * @return location of the record, or {@link #EMPTY} if not found
+     */
+    long get(long hash, LongPredicate matches) {
+        for (int slot = slotFor(hash); ; slot = (slot + 1) & mask) {
+            long location = locationAt(slot);
+            if (location == EMPTY) {
+                return EMPTY;
+            }
+            if (location != REMOVED && hashAt(slot) == hash && matches.test(location)) {
+                return location;
+            }
+        }
+    }
+    
+    /**
+     * Put the location of the record with the given identifier.
+     * 
+     * @return the previous location, or {@link #EMPTY} if there was none
+     */
+    long put(long hash, long location, LongPredicate matches) throws IOException {
+        int free = -1;
+        int slot = slotFor(hash);
+        
+        for (; ; slot = (slot + 1) & mask) {
+            long current = locationAt(slot);
+            if (current == EMPTY) {
+                break;
+            }
+            if (current == REMOVED) {
+                if (free < 0) {
+                    free = slot;
+                }
+            } else if (hashAt(slot) == hash && matches.test(current)) {
+                setLocation(slot, location);
+                return current;
+            }
+        }
+        if (free >= 0) {
+            removed--;
+        } else {
+            free = slot;
+        }
+        buffer.putLong(HEADER_SIZE + free * SLOT_SIZE, hash);
+        setLocation(free, location);
+        size++;
+        
+        if (size + removed > capacity * MAX_LOAD) {
+            rehash();
+        }
+        return EMPTY;
+    }
+    
+    /**
+     * Remove the record with the given identifier.
+     * 
+     * @return the removed location, or {@link #EMPTY} if there was none
+     */
+    long remove(long hash, LongPredicate matches) {
+        for (int slot = slotFor(hash); ; slot = (slot + 1) & mask) {
+            long location = locationAt(slot);
+            if (location == EMPTY) {
+                return EMPTY;
+            }
+            if (location != REMOVED && hashAt(slot) == hash && matches.test(location)) {
+                setLocation(slot, REMOVED);
+                size--;
+                removed++;
+                return location;
+            }
+        }
+    }
+    
+    /**
+     * @return locations of all the records
+     */
+    long[] locations() {
+        long[] result = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long location = locationAt(slot);
+            if (location != EMPTY && location != REMOVED) {
+                result[count++] = location;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Replace location of each record with the result of the given function.
+     */
+    void relocateAll(LongUnaryOperator relocation) {
+        for (int slot = 0; slot < capacity; slot++) {
+            long location = locationAt(slot);
+            if (location != EMPTY && location != REMOVED) {
+                setLocation(slot, relocation.applyAsLong(location));
+            }
+        }
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    
+    ///// State of the store /////
+    
+    int getActiveSegment() { return buffer.getInt(H_ACTIVE_SEGMENT); }
+    
+    int getWritePosition() { return buffer.getInt(H_WRITE_POSITION); }
+    
+    long getTotalBytes() { return buffer.getLong(H_TOTAL_BYTES); }
+    
+    long getDeadBytes() { return buffer.getLong(H_DEAD_BYTES); }
+    
+    /**
+     * Write the state of the store and the clean flag, and flush the file.
+     */
+    void close(int activeSegment, int writePosition, long totalBytes, long deadBytes) {
+        buffer.putInt(H_SIZE, size);
+        buffer.putInt(H_REMOVED, removed);
+        buffer.putInt(H_ACTIVE_SEGMENT, activeSegment);
+        buffer.putInt(H_WRITE_POSITION, writePosition);
+        buffer.putLong(H_TOTAL_BYTES, totalBytes);
+        buffer.putLong(H_DEAD_BYTES, deadBytes);
+        buffer.force();
+        buffer.putInt(H_CLEAN, 1);
+        buffer.force();
+    }
+    
+    
+    ///// Helpers /////
+    
+    private int slotFor(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+    
+    private long hashAt(int slot) {
+        return buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE);
+    }
+    
+    private long locationAt(int slot) {
+        return buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8);
+    }
+    
+    private void setLocation(int slot, long location) {
+        buffer.putLong(HEADER_SIZE + slot * SLOT_SIZE + 8, location);
+    }
+    
+    /**
+     * Copy the entries into a new file, twice as big if it's more than half 
+     * full (otherwise it only purges the removed slots), and replace the 
+     * current file with it.
+     */
+    private void rehash() throws IOException {
+        int newCapacity = size * 2 > capacity ? capacity * 2 : capacity;
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Primary index is full, it can hold at most " 
+                    + (int) (MAX_CAPACITY * MAX_LOAD) + " instances");
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        MappedByteBuffer target = allocate(temp, newCapacity);
+        int newMask = newCapacity - 1;
+        
+        for (int slot = 0; slot < capacity; slot++) {
+            long location = locationAt(slot);
+            if (location == EMPTY || location == REMOVED) {
+                continue;
+            }
+            long hash = hashAt(slot);
+            int i = (int) (hash ^ (hash >>> 32)) & newMask;
+            while (target.getLong(HEADER_SIZE + i * SLOT_SIZE + 8) != EMPTY) {
+                i = (i + 1) & newMask;
+            }
+            target.putLong(HEADER_SIZE + i * SLOT_SIZE, hash);
+            target.putLong(HEADER_SIZE + i * SLOT_SIZE + 8, location);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        
+        this.buffer = target;
+        this.capacity = newCapacity;
+        this.mask = newMask;
+        this.removed = 0;
+    }
+    
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < MAX_CAPACITY && capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    private static MappedByteBuffer allocate(Path path, int capacity) throws IOException {
+        MappedByteBuffer buffer = map(path, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        buffer.putLong(H_MAGIC, MAGIC);
+        buffer.putInt(H_CLEAN, 0);
+        buffer.putInt(H_CAPACITY, capacity);
+        return buffer;
+    }
+    
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, 
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Segment file with an append-only log of records, mapped into memory as a 
+ * whole. Records are written at the write position; the rest of the file is
+ * zeroed, so the end of the log is recognized by zero length.
+ * 
+ * <p>Format of a record:</p>
+ * <pre>
+ * int    length of the rest of the record
+ * int    CRC32 of the following bytes
+ * byte   type (PUT or DELETE)
+ * short  length of the identifier
+ * byte[] identifier (see {@link Ids#encode(java.io.Serializable)})
+ * byte[] payload (the serialized instance, empty for DELETE)
+ * </pre>
+ * 
+ * <p>Location of a record is the segment number in the upper 32 bits and 
+ * offset of the record in the lower 32 bits. Segments are numbered from 1, 
+ * so a location is never zero.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class Segment {
+    
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final int HEADER_SIZE = 4 + 4 + 1 + 2;
+    
+    final int number;
+    final Path path;
+    final MappedByteBuffer buffer;
+    int writePosition = 0;
+    
+    
+    private Segment(int number, Path path, MappedByteBuffer buffer) {
+        this.number = number;
+        this.path = path;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Open the segment file, or create a new one, and map it into memory.
+     * 
+     * @param path path of the file
+     * @param number number of the segment
+     * @param size size of a new file; an existing file is mapped with its size
+     */
+    static Segment open(Path path, int number, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, 
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            
+            long fileSize = channel.size() > 0 ? channel.size() : size;
+            return new Segment(number, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize));
+        }
+    }
+    
+    
+    static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xffffffffL);
+    }
+    
+    static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+    
+    static int offsetOf(long location) {
+        return (int) location;
+    }
+    
+    static int recordSize(int idLength, int payloadLength) {
+        return HEADER_SIZE + idLength + payloadLength;
+    }
+    
+    
+    int capacity() {
+        return buffer.capacity();
+    }
+    
+    int remaining() {
+        return buffer.capacity() - writePosition;
+    }
+    
+    /**
+     * Append a record at the write position, which must have enough space.
+     * 
+     * @return offset of the record
+     */
+    int append(byte type, byte[] id, byte[] payload) {
+        int offset = writePosition;
+        int bodyOffset = offset + 8;
+        
+        ByteBuffer out = buffer.duplicate();
+        ((Buffer) out).position(bodyOffset);
+        out.put(type).putShort((short) id.length).put(id).put(payload);
+        
+        int length = out.position() - offset - 4;
+        buffer.putInt(offset + 4, checksum(bodyOffset, length - 4));
+        buffer.putInt(offset, length);
+        
+        writePosition = offset + 4 + length;
+        return offset;
+    }
+    
+    /**
+     * Append a copy of the record at the given offset of the given segment,
+     * which must have enough space.
+     * 
+     * @return offset of the copy
+     */
+    int appendCopy(Segment source, int sourceOffset) {
+        int size = source.sizeAt(sourceOffset);
+        int offset = writePosition;
+        
+        ByteBuffer in = source.buffer.duplicate();
+        ((Buffer) in).limit(sourceOffset + size).position(sourceOffset);
+        ByteBuffer out = buffer.duplicate();
+        ((Buffer) out).position(offset);
+        out.put(in);
+        
+        writePosition = offset + size;
+        return offset;
+    }
+    
+    /**
+     * Check the record at the given offset.
+     * 
+     * @return size of the record, or zero if it's the end of the log, or -1 
+     *         if the record is corrupted (i.e. partially written)
+     */
+    int check(int offset) {
+        if (offset + 4 > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        if (length == 0) {
+            return 0;
+        }
+        if (length < HEADER_SIZE - 4 || offset + 4 + length > buffer.capacity()) {
+            return -1;
+        }
+        int idLength = buffer.getShort(offset + 9) & 0xffff;
+        if (HEADER_SIZE - 4 + idLength > length) {
+            return -1;
+        }
+        return checksum(offset + 8, length - 4) == buffer.getInt(offset + 4) ? 4 + length : -1;
+    }
+    
+    /**
+     * Zero the log from the write position to the end of the segment, i.e. 
+     * after a corrupted record.
+     */
+    void truncate() {
+        ByteBuffer out = buffer.duplicate();
+        ((Buffer) out).position(writePosition);
+        byte[] zeros = new byte[8192];
+        while (out.hasRemaining()) {
+            out.put(zeros, 0, Math.min(zeros.length, out.remaining()));
+        }
+    }
+    
+    int sizeAt(int offset) {
+        return 4 + buffer.getInt(offset);
+    }
+    
+    byte typeAt(int offset) {
+        return buffer.get(offset + 8);
+    }
+    
+    int idLengthAt(int offset) {
+        return buffer.getShort(offset + 9) & 0xffff;
+    }
+    
+    int idOffset(int offset) {
+        return offset + HEADER_SIZE;
+    }
+    
+    int payloadOffset(int offset) {
+        return offset + HEADER_SIZE + idLengthAt(offset);
+    }
+    
+    int payloadLength(int offset) {
+        return sizeAt(offset) - HEADER_SIZE - idLengthAt(offset);
+    }
+    
+    /**
+     * @return <tt>true</tt> if the record at the given offset has the given 
+     *         identifier
+     */
+    boolean hasId(int offset, byte[] id) {
+        if (idLengthAt(offset) != id.length) {
+            return false;
+        }
+        int idOffset = idOffset(offset);
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(idOffset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return hash of the identifier of the record at the given offset
+     */
+    long idHash(int offset) {
+        return Ids.hash(buffer, idOffset(offset), idLengthAt(offset));
+    }
+    
+    /**
+     * Write the mapped content to the file.
+     */
+    void force() {
+        buffer.force();
+    }
+    
+    /**
+     * Delete the segment file. The mapping stays valid until the buffer is 
+     * garbage collected, so concurrent readers can finish.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+    
+    private int checksum(int offset, int length) {
+        ByteBuffer region = buffer.duplicate();
+        ((Buffer) region).limit(offset + length).position(offset);
+        CRC32 crc = new CRC32();
+        crc.update(region);
+        return (int) crc.getValue();
+    }
+}
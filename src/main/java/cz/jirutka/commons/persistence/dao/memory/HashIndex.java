@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hash index of rows by value of a single property. Reads are lock-free; 
+ * buckets are updated atomically and removed when they become empty.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class HashIndex {
+    
+    /** Key of the null value (ConcurrentMap can't hold null). */
+    private static final Object NULL = new Object();
+    
+    final String property;
+    private final int position;
+    private final ConcurrentMap<Object, Set<Row>> buckets = new ConcurrentHashMap<Object, Set<Row>>();
+    
+    
+    /**
+     * @param property name of the indexed property
+     * @param position index of the property's value in {@link Row#values}
+     */
+    HashIndex(String property, int position) {
+        this.property = property;
+        this.position = position;
+    }
+    
+    
+    void add(final Row row) {
+        buckets.compute(keyOf(row.values[position]), (key, bucket) -> {
+            if (bucket == null) {
+                bucket = ConcurrentHashMap.<Row>newKeySet();
+            }
+            bucket.add(row);
+            return bucket;
+        });
+    }
+    
+    void remove(final Row row) {
+        buckets.computeIfPresent(keyOf(row.values[position]), (key, bucket) -> {
+            bucket.remove(row);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+    
+    /**
+     * @return rows with the given value, may include rows that are being 
+     *         replaced or removed
+     */
+    Collection<Row> get(Object value) {
+        Set<Row> bucket = buckets.get(keyOf(value));
+        return bucket != null ? bucket : Collections.<Row>emptySet();
+    }
+    
+    void clear() {
+        buckets.clear();
+    }
+    
+    private static Object keyOf(Object value) {
+        return value != null ? value : NULL;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of the {@link GenericDAO} that keeps instances in memory,
+ * intended for hot reference data and tests.
+ * 
+ * <p>Each entity class has its own table with a hash index on the primary key
+ * and secondary indexes declared by the {@link TableSpec} {@linkplain 
+ * #configure(Class, TableSpec) configured} for it: hash indexes for equality
+ * lookups and sorted indexes for ordered, paginated reads. Queries that can't
+ * use any index scan the whole table. Properties are accessed via JavaBean
+ * getters; ordering puts <tt>null</tt> values first.</p>
+ * 
+ * <p>Reads are lock-free and run concurrently with writes; writes of 
+ * different instances don't block each other (there's no global lock). 
+ * Reads are weakly consistent, i.e. a query running concurrently with writes
+ * may or may not see them.</p>
+ * 
+ * <p>Instances are stored by reference, not copied. Values of the indexed 
+ * properties are captured on write, so modifications of a stored instance 
+ * are visible in the indexes only after it's {@linkplain #update(Persistable) 
+ * updated}. Partial updates (<tt>updateProperties()</tt>, 
+ * <tt>updateByXXX()</tt>) don't modify the stored instance, but replace it 
+ * with its shallow copy (created using the no-arg constructor) with the
+ * properties set. Instances of a subclass of a configured entity class 
+ * (e.g. ORM proxies) are stored in the table of the configured class.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class InMemoryGenericDAO implements GenericDAO {
+    
+    private final ConcurrentMap<Class, TableSpec> specs = new ConcurrentHashMap<Class, TableSpec>();
+    private final ConcurrentMap<Class, Table> tables = new ConcurrentHashMap<Class, Table>();
+    
+    
+    /**
+     * Set specification of the table for the given entity class. It must be 
+     * called before the first access to this class.
+     * 
+     * @param entityClass an entity class
+     * @param spec specification of the table
+     * @return this (for method-chain)
+     */
+    public InMemoryGenericDAO configure(Class<? extends Persistable> entityClass, TableSpec spec) {
+        specs.put(entityClass, spec);
+        return this;
+    }
+    
+    /**
+     * Remove all instances of all entity classes.
+     */
+    public void clear() {
+        for (Table table : tables.values()) {
+            table.clear();
+        }
+    }
+    
+    
+    ///// Reads /////
+    
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        Table table = tableFor(clazz);
+        if (table.entityClass == clazz) {
+            return (long) table.size();
+        }
+        long count = 0;
+        for (Iterator<Persistable> it = table.iterator(clazz); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        
+        Table table = tableFor(clazz);
+        return (List<E>) table.select(clazz, includeProperties, 
+                exampleValues(table, exampleInstance, includeProperties), paging);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        
+        Table table = tableFor(clazz);
+        String property = table.spec.getNaturalKey();
+        if (property == null) {
+            throw new UnsupportedOperationException("No natural key declared for " + clazz.getName());
+        }
+        List<Persistable> result = table.select(clazz, new String[]{ property }, new Object[]{ naturalKey }, 
+                new PagingOrdering(1, 0));
+        
+        return result.isEmpty() ? null : (E) result.get(0);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByLongId(long id, Class<E> clazz) {
+        
+        Persistable entity = tableFor(clazz).get(id);
+        return clazz.isInstance(entity) ? (E) entity : null;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        
+        Persistable entity = tableFor(clazz).get(id);
+        return clazz.isInstance(entity) ? (E) entity : null;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return (List<E>) tableFor(clazz).select(clazz, new String[]{ property }, new Object[]{ value }, paging);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        
+        List<E> result = new ArrayList<E>();
+        for (Iterator<Persistable> it = tableFor(clazz).iterator(clazz); it.hasNext(); ) {
+            result.add((E) it.next());
+        }
+        return result;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return (List<E>) tableFor(clazz).select(clazz, new String[0], new Object[0], paging);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return findByPrimaryKey(id, clazz) != null;
+    }
+
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        return findByLongId(id, clazz) != null;
+    }
+
+    /**
+     * Same as {@link #findByPrimaryKey(Serializable, Class) findByPrimaryKey()},
+     * instances are never proxied.
+     */
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return findByPrimaryKey(id, clazz);
+    }
+
+    /**
+     * Return a cursor over all instances of the given entity class. It 
+     * iterates over the table directly, the chunk size is ignored. 
+     */
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        
+        final Iterator<Persistable> iterator = tableFor(clazz).iterator(clazz);
+        
+        return new EntityCursor<E>() {
+            public boolean hasNext() { return iterator.hasNext(); }
+            public E next() { return (E) iterator.next(); }
+            public void close() { }
+        };
+    }
+    
+    
+    ///// Writes /////
+
+    @Override
+    public void delete(Persistable entity) {
+        tableFor(entity.getClass()).delete(entity.getId());
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        tableFor(clazz).delete(id);
+    }
+
+    /**
+     * @throws IllegalStateException if an instance with the same identifier 
+     *         already exists
+     */
+    /**
+     * Remove the matched instances in one pass over the index (or all the 
+     * instances), each under its lock.
+     */
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        
+        Table table = tableFor(clazz);
+        return table.deleteWhere(clazz, includeProperties, exampleValues(table, exampleInstance, includeProperties));
+    }
+
+    /**
+     * Remove the matched instances in one pass over the index (or all the 
+     * instances), each under its lock.
+     */
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        return tableFor(clazz).deleteWhere(clazz, new String[]{ property }, new Object[]{ value });
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        return tableFor(entity.getClass()).write(entity, true, false);
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        tableFor(entity.getClass()).write(entity, false, false);
+    }
+
+    /**
+     * @throws IllegalStateException if there's no instance with the same 
+     *         identifier
+     */
+    @Override
+    public void update(Persistable entity) {
+        tableFor(entity.getClass()).write(entity, false, true);
+    }
+
+    /**
+     * Replace the stored instance with its shallow copy with the properties
+     * set, so the readers never see a half-updated instance.
+     * 
+     * @throws IllegalStateException if there's no such instance
+     */
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        tableFor(clazz).writeProperties(id, values);
+    }
+
+    /**
+     * Replace the matched stored instances with their updated copies, each 
+     * under its lock.
+     */
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        
+        Table table = tableFor(clazz);
+        return table.writePropertiesWhere(clazz, includeProperties, 
+                exampleValues(table, exampleInstance, includeProperties), values);
+    }
+
+    /**
+     * Replace the matched stored instances with their updated copies, each 
+     * under its lock.
+     */
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        return tableFor(clazz).writePropertiesWhere(clazz, new String[]{ property }, new Object[]{ value }, values);
+    }
+    
+    
+    ///// Helpers /////
+    
+    /**
+     * Return table for the given entity class, i.e. table of the nearest 
+     * configured superclass (or the class itself), or a new table without 
+     * secondary indexes.
+     */
+    private Table tableFor(Class<? extends Persistable> clazz) {
+        Table table = tables.get(clazz);
+        
+        if (table == null) {
+            Class<? extends Persistable> tableClass = clazz;
+            for (Class<?> c = clazz; c != null && Persistable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                if (specs.containsKey(c)) {
+                    tableClass = c.asSubclass(Persistable.class);
+                    break;
+                }
+            }
+            if (tableClass != clazz) {
+                table = tableFor(tableClass);
+            } else {
+                TableSpec spec = specs.get(clazz);
+                table = new Table(clazz, spec != null ? spec : new TableSpec());
+            }
+            Table existing = tables.putIfAbsent(clazz, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        return table;
+    }
+    
+    private static Object[] exampleValues(Table table, Persistable exampleInstance, String[] includeProperties) {
+        Object[] values = new Object[includeProperties.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = table.read(exampleInstance, includeProperties[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.Persistable;
+import java.io.Serializable;
+
+/**
+ * Version of a stored instance together with values of its indexed 
+ * properties at the time of write. A new row is created on each write, so
+ * index entries that refer to a replaced or deleted row can be recognized 
+ * by identity (see {@link Table#isLive(Row)}).
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class Row {
+    
+    final Serializable id;
+    final Persistable entity;
+    final Object[] values;
+    
+    
+    Row(Serializable id, Persistable entity, Object[] values) {
+        this.id = id;
+        this.entity = entity;
+        this.values = values;
+    }
+    
+    /**
+     * Rows are equal only if identical, but the hash code is derived from the 
+     * identifier, which is cheaper than the identity hash code.
+     */
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+}
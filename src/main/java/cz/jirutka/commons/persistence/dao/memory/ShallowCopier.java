@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shallow copy of instances of one class: a new instance is created using 
+ * the no-arg constructor (it may be private) and all non-static fields, 
+ * including the inherited ones, are copied into it. It's used to update 
+ * a stored instance without modifying the one seen by the concurrent readers.
+ * Copiers are cached per class and thread-safe.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+final class ShallowCopier {
+    
+    private static final ClassValue<ShallowCopier> CACHE = new ClassValue<ShallowCopier>() {
+        protected ShallowCopier computeValue(Class<?> type) {
+            return new ShallowCopier(type);
+        }
+    };
+    
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final MethodHandle[] getters;
+    private final MethodHandle[] setters;
+    
+    
+    private ShallowCopier(Class<?> type) {
+        this.type = type;
+        this.constructor = findConstructor(type);
+        
+        List<MethodHandle> getters = new ArrayList<MethodHandle>();
+        List<MethodHandle> setters = new ArrayList<MethodHandle>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    getters.add(lookup.unreflectGetter(field)
+                            .asType(MethodType.methodType(Object.class, Object.class)));
+                    setters.add(lookup.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                } catch (IllegalAccessException | RuntimeException ex) {
+                    throw new IllegalArgumentException("Cannot access field " + field, ex);
+                }
+            }
+        }
+        this.getters = getters.toArray(new MethodHandle[getters.size()]);
+        this.setters = setters.toArray(new MethodHandle[setters.size()]);
+    }
+    
+    /**
+     * Return copier of the given class.
+     * 
+     * @param type the class to copy
+     * @return the cached copier
+     * @throws IllegalArgumentException if some field can't be accessed
+     */
+    static ShallowCopier forClass(Class<?> type) {
+        return CACHE.get(type);
+    }
+    
+    
+    /**
+     * Create a shallow copy of the given instance.
+     * 
+     * @param bean an instance of the copier's class (not a subclass)
+     * @return the copy
+     * @throws IllegalArgumentException if the class doesn't have a no-arg 
+     *         constructor
+     */
+    <T> T copy(T bean) {
+        if (constructor == null) {
+            throw new IllegalArgumentException(type.getName() + " doesn't have a no-arg constructor");
+        }
+        try {
+            Object copy = constructor.invokeExact();
+            for (int i = 0; i < getters.length; i++) {
+                setters[i].invokeExact(copy, (Object) getters[i].invokeExact((Object) bean));
+            }
+            return (T) copy;
+            
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    
+    private static MethodHandle findConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class));
+            
+        } catch (NoSuchMethodException ex) {
+            return null;
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalArgumentException("Cannot access constructor of " + type.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.property.PropertyGetter;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted index of rows by values of one or more properties, with the 
+ * identifier as a tie-breaker. It's backed by a skip list, so reads are 
+ * lock-free and don't block writes.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class SortedIndex {
+    
+    /** Bounds for range scans, lower/greater than any value. */
+    private static final Object MIN = new Object(), MAX = new Object();
+    
+    private static final Comparator<Object[]> KEY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int cmp = compareBound(a[i], b[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    };
+    
+    final List<String> properties;
+    private final int[] positions;
+    private final ConcurrentSkipListMap<Object[], Row> rows = new ConcurrentSkipListMap<Object[], Row>(KEY_ORDER);
+    
+    
+    /**
+     * @param properties names of the indexed properties
+     * @param positions indexes of the properties' values in {@link Row#values}
+     */
+    SortedIndex(List<String> properties, int[] positions) {
+        this.properties = properties;
+        this.positions = positions;
+    }
+    
+    
+    /**
+     * Add the row; if there's a row with the same key (i.e. the previous 
+     * version of the same instance), it's replaced.
+     */
+    void add(Row row) {
+        rows.put(keyOf(row), row);
+    }
+    
+    /**
+     * Remove the row, unless it has been already replaced by the given row 
+     * with the same key.
+     * 
+     * @param row the row to remove
+     * @param replacement the new version of the row, or <tt>null</tt>
+     */
+    void remove(Row row, Row replacement) {
+        if (replacement == null || !sameKey(row, replacement)) {
+            rows.remove(keyOf(row), row);
+        }
+    }
+    
+    void clear() {
+        rows.clear();
+    }
+    
+    /**
+     * Return direction in which this index can serve the given ordering, i.e.
+     * the ordering is by exactly the indexed properties, all in the same 
+     * direction (so ties are broken by the identifier in that direction too).
+     * 
+     * @param ordering the ordering
+     * @return <tt>1</tt> for ascending scan, <tt>-1</tt> for descending scan,
+     *         or <tt>0</tt> if the index can't be used
+     */
+    int directionFor(List<OrderBy> ordering) {
+        if (ordering.size() != properties.size()) {
+            return 0;
+        }
+        boolean ascending = ordering.get(0).isAscending();
+        for (int i = 0; i < ordering.size(); i++) {
+            OrderBy order = ordering.get(i);
+            if (order.isAscending() != ascending || !order.getPropertyName().equals(properties.get(i))) {
+                return 0;
+            }
+        }
+        return ascending ? 1 : -1;
+    }
+    
+    /**
+     * @return all rows in the given direction
+     */
+    Collection<Row> scan(boolean ascending) {
+        return ascending ? rows.values() : rows.descendingMap().values();
+    }
+    
+    /**
+     * @param afterValues values of all the indexed properties followed by 
+     *        the identifier
+     * @return rows after the given key in the given direction (exclusive)
+     */
+    Collection<Row> after(List<Object> afterValues, boolean ascending) {
+        Object[] key = afterValues.toArray();
+        return ascending 
+                ? rows.tailMap(key, false).values() 
+                : rows.headMap(key, false).descendingMap().values();
+    }
+    
+    /**
+     * @return rows with the given value of the first indexed property
+     */
+    Collection<Row> equalTo(Object value) {
+        ConcurrentNavigableMap<Object[], Row> range = rows.subMap(
+                new Object[]{ value, MIN }, true, new Object[]{ value, MAX }, true);
+        return range.values();
+    }
+    
+    private boolean sameKey(Row a, Row b) {
+        for (int position : positions) {
+            if (PropertyGetter.compareValues(a.values[position], b.values[position]) != 0) {
+                return false;
+            }
+        }
+        return PropertyGetter.compareValues(a.id, b.id) == 0;
+    }
+    
+    private Object[] keyOf(Row row) {
+        Object[] key = new Object[positions.length + 1];
+        for (int i = 0; i < positions.length; i++) {
+            key[i] = row.values[positions[i]];
+        }
+        key[positions.length] = row.id;
+        return key;
+    }
+    
+    private static int compareBound(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == MIN || b == MAX) {
+            return -1;
+        }
+        if (a == MAX || b == MIN) {
+            return 1;
+        }
+        return PropertyGetter.compareValues(a, b);
+    }
+}
@@ -0,0 +1,704 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.LongIdPersistable;
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import cz.jirutka.commons.persistence.dao.property.PropertyGetter;
+import cz.jirutka.commons.persistence.util.ConcurrentLongMap;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Storage of instances of one entity class: the primary key hash index (keyed
+ * by primitives for {@link LongIdPersistable} instances) and
+ * the secondary indexes declared by the {@link TableSpec}.
+ * 
+ * <p>Reads are lock-free. Writes are serialized per identifier by striped 
+ * locks, so writes of different instances don't block each other. A write 
+ * first adds a new {@link Row} to the secondary indexes, then replaces it in 
+ * the primary index and finally removes the old row from the secondary 
+ * indexes. Readers skip index entries whose row is not (or no longer) in the
+ * primary index and return each instance at most once, in the version seen 
+ * first. An instance rewritten during a scan of a secondary index may be 
+ * missed by the scan.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+final class Table {
+    
+    private static final int LOCK_STRIPES = 64;
+    
+    final Class<? extends Persistable> entityClass;
+    final TableSpec spec;
+    
+    private final PropertyAccessors<Persistable> accessors;
+    private final Map<String, Integer> positions = new HashMap<String, Integer>();
+    private final List<PropertyGetter<Persistable>> indexedGetters = new ArrayList<PropertyGetter<Persistable>>();
+    private final Map<String, HashIndex> hashIndexes = new LinkedHashMap<String, HashIndex>();
+    private final List<SortedIndex> sortedIndexes = new ArrayList<SortedIndex>();
+    /** Primary index, unless the identifiers are primitive longs. */
+    private final ConcurrentMap<Serializable, Row> primary;
+    /** Primary index for {@link LongIdPersistable} instances. */
+    private final ConcurrentLongMap<Row> longPrimary;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Supplier<? extends Serializable> idGenerator;
+    
+    
+    Table(Class<? extends Persistable> entityClass, TableSpec spec) {
+        this.entityClass = entityClass;
+        this.spec = spec;
+        this.accessors = (PropertyAccessors<Persistable>) PropertyAccessors.forClass(entityClass);
+        
+        if (LongIdPersistable.class.isAssignableFrom(entityClass)) {
+            this.primary = null;
+            this.longPrimary = new ConcurrentLongMap<Row>();
+        } else {
+            this.primary = new ConcurrentHashMap<Serializable, Row>();
+            this.longPrimary = null;
+        }
+        
+        for (String property : spec.getHashIndexes()) {
+            hashIndexes.put(property, new HashIndex(property, positionOf(property)));
+        }
+        for (List<String> props : spec.getSortedIndexes()) {
+            int[] pos = new int[props.size()];
+            for (int i = 0; i < pos.length; i++) {
+                pos[i] = positionOf(props.get(i));
+            }
+            sortedIndexes.add(new SortedIndex(props, pos));
+        }
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        if (spec.getIdGenerator() != null) {
+            this.idGenerator = spec.getIdGenerator();
+        } else {
+            final AtomicLong sequence = new AtomicLong();
+            this.idGenerator = () -> sequence.incrementAndGet();
+        }
+    }
+    
+    private int positionOf(String property) {
+        Integer position = positions.get(property);
+        if (position == null) {
+            position = positions.size();
+            positions.put(property, position);
+            indexedGetters.add(accessors.getter(property));
+        }
+        return position;
+    }
+    
+    
+    ///// Reads /////
+    
+    int size() {
+        return longPrimary != null ? longPrimary.size() : primary.size();
+    }
+    
+    Persistable get(Serializable id) {
+        Row row = primaryGet(id);
+        return row != null ? row.entity : null;
+    }
+    
+    /**
+     * Same as {@link #get(Serializable)}, but without boxing the identifier 
+     * if this table is keyed by primitive identifiers.
+     */
+    Persistable get(long id) {
+        if (longPrimary == null) {
+            return get(Long.valueOf(id));
+        }
+        Row row = longPrimary.get(id);
+        return row != null ? row.entity : null;
+    }
+    
+    /**
+     * @return value of the property of the given instance (read via getter)
+     */
+    Object read(Persistable entity, String property) {
+        return accessors.getter(property).get(entity);
+    }
+    
+    /**
+     * @return <tt>true</tt> if the given row is the current version of its 
+     *         instance
+     */
+    boolean isLive(Row row) {
+        return primaryGet(row.id) == row;
+    }
+    
+    /**
+     * @return weakly consistent iterator over all instances of the given type
+     */
+    Iterator<Persistable> iterator(final Class<?> type) {
+        final Iterator<Row> rows = primaryValues().iterator();
+        
+        return new Iterator<Persistable>() {
+            Persistable next;
+            
+            public boolean hasNext() {
+                while (next == null && rows.hasNext()) {
+                    Persistable entity = rows.next().entity;
+                    if (type.isInstance(entity)) {
+                        next = entity;
+                    }
+                }
+                return next != null;
+            }
+            public Persistable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Persistable result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+    
+    /**
+     * Find instances of the given type whose properties are equal to the 
+     * given values, and apply the paging.
+     * 
+     * <p>The access path is chosen in this order: a hash index on any of the 
+     * properties, a sorted index that matches the ordering (so the results are
+     * read in order and only up to the limit), a sorted index with the first 
+     * property among the given ones, the full scan. Results are always ordered
+     * by the {@linkplain PagingOrdering#getKeysetOrdering() keyset ordering}, 
+     * i.e. ties are broken by the identifier, so the first page and the 
+     * following keyset pages are consistent.</p>
+     * 
+     * @param type the entity class or its subclass
+     * @param props names of the properties
+     * @param values values of the properties
+     * @param paging the paging & ordering, or <tt>null</tt>
+     * @return the matched instances
+     */
+    List<Persistable> select(Class<?> type, String[] props, Object[] values, PagingOrdering paging) {
+        if (paging == null) {
+            paging = PagingOrdering.NONE;
+        }
+        Predicate<Row> filter = filter(type, props, values);
+        Collection<Row> candidates = null;
+        
+        for (int i = 0; i < props.length && candidates == null; i++) {
+            HashIndex index = hashIndexes.get(props[i]);
+            if (index != null) {
+                candidates = index.get(values[i]);
+            }
+        }
+        boolean ordered = paging.hasOrdering() || paging.isKeyset();
+        
+        if (candidates == null && paging.hasOrdering()) {
+            candidates = orderedScan(paging);
+            if (candidates != null) {
+                return collect(candidates, false, filter, paging.isKeyset() ? 0 : paging.getOffset(), 
+                        paging.getLimit());
+            }
+        }
+        for (int i = 0; i < props.length && candidates == null; i++) {
+            for (SortedIndex index : sortedIndexes) {
+                if (index.properties.get(0).equals(props[i])) {
+                    candidates = index.equalTo(values[i]);
+                    break;
+                }
+            }
+        }
+        boolean distinct = candidates == null;
+        if (distinct) {
+            candidates = primaryValues();
+        }
+        
+        if (!ordered) {
+            return collect(candidates, distinct, filter, paging.getOffset(), paging.getLimit());
+        }
+        List<Row> rows = collectRows(candidates, distinct, filter);
+        List<OrderBy> ordering = paging.getKeysetOrdering();
+        final Comparator<Persistable> comparator = accessors.comparator(ordering);
+        rows.sort((a, b) -> comparator.compare(a.entity, b.entity));
+        
+        int from = paging.isKeyset() ? firstAfter(rows, paging.getAfterValues(), ordering) : paging.getOffset();
+        return page(rows, from, paging.getLimit());
+    }
+    
+    /**
+     * @return rows of a sorted index that serves the paging in order, or 
+     *         <tt>null</tt> if there's no such index
+     */
+    private Collection<Row> orderedScan(PagingOrdering paging) {
+        boolean keyset = paging.isKeyset();
+        
+        // indexes break ties by the identifier
+        if (!spec.getIdProperty().equals(paging.getIdProperty())) {
+            return null;
+        }
+        for (SortedIndex index : sortedIndexes) {
+            int direction = index.directionFor(paging.getOrdering());
+            
+            if (direction != 0 && !keyset) {
+                return index.scan(direction > 0);
+            }
+            if (direction != 0) {
+                List<Object> afterValues = paging.getAfterValues();
+                
+                // the ordering already contains the identifier, so the key is 
+                // the after values followed by the identifier again
+                if (afterValues.size() == index.properties.size()) {
+                    afterValues = new ArrayList<Object>(afterValues);
+                    afterValues.add(afterValues.get(index.properties.indexOf(paging.getIdProperty())));
+                }
+                return index.after(afterValues, direction > 0);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @param distinct <tt>true</tt> if the candidates are from the primary 
+     *        index, so they don't contain more versions of the same instance
+     */
+    private List<Persistable> collect(Collection<Row> candidates, boolean distinct, Predicate<Row> filter, 
+            int offset, int limit) {
+        
+        List<Persistable> result = new ArrayList<Persistable>(limit >= 0 ? limit : 16);
+        Set<Serializable> seen = distinct ? null : new HashSet<Serializable>();
+        int skip = offset;
+        
+        for (Row row : candidates) {
+            if (limit >= 0 && result.size() >= limit) {
+                break;
+            }
+            if (filter.test(row) && (seen == null || seen.add(row.id)) && skip-- <= 0) {
+                result.add(row.entity);
+            }
+        }
+        return result;
+    }
+    
+    private List<Row> collectRows(Collection<Row> candidates, boolean distinct, Predicate<Row> filter) {
+        List<Row> result = new ArrayList<Row>();
+        Set<Serializable> seen = distinct ? null : new HashSet<Serializable>();
+        
+        for (Row row : candidates) {
+            if (filter.test(row) && (seen == null || seen.add(row.id))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Return predicate that matches current rows of the given type with the 
+     * properties equal to the given values. Indexed properties are compared 
+     * with the values captured on write, the others are read by the compiled 
+     * getters.
+     */
+    private Predicate<Row> filter(final Class<?> type, String[] props, Object[] values) {
+        final boolean checkType = type != entityClass;
+        final List<Integer> indexedPositions = new ArrayList<Integer>(props.length);
+        final List<Object> indexedValues = new ArrayList<Object>(props.length);
+        List<String> otherProps = new ArrayList<String>(props.length);
+        List<Object> otherValues = new ArrayList<Object>(props.length);
+        
+        for (int i = 0; i < props.length; i++) {
+            Integer position = positions.get(props[i]);
+            if (position != null) {
+                indexedPositions.add(position);
+                indexedValues.add(values[i]);
+            } else {
+                otherProps.add(props[i]);
+                otherValues.add(values[i]);
+            }
+        }
+        final Predicate<Persistable> matcher = otherProps.isEmpty() ? null 
+                : accessors.matcher(otherProps.toArray(new String[otherProps.size()]), otherValues.toArray());
+        
+        return row -> {
+            if (!isLive(row) || (checkType && !type.isInstance(row.entity))) {
+                return false;
+            }
+            for (int i = 0; i < indexedPositions.size(); i++) {
+                if (!Objects.equals(row.values[indexedPositions.get(i)], indexedValues.get(i))) {
+                    return false;
+                }
+            }
+            return matcher == null || matcher.test(row.entity);
+        };
+    }
+    
+    private Object valueOf(Row row, String property) {
+        Integer position = positions.get(property);
+        return position != null ? row.values[position] : accessors.getter(property).get(row.entity);
+    }
+    
+    /**
+     * @return position of the first row after the given values in the sorted
+     *         rows
+     */
+    private int firstAfter(List<Row> rows, List<Object> afterValues, List<OrderBy> ordering) {
+        int low = 0, high = rows.size();
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTo(rows.get(mid), afterValues, ordering) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    private int compareTo(Row row, List<Object> values, List<OrderBy> ordering) {
+        for (int i = 0; i < ordering.size(); i++) {
+            OrderBy order = ordering.get(i);
+            int cmp = PropertyGetter.compareValues(valueOf(row, order.getPropertyName()), values.get(i));
+            if (cmp != 0) {
+                return order.isAscending() ? cmp : -cmp;
+            }
+        }
+        return 0;
+    }
+    
+    private static List<Persistable> page(List<Row> rows, int offset, int limit) {
+        int from = Math.min(offset, rows.size());
+        int to = limit < 0 ? rows.size() : Math.min(from + limit, rows.size());
+        
+        List<Persistable> result = new ArrayList<Persistable>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(rows.get(i).entity);
+        }
+        return result;
+    }
+    
+    
+    ///// Writes /////
+    
+    /**
+     * Store the given instance. When it doesn't have an identifier yet, a new
+     * one is generated and set.
+     * 
+     * @param entity the instance to store
+     * @param insert <tt>true</tt> if an instance with the same identifier must
+     *        not exist yet
+     * @param update <tt>true</tt> if an instance with the same identifier must
+     *        exist already
+     * @return the identifier
+     * @throws IllegalStateException if the insert/update condition is violated
+     */
+    Serializable write(Persistable entity, boolean insert, boolean update) {
+        Serializable id = entity.getId();
+        
+        if (id == null) {
+            if (update) {
+                throw new IllegalArgumentException("Cannot update instance without identifier");
+            }
+            id = idGenerator.get();
+            accessors.write(entity, spec.getIdProperty(), id);
+        }
+        if (longPrimary != null && !(id instanceof Long)) {
+            throw new IllegalArgumentException(String.format(
+                    "Identifier of %s must be Long, but got: %s", entityClass.getName(), id));
+        }
+        if (!sortedIndexes.isEmpty() && !(id instanceof Comparable)) {
+            throw new IllegalArgumentException("Sorted index requires Comparable identifier, but got: " + id);
+        }
+        Row row = new Row(id, entity, extractValues(entity));
+        
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Row old = primaryGet(id);
+            if (insert && old != null) {
+                throw new IllegalStateException(String.format(
+                        "Instance of %s with id %s already exists", entityClass.getName(), id));
+            }
+            if (update && old == null) {
+                throw new IllegalStateException(String.format(
+                        "No persistent instance of %s with id %s", entityClass.getName(), id));
+            }
+            addToIndexes(row);
+            if (longPrimary != null) {
+                longPrimary.put((Long) id, row);
+            } else {
+                primary.put(id, row);
+            }
+            if (old != null) {
+                removeFromIndexes(old, row);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return id;
+    }
+    
+    /**
+     * Replace the stored instance with its copy with the given properties set
+     * and reindex it. The stored instance itself is not modified.
+     * 
+     * @param id identifier of the instance
+     * @param values new values of the properties keyed by the property names
+     * @throws IllegalStateException if there's no such instance
+     */
+    void writeProperties(Serializable id, Map<String, Object> values) {
+        if (values.containsKey(spec.getIdProperty())) {
+            throw new IllegalArgumentException("Cannot update identifier of " + entityClass.getName());
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Row old = primaryGet(id);
+            if (old == null) {
+                throw new IllegalStateException(String.format(
+                        "No persistent instance of %s with id %s", entityClass.getName(), id));
+            }
+            rewrite(old, values);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Set the given properties of all stored instances of the given type 
+     * whose properties are equal to the given values, and reindex them. Each
+     * instance is updated under its lock only if it still matches, so the
+     * update is atomic per instance, not for the whole set.
+     * 
+     * @param type the entity class or its subclass
+     * @param props names of the properties to match
+     * @param matchValues values of the properties to match
+     * @param values new values of the properties keyed by the property names
+     * @return number of the updated instances
+     */
+    int writePropertiesWhere(Class<?> type, String[] props, Object[] matchValues, Map<String, Object> values) {
+        if (values.containsKey(spec.getIdProperty())) {
+            throw new IllegalArgumentException("Cannot update identifier of " + entityClass.getName());
+        }
+        Predicate<Row> filter = filter(type, props, matchValues);
+        int count = 0;
+        
+        for (Row candidate : matchingRows(props, matchValues, filter)) {
+            ReentrantLock lock = lockFor(candidate.id);
+            lock.lock();
+            try {
+                Row old = primaryGet(candidate.id);
+                if (old != null && filter.test(old)) {
+                    rewrite(old, values);
+                    count++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return the removed instance, or <tt>null</tt> if there's no such
+     */
+    Persistable delete(Serializable id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Row old = primaryRemove(id);
+            if (old == null) {
+                return null;
+            }
+            removeFromIndexes(old, null);
+            return old.entity;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Remove all stored instances of the given type whose properties are 
+     * equal to the given values. Each instance is removed under its lock only
+     * if it still matches, so the delete is atomic per instance, not for the
+     * whole set.
+     * 
+     * @param type the entity class or its subclass
+     * @param props names of the properties
+     * @param values values of the properties
+     * @return number of the removed instances
+     */
+    int deleteWhere(Class<?> type, String[] props, Object[] values) {
+        Predicate<Row> filter = filter(type, props, values);
+        int count = 0;
+        
+        for (Row candidate : matchingRows(props, values, filter)) {
+            ReentrantLock lock = lockFor(candidate.id);
+            lock.lock();
+            try {
+                Row old = primaryGet(candidate.id);
+                if (old != null && filter.test(old)) {
+                    primaryRemove(old.id);
+                    removeFromIndexes(old, null);
+                    count++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Remove all instances. Concurrent writes are blocked for the duration.
+     */
+    void clear() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            if (longPrimary != null) {
+                longPrimary.clear();
+            } else {
+                primary.clear();
+            }
+            for (HashIndex index : hashIndexes.values()) {
+                index.clear();
+            }
+            for (SortedIndex index : sortedIndexes) {
+                index.clear();
+            }
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Replace the row with a new one with a shallow copy of the instance with
+     * the given properties set. The values are written to the copy, so when 
+     * some of them can't be assigned, the stored row is left intact, and the
+     * lock-free readers never see a half-updated instance. The caller must 
+     * hold the lock of the instance.
+     */
+    private void rewrite(Row old, Map<String, Object> values) {
+        Persistable entity = ShallowCopier.forClass(old.entity.getClass()).copy(old.entity);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            accessors.write(entity, entry.getKey(), entry.getValue());
+        }
+        Row row = new Row(old.id, entity, extractValues(entity));
+        addToIndexes(row);
+        if (longPrimary != null) {
+            longPrimary.put((Long) old.id, row);
+        } else {
+            primary.put(old.id, row);
+        }
+        removeFromIndexes(old, row);
+    }
+    
+    /**
+     * @return the rows matched by the given filter, found using a hash or 
+     *         sorted index on any of the properties, or the full scan
+     */
+    private List<Row> matchingRows(String[] props, Object[] values, Predicate<Row> filter) {
+        Collection<Row> candidates = null;
+        
+        for (int i = 0; i < props.length && candidates == null; i++) {
+            HashIndex index = hashIndexes.get(props[i]);
+            if (index != null) {
+                candidates = index.get(values[i]);
+            }
+        }
+        for (int i = 0; i < props.length && candidates == null; i++) {
+            for (SortedIndex index : sortedIndexes) {
+                if (index.properties.get(0).equals(props[i])) {
+                    candidates = index.equalTo(values[i]);
+                    break;
+                }
+            }
+        }
+        boolean distinct = candidates == null;
+        return collectRows(distinct ? primaryValues() : candidates, distinct, filter);
+    }
+    
+    private Row primaryGet(Serializable id) {
+        if (longPrimary != null) {
+            return id instanceof Long ? longPrimary.get((Long) id) : null;
+        }
+        return primary.get(id);
+    }
+    
+    private Row primaryRemove(Serializable id) {
+        if (longPrimary != null) {
+            return id instanceof Long ? longPrimary.remove((Long) id) : null;
+        }
+        return primary.remove(id);
+    }
+    
+    private Collection<Row> primaryValues() {
+        return longPrimary != null ? longPrimary.values() : primary.values();
+    }
+    
+    private Object[] extractValues(Persistable entity) {
+        Object[] values = new Object[indexedGetters.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = indexedGetters.get(i).get(entity);
+        }
+        return values;
+    }
+    
+    private void addToIndexes(Row row) {
+        for (HashIndex index : hashIndexes.values()) {
+            index.add(row);
+        }
+        for (SortedIndex index : sortedIndexes) {
+            index.add(row);
+        }
+    }
+    
+    private void removeFromIndexes(Row row, Row replacement) {
+        for (HashIndex index : hashIndexes.values()) {
+            index.remove(row);
+        }
+        for (SortedIndex index : sortedIndexes) {
+            index.remove(row, replacement);
+        }
+    }
+    
+    private ReentrantLock lockFor(Serializable id) {
+        int hash = id.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+}
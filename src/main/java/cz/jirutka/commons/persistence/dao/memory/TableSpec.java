@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Specification of a table for one entity class, i.e. its indexes, see
+ * {@link InMemoryGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class TableSpec {
+    
+    private final List<String> hashIndexes = new ArrayList<String>(2);
+    private final List<List<String>> sortedIndexes = new ArrayList<List<String>>(2);
+    private String naturalKey;
+    private String idProperty = PagingOrdering.DEFAULT_ID_PROPERTY;
+    private Supplier<? extends Serializable> idGenerator;
+    
+    
+    ///// Fluent interface /////
+    
+    /**
+     * Declare hash index on the given property. It's used for equality lookups,
+     * i.e. <tt>findByProperty()</tt>, <tt>findByExample()</tt> and 
+     * <tt>findByNaturalKey()</tt>.
+     * 
+     * @param property name of the property
+     * @return this (for method-chain)
+     */
+    public TableSpec hashIndex(String property) {
+        if (!hashIndexes.contains(property)) {
+            hashIndexes.add(property);
+        }
+        return this;
+    }
+    
+    /**
+     * Declare sorted index on the given properties. It's used for ordered 
+     * reads (including keyset pagination), when the query is ordered by 
+     * exactly these properties, all in the same direction (ascending or 
+     * descending). Ties are broken by the identifier, so the identifiers must
+     * be {@link Comparable}.
+     * 
+     * @param properties names of the properties
+     * @return this (for method-chain)
+     */
+    public TableSpec sortedIndex(String... properties) {
+        if (properties.length == 0) {
+            throw new IllegalArgumentException("At least one property must be given");
+        }
+        sortedIndexes.add(Collections.unmodifiableList(Arrays.asList(properties.clone())));
+        return this;
+    }
+    
+    /**
+     * Declare the natural key (identifier) property, so <tt>findByNaturalKey()</tt>
+     * can be used. It implies a {@linkplain #hashIndex(String) hash index} on 
+     * this property. Uniqueness of the natural key is not enforced.
+     * 
+     * @param property name of the property
+     * @return this (for method-chain)
+     */
+    public TableSpec naturalKey(String property) {
+        this.naturalKey = property;
+        return hashIndex(property);
+    }
+    
+    /**
+     * Set name of the identifier property (default <tt>id</tt>). A generated
+     * identifier is written to this property and it can't be changed by 
+     * a partial update.
+     * 
+     * @param property name of the property
+     * @return this (for method-chain)
+     */
+    public TableSpec idProperty(String property) {
+        this.idProperty = property;
+        return this;
+    }
+    
+    /**
+     * Set the generator of identifiers for instances saved without an 
+     * identifier. By default, it's a sequence of <tt>Long</tt> starting at 1.
+     * 
+     * @param idGenerator supplier of unique identifiers
+     * @return this (for method-chain)
+     */
+    public TableSpec idGenerator(Supplier<? extends Serializable> idGenerator) {
+        this.idGenerator = idGenerator;
+        return this;
+    }
+    
+    
+    ///// Normal interface /////
+    
+    /**
+     * @return names of the properties with a hash index
+     */
+    public List<String> getHashIndexes() { return Collections.unmodifiableList(hashIndexes); }
+    
+    /**
+     * @return lists of the properties of the sorted indexes
+     */
+    public List<List<String>> getSortedIndexes() { return Collections.unmodifiableList(sortedIndexes); }
+    
+    /**
+     * @return name of the natural key property, or <tt>null</tt> if not declared
+     */
+    public String getNaturalKey() { return naturalKey; }
+    
+    /**
+     * @return name of the identifier property
+     */
+    public String getIdProperty() { return idProperty; }
+    
+    /**
+     * @return the generator of identifiers, or <tt>null</tt> for the default one
+     */
+    public Supplier<? extends Serializable> getIdGenerator() { return idGenerator; }
+}
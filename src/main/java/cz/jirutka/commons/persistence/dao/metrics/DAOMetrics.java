@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of metrics (call count, error count and latency histogram) per
+ * entity class and {@linkplain DAOOperation operation}. It's populated by 
+ * the {@link InstrumentedGenericDAO} and {@link InstrumentedSpecificDAO} and 
+ * may be shared by more of them.
+ * 
+ * <p>Recording is lock-free and allocation-free (except the first call of an
+ * operation on an entity class), so it can be enabled in production.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class DAOMetrics {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(DAOMetrics.class);
+    private static final DAOOperation[] OPERATIONS = DAOOperation.values();
+    
+    private final ConcurrentMap<Class, AtomicReferenceArray<OperationMetrics>> metrics = 
+            new ConcurrentHashMap<Class, AtomicReferenceArray<OperationMetrics>>();
+    
+    
+    /**
+     * Record a call of the operation.
+     * 
+     * @param entityClass an entity class
+     * @param operation the operation
+     * @param startNanos value of {@link System#nanoTime()} before the call
+     * @param success <tt>false</tt> if the call has thrown an exception
+     */
+    public void record(Class<?> entityClass, DAOOperation operation, long startNanos, boolean success) {
+        OperationMetrics op = metricsFor(entityClass, operation);
+        
+        op.calls.increment();
+        if (!success) {
+            op.errors.increment();
+        }
+        op.latency.record(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Return snapshots of all operations that were called at least once.
+     * 
+     * @param reset whether to reset the metrics (so the next snapshot will 
+     *        contain only the calls after this one)
+     * @return list of the snapshots
+     */
+    public List<OperationSnapshot> snapshot(boolean reset) {
+        List<OperationSnapshot> result = new ArrayList<OperationSnapshot>();
+        
+        for (Map.Entry<Class, AtomicReferenceArray<OperationMetrics>> entry : metrics.entrySet()) {
+            AtomicReferenceArray<OperationMetrics> ops = entry.getValue();
+            
+            for (int i = 0; i < ops.length(); i++) {
+                OperationMetrics op = ops.get(i);
+                if (op != null) {
+                    result.add(new OperationSnapshot(entry.getKey(), OPERATIONS[i], 
+                            reset ? op.calls.sumThenReset() : op.calls.sum(),
+                            reset ? op.errors.sumThenReset() : op.errors.sum(),
+                            op.latency.snapshot(reset)));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Report the snapshots to the given reporter periodically. Metrics are 
+     * reset after each report, so each report contains only the calls in the
+     * last period.
+     * 
+     * @param reporter the reporter
+     * @param scheduler the scheduler to run reporting on
+     * @param period the reporting period
+     * @param unit unit of the period
+     * @return future that can be used to cancel reporting
+     */
+    public ScheduledFuture<?> scheduleReport(final MetricsReporter reporter, ScheduledExecutorService scheduler,
+                                             long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    reporter.report(snapshot(true));
+                } catch (RuntimeException ex) {
+                    LOG.warn("Failed to report DAO metrics", ex);
+                }
+            }
+        }, period, period, unit);
+    }
+    
+    
+    private OperationMetrics metricsFor(Class<?> entityClass, DAOOperation operation) {
+        AtomicReferenceArray<OperationMetrics> ops = metrics.get(entityClass);
+        if (ops == null) {
+            ops = new AtomicReferenceArray<OperationMetrics>(OPERATIONS.length);
+            AtomicReferenceArray<OperationMetrics> existing = metrics.putIfAbsent(entityClass, ops);
+            if (existing != null) {
+                ops = existing;
+            }
+        }
+        OperationMetrics op = ops.get(operation.ordinal());
+        if (op == null) {
+            ops.compareAndSet(operation.ordinal(), null, new OperationMetrics());
+            op = ops.get(operation.ordinal());
+        }
+        return op;
+    }
+    
+    
+    private static final class OperationMetrics {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
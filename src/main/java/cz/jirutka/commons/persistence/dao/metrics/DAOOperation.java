@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+/**
+ * Operations of the {@link cz.jirutka.commons.persistence.dao.GenericDAO 
+ * GenericDAO} and {@link cz.jirutka.commons.persistence.dao.SpecificDAO 
+ * SpecificDAO} that are measured.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public enum DAOOperation {
+    
+    COUNT("count"),
+    DELETE("delete"),
+    DELETE_BY_ID("deleteById"),
+    DELETE_ALL("deleteAll"),
+    DELETE_BY_EXAMPLE("deleteByExample"),
+    DELETE_BY_PROPERTY("deleteByProperty"),
+    FIND_BY_EXAMPLE("findByExample"),
+    FIND_BY_NATURAL_KEY("findByNaturalKey"),
+    FIND_BY_PRIMARY_KEY("findByPrimaryKey"),
+    FIND_BY_PRIMARY_KEYS("findByPrimaryKeys"),
+    FIND_BY_PROPERTY("findByProperty"),
+    GET_ALL("getAll"),
+    GET_PAGINATED("getPaginated"),
+    IS_PERSISTENT("isPersistent"),
+    LOAD("load"),
+    SAVE("save"),
+    SAVE_ALL("saveAll"),
+    SAVE_OR_UPDATE("saveOrUpdate"),
+    SAVE_OR_UPDATE_ALL("saveOrUpdateAll"),
+    SCROLL_ALL("scrollAll"),
+    UPDATE("update"),
+    UPDATE_ALL("updateAll"),
+    UPDATE_BY_EXAMPLE("updateByExample"),
+    UPDATE_BY_PROPERTY("updateByProperty"),
+    UPDATE_PROPERTIES("updateProperties");
+    
+    private final String methodName;
+
+    
+    private DAOOperation(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * @return name of the DAO method (without parameters)
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the {@link LatencyHistogram}. All values are in 
+ * nanoseconds.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class HistogramSnapshot implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+    
+    
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() { return count; }
+    
+    /**
+     * @return the maximal recorded value
+     */
+    public long getMax() { return max; }
+    
+    /**
+     * @return arithmetic mean of the recorded values, or 0 if empty
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+    
+    /**
+     * Return the (approximate) value at the given quantile.
+     * 
+     * @param quantile the quantile between 0.0 and 1.0, i.e. 0.99
+     * @return the value, or 0 if empty
+     */
+    public long getPercentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.valueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p95=%.3fms, p99=%.3fms, max=%.3fms", 
+                count, getMean() / 1e6, millis(getPercentile(0.5)), millis(getPercentile(0.95)),
+                millis(getPercentile(0.99)), millis(max));
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
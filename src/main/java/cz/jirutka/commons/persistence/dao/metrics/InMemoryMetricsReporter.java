@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reporter that simply keeps the last reported snapshots in memory.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class InMemoryMetricsReporter implements MetricsReporter {
+    
+    private volatile List<OperationSnapshot> lastReport = Collections.emptyList();
+    
+    
+    @Override
+    public void report(List<OperationSnapshot> snapshots) {
+        this.lastReport = Collections.unmodifiableList(snapshots);
+    }
+    
+    /**
+     * @return the last reported snapshots
+     */
+    public List<OperationSnapshot> getLastReport() {
+        return lastReport;
+    }
+    
+    /**
+     * @param entityClass an entity class
+     * @param operation the operation
+     * @return the last reported snapshot of the given operation, or 
+     *         <tt>null</tt> if not reported yet
+     */
+    public OperationSnapshot getLastReport(Class<?> entityClass, DAOOperation operation) {
+        for (OperationSnapshot snapshot : lastReport) {
+            if (snapshot.getEntityClass() == entityClass && snapshot.getOperation() == operation) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static cz.jirutka.commons.persistence.dao.metrics.DAOOperation.*;
+
+/**
+ * Decorator of the {@link GenericDAO} that records call count, error count 
+ * and latency of every operation per entity class into the {@link DAOMetrics}.
+ * 
+ * <p>Batch operations with instances of different entity classes are 
+ * recorded under the {@link Persistable} class. Opening of a cursor is 
+ * measured, but not the iteration.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class InstrumentedGenericDAO implements GenericDAO {
+    
+    private final GenericDAO genericDAO;
+    private final DAOMetrics metrics;
+
+    
+    /**
+     * @param genericDAO the underlying generic DAO
+     * @param metrics the metrics to record into
+     */
+    public InstrumentedGenericDAO(GenericDAO genericDAO, DAOMetrics metrics) {
+        this.genericDAO = genericDAO;
+        this.metrics = metrics;
+    }
+    
+    
+    /**
+     * @return the metrics this DAO records into
+     */
+    public DAOMetrics getMetrics() {
+        return metrics;
+    }
+    
+    
+    ///// Delegate to genericDAO and measure /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Long result = genericDAO.count(clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, COUNT, start, success);
+        }
+    }
+
+    @Override
+    public void delete(Persistable entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.delete(entity);
+            success = true;
+        } finally {
+            metrics.record(entity.getClass(), DELETE, start, success);
+        }
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.delete(id, clazz);
+            success = true;
+        } finally {
+            metrics.record(clazz, DELETE_BY_ID, start, success);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.deleteAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(commonClass(entities), DELETE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, DELETE_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = genericDAO.deleteByProperty(property, value, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, DELETE_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = genericDAO.findByNaturalKey(naturalKey, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_NATURAL_KEY, start, success);
+        }
+    }
+
+    /**
+     * Recorded as {@link DAOOperation#FIND_BY_PRIMARY_KEY}.
+     */
+    @Override
+    public <E extends Persistable> 
+            E findByLongId(long id, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = genericDAO.findByLongId(id, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_PRIMARY_KEY, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = genericDAO.findByPrimaryKey(id, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_PRIMARY_KEY, start, success);
+        }
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable> 
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Map<ID, E> result = genericDAO.findByPrimaryKeys(ids, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_PRIMARY_KEYS, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = genericDAO.findByProperty(property, value, paging, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, FIND_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = genericDAO.getAll(clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, GET_ALL, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = genericDAO.getPaginated(paging, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, GET_PAGINATED, start, success);
+        }
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean result = genericDAO.isPersistent(id, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, IS_PERSISTENT, start, success);
+        }
+    }
+
+    /**
+     * Recorded as {@link DAOOperation#IS_PERSISTENT}.
+     */
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean result = genericDAO.isPersistentByLongId(id, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, IS_PERSISTENT, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = genericDAO.load(id, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, LOAD, start, success);
+        }
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Serializable result = genericDAO.save(entity);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entity.getClass(), SAVE, start, success);
+        }
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<Serializable> result = genericDAO.saveAll(entities, batchSize);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(commonClass(entities), SAVE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.saveOrUpdate(entity);
+            success = true;
+        } finally {
+            metrics.record(entity.getClass(), SAVE_OR_UPDATE, start, success);
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.saveOrUpdateAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(commonClass(entities), SAVE_OR_UPDATE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            EntityCursor<E> result = genericDAO.scrollAll(chunkSize, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, SCROLL_ALL, start, success);
+        }
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.update(entity);
+            success = true;
+        } finally {
+            metrics.record(entity.getClass(), UPDATE, start, success);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.updateAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(commonClass(entities), UPDATE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, UPDATE_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = genericDAO.updateByProperty(property, value, values, clazz);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(clazz, UPDATE_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.updateProperties(entity, properties);
+            success = true;
+        } finally {
+            metrics.record(entity.getClass(), UPDATE_PROPERTIES, start, success);
+        }
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            genericDAO.updateProperties(id, values, clazz);
+            success = true;
+        } finally {
+            metrics.record(clazz, UPDATE_PROPERTIES, start, success);
+        }
+    }
+    
+    
+    /**
+     * @return class of all the given entities, or <tt>Persistable</tt> if 
+     *         they are of different classes or empty
+     */
+    static Class<?> commonClass(Collection<?> entities) {
+        Class<?> result = null;
+        for (Object entity : entities) {
+            if (result == null) {
+                result = entity.getClass();
+            } else if (result != entity.getClass()) {
+                return Persistable.class;
+            }
+        }
+        return result != null ? result : Persistable.class;
+    }
+}
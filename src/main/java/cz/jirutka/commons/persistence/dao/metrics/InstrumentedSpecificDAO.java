@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.SpecificDAO;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static cz.jirutka.commons.persistence.dao.metrics.DAOOperation.*;
+
+/**
+ * Decorator of the {@link SpecificDAO} that records call count, error count 
+ * and latency of every operation into the {@link DAOMetrics}, under the 
+ * entity class of the DAO.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ *
+ * @param <E> an entity type
+ * @param <ID> a primary key type
+ */
+public class InstrumentedSpecificDAO <E extends Persistable, ID extends Serializable> implements SpecificDAO<E, ID> {
+    
+    private final SpecificDAO<E, ID> specificDAO;
+    private final Class<E> entityClass;
+    private final DAOMetrics metrics;
+
+    
+    /**
+     * @param specificDAO the underlying specific DAO
+     * @param metrics the metrics to record into
+     */
+    public InstrumentedSpecificDAO(SpecificDAO<E, ID> specificDAO, DAOMetrics metrics) {
+        this.specificDAO = specificDAO;
+        this.entityClass = specificDAO.getEntityClass();
+        this.metrics = metrics;
+    }
+    
+
+    @Override
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+    
+    /**
+     * @return the metrics this DAO records into
+     */
+    public DAOMetrics getMetrics() {
+        return metrics;
+    }
+    
+    
+    ///// Delegate to specificDAO and measure /////
+
+    @Override
+    public Long count() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Long result = specificDAO.count();
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, COUNT, start, success);
+        }
+    }
+
+    @Override
+    public void delete(E entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.delete(entity);
+            success = true;
+        } finally {
+            metrics.record(entityClass, DELETE, start, success);
+        }
+    }
+
+    @Override
+    public void delete(ID id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.delete(id);
+            success = true;
+        } finally {
+            metrics.record(entityClass, DELETE_BY_ID, start, success);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends E> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.deleteAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(entityClass, DELETE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public int deleteByExample(E exampleInstance, String[] includeProperties) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = specificDAO.deleteByExample(exampleInstance, includeProperties);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, DELETE_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = specificDAO.deleteByProperty(property, value);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, DELETE_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = specificDAO.findByExample(exampleInstance, includeProperties, paging);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, FIND_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public E findByNaturalKey(Object naturalKey) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = specificDAO.findByNaturalKey(naturalKey);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, FIND_BY_NATURAL_KEY, start, success);
+        }
+    }
+
+    @Override
+    public E findByPrimaryKey(ID id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = specificDAO.findByPrimaryKey(id);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, FIND_BY_PRIMARY_KEY, start, success);
+        }
+    }
+
+    @Override
+    public Map<ID, E> findByPrimaryKeys(Collection<ID> ids) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Map<ID, E> result = specificDAO.findByPrimaryKeys(ids);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, FIND_BY_PRIMARY_KEYS, start, success);
+        }
+    }
+
+    @Override
+    public List<E> findByProperty(String property, Object value, PagingOrdering paging) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = specificDAO.findByProperty(property, value, paging);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, FIND_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public List<E> getAll() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = specificDAO.getAll();
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, GET_ALL, start, success);
+        }
+    }
+
+    @Override
+    public List<E> getPaginated(PagingOrdering paging) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> result = specificDAO.getPaginated(paging);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, GET_PAGINATED, start, success);
+        }
+    }
+
+    @Override
+    public boolean isPersistent(ID id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean result = specificDAO.isPersistent(id);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, IS_PERSISTENT, start, success);
+        }
+    }
+
+    @Override
+    public E load(ID id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            E result = specificDAO.load(id);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, LOAD, start, success);
+        }
+    }
+
+    @Override
+    public ID save(E entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ID result = specificDAO.save(entity);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, SAVE, start, success);
+        }
+    }
+
+    @Override
+    public List<ID> saveAll(Collection<? extends E> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<ID> result = specificDAO.saveAll(entities, batchSize);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, SAVE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public void saveOrUpdate(E entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.saveOrUpdate(entity);
+            success = true;
+        } finally {
+            metrics.record(entityClass, SAVE_OR_UPDATE, start, success);
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends E> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.saveOrUpdateAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(entityClass, SAVE_OR_UPDATE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public EntityCursor<E> scrollAll(int chunkSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            EntityCursor<E> result = specificDAO.scrollAll(chunkSize);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, SCROLL_ALL, start, success);
+        }
+    }
+
+    @Override
+    public void update(E entity) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.update(entity);
+            success = true;
+        } finally {
+            metrics.record(entityClass, UPDATE, start, success);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends E> entities, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.updateAll(entities, batchSize);
+            success = true;
+        } finally {
+            metrics.record(entityClass, UPDATE_ALL, start, success);
+        }
+    }
+
+    @Override
+    public int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = specificDAO.updateByExample(exampleInstance, includeProperties, values);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, UPDATE_BY_EXAMPLE, start, success);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = specificDAO.updateByProperty(property, value, values);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(entityClass, UPDATE_BY_PROPERTY, start, success);
+        }
+    }
+
+    @Override
+    public void updateProperties(E entity, String... properties) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.updateProperties(entity, properties);
+            success = true;
+        } finally {
+            metrics.record(entityClass, UPDATE_PROPERTIES, start, success);
+        }
+    }
+
+    @Override
+    public void updateProperties(ID id, Map<String, Object> values) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            specificDAO.updateProperties(id, values);
+            success = true;
+        } finally {
+            metrics.record(entityClass, UPDATE_PROPERTIES, start, success);
+        }
+    }
+}
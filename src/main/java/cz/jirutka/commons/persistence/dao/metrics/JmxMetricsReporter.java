@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reporter that exposes the last reported snapshots via JMX. For each entity 
+ * class and operation it registers an {@link OperationStatsMXBean} named
+ * <tt>&lt;domain&gt;:type=DAOOperation,entity=&lt;entity class&gt;,operation=&lt;method&gt;</tt>.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class JmxMetricsReporter extends InMemoryMetricsReporter {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsReporter.class);
+    
+    private final MBeanServer server;
+    private final String domain;
+    private final Map<ObjectName, OperationStats> registered = new ConcurrentHashMap<ObjectName, OperationStats>();
+    
+    
+    /**
+     * Create a new reporter that registers MBeans in the platform MBean server.
+     * 
+     * @param domain the domain of the MBean names
+     */
+    public JmxMetricsReporter(String domain) {
+        this(ManagementFactory.getPlatformMBeanServer(), domain);
+    }
+    
+    /**
+     * @param server the MBean server
+     * @param domain the domain of the MBean names
+     */
+    public JmxMetricsReporter(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+    }
+    
+    
+    @Override
+    public void report(List<OperationSnapshot> snapshots) {
+        super.report(snapshots);
+        
+        for (OperationSnapshot snapshot : snapshots) {
+            try {
+                ObjectName name = new ObjectName(String.format("%s:type=DAOOperation,entity=%s,operation=%s",
+                        domain, snapshot.getEntityClass().getName(), snapshot.getOperation().getMethodName()));
+                
+                OperationStats stats = registered.get(name);
+                if (stats != null) {
+                    stats.snapshot = snapshot;
+                } else {
+                    stats = new OperationStats(snapshot);
+                    server.registerMBean(stats, name);
+                    registered.put(name, stats);
+                }
+                
+            } catch (JMException ex) {
+                LOG.warn("Failed to register MBean for " + snapshot.getEntityClass().getName(), ex);
+            }
+        }
+    }
+    
+    /**
+     * Unregister all the MBeans registered by this reporter.
+     */
+    public void unregisterAll() {
+        for (ObjectName name : registered.keySet()) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                LOG.debug("Failed to unregister MBean {}", name, ex);
+            }
+        }
+        registered.clear();
+    }
+    
+    
+    private static final class OperationStats implements OperationStatsMXBean {
+        
+        private static final double NANOS_PER_MILLI = 1e6;
+        
+        volatile OperationSnapshot snapshot;
+        
+        OperationStats(OperationSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public long getCalls() { return snapshot.getCalls(); }
+        public long getErrors() { return snapshot.getErrors(); }
+        public double getMeanMillis() { return snapshot.getLatency().getMean() / NANOS_PER_MILLI; }
+        public double getP50Millis() { return snapshot.getLatency().getPercentile(0.50) / NANOS_PER_MILLI; }
+        public double getP95Millis() { return snapshot.getLatency().getPercentile(0.95) / NANOS_PER_MILLI; }
+        public double getP99Millis() { return snapshot.getLatency().getPercentile(0.99) / NANOS_PER_MILLI; }
+        public double getMaxMillis() { return snapshot.getLatency().getMax() / NANOS_PER_MILLI; }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.util.List;
+
+/**
+ * SPI for exporting {@linkplain DAOMetrics DAO metrics} to a monitoring 
+ * system.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * 
+ * @see DAOMetrics#scheduleReport(MetricsReporter, java.util.concurrent.ScheduledExecutorService, long, java.util.concurrent.TimeUnit)
+ */
+public interface MetricsReporter {
+    
+    /**
+     * Report the given snapshots. It's called periodically from a single
+     * thread.
+     * 
+     * @param snapshots snapshots of all operations that were called at least
+     *        once
+     */
+    void report(List<OperationSnapshot> snapshots);
+    
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of metrics of one operation on one entity class.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class OperationSnapshot implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final Class<?> entityClass;
+    private final DAOOperation operation;
+    private final long calls;
+    private final long errors;
+    private final HistogramSnapshot latency;
+
+    
+    public OperationSnapshot(Class<?> entityClass, DAOOperation operation, long calls, long errors, 
+                             HistogramSnapshot latency) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.calls = calls;
+        this.errors = errors;
+        this.latency = latency;
+    }
+
+    
+    /**
+     * @return the entity class
+     */
+    public Class<?> getEntityClass() { return entityClass; }
+
+    /**
+     * @return the operation
+     */
+    public DAOOperation getOperation() { return operation; }
+
+    /**
+     * @return number of calls (including failed)
+     */
+    public long getCalls() { return calls; }
+
+    /**
+     * @return number of calls that have thrown an exception
+     */
+    public long getErrors() { return errors; }
+
+    /**
+     * @return histogram of latencies of all calls
+     */
+    public HistogramSnapshot getLatency() { return latency; }
+
+    
+    @Override
+    public String toString() {
+        return String.format("%s.%s: calls=%d, errors=%d, %s", 
+                entityClass.getSimpleName(), operation.getMethodName(), calls, errors, latency);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+/**
+ * Management interface of metrics of one DAO operation on one entity class,
+ * as exposed by the {@link JmxMetricsReporter}. All values are from the last
+ * reporting period.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public interface OperationStatsMXBean {
+    
+    long getCalls();
+    
+    long getErrors();
+    
+    double getMeanMillis();
+    
+    double getP50Millis();
+    
+    double getP95Millis();
+    
+    double getP99Millis();
+    
+    double getMaxMillis();
+    
+}
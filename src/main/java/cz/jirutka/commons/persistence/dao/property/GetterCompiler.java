@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.property;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Compiles getter methods into instances of the functional interfaces. It 
+ * uses the {@link LambdaMetafactory} (i.e. the same mechanism as the method 
+ * references), so the getter is called directly, without reflection. When 
+ * the getter is not accessible from this library (non-public class, or class 
+ * not visible from its class loader), it falls back to a {@link MethodHandle}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+final class GetterCompiler {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(GetterCompiler.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    private GetterCompiler() {}
+    
+    
+    static <T> ToIntFunction<T> toInt(Method getter) {
+        ToIntFunction<T> lambda = spin(getter, ToIntFunction.class, "applyAsInt", int.class);
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle handle = handle(getter, int.class);
+        return bean -> {
+            try {
+                return (int) handle.invokeExact((Object) bean);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        };
+    }
+    
+    static <T> ToLongFunction<T> toLong(Method getter) {
+        ToLongFunction<T> lambda = spin(getter, ToLongFunction.class, "applyAsLong", long.class);
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle handle = handle(getter, long.class);
+        return bean -> {
+            try {
+                return (long) handle.invokeExact((Object) bean);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        };
+    }
+    
+    static <T> ToDoubleFunction<T> toDouble(Method getter) {
+        ToDoubleFunction<T> lambda = spin(getter, ToDoubleFunction.class, "applyAsDouble", double.class);
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle handle = handle(getter, double.class);
+        return bean -> {
+            try {
+                return (double) handle.invokeExact((Object) bean);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        };
+    }
+    
+    static <T> Predicate<T> toBoolean(Method getter) {
+        Predicate<T> lambda = spin(getter, Predicate.class, "test", boolean.class);
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle handle = handle(getter, boolean.class);
+        return bean -> {
+            try {
+                return (boolean) handle.invokeExact((Object) bean);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        };
+    }
+    
+    static <T> Function<T, Object> toObject(Method getter) {
+        Function<T, Object> lambda = spin(getter, Function.class, "apply", Object.class);
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle handle = handle(getter, Object.class);
+        return bean -> {
+            try {
+                return (Object) handle.invokeExact((Object) bean);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        };
+    }
+    
+    /**
+     * @return method handle of the given method (setter) adapted to take 
+     *         <tt>(Object, Object)</tt> and return <tt>void</tt>
+     */
+    static MethodHandle setter(Method setter) {
+        return unreflect(setter).asType(methodType(void.class, Object.class, Object.class));
+    }
+    
+    /**
+     * Rethrow the given exception thrown by a getter as is, if it's unchecked.
+     */
+    static RuntimeException rethrow(Throwable ex) {
+        if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        throw new IllegalArgumentException(ex);
+    }
+    
+    
+    /**
+     * @return instance of the functional interface that calls the getter, or 
+     *         <tt>null</tt> if it can't be created
+     */
+    private static <F> F spin(Method getter, Class<?> iface, String samName, Class<?> samReturnType) {
+        if (!isAccessible(getter)) {
+            return null;
+        }
+        Class<?> beanClass = getter.getDeclaringClass();
+        Class<?> returnType = getter.getReturnType().isPrimitive() ? samReturnType : Object.class;
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, samName, methodType(iface), 
+                    methodType(samReturnType, Object.class), LOOKUP.unreflect(getter), 
+                    methodType(returnType, beanClass));
+            
+            return (F) site.getTarget().invoke();
+            
+        } catch (Throwable ex) {
+            LOG.debug("Cannot compile {}, falling back to method handle: {}", getter, ex.toString());
+            return null;
+        }
+    }
+    
+    private static MethodHandle handle(Method getter, Class<?> returnType) {
+        return unreflect(getter).asType(methodType(returnType, Object.class));
+    }
+    
+    private static MethodHandle unreflect(Method method) {
+        try {
+            if (!isAccessible(method)) {
+                method.setAccessible(true);
+            }
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException(ex);
+        } catch (RuntimeException ex) {  // InaccessibleObjectException on Java 9+
+            throw new IllegalArgumentException(ex);
+        }
+    }
+    
+    /**
+     * @return <tt>true</tt> if the method can be linked from this class, i.e. 
+     *         it's public and its declaring class and return type are public 
+     *         and visible from this class loader
+     */
+    private static boolean isAccessible(Method method) {
+        Class<?> returnType = method.getReturnType();
+        
+        return Modifier.isPublic(method.getModifiers())
+                && isAccessible(method.getDeclaringClass())
+                && (returnType.isPrimitive() || isAccessible(returnType));
+    }
+    
+    private static boolean isAccessible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || clazz.getClassLoader() == null) {
+            return Modifier.isPublic(clazz.getModifiers()) || clazz.isPrimitive();
+        }
+        if (!Modifier.isPublic(clazz.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, GetterCompiler.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.property;
+
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Cache of compiled property accessors of one bean class (i.e. an entity 
+ * class), for implementations of DAO that evaluate queries in Java, like 
+ * <tt>findByExample()</tt> and ordering by {@link OrderBy}.
+ * 
+ * <p>Property names are resolved and compiled once, the first time they're 
+ * used, into {@link PropertyGetter}s that call the getters directly (via 
+ * {@link java.lang.invoke.LambdaMetafactory LambdaMetafactory}), without 
+ * reflection. Getters of primitive properties are compiled into primitive
+ * functions, so the {@linkplain #comparator(List) comparators} and {@linkplain 
+ * #matcher(String[], Object[]) matchers} don't box the values.</p>
+ * 
+ * <pre>
+ * PropertyAccessors&lt;User&gt; accessors = PropertyAccessors.forClass(User.class);
+ * Predicate&lt;User&gt; matcher = accessors.exampleMatcher(example, new String[]{"age", "city"});
+ * Comparator&lt;User&gt; comparator = accessors.comparator(paging.getOrdering());
+ * </pre>
+ * 
+ * <p>Property names may be paths of properties separated by a dot, e.g. 
+ * <tt>address.city</tt>; a <tt>null</tt> on the path gives <tt>null</tt>.
+ * Instances are cached per class and thread-safe.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * @param <T> the bean type
+ */
+public final class PropertyAccessors<T> {
+    
+    private static final ClassValue<PropertyAccessors<?>> CACHE = new ClassValue<PropertyAccessors<?>>() {
+        protected PropertyAccessors<?> computeValue(Class<?> type) {
+            return new PropertyAccessors<Object>((Class<Object>) type);
+        }
+    };
+    
+    private final Class<T> beanClass;
+    private final Map<String, PropertyDescriptor> descriptors = new HashMap<String, PropertyDescriptor>();
+    private final ConcurrentMap<String, PropertyGetter<T>> getters = new ConcurrentHashMap<String, PropertyGetter<T>>();
+    private final ConcurrentMap<String, MethodHandle> setters = new ConcurrentHashMap<String, MethodHandle>();
+    private final List<String> readWriteProperties;
+    
+    
+    private PropertyAccessors(Class<T> beanClass) {
+        this.beanClass = beanClass;
+        try {
+            for (PropertyDescriptor pd : Introspector.getBeanInfo(beanClass).getPropertyDescriptors()) {
+                descriptors.put(pd.getName(), pd);
+            }
+            // the Introspector (before Java 21) doesn't see default methods of interfaces
+            for (Method method : beanClass.getMethods()) {
+                String property = defaultGetterProperty(method);
+                if (property == null) {
+                    continue;
+                }
+                PropertyDescriptor pd = descriptors.get(property);
+                if (pd == null || pd.getReadMethod() == null) {
+                    // the setter (if any) is found by name, see findSetter()
+                    descriptors.put(property, new PropertyDescriptor(property, method, null));
+                }
+            }
+        } catch (IntrospectionException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        List<String> readWrite = new ArrayList<String>();
+        for (PropertyDescriptor pd : descriptors.values()) {
+            if (pd.getReadMethod() != null && hasSetter(pd.getName())) {
+                readWrite.add(pd.getName());
+            }
+        }
+        Collections.sort(readWrite);
+        this.readWriteProperties = Collections.unmodifiableList(readWrite);
+    }
+    
+    /**
+     * Return accessors of the given class.
+     * 
+     * @param beanClass the bean class
+     * @return the cached instance
+     */
+    public static <T> PropertyAccessors<T> forClass(Class<T> beanClass) {
+        return (PropertyAccessors<T>) CACHE.get(beanClass);
+    }
+    
+    
+    /**
+     * @return the bean class
+     */
+    public Class<T> getBeanClass() { return beanClass; }
+    
+    /**
+     * @param property name of the property (not a path)
+     * @return <tt>true</tt> if the bean class has a getter for the property
+     */
+    public boolean isReadable(String property) {
+        PropertyDescriptor pd = descriptors.get(property);
+        return pd != null && pd.getReadMethod() != null;
+    }
+    
+    /**
+     * Return names of the properties that have both a getter and a setter, 
+     * i.e. the state of an entity that is written to the datastore.
+     * 
+     * @return unmodifiable list of the property names, in alphabetical order
+     */
+    public List<String> getReadWriteProperties() {
+        return readWriteProperties;
+    }
+    
+    /**
+     * Return compiled getter of the given property.
+     * 
+     * @param propertyPath name of the property, or path of properties 
+     *        separated by a dot
+     * @return the getter
+     * @throws IllegalArgumentException if there's no such readable property
+     */
+    public PropertyGetter<T> getter(String propertyPath) {
+        PropertyGetter<T> getter = getters.get(propertyPath);
+        if (getter == null) {
+            getter = compile(propertyPath);
+            getters.putIfAbsent(propertyPath, getter);
+        }
+        return getter;
+    }
+    
+    /**
+     * Return comparator of beans according to the given ordering, see {@link
+     * PropertyGetter#comparator()}.
+     * 
+     * @param ordering list of orders
+     * @return the comparator
+     * @throws IllegalArgumentException if there's no such readable property
+     */
+    public Comparator<T> comparator(List<OrderBy> ordering) {
+        Comparator<T> result = null;
+        
+        for (OrderBy order : ordering) {
+            Comparator<T> cmp = getter(order.getPropertyName()).comparator();
+            if (!order.isAscending()) {
+                cmp = cmp.reversed();
+            }
+            result = result == null ? cmp : result.thenComparing(cmp);
+        }
+        return result != null ? result : (a, b) -> 0;
+    }
+    
+    /**
+     * Return predicate that matches beans with the given properties equal to 
+     * the given values, see {@link PropertyGetter#equalTo(Object)}.
+     * 
+     * @param properties names of the properties
+     * @param values values of the properties, in the same order
+     * @return the predicate
+     * @throws IllegalArgumentException if there's no such readable property
+     */
+    public Predicate<T> matcher(String[] properties, Object[] values) {
+        if (properties.length != values.length) {
+            throw new IllegalArgumentException("Number of properties and values must be the same");
+        }
+        Predicate<T> result = null;
+        
+        for (int i = 0; i < properties.length; i++) {
+            Predicate<T> predicate = getter(properties[i]).equalTo(values[i]);
+            result = result == null ? predicate : result.and(predicate);
+        }
+        return result != null ? result : bean -> true;
+    }
+    
+    /**
+     * Return predicate that matches beans with the given properties equal to 
+     * the example bean, i.e. for <tt>findByExample()</tt>.
+     * 
+     * @param example the example bean
+     * @param properties names of the properties to match with
+     * @return the predicate
+     * @throws IllegalArgumentException if there's no such readable property
+     */
+    public Predicate<T> exampleMatcher(T example, String[] properties) {
+        Object[] values = new Object[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            values[i] = getter(properties[i]).get(example);
+        }
+        return matcher(properties, values);
+    }
+    
+    /**
+     * Set value of the given property using its setter. This is not compiled 
+     * like the getters, it's intended for occasional writes like assigning 
+     * a generated identifier.
+     * 
+     * @param bean the bean
+     * @param property name of the property (not a path)
+     * @param value the value to set
+     * @throws IllegalArgumentException if there's no such writable property, 
+     *         or the value is not assignable to it
+     */
+    public void write(T bean, String property, Object value) {
+        MethodHandle setter = setters.get(property);
+        if (setter == null) {
+            setter = GetterCompiler.setter(findSetter(property));
+            setters.putIfAbsent(property, setter);
+        }
+        try {
+            setter.invokeExact((Object) bean, value);
+        } catch (ClassCastException ex) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot assign %s to property %s of %s", value, property, beanClass.getName()), ex);
+        } catch (Throwable ex) {
+            throw GetterCompiler.rethrow(ex);
+        }
+    }
+    
+    
+    private PropertyGetter<T> compile(String propertyPath) {
+        int dot = propertyPath.indexOf('.');
+        if (dot > 0) {
+            return compilePath(propertyPath.substring(0, dot), propertyPath.substring(dot + 1), propertyPath);
+        }
+        PropertyDescriptor pd = descriptors.get(propertyPath);
+        if (pd == null || pd.getReadMethod() == null) {
+            throw new IllegalArgumentException(String.format(
+                    "No readable property %s on %s", propertyPath, beanClass.getName()));
+        }
+        Method method = pd.getReadMethod();
+        Class<?> type = method.getReturnType();
+        
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return PropertyGetter.ofInt(propertyPath, type, GetterCompiler.<T>toInt(method));
+        } else if (type == long.class) {
+            return PropertyGetter.ofLong(propertyPath, GetterCompiler.<T>toLong(method));
+        } else if (type == double.class || type == float.class) {
+            return PropertyGetter.ofDouble(propertyPath, type, GetterCompiler.<T>toDouble(method));
+        } else if (type == boolean.class) {
+            return PropertyGetter.ofBoolean(propertyPath, GetterCompiler.<T>toBoolean(method));
+        } else {
+            return PropertyGetter.ofObject(propertyPath, type, GetterCompiler.<T>toObject(method));
+        }
+    }
+    
+    private PropertyGetter<T> compilePath(String first, final String rest, String propertyPath) {
+        final PropertyGetter<T> head = getter(first);
+        Class<?> headType = head.getType();
+        
+        if (headType.isPrimitive()) {
+            throw new IllegalArgumentException(String.format(
+                    "No readable property %s on %s", rest, headType.getName()));
+        }
+        String next = rest.contains(".") ? rest.substring(0, rest.indexOf('.')) : rest;
+        
+        // resolve by the declared type when possible, otherwise by the runtime type
+        if (forClass(headType).isReadable(next)) {
+            final PropertyGetter<Object> tail = (PropertyGetter<Object>) forClass(headType).getter(rest);
+            return PropertyGetter.ofObject(propertyPath, tail.getType(), bean -> {
+                Object value = head.get(bean);
+                return value != null ? tail.get(value) : null;
+            });
+        } else {
+            return PropertyGetter.ofObject(propertyPath, Object.class, bean -> {
+                Object value = head.get(bean);
+                return value != null 
+                        ? ((PropertyAccessors<Object>) forClass(value.getClass())).getter(rest).get(value) 
+                        : null;
+            });
+        }
+    }
+    
+    /**
+     * @return name of the property if the method is a default getter, 
+     *         <tt>null</tt> otherwise
+     */
+    private static String defaultGetterProperty(Method method) {
+        if (!method.isDefault() || method.getParameterTypes().length != 0) {
+            return null;
+        }
+        String name = method.getName();
+        Class<?> type = method.getReturnType();
+        
+        if (name.startsWith("get") && name.length() > 3 && type != void.class) {
+            return Introspector.decapitalize(name.substring(3));
+        } else if (name.startsWith("is") && name.length() > 2 && type == boolean.class) {
+            return Introspector.decapitalize(name.substring(2));
+        }
+        return null;
+    }
+    
+    private boolean hasSetter(String property) {
+        return findSetterOrNull(property) != null;
+    }
+    
+    private Method findSetter(String property) {
+        Method setter = findSetterOrNull(property);
+        if (setter == null) {
+            throw new IllegalArgumentException(String.format(
+                    "No writable property %s on %s", property, beanClass.getName()));
+        }
+        return setter;
+    }
+    
+    private Method findSetterOrNull(String property) {
+        PropertyDescriptor pd = descriptors.get(property);
+        if (pd != null && pd.getWriteMethod() != null) {
+            return pd.getWriteMethod();
+        }
+        // setter with a type different from the getter, i.e. setId(Long) for Serializable getId()
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Method method : beanClass.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == 1) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
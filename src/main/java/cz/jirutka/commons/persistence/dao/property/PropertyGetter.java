@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.property;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import org.apache.commons.lang3.ClassUtils;
+
+/**
+ * Compiled getter of a single property (or a path of properties) of a bean.
+ * Getters of primitive properties are compiled into primitive functional 
+ * interfaces, so the {@linkplain #comparator() comparator} and the 
+ * {@linkplain #equalTo(Object) equality predicate} don't box the values.
+ * 
+ * <p>Instances are obtained from {@link PropertyAccessors#getter(String)} and 
+ * are thread-safe.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * @param <T> the bean type
+ */
+public final class PropertyGetter<T> {
+    
+    /** Representation of the property's value. */
+    private enum Kind { INT, LONG, DOUBLE, BOOLEAN, OBJECT }
+    
+    private final String name;
+    private final Class<?> type;
+    private final Kind kind;
+    private final ToIntFunction<T> intGetter;
+    private final ToLongFunction<T> longGetter;
+    private final ToDoubleFunction<T> doubleGetter;
+    private final Predicate<T> booleanGetter;
+    private final Function<T, Object> objectGetter;
+    
+    
+    private PropertyGetter(String name, Class<?> type, Kind kind, ToIntFunction<T> intGetter, 
+            ToLongFunction<T> longGetter, ToDoubleFunction<T> doubleGetter, Predicate<T> booleanGetter, 
+            Function<T, Object> objectGetter) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.intGetter = intGetter;
+        this.longGetter = longGetter;
+        this.doubleGetter = doubleGetter;
+        this.booleanGetter = booleanGetter;
+        this.objectGetter = objectGetter;
+    }
+    
+    static <T> PropertyGetter<T> ofInt(String name, Class<?> type, ToIntFunction<T> getter) {
+        return new PropertyGetter<T>(name, type, Kind.INT, getter, null, null, null, null);
+    }
+    
+    static <T> PropertyGetter<T> ofLong(String name, ToLongFunction<T> getter) {
+        return new PropertyGetter<T>(name, long.class, Kind.LONG, null, getter, null, null, null);
+    }
+    
+    static <T> PropertyGetter<T> ofDouble(String name, Class<?> type, ToDoubleFunction<T> getter) {
+        return new PropertyGetter<T>(name, type, Kind.DOUBLE, null, null, getter, null, null);
+    }
+    
+    static <T> PropertyGetter<T> ofBoolean(String name, Predicate<T> getter) {
+        return new PropertyGetter<T>(name, boolean.class, Kind.BOOLEAN, null, null, null, getter, null);
+    }
+    
+    static <T> PropertyGetter<T> ofObject(String name, Class<?> type, Function<T, Object> getter) {
+        return new PropertyGetter<T>(name, type, Kind.OBJECT, null, null, null, null, getter);
+    }
+    
+    
+    /**
+     * @return name (or path) of the property
+     */
+    public String getName() { return name; }
+    
+    /**
+     * @return declared type of the property (may be primitive)
+     */
+    public Class<?> getType() { return type; }
+    
+    /**
+     * Return value of the property of the given bean. Values of primitive 
+     * properties are boxed.
+     * 
+     * @param bean the bean
+     * @return the value
+     */
+    public Object get(T bean) {
+        switch (kind) {
+            case INT:
+                int value = intGetter.applyAsInt(bean);
+                if (type == byte.class) return (byte) value;
+                if (type == short.class) return (short) value;
+                if (type == char.class) return (char) value;
+                return value;
+            case LONG:
+                return longGetter.applyAsLong(bean);
+            case DOUBLE:
+                double dvalue = doubleGetter.applyAsDouble(bean);
+                return type == float.class ? (Object) (float) dvalue : (Object) dvalue;
+            case BOOLEAN:
+                return booleanGetter.test(bean);
+            default:
+                return objectGetter.apply(bean);
+        }
+    }
+    
+    /**
+     * Return comparator of beans by value of this property in the ascending 
+     * order. <tt>null</tt> is lower than any value. Values of non-primitive 
+     * properties must be {@link Comparable}.
+     * 
+     * @return the comparator
+     */
+    public Comparator<T> comparator() {
+        switch (kind) {
+            case INT:
+                final ToIntFunction<T> ig = intGetter;
+                return (a, b) -> Integer.compare(ig.applyAsInt(a), ig.applyAsInt(b));
+            case LONG:
+                final ToLongFunction<T> lg = longGetter;
+                return (a, b) -> Long.compare(lg.applyAsLong(a), lg.applyAsLong(b));
+            case DOUBLE:
+                final ToDoubleFunction<T> dg = doubleGetter;
+                return (a, b) -> Double.compare(dg.applyAsDouble(a), dg.applyAsDouble(b));
+            case BOOLEAN:
+                final Predicate<T> bg = booleanGetter;
+                return (a, b) -> Boolean.compare(bg.test(a), bg.test(b));
+            default:
+                final Function<T, Object> og = objectGetter;
+                return (a, b) -> compareValues(og.apply(a), og.apply(b));
+        }
+    }
+    
+    /**
+     * Return predicate that matches beans with value of this property equal
+     * to the given value, in the sense of {@link Objects#equals(Object, Object)}.
+     * Value for a primitive property is unboxed just once, here; it never 
+     * matches when it's not of the corresponding wrapper type (e.g. 
+     * <tt>Long</tt> for an <tt>int</tt> property).
+     * 
+     * @param value the value to match
+     * @return the predicate
+     */
+    public Predicate<T> equalTo(final Object value) {
+        if (kind != Kind.OBJECT && (value == null || ClassUtils.primitiveToWrapper(type) != value.getClass())) {
+            return bean -> false;
+        }
+        switch (kind) {
+            case INT:
+                final ToIntFunction<T> ig = intGetter;
+                final int i = value instanceof Character ? (Character) value : ((Number) value).intValue();
+                return bean -> ig.applyAsInt(bean) == i;
+            case LONG:
+                final ToLongFunction<T> lg = longGetter;
+                final long l = (Long) value;
+                return bean -> lg.applyAsLong(bean) == l;
+            case DOUBLE:
+                final ToDoubleFunction<T> dg = doubleGetter;
+                final double d = ((Number) value).doubleValue();
+                return bean -> Double.compare(dg.applyAsDouble(bean), d) == 0;
+            case BOOLEAN:
+                final Predicate<T> bg = booleanGetter;
+                final boolean b = (Boolean) value;
+                return bean -> bg.test(bean) == b;
+            default:
+                final Function<T, Object> og = objectGetter;
+                return bean -> Objects.equals(og.apply(bean), value);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return name + " : " + type.getName();
+    }
+    
+    
+    /**
+     * Compare two property values; <tt>null</tt> is lower than any value.
+     * 
+     * @param a the first value
+     * @param b the second value
+     * @return negative, zero or positive integer as the first value is less 
+     *         than, equal to, or greater than the second
+     * @throws ClassCastException if the values are not mutually comparable
+     */
+    public static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.routing;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Strategy that chooses a read replica for a read operation, see 
+ * {@link ReadWriteSplittingGenericDAO}. Implementations must be thread-safe.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@FunctionalInterface
+public interface LoadBalancer {
+    
+    /**
+     * Choose one of the given replicas to read instances of the given entity
+     * class from.
+     * 
+     * @param replicas the read replicas, never empty
+     * @param clazz an entity class
+     * @return one of the replicas
+     */
+    GenericDAO choose(List<GenericDAO> replicas, Class<? extends Persistable> clazz);
+    
+    
+    /**
+     * @return a new load balancer that chooses the replicas in turn
+     */
+    static LoadBalancer roundRobin() {
+        final AtomicInteger counter = new AtomicInteger();
+        return (replicas, clazz) -> replicas.get(Math.floorMod(counter.getAndIncrement(), replicas.size()));
+    }
+    
+    /**
+     * @return a load balancer that chooses the replicas randomly
+     */
+    static LoadBalancer random() {
+        return (replicas, clazz) -> replicas.get(ThreadLocalRandom.current().nextInt(replicas.size()));
+    }
+}
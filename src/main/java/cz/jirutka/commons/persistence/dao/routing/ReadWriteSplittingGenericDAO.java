@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.routing;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the {@link GenericDAO} that sends writes to the primary 
+ * datastore and reads to a pool of read replicas, chosen by the given 
+ * {@link LoadBalancer}.
+ * 
+ * <h3>Read-your-writes</h3>
+ * 
+ * <p>Replicas usually lag behind the primary, so a client that has just 
+ * written an instance could read its old state from a replica. To prevent 
+ * this, reads of an entity class are sent to the primary for the configured 
+ * {@linkplain #readYourWritesWindow(long, TimeUnit) window} after the current
+ * context has written to that class, to its subclass or to its superclass.
+ * The window should be longer than the usual replication lag. Other contexts
+ * keep reading from the replicas.</p>
+ * 
+ * <p>The context is the current thread, so operations of one thread see its 
+ * own writes. Threads reused for unrelated tasks (i.e. pooled request 
+ * threads) should call {@link #resetContext()} at the end of each task.</p>
+ * 
+ * <p>{@link #load(Serializable, Class) load()} is always sent to the primary,
+ * because its result is usually used as a reference in the following 
+ * write.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+public class ReadWriteSplittingGenericDAO implements GenericDAO {
+    
+    private final GenericDAO primary;
+    private final List<GenericDAO> replicas;
+    private final LoadBalancer loadBalancer;
+    private final ThreadLocal<Map<Class<?>, Long>> recentWrites = 
+            ThreadLocal.withInitial(() -> new HashMap<Class<?>, Long>(4));
+    private volatile long windowNanos = TimeUnit.SECONDS.toNanos(5);
+    
+    
+    /**
+     * Create a new instance with the {@linkplain LoadBalancer#roundRobin() 
+     * round-robin} load balancing and read-your-writes window of 5 seconds.
+     * 
+     * @param primary the DAO of the primary datastore
+     * @param replicas the DAOs of the read replicas; when empty, everything is
+     *        sent to the primary
+     */
+    public ReadWriteSplittingGenericDAO(GenericDAO primary, List<? extends GenericDAO> replicas) {
+        this(primary, replicas, LoadBalancer.roundRobin());
+    }
+    
+    /**
+     * Create a new instance with read-your-writes window of 5 seconds.
+     * 
+     * @param primary the DAO of the primary datastore
+     * @param replicas the DAOs of the read replicas; when empty, everything is
+     *        sent to the primary
+     * @param loadBalancer strategy that chooses a replica for each read
+     */
+    public ReadWriteSplittingGenericDAO(GenericDAO primary, List<? extends GenericDAO> replicas, 
+            LoadBalancer loadBalancer) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<GenericDAO>(replicas));
+        this.loadBalancer = loadBalancer;
+    }
+    
+    
+    /**
+     * Set for how long to send reads of an entity class to the primary after 
+     * the current context has written to it (default 5 seconds).
+     * 
+     * @param duration the window, zero to always read from the replicas
+     * @param unit unit of the duration
+     * @return this (for method-chain)
+     */
+    public ReadWriteSplittingGenericDAO readYourWritesWindow(long duration, TimeUnit unit) {
+        this.windowNanos = unit.toNanos(duration);
+        return this;
+    }
+    
+    /**
+     * Forget the writes of the current context, so its following reads are 
+     * sent to the replicas again.
+     */
+    public void resetContext() {
+        recentWrites.remove();
+    }
+    
+    /**
+     * @return the DAO of the primary datastore
+     */
+    public GenericDAO getPrimary() {
+        return primary;
+    }
+    
+    /**
+     * @return the DAOs of the read replicas
+     */
+    public List<GenericDAO> getReplicas() {
+        return replicas;
+    }
+    
+    /**
+     * Return the DAO to read instances of the given entity class from: the 
+     * primary if there are no replicas or the current context has written to
+     * the class within the window, otherwise the replica chosen by the load 
+     * balancer.
+     * 
+     * @param clazz an entity class
+     * @return the DAO to read from
+     */
+    protected GenericDAO readerFor(Class<? extends Persistable> clazz) {
+        if (replicas.isEmpty() || hasWrittenTo(clazz)) {
+            return primary;
+        }
+        return loadBalancer.choose(replicas, clazz);
+    }
+    
+    /**
+     * @param clazz an entity class
+     * @return <tt>true</tt> if the current context has written to the given 
+     *         class, its subclass or its superclass within the window
+     */
+    protected boolean hasWrittenTo(Class<?> clazz) {
+        Map<Class<?>, Long> writes = recentWrites.get();
+        if (writes.isEmpty()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        boolean written = false;
+        
+        for (Iterator<Map.Entry<Class<?>, Long>> it = writes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Class<?>, Long> entry = it.next();
+            
+            if (entry.getValue() - now <= 0) {
+                it.remove();
+            } else if (clazz.isAssignableFrom(entry.getKey()) || entry.getKey().isAssignableFrom(clazz)) {
+                written = true;
+            }
+        }
+        return written;
+    }
+    
+    /**
+     * Remember that the current context has written to the given entity class.
+     * 
+     * @param clazz an entity class
+     */
+    protected void written(Class<?> clazz) {
+        if (windowNanos > 0) {
+            recentWrites.get().put(clazz, System.nanoTime() + windowNanos);
+        }
+    }
+    
+    private void written(Collection<? extends Persistable> entities) {
+        Class<?> last = null;
+        for (Persistable entity : entities) {
+            if (entity.getClass() != last) {
+                last = entity.getClass();
+                written(last);
+            }
+        }
+    }
+    
+    
+    ///// Write operations /////
+
+    @Override
+    public void delete(Persistable entity) {
+        try {
+            primary.delete(entity);
+        } finally {
+            written(entity.getClass());
+        }
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        try {
+            primary.delete(id, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            primary.deleteAll(entities, batchSize);
+        } finally {
+            written(entities);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        try {
+            return primary.deleteByExample(exampleInstance, includeProperties, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        try {
+            return primary.deleteByProperty(property, value, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        try {
+            return primary.save(entity);
+        } finally {
+            written(entity.getClass());
+        }
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            return primary.saveAll(entities, batchSize);
+        } finally {
+            written(entities);
+        }
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        try {
+            primary.saveOrUpdate(entity);
+        } finally {
+            written(entity.getClass());
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            primary.saveOrUpdateAll(entities, batchSize);
+        } finally {
+            written(entities);
+        }
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        try {
+            primary.update(entity);
+        } finally {
+            written(entity.getClass());
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        try {
+            primary.updateAll(entities, batchSize);
+        } finally {
+            written(entities);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        try {
+            return primary.updateByExample(exampleInstance, includeProperties, values, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        try {
+            return primary.updateByProperty(property, value, values, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        try {
+            primary.updateProperties(entity, properties);
+        } finally {
+            written(entity.getClass());
+        }
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        try {
+            primary.updateProperties(id, values, clazz);
+        } finally {
+            written(clazz);
+        }
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return primary.load(id, clazz);
+    }
+    
+    
+    ///// Read operations /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return readerFor(clazz).count(clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return readerFor(clazz).findByExample(exampleInstance, includeProperties, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        return readerFor(clazz).findByNaturalKey(naturalKey, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByLongId(long id, Class<E> clazz) {
+        return readerFor(clazz).findByLongId(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return readerFor(clazz).findByPrimaryKey(id, clazz);
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        return readerFor(clazz).findByPrimaryKeys(ids, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return readerFor(clazz).findByProperty(property, value, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        return readerFor(clazz).getAll(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return readerFor(clazz).getPaginated(paging, clazz);
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return readerFor(clazz).isPersistent(id, clazz);
+    }
+
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        return readerFor(clazz).isPersistentByLongId(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return readerFor(clazz).scrollAll(chunkSize, clazz);
+    }
+}
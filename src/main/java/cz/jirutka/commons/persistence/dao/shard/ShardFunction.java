@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.shard;
+
+import java.io.Serializable;
+
+/**
+ * Function that assigns a shard to an identifier of persistent instance, see 
+ * {@link ShardedGenericDAO}. It must be deterministic, i.e. always return the
+ * same shard for the same identifier and number of shards.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ */
+@FunctionalInterface
+public interface ShardFunction {
+    
+    /**
+     * Shard function that uses the identifier's hash code modulo number of 
+     * shards. Numeric identifiers are thus distributed round-robin.
+     */
+    ShardFunction MODULO_HASH = (id, shardCount) -> Math.floorMod(id.hashCode(), shardCount);
+    
+    
+    /**
+     * Return index of the shard for the given identifier.
+     * 
+     * @param id an identifier, never <tt>null</tt>
+     * @param shardCount number of shards
+     * @return index of the shard, from 0 to <tt>shardCount - 1</tt>
+     */
+    int shardFor(Serializable id, int shardCount);
+}
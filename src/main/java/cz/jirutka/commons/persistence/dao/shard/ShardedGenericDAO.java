@@ -0,0 +1,688 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.shard;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.async.ExecutorAsyncGenericDAO;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the {@link GenericDAO} that partitions persistent 
+ * instances of every entity class among several underlying DAOs (shards),
+ * i.e. separate databases.
+ * 
+ * <p>Operations on a single instance are routed to the shard selected by the
+ * {@link ShardFunction} from the instance's identifier. Identifiers must be
+ * therefore assigned before the instance is saved (i.e. UUIDs or values from 
+ * a global sequence); generated identifiers are not supported. Batch writes 
+ * and {@link #findByPrimaryKeys(Collection, Class) findByPrimaryKeys()} are 
+ * split into one batch per shard.</p>
+ * 
+ * <p>Queries are sent to all the shards in parallel (scatter) and their 
+ * results are merged (gather). When the query is ordered, each shard is asked 
+ * only for the first <tt>offset + limit</tt> rows, or for <tt>limit</tt> rows
+ * in the keyset mode, and the sorted results are merged using a k-way merge 
+ * driven by the {@linkplain PagingOrdering#getKeysetOrdering() keyset ordering},
+ * i.e. with the identifier as a tie-breaker. Without an ordering the results are 
+ * concatenated in order of the shards. The ordered properties are read from 
+ * the instances using their getters, so the shards must order them the same
+ * way as {@link PropertyAccessors#comparator(List)}.</p>
+ * 
+ * <p>Bulk writes (<tt>deleteByXXX()</tt>, <tt>updateByXXX()</tt>) are sent to
+ * all the shards as well and return the sum of the affected rows.</p>
+ * 
+ * <p>The natural key is not a shard key, so {@link 
+ * #findByNaturalKey(Object, Class) findByNaturalKey()} is sent to all the 
+ * shards too. The underlying DAOs should return <tt>null</tt> when no instance
+ * is found, rather than throw an exception.</p>
+ * 
+ * <p>One of the parallel operations is always executed on the caller's 
+ * thread, the others on an executor. Note that the other threads don't 
+ * participate in the caller's thread-bound transaction (if any) and there's 
+ * no distributed transaction across the shards.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class ShardedGenericDAO implements GenericDAO, AutoCloseable {
+    
+    private final List<GenericDAO> shards;
+    private final ShardFunction shardFunction;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    
+    
+    /**
+     * Create a new instance with the default executor, see {@link 
+     * ExecutorAsyncGenericDAO#createDefaultExecutor()}.
+     * 
+     * @param shards the underlying DAOs, one for each shard
+     * @param shardFunction function that assigns a shard to an identifier
+     */
+    public ShardedGenericDAO(List<? extends GenericDAO> shards, ShardFunction shardFunction) {
+        this(shards, shardFunction, ExecutorAsyncGenericDAO.createDefaultExecutor(), true);
+    }
+    
+    /**
+     * Create a new instance with the given executor. The executor is not 
+     * shut down by {@link #close()}.
+     * 
+     * @param shards the underlying DAOs, one for each shard
+     * @param shardFunction function that assigns a shard to an identifier
+     * @param executor the executor to run parallel operations on
+     */
+    public ShardedGenericDAO(List<? extends GenericDAO> shards, ShardFunction shardFunction, ExecutorService executor) {
+        this(shards, shardFunction, executor, false);
+    }
+    
+    private ShardedGenericDAO(List<? extends GenericDAO> shards, ShardFunction shardFunction, 
+            ExecutorService executor, boolean own) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard must be given");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<GenericDAO>(shards));
+        this.shardFunction = shardFunction;
+        this.executor = executor;
+        this.ownExecutor = own;
+    }
+    
+    
+    /**
+     * Shut down the executor, if it was created by this instance. Already 
+     * submitted operations are completed.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * @return the underlying DAOs, one for each shard
+     */
+    public List<GenericDAO> getShards() {
+        return shards;
+    }
+    
+    /**
+     * Return index of the shard that holds the instance with the given 
+     * identifier.
+     * 
+     * @param id an identifier
+     * @return index of the shard
+     * @throws IllegalArgumentException if the identifier is <tt>null</tt>
+     * @throws IllegalStateException if the shard function returns an index
+     *         out of range
+     */
+    public int shardFor(Serializable id) {
+        if (id == null) {
+            throw new IllegalArgumentException(
+                    "Identifier must be assigned before save, generated identifiers are not supported");
+        }
+        int shard = shardFunction.shardFor(id, shards.size());
+        
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException(String.format(
+                    "Shard function returned %d for id %s, but there are %d shards", shard, id, shards.size()));
+        }
+        return shard;
+    }
+    
+    /**
+     * @param id an identifier
+     * @return the underlying DAO of the shard that holds the instance with 
+     *         the given identifier
+     */
+    protected GenericDAO shardOf(Serializable id) {
+        return shards.get(shardFor(id));
+    }
+    
+    
+    ///// Routed operations /////
+
+    @Override
+    public void delete(Persistable entity) {
+        shardOf(entity.getId()).delete(entity);
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        shardOf(id).delete(id, clazz);
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        forEachShard(entities, (dao, group) -> {
+            dao.deleteAll(group, batchSize);
+            return null;
+        });
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        return shardOf(id).findByPrimaryKey(id, clazz);
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        
+        List<ID> list = new ArrayList<ID>(ids);
+        int[] shardIndexes = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            shardIndexes[i] = shardFor(list.get(i));
+        }
+        List<Map<ID, E>> found = forEachShard(list, shardIndexes, 
+                (dao, group) -> dao.findByPrimaryKeys(group, clazz));
+        
+        Map<ID, E> result = new LinkedHashMap<ID, E>(list.size() * 4 / 3 + 1);
+        for (int i = 0; i < list.size(); i++) {
+            E entity = found.get(shardIndexes[i]).get(list.get(i));
+            if (entity != null) {
+                result.put(list.get(i), entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        return shardOf(id).isPersistent(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E load(Serializable id, Class<E> clazz) {
+        return shardOf(id).load(id, clazz);
+    }
+
+    @Override
+    public Serializable save(Persistable entity) {
+        return shardOf(entity.getId()).save(entity);
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        List<Persistable> list = new ArrayList<Persistable>(entities);
+        int[] shardIndexes = shardIndexesOf(list);
+        List<List<Serializable>> saved = forEachShard(list, shardIndexes, 
+                (dao, group) -> dao.saveAll(group, batchSize));
+        
+        List<Iterator<Serializable>> iterators = new ArrayList<Iterator<Serializable>>(shards.size());
+        for (List<Serializable> ids : saved) {
+            iterators.add(ids != null ? ids.iterator() : null);
+        }
+        List<Serializable> result = new ArrayList<Serializable>(list.size());
+        for (int shardIndex : shardIndexes) {
+            result.add(iterators.get(shardIndex).next());
+        }
+        return result;
+    }
+
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        shardOf(entity.getId()).saveOrUpdate(entity);
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        forEachShard(entities, (dao, group) -> {
+            dao.saveOrUpdateAll(group, batchSize);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Persistable entity) {
+        shardOf(entity.getId()).update(entity);
+    }
+
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        shardOf(entity.getId()).updateProperties(entity, properties);
+    }
+
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        shardOf(id).updateProperties(id, values, clazz);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        forEachShard(entities, (dao, group) -> {
+            dao.updateAll(group, batchSize);
+            return null;
+        });
+    }
+    
+    
+    ///// Scatter-gather operations /////
+
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        return sum(scatter(dao -> dao.deleteByExample(exampleInstance, includeProperties, clazz)));
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        return sum(scatter(dao -> dao.deleteByProperty(property, value, clazz)));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        return sum(scatter(dao -> dao.updateByExample(exampleInstance, includeProperties, values, clazz)));
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        return sum(scatter(dao -> dao.updateByProperty(property, value, values, clazz)));
+    }
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        long total = 0;
+        for (Long count : scatter(dao -> dao.count(clazz))) {
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return gather(paging, clazz, 
+                (dao, shardPaging) -> dao.findByExample(exampleInstance, includeProperties, shardPaging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        for (E entity : scatter(dao -> dao.findByNaturalKey(naturalKey, clazz))) {
+            if (entity != null) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return gather(paging, clazz, 
+                (dao, shardPaging) -> dao.findByProperty(property, value, shardPaging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable> 
+            List<E> getAll(Class<E> clazz) {
+        List<List<E>> results = scatter(dao -> dao.getAll(clazz));
+        
+        int size = 0;
+        for (List<E> result : results) {
+            size += result.size();
+        }
+        List<E> all = new ArrayList<E>(size);
+        for (List<E> result : results) {
+            all.addAll(result);
+        }
+        return all;
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return gather(paging, clazz, (dao, shardPaging) -> dao.getPaginated(shardPaging, clazz));
+    }
+
+    /**
+     * Return a cursor that iterates over the shards one after another, using 
+     * cursors of the underlying DAOs. The instances are not ordered.
+     */
+    @Override
+    public <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return new ConcatenatingCursor<E>(shards, dao -> dao.scrollAll(chunkSize, clazz));
+    }
+    
+    
+    ///// Scatter-gather /////
+    
+    /**
+     * Execute the given query on all the shards in parallel and merge their 
+     * results according to the given paging.
+     * 
+     * @param paging the paging & ordering of the merged result, or 
+     *        <tt>null</tt>
+     * @param clazz an entity class
+     * @param query function that executes the query on the given shard with
+     *        the given paging
+     * @return the merged page
+     */
+    protected <E extends Persistable> List<E> gather(PagingOrdering paging, Class<E> clazz, 
+            BiFunction<GenericDAO, PagingOrdering, List<E>> query) {
+        
+        if (paging == null) {
+            paging = PagingOrdering.NONE;
+        }
+        if (shards.size() == 1) {
+            return query.apply(shards.get(0), paging);
+        }
+        boolean keyset = paging.isKeyset();
+        int offset = keyset ? 0 : Math.max(paging.getOffset(), 0);
+        int limit = paging.getLimit();
+        
+        // ties are broken by the identifier, so the first page is consistent 
+        // with the keyset pages; the shards must be sorted in the same way
+        boolean ordered = keyset || paging.hasOrdering();
+        List<OrderBy> ordering = ordered ? paging.getKeysetOrdering() : paging.getOrdering();
+        
+        PagingOrdering shardPaging = new PagingOrdering(
+                limit < 0 ? -1 : (int) Math.min((long) offset + limit, Integer.MAX_VALUE), 0, ordering);
+        shardPaging.setIdProperty(paging.getIdProperty());
+        if (keyset) {
+            shardPaging.setAfterValues(paging.getAfterValues());
+        }
+        List<List<E>> results = scatter(dao -> query.apply(dao, shardPaging));
+        
+        Comparator<E> comparator = ordered
+                ? PropertyAccessors.forClass(clazz).comparator(ordering)
+                : null;
+        return merge(results, comparator, offset, limit);
+    }
+    
+    /**
+     * Merge the given sorted lists using a k-way merge, skip the first 
+     * <tt>offset</tt> elements and return at most <tt>limit</tt> elements. 
+     * Equal elements are taken in order of the lists. Only the returned and
+     * skipped elements are compared.
+     * 
+     * @param sources the sorted lists
+     * @param comparator comparator the lists are sorted by, or <tt>null</tt> 
+     *        to concatenate the lists
+     * @param offset number of elements to skip
+     * @param limit maximum number of elements, negative for no limit
+     * @return the merged list
+     */
+    static <E> List<E> merge(List<List<E>> sources, Comparator<? super E> comparator, int offset, int limit) {
+        int total = 0;
+        for (List<E> source : sources) {
+            total += source.size();
+        }
+        int size = Math.max(total - offset, 0);
+        if (limit >= 0) {
+            size = Math.min(size, limit);
+        }
+        List<E> result = new ArrayList<E>(size);
+        if (size == 0) {
+            return result;
+        }
+        if (comparator == null) {
+            int skip = offset;
+            for (List<E> source : sources) {
+                if (skip >= source.size()) {
+                    skip -= source.size();
+                    continue;
+                }
+                result.addAll(source.subList(skip, Math.min(source.size(), skip + size - result.size())));
+                skip = 0;
+                if (result.size() == size) {
+                    break;
+                }
+            }
+            return result;
+        }
+        PriorityQueue<MergeHead<E>> heads = new PriorityQueue<MergeHead<E>>(sources.size(), (a, b) -> {
+            int cmp = comparator.compare(a.value, b.value);
+            return cmp != 0 ? cmp : Integer.compare(a.source, b.source);
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            Iterator<E> iterator = sources.get(i).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new MergeHead<E>(i, iterator));
+            }
+        }
+        for (int skipped = 0; result.size() < size; ) {
+            MergeHead<E> head = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(head.value);
+            }
+            if (head.rest.hasNext()) {
+                head.value = head.rest.next();
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Execute the given operation on all the shards in parallel.
+     * 
+     * @param operation the operation to execute on the given shard
+     * @return results of the operation, in order of the shards
+     */
+    protected <T> List<T> scatter(Function<GenericDAO, T> operation) {
+        List<Supplier<T>> tasks = new ArrayList<Supplier<T>>(shards.size());
+        for (GenericDAO dao : shards) {
+            tasks.add(() -> operation.apply(dao));
+        }
+        return parallel(tasks);
+    }
+    
+    private static int sum(List<Integer> counts) {
+        int total = 0;
+        for (Integer count : counts) {
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+    
+    private void forEachShard(Collection<? extends Persistable> entities, 
+            BiFunction<GenericDAO, List<Persistable>, ?> operation) {
+        List<Persistable> list = new ArrayList<Persistable>(entities);
+        forEachShard(list, shardIndexesOf(list), operation);
+    }
+    
+    /**
+     * Split the given items into groups by the given shard indexes and execute
+     * the given operation for each non-empty group on its shard in parallel.
+     * 
+     * @return results of the operation, in order of the shards; <tt>null</tt> 
+     *         for the shards without items
+     */
+    private <T, R> List<R> forEachShard(List<T> items, int[] shardIndexes, BiFunction<GenericDAO, List<T>, R> operation) {
+        List<List<T>> groups = new ArrayList<List<T>>(Collections.<List<T>>nCopies(shards.size(), null));
+        for (int i = 0; i < items.size(); i++) {
+            List<T> group = groups.get(shardIndexes[i]);
+            if (group == null) {
+                groups.set(shardIndexes[i], group = new ArrayList<T>());
+            }
+            group.add(items.get(i));
+        }
+        List<Integer> used = new ArrayList<Integer>(shards.size());
+        List<Supplier<R>> tasks = new ArrayList<Supplier<R>>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            if (groups.get(i) != null) {
+                GenericDAO dao = shards.get(i);
+                List<T> group = groups.get(i);
+                used.add(i);
+                tasks.add(() -> operation.apply(dao, group));
+            }
+        }
+        List<R> results = parallel(tasks);
+        
+        List<R> byShard = new ArrayList<R>(Collections.<R>nCopies(shards.size(), null));
+        for (int i = 0; i < used.size(); i++) {
+            byShard.set(used.get(i), results.get(i));
+        }
+        return byShard;
+    }
+    
+    private int[] shardIndexesOf(List<? extends Persistable> entities) {
+        int[] shardIndexes = new int[entities.size()];
+        for (int i = 0; i < shardIndexes.length; i++) {
+            shardIndexes[i] = shardFor(entities.get(i).getId());
+        }
+        return shardIndexes;
+    }
+    
+    /**
+     * Execute the first task on the caller's thread and the others on the 
+     * executor, and wait for all of them.
+     */
+    private <T> List<T> parallel(List<Supplier<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        if (tasks.size() == 1) {
+            results.add(tasks.get(0).get());
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(tasks.size() - 1);
+        for (int i = 1; i < tasks.size(); i++) {
+            futures.add(CompletableFuture.supplyAsync(tasks.get(i), executor));
+        }
+        T first;
+        try {
+            first = tasks.get(0).get();
+        } catch (RuntimeException | Error ex) {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                    .handle((result, failure) -> null)
+                    .join();
+            throw ex;
+        }
+        results.add(first);
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+    
+    
+    ///// Inner classes /////
+    
+    private static final class MergeHead<E> {
+        
+        final int source;
+        final Iterator<E> rest;
+        E value;
+        
+        MergeHead(int source, Iterator<E> iterator) {
+            this.source = source;
+            this.rest = iterator;
+            this.value = iterator.next();
+        }
+    }
+    
+    /**
+     * Cursor that iterates over cursors of the shards one after another. 
+     * The next shard's cursor is opened when the previous one is exhausted.
+     */
+    private static final class ConcatenatingCursor<E> implements EntityCursor<E> {
+        
+        private final Iterator<GenericDAO> shards;
+        private final Function<GenericDAO, EntityCursor<E>> opener;
+        private EntityCursor<E> current;
+        private boolean closed = false;
+        
+        ConcatenatingCursor(List<GenericDAO> shards, Function<GenericDAO, EntityCursor<E>> opener) {
+            this.shards = shards.iterator();
+            this.opener = opener;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!closed && (current == null || !current.hasNext())) {
+                if (current != null) {
+                    current.close();
+                    current = null;
+                }
+                if (!shards.hasNext()) {
+                    return false;
+                }
+                current = opener.apply(shards.next());
+            }
+            return !closed;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
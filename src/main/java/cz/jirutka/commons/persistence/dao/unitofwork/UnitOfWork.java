@@ -0,0 +1,822 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.unitofwork;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.property.PropertyAccessors;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unit of work over the {@link GenericDAO} that tracks the instances read and
+ * written within one scope (i.e. one request) and writes the changes at once
+ * when {@linkplain #commit() committed}.
+ *
+ * <pre>
+ * try (UnitOfWork uow = new UnitOfWork(genericDAO)) {
+ *     User user = uow.findByPrimaryKey(42L, User.class);
+ *     user.setLastLogin(now);
+ *     uow.update(user);       // nothing is written yet
+ *     uow.commit();           // writes only the changed users
+ * }
+ * </pre>
+ *
+ * <h3>Identity map</h3>
+ *
+ * <p>Every instance read through the unit of work is registered in its
+ * identity map under its entity class and identifier. Repeated lookups by the
+ * primary key ({@link #findByPrimaryKey(Serializable, Class)
+ * findByPrimaryKey()}, {@link #load(Serializable, Class) load()} etc.) return
+ * the same instance without calling the underlying DAO. Queries are always
+ * sent to the underlying DAO, but the instances that are already registered
+ * are replaced with the registered ones, and instances deleted within the
+ * unit of work are left out. Queries don't see new and changed instances
+ * until committed. {@link #scrollAll(int, Class) scrollAll()} is intended for
+ * bulk processing, so its instances are not registered.</p>
+ *
+ * <h3>Dirty tracking</h3>
+ *
+ * <p>When an instance is registered, values of its {@linkplain
+ * PropertyAccessors#getReadWriteProperties() properties} are copied into
+ * a snapshot. On commit, the instances are compared with their snapshots and
+ * only the changed (dirty) ones are updated, no matter how many times
+ * {@link #update(Persistable) update()} was called. They're written as 
+ * a whole in one <tt>updateAll()</tt> batch, which is cheaper than a partial
+ * update of each instance. Values are compared using
+ * <tt>equals()</tt>, so mutable values (collections, dates) must be replaced,
+ * not modified in place, to be detected. A detached instance passed to
+ * <tt>update()</tt> that was not read in this unit of work has no snapshot,
+ * so it's always updated as a whole.</p>
+ *
+ * <p>{@link #updateProperties(Serializable, Map, Class) updateProperties()}
+ * of an instance that is not registered doesn't load it, the values are kept
+ * and written on commit. If the instance is read later in this unit of work,
+ * the values are set to the loaded instance.</p>
+ *
+ * <h3>Commit</h3>
+ *
+ * <p>{@link #commit()} writes the changes in one ordered batch: inserts
+ * (<tt>saveAll()</tt>), then updates (<tt>updateAll()</tt>, 
+ * <tt>updateProperties()</tt> of the unloaded instances and 
+ * <tt>saveOrUpdateAll()</tt>) and deletes (<tt>deleteAll()</tt>), each in the
+ * order the instances were registered. The unit of work doesn't provide
+ * atomicity by itself, the commit should run in a transaction of the
+ * underlying DAO. Instances without an identifier are saved immediately,
+ * because <tt>save()</tt> must return the generated identifier.</p>
+ *
+ * <p>Bulk writes (<tt>deleteByXXX()</tt>, <tt>updateByXXX()</tt>) are
+ * executed immediately as well, because they return the number of affected
+ * instances. Unchanged registered instances of the entity class are evicted
+ * afterwards, so they're reloaded on the next read; the pending changes are
+ * still written on commit.</p>
+ *
+ * <p>This class is not thread-safe, it's intended to be used by one thread
+ * for the duration of one request or task.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class UnitOfWork implements GenericDAO, AutoCloseable {
+
+    private final GenericDAO genericDAO;
+    private final Map<Key, Managed> identityMap = new LinkedHashMap<Key, Managed>();
+    private final Set<Class<?>> classes = new HashSet<Class<?>>();
+    private int batchSize = 50;
+
+
+    /**
+     * @param genericDAO the underlying generic DAO
+     */
+    public UnitOfWork(GenericDAO genericDAO) {
+        this.genericDAO = genericDAO;
+    }
+
+
+    /**
+     * Set the batch size used for the underlying DAO on commit (default 50).
+     *
+     * @param batchSize the batch size
+     * @return this (for method-chain)
+     */
+    public UnitOfWork batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Write all new, changed and deleted instances to the underlying DAO.
+     * After a successful commit, the snapshots are taken again, so the unit
+     * of work may be used further. If the commit fails, the tracked changes
+     * are kept.
+     */
+    public void commit() {
+        List<Persistable> inserts = new ArrayList<Persistable>();
+        List<Persistable> updates = new ArrayList<Persistable>();
+        Map<Key, Map<String, Object>> patches = new LinkedHashMap<Key, Map<String, Object>>();
+        List<Persistable> upserts = new ArrayList<Persistable>();
+        List<Persistable> deletes = new ArrayList<Persistable>();
+        List<Key> deleteKeys = new ArrayList<Key>();
+
+        for (Map.Entry<Key, Managed> entry : identityMap.entrySet()) {
+            Managed managed = entry.getValue();
+            switch (managed.state) {
+                case NEW:
+                    inserts.add(managed.entity);
+                    break;
+                case MANAGED:
+                    if (managed.snapshot == null || !dirtyProperties(managed).isEmpty()) {
+                        updates.add(managed.entity);
+                    }
+                    break;
+                case PATCH:
+                    patches.put(entry.getKey(), managed.values);
+                    break;
+                case UPSERT:
+                    upserts.add(managed.entity);
+                    break;
+                case REMOVED:
+                    if (managed.entity != null) {
+                        deletes.add(managed.entity);
+                    } else {
+                        deleteKeys.add(entry.getKey());
+                    }
+            }
+        }
+        if (!inserts.isEmpty()) {
+            genericDAO.saveAll(inserts, batchSize);
+        }
+        if (!updates.isEmpty()) {
+            genericDAO.updateAll(updates, batchSize);
+        }
+        for (Map.Entry<Key, Map<String, Object>> entry : patches.entrySet()) {
+            Key key = entry.getKey();
+            genericDAO.updateProperties(key.id, entry.getValue(), (Class<? extends Persistable>) key.clazz);
+        }
+        if (!upserts.isEmpty()) {
+            genericDAO.saveOrUpdateAll(upserts, batchSize);
+        }
+        if (!deletes.isEmpty()) {
+            genericDAO.deleteAll(deletes, batchSize);
+        }
+        for (Key key : deleteKeys) {
+            genericDAO.delete(key.id, (Class<? extends Persistable>) key.clazz);
+        }
+        for (Iterator<Managed> it = identityMap.values().iterator(); it.hasNext(); ) {
+            Managed managed = it.next();
+            if (managed.state == State.REMOVED || managed.state == State.PATCH) {
+                it.remove();
+            } else {
+                managed.state = State.MANAGED;
+                managed.snapshot = snapshot(managed.entity);
+            }
+        }
+    }
+
+    /**
+     * Forget all registered instances and discard the uncommitted changes.
+     */
+    public void clear() {
+        identityMap.clear();
+        classes.clear();
+    }
+
+    /**
+     * Discard the uncommitted changes, see {@link #clear()}.
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    /**
+     * Return names of the properties of the given registered instance that
+     * have changed since it was registered or committed.
+     *
+     * @param entity the instance
+     * @return names of the changed properties; all properties if the instance
+     *         has no snapshot, or an empty list if it's not registered, or
+     *         it's new or deleted
+     */
+    public List<String> getDirtyProperties(Persistable entity) {
+        Managed managed = entity.getId() != null ? identityMap.get(keyOf(entity)) : null;
+        if (managed == null || managed.entity != entity || managed.state != State.MANAGED) {
+            return Collections.emptyList();
+        }
+        return dirtyProperties(managed);
+    }
+
+    /**
+     * @param entity an instance
+     * @return <tt>true</tt> if the instance is registered in this unit of work
+     */
+    public boolean contains(Persistable entity) {
+        Managed managed = entity.getId() != null ? identityMap.get(keyOf(entity)) : null;
+        return managed != null && managed.entity == entity && managed.state != State.REMOVED;
+    }
+
+    /**
+     * @return the underlying generic DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+
+
+    ///// Tracked writes /////
+
+    /**
+     * Register the instance to be deleted on commit. A new instance is just
+     * forgotten.
+     */
+    @Override
+    public void delete(Persistable entity) {
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+
+        if (managed != null && managed.state == State.NEW) {
+            identityMap.remove(key);
+        } else {
+            register(key, new Managed(entity, State.REMOVED, null));
+        }
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        Key key = registeredKey(id, clazz);
+        Managed managed = identityMap.get(key);
+
+        if (managed == null) {
+            register(key, new Managed(null, State.REMOVED, null));
+        } else if (managed.state == State.NEW) {
+            identityMap.remove(key);
+        } else {
+            managed.state = State.REMOVED;
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            delete(entity);
+        }
+    }
+
+    /**
+     * Register the instance to be inserted on commit, or save it immediately
+     * if it doesn't have an identifier yet.
+     */
+    @Override
+    public Serializable save(Persistable entity) {
+        if (entity.getId() == null) {
+            Serializable id = genericDAO.save(entity);
+            register(new Key(entity.getClass(), id), new Managed(entity, State.MANAGED, snapshot(entity)));
+            return id;
+        }
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+
+        if (managed != null && (managed.state == State.REMOVED || managed.state == State.PATCH)) {
+            register(key, new Managed(entity, State.UPSERT, null));
+        } else if (managed == null || managed.state == State.NEW) {
+            register(key, new Managed(entity, State.NEW, null));
+        } else {
+            managed.entity = entity;  // keeps the snapshot of the registered instance
+        }
+        return entity.getId();
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        List<Serializable> ids = new ArrayList<Serializable>(entities.size());
+        for (Persistable entity : entities) {
+            ids.add(save(entity));
+        }
+        return ids;
+    }
+
+    /**
+     * Register the instance to be saved or updated on commit, or save it
+     * immediately if it doesn't have an identifier yet. A registered instance
+     * is updated only if it's dirty.
+     */
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        if (entity.getId() == null) {
+            save(entity);
+            return;
+        }
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+
+        if (managed == null || managed.state == State.REMOVED || managed.state == State.UPSERT
+                || managed.state == State.PATCH) {
+            register(key, new Managed(entity, State.UPSERT, null));
+        } else if (managed.state == State.NEW) {
+            managed.entity = entity;
+        } else {
+            managed.entity = entity;  // keeps the snapshot of the registered instance
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            saveOrUpdate(entity);
+        }
+    }
+
+    /**
+     * Register the instance to be updated on commit, if it's dirty. Calling
+     * this for an instance read in this unit of work is not necessary.
+     *
+     * @throws IllegalStateException if the instance was deleted in this unit
+     *         of work
+     */
+    @Override
+    public void update(Persistable entity) {
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+
+        if (managed == null || managed.state == State.PATCH) {
+            register(key, new Managed(entity, State.MANAGED, null));
+        } else if (managed.state == State.REMOVED) {
+            throw new IllegalStateException("Instance " + key + " was deleted in this unit of work");
+        } else if (managed.state == State.MANAGED) {
+            managed.entity = entity;  // keeps the snapshot of the registered instance
+        } else {
+            managed.entity = entity;
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            update(entity);
+        }
+    }
+
+    /**
+     * Register the properties of the instance to be updated on commit. For
+     * a registered instance it's the same as {@link #update(Persistable)
+     * update()}, the changed properties are found by the dirty tracking.
+     *
+     * @throws IllegalStateException if the instance was deleted in this unit
+     *         of work
+     */
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+
+        if (managed != null && managed.state != State.PATCH) {
+            update(entity);
+            return;
+        }
+        PropertyAccessors<Persistable> accessors = accessorsOf(entity);
+        Map<String, Object> values = new LinkedHashMap<String, Object>(properties.length * 4 / 3 + 1);
+
+        for (String property : properties) {
+            values.put(property, accessors.getter(property).get(entity));
+        }
+        patch(key, managed, values);
+    }
+
+    /**
+     * Register the properties to be updated on commit, without loading the
+     * instance. If the instance is registered, the values are set to it.
+     *
+     * @throws IllegalStateException if the instance was deleted in this unit
+     *         of work
+     */
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        Key key = registeredKey(id, clazz);
+        Managed managed = identityMap.get(key);
+
+        if (managed == null || managed.state == State.PATCH) {
+            patch(key, managed, values);
+        } else if (managed.state == State.REMOVED) {
+            throw new IllegalStateException("Instance " + key + " was deleted in this unit of work");
+        } else {
+            setValues(managed.entity, values);
+        }
+    }
+
+
+    ///// Reads through the identity map /////
+
+    @Override
+    public <E extends Persistable>
+            E findByLongId(long id, Class<E> clazz) {
+        Managed managed = lookup(id, clazz);
+        if (managed != null) {
+            return visible(managed, clazz);
+        }
+        return manage(genericDAO.findByLongId(id, clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        Managed managed = lookup(id, clazz);
+        if (managed != null) {
+            return visible(managed, clazz);
+        }
+        return manage(genericDAO.findByPrimaryKey(id, clazz));
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        Map<ID, Managed> registered = new HashMap<ID, Managed>();
+        List<ID> missing = new ArrayList<ID>(ids.size());
+
+        for (ID id : ids) {
+            Managed managed = lookup(id, clazz);
+            if (managed != null) {
+                registered.put(id, managed);
+            } else {
+                missing.add(id);
+            }
+        }
+        Map<ID, E> loaded = missing.isEmpty()
+                ? Collections.<ID, E>emptyMap()
+                : genericDAO.findByPrimaryKeys(missing, clazz);
+        Map<ID, E> result = new LinkedHashMap<ID, E>(ids.size() * 4 / 3 + 1);
+
+        for (ID id : ids) {
+            Managed managed = registered.get(id);
+            E entity = managed != null ? visible(managed, clazz) : manage(loaded.get(id));
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        Managed managed = lookup(id, clazz);
+        if (managed != null) {
+            return managed.state != State.REMOVED && managed.state != State.PATCH;
+        }
+        return genericDAO.isPersistent(id, clazz);
+    }
+
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        Managed managed = lookup(id, clazz);
+        if (managed != null) {
+            return managed.state != State.REMOVED && managed.state != State.PATCH;
+        }
+        return genericDAO.isPersistentByLongId(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            E load(Serializable id, Class<E> clazz) {
+        Managed managed = lookup(id, clazz);
+        if (managed != null && managed.state != State.REMOVED && managed.state != State.PATCH) {
+            return clazz.cast(managed.entity);
+        }
+        return manage(genericDAO.load(id, clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        return manage(genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        return manage(genericDAO.findByNaturalKey(naturalKey, clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        return manage(genericDAO.findByProperty(property, value, paging, clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getAll(Class<E> clazz) {
+        return manage(genericDAO.getAll(clazz));
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        return manage(genericDAO.getPaginated(paging, clazz));
+    }
+
+
+    ///// Bulk writes /////
+
+    @Override
+    public <E extends Persistable>
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        try {
+            return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+        } finally {
+            evictUnchanged(clazz);
+        }
+    }
+
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.deleteByProperty(property, value, clazz);
+        } finally {
+            evictUnchanged(clazz);
+        }
+    }
+
+    @Override
+    public <E extends Persistable>
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        try {
+            return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+        } finally {
+            evictUnchanged(clazz);
+        }
+    }
+
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values,
+            Class<? extends Persistable> clazz) {
+        try {
+            return genericDAO.updateByProperty(property, value, values, clazz);
+        } finally {
+            evictUnchanged(clazz);
+        }
+    }
+
+
+    ///// Delegate to genericDAO /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        return genericDAO.count(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        return genericDAO.scrollAll(chunkSize, clazz);
+    }
+
+
+    ///// Internals /////
+
+    /**
+     * Register the loaded instance, or return the already registered one.
+     */
+    private <E extends Persistable> E manage(E entity) {
+        if (entity == null) {
+            return null;
+        }
+        Key key = keyOf(entity);
+        Managed managed = identityMap.get(key);
+        if (managed != null && managed.state == State.PATCH) {
+            applyPatch(managed, entity);
+            return entity;
+        }
+        if (managed != null) {
+            return visible(managed, (Class<E>) entity.getClass());
+        }
+        register(key, new Managed(entity, State.MANAGED, snapshot(entity)));
+        return entity;
+    }
+
+    private <E extends Persistable> List<E> manage(List<E> entities) {
+        List<E> result = new ArrayList<E>(entities.size());
+        for (E entity : entities) {
+            E managed = manage(entity);
+            if (managed != null) {
+                result.add(managed);
+            }
+        }
+        return result;
+    }
+
+    private void register(Key key, Managed managed) {
+        identityMap.put(key, managed);
+        classes.add(key.clazz);
+    }
+
+    /**
+     * Register the values to be written on commit, merged with the values
+     * already registered for the instance.
+     */
+    private void patch(Key key, Managed managed, Map<String, Object> values) {
+        if (managed == null) {
+            managed = new Managed(null, State.PATCH, null);
+            managed.values = new LinkedHashMap<String, Object>();
+            register(key, managed);
+        }
+        managed.values.putAll(values);
+    }
+
+    /**
+     * Make the loaded instance registered, with the registered values set.
+     * The snapshot is taken before, so the values are detected as changed.
+     */
+    private void applyPatch(Managed managed, Persistable loaded) {
+        managed.entity = loaded;
+        managed.snapshot = snapshot(loaded);
+        managed.state = State.MANAGED;
+        setValues(loaded, managed.values);
+        managed.values = null;
+    }
+
+    private <E extends Persistable> E visible(Managed managed, Class<E> clazz) {
+        return managed.state == State.REMOVED || managed.state == State.PATCH ? null : clazz.cast(managed.entity);
+    }
+
+    /**
+     * Return the registered instance, or <tt>null</tt> if it's not
+     * registered. If only its properties are registered, it's loaded first;
+     * if there's no such instance, it's still returned in the <tt>PATCH</tt>
+     * state.
+     */
+    private Managed lookup(Serializable id, Class<?> clazz) {
+        if (identityMap.isEmpty()) {
+            return null;
+        }
+        Key key = registeredKey(id, clazz);
+        Managed managed = identityMap.get(key);
+
+        if (managed != null && managed.state == State.PATCH) {
+            Persistable loaded = genericDAO.findByPrimaryKey(key.id, (Class<? extends Persistable>) key.clazz);
+            if (loaded != null) {
+                applyPatch(managed, loaded);
+            }
+        }
+        return managed;
+    }
+
+    /**
+     * Return the key of the registered instance with the given identifier of
+     * the given class or its subclass. If there's no such instance, return
+     * the key for the given class.
+     */
+    private Key registeredKey(Serializable id, Class<?> clazz) {
+        Key key = new Key(clazz, id);
+        if (identityMap.containsKey(key)) {
+            return key;
+        }
+        for (Class<?> registered : classes) {
+            if (registered != clazz && clazz.isAssignableFrom(registered)) {
+                Key subKey = new Key(registered, id);
+                if (identityMap.containsKey(subKey)) {
+                    return subKey;
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Remove the registered instances of the given class, its subclasses and
+     * superclasses that have no pending changes, so they're reloaded.
+     */
+    private void evictUnchanged(Class<?> clazz) {
+        for (Iterator<Managed> it = identityMap.values().iterator(); it.hasNext(); ) {
+            Managed managed = it.next();
+            if (managed.state == State.MANAGED && managed.snapshot != null
+                    && isRelated(managed.entity.getClass(), clazz) && dirtyProperties(managed).isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private Key keyOf(Persistable entity) {
+        if (entity.getId() == null) {
+            throw new IllegalArgumentException("Instance of " + entity.getClass().getName() + " has no identifier");
+        }
+        return new Key(entity.getClass(), entity.getId());
+    }
+
+    private static Object[] snapshot(Persistable entity) {
+        PropertyAccessors<Persistable> accessors = accessorsOf(entity);
+        List<String> properties = accessors.getReadWriteProperties();
+        Object[] values = new Object[properties.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessors.getter(properties.get(i)).get(entity);
+        }
+        return values;
+    }
+
+    private static List<String> dirtyProperties(Managed managed) {
+        PropertyAccessors<Persistable> accessors = accessorsOf(managed.entity);
+        List<String> properties = accessors.getReadWriteProperties();
+        if (managed.snapshot == null) {
+            return properties;
+        }
+        List<String> dirty = new ArrayList<String>();
+
+        for (int i = 0; i < managed.snapshot.length; i++) {
+            if (!Objects.equals(managed.snapshot[i], accessors.getter(properties.get(i)).get(managed.entity))) {
+                dirty.add(properties.get(i));
+            }
+        }
+        return dirty;
+    }
+
+    private static void setValues(Persistable entity, Map<String, Object> values) {
+        PropertyAccessors<Persistable> accessors = accessorsOf(entity);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            accessors.write(entity, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static boolean isRelated(Class<?> a, Class<?> b) {
+        return a.isAssignableFrom(b) || b.isAssignableFrom(a);
+    }
+
+    private static PropertyAccessors<Persistable> accessorsOf(Persistable entity) {
+        return (PropertyAccessors<Persistable>) PropertyAccessors.forClass(entity.getClass());
+    }
+
+
+    private enum State { NEW, MANAGED, UPSERT, PATCH, REMOVED }
+
+    /** Registered instance with its snapshot. */
+    private static final class Managed {
+        Persistable entity;
+        State state;
+        Object[] snapshot;
+        /** Values of the properties to write, in the <tt>PATCH</tt> state. */
+        Map<String, Object> values;
+
+        Managed(Persistable entity, State state, Object[] snapshot) {
+            this.entity = entity;
+            this.state = state;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static final class Key {
+        final Class<?> clazz;
+        final Serializable id;
+
+        Key(Class<?> clazz, Serializable id) {
+            this.clazz = clazz;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return clazz == other.clazz && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clazz.hashCode() + id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return clazz.getSimpleName() + "#" + id;
+        }
+    }
+}
@@ -0,0 +1,954 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.writebehind;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator of the {@link GenericDAO} that queues writes and sends them to
+ * the underlying DAO later, in batches.
+ *
+ * <p>The {@link #save(Persistable) save()}, {@link #update(Persistable)
+ * update()}, {@link #saveOrUpdate(Persistable) saveOrUpdate()} and
+ * <tt>delete()</tt> (and their batch variants) return immediately after the
+ * write is queued. Repeated writes of the same instance (the same entity
+ * class and identifier) are merged into one, so only the last state is
+ * written. The queue is flushed by a background thread when it reaches the
+ * batch size, or every flush interval, whichever comes first. The writes of
+ * each entity class are sent together using the batch operations of the
+ * underlying DAO: deletes first, then saves, updates and saveOrUpdates.</p>
+ *
+ * <p>Instances without an identifier can't be queued, because the
+ * identifier is generated by the datastore and returned by <tt>save()</tt>.
+ * They are written through to the underlying DAO immediately. Partial updates
+ * ({@link #updateProperties(Serializable, Map, Class) updateProperties()})
+ * are not queued either; the pending writes of the instance are flushed
+ * first, then the update is sent right away. Likewise bulk operations 
+ * (<tt>deleteByXXX()</tt>, <tt>updateByXXX()</tt>) flush the pending writes
+ * of the class, its subclass or superclass first.</p>
+ *
+ * <h3>Bounded memory</h3>
+ *
+ * <p>The queue holds at most <tt>maxPending</tt> instances, including the
+ * ones that are being flushed. When it's full, writes of new instances block
+ * until a flush frees up the space, so producers are slowed down to the
+ * throughput of the datastore. Writes merged into a pending write never
+ * block.</p>
+ *
+ * <h3>Reads</h3>
+ *
+ * <p>Lookups by the primary key ({@link #findByPrimaryKey(Serializable,
+ * Class) findByPrimaryKey()}, {@link #findByPrimaryKeys(Collection, Class)
+ * findByPrimaryKeys()}, {@link #load(Serializable, Class) load()},
+ * {@link #isPersistent(Serializable, Class) isPersistent()}) see the pending
+ * writes: they return the queued instance, or nothing if it's queued for
+ * deletion. Queries ({@link #count(Class) count()}, <tt>findByXXX()</tt>,
+ * <tt>getXXX()</tt>, {@link #scrollAll(int, Class) scrollAll()}) flush the
+ * queue first, if it contains writes of the queried class, its subclass or
+ * superclass.</p>
+ *
+ * <h3>Failures</h3>
+ *
+ * <p>When a batch fails, its writes are dropped and the exception is logged;
+ * {@link #flush()} called explicitly also rethrows it. When a flush on the 
+ * background thread fails, the exception is recorded and thrown (wrapped in
+ * <tt>IllegalStateException</tt>) by the next write, {@link #flush()} or 
+ * {@link #close()}, so the failure is not lost silently. The write that
+ * throws it is not performed; <tt>flush()</tt> and <tt>close()</tt> still 
+ * flush the pending writes first. The failed writes are counted in the 
+ * {@linkplain #getStats() statistics}.</p>
+ *
+ * <p>The DAO must be {@linkplain #close() closed} to flush the remaining
+ * writes and stop the background flushing.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class WriteBehindGenericDAO implements GenericDAO, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindGenericDAO.class);
+
+    private final GenericDAO genericDAO;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService executor;
+    private final ScheduledExecutorService ownExecutor;
+    private final ScheduledFuture<?> scheduledFlush;
+
+    /** Guards the queue, see {@link #pending}. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    /** Serializes flushes, so the writes of one instance keep their order. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /** Writes waiting for the next flush, in order of arrival. */
+    private final Map<Key, Write> pending = new LinkedHashMap<Key, Write>();
+    /** Writes of the running flush, until they're written. */
+    private final Map<Key, Write> inFlight = new HashMap<Key, Write>();
+    /** All entity classes that have been queued so far. */
+    private final Set<Class<?>> classes = new HashSet<Class<?>>();
+    private boolean closed;
+    /** Failure of the background flush, not thrown to any caller yet. */
+    private RuntimeException backgroundFailure;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+
+    /**
+     * Create a new instance that flushes on its own daemon thread.
+     *
+     * @param genericDAO the underlying generic DAO
+     * @param batchSize number of pending writes that triggers a flush, and
+     *        the batch size used for the underlying DAO
+     * @param flushInterval maximum time between flushes
+     * @param unit unit of the flush interval
+     * @param maxPending maximum number of pending writes, at least the batch
+     *        size
+     */
+    public WriteBehindGenericDAO(GenericDAO genericDAO, int batchSize, long flushInterval, TimeUnit unit,
+            int maxPending) {
+        this(genericDAO, batchSize, flushInterval, unit, maxPending, createDefaultExecutor(), true);
+    }
+
+    /**
+     * Create a new instance that flushes on the given executor. The executor
+     * is not shut down by {@link #close()}.
+     *
+     * @param genericDAO the underlying generic DAO
+     * @param batchSize number of pending writes that triggers a flush, and
+     *        the batch size used for the underlying DAO
+     * @param flushInterval maximum time between flushes
+     * @param unit unit of the flush interval
+     * @param maxPending maximum number of pending writes, at least the batch
+     *        size
+     * @param executor the executor to run flushes on
+     */
+    public WriteBehindGenericDAO(GenericDAO genericDAO, int batchSize, long flushInterval, TimeUnit unit,
+            int maxPending, ScheduledExecutorService executor) {
+        this(genericDAO, batchSize, flushInterval, unit, maxPending, executor, false);
+    }
+
+    private WriteBehindGenericDAO(GenericDAO genericDAO, int batchSize, long flushInterval, TimeUnit unit,
+            int maxPending, ScheduledExecutorService executor, boolean own) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        if (maxPending < batchSize) {
+            throw new IllegalArgumentException("maxPending must not be less than batchSize");
+        }
+        this.genericDAO = genericDAO;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.executor = executor;
+        this.ownExecutor = own ? executor : null;
+        this.scheduledFlush = executor.scheduleWithFixedDelay(
+                this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+
+    private static ScheduledExecutorService createDefaultExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "write-behind-dao");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Send all pending writes to the underlying DAO and wait until they're
+     * written. If another flush is running, wait for it first.
+     *
+     * @throws RuntimeException the first exception thrown by the underlying
+     *         DAO, if any batch failed; the following ones are suppressed
+     * @throws IllegalStateException if a background flush failed since the
+     *         failure was thrown the last time
+     */
+    public void flush() {
+        RuntimeException failure = flushPending();
+        RuntimeException background = takeBackgroundFailure();
+
+        if (background != null) {
+            if (failure != null) {
+                background.addSuppressed(failure);
+            }
+            throw background;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the first failure of the batches, or <tt>null</tt>
+     */
+    private RuntimeException flushPending() {
+        flushLock.lock();
+        try {
+            List<Map.Entry<Key, Write>> batch;
+
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return null;
+                }
+                batch = new ArrayList<Map.Entry<Key, Write>>(pending.entrySet());
+                inFlight.putAll(pending);
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                return write(batch);
+            } finally {
+                lock.lock();
+                try {
+                    inFlight.clear();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the background flushing and flush the pending writes. Following
+     * writes throw <tt>IllegalStateException</tt>.
+     *
+     * @throws RuntimeException if the flush failed, see {@link #flush()}
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        scheduledFlush.cancel(false);
+        try {
+            flush();
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * @return snapshot of the current statistics
+     */
+    public WriteBehindStats getStats() {
+        int pendingCount;
+        lock.lock();
+        try {
+            pendingCount = pending.size() + inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+        return new WriteBehindStats(writes.sum(), coalesced.sum(), flushed.sum(), failed.sum(), pendingCount);
+    }
+
+    /**
+     * @return the underlying generic DAO
+     */
+    protected GenericDAO getGenericDAO() {
+        return genericDAO;
+    }
+
+
+    ///// Queued operations /////
+
+    @Override
+    public void delete(Persistable entity) {
+        enqueue(entity.getId(), entity.getClass(), Op.DELETE, entity);
+    }
+
+    @Override
+    public void delete(Serializable id, Class<? extends Persistable> clazz) {
+        enqueue(id, clazz, Op.DELETE, null);
+    }
+
+    @Override
+    public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            delete(entity);
+        }
+    }
+
+    /**
+     * Flush the pending writes of the class, if any, and delete the matched
+     * instances immediately.
+     */
+    @Override
+    public <E extends Persistable> 
+            int deleteByExample(E exampleInstance, String[] includeProperties, Class<E> clazz) {
+        throwBackgroundFailure();
+        flushBefore(clazz);
+        return genericDAO.deleteByExample(exampleInstance, includeProperties, clazz);
+    }
+
+    /**
+     * Flush the pending writes of the class, if any, and delete the matched
+     * instances immediately.
+     */
+    @Override
+    public int deleteByProperty(String property, Object value, Class<? extends Persistable> clazz) {
+        throwBackgroundFailure();
+        flushBefore(clazz);
+        return genericDAO.deleteByProperty(property, value, clazz);
+    }
+
+    /**
+     * Queue the given instance to be saved, or save it immediately if it
+     * doesn't have an identifier yet.
+     */
+    @Override
+    public Serializable save(Persistable entity) {
+        Serializable id = entity.getId();
+        if (id == null) {
+            throwBackgroundFailure();
+            return genericDAO.save(entity);
+        }
+        enqueue(id, entity.getClass(), Op.SAVE, entity);
+        return id;
+    }
+
+    @Override
+    public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+        List<Serializable> ids = new ArrayList<Serializable>(entities.size());
+        for (Persistable entity : entities) {
+            ids.add(save(entity));
+        }
+        return ids;
+    }
+
+    /**
+     * Queue the given instance to be saved or updated, or save it immediately
+     * if it doesn't have an identifier yet.
+     */
+    @Override
+    public void saveOrUpdate(Persistable entity) {
+        if (entity.getId() == null) {
+            throwBackgroundFailure();
+            genericDAO.saveOrUpdate(entity);
+        } else {
+            enqueue(entity.getId(), entity.getClass(), Op.SAVE_OR_UPDATE, entity);
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            saveOrUpdate(entity);
+        }
+    }
+
+    /**
+     * Queue the given instance to be updated.
+     *
+     * @throws IllegalStateException if the instance is queued for deletion
+     */
+    @Override
+    public void update(Persistable entity) {
+        enqueue(entity.getId(), entity.getClass(), Op.UPDATE, entity);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+        for (Persistable entity : entities) {
+            update(entity);
+        }
+    }
+
+    /**
+     * Flush the pending writes of the class, if any, and update the matched
+     * instances immediately.
+     */
+    @Override
+    public <E extends Persistable> 
+            int updateByExample(E exampleInstance, String[] includeProperties, Map<String, Object> values, Class<E> clazz) {
+        throwBackgroundFailure();
+        flushBefore(clazz);
+        return genericDAO.updateByExample(exampleInstance, includeProperties, values, clazz);
+    }
+
+    /**
+     * Flush the pending writes of the class, if any, and update the matched
+     * instances immediately.
+     */
+    @Override
+    public int updateByProperty(String property, Object value, Map<String, Object> values, 
+            Class<? extends Persistable> clazz) {
+        throwBackgroundFailure();
+        flushBefore(clazz);
+        return genericDAO.updateByProperty(property, value, values, clazz);
+    }
+
+    /**
+     * Flush the pending writes of the instance, if any, and update the 
+     * properties immediately.
+     */
+    @Override
+    public void updateProperties(Persistable entity, String... properties) {
+        throwBackgroundFailure();
+        flushIfPending(entity.getId(), entity.getClass());
+        genericDAO.updateProperties(entity, properties);
+    }
+
+    /**
+     * Flush the pending writes of the instance, if any, and update the 
+     * properties immediately.
+     */
+    @Override
+    public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+        throwBackgroundFailure();
+        flushIfPending(id, clazz);
+        genericDAO.updateProperties(id, values, clazz);
+    }
+
+
+    ///// Reads of pending writes /////
+
+    @Override
+    public <E extends Persistable>
+            E findByLongId(long id, Class<E> clazz) {
+        Write write = lookup(id, clazz);
+        if (write != null) {
+            return write.op == Op.DELETE ? null : clazz.cast(write.entity);
+        }
+        return genericDAO.findByLongId(id, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            E findByPrimaryKey(Serializable id, Class<E> clazz) {
+        Write write = lookup(id, clazz);
+        if (write != null) {
+            return write.op == Op.DELETE ? null : clazz.cast(write.entity);
+        }
+        return genericDAO.findByPrimaryKey(id, clazz);
+    }
+
+    @Override
+    public <ID extends Serializable, E extends Persistable>
+            Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+        Map<ID, Write> buffered = new HashMap<ID, Write>();
+        List<ID> missing = new ArrayList<ID>(ids.size());
+
+        lock.lock();
+        try {
+            for (ID id : ids) {
+                Write write = buffered(bufferedKey(id, clazz));
+                if (write != null) {
+                    buffered.put(id, write);
+                } else {
+                    missing.add(id);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (buffered.isEmpty()) {
+            return genericDAO.findByPrimaryKeys(ids, clazz);
+        }
+        Map<ID, E> loaded = missing.isEmpty()
+                ? new HashMap<ID, E>()
+                : genericDAO.findByPrimaryKeys(missing, clazz);
+        Map<ID, E> result = new LinkedHashMap<ID, E>(ids.size() * 4 / 3 + 1);
+
+        for (ID id : ids) {
+            Write write = buffered.get(id);
+            E entity = write == null ? loaded.get(id)
+                    : write.op == Op.DELETE ? null : clazz.cast(write.entity);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+        Write write = lookup(id, clazz);
+        if (write != null) {
+            return write.op != Op.DELETE;
+        }
+        return genericDAO.isPersistent(id, clazz);
+    }
+
+    @Override
+    public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz) {
+        Write write = lookup(id, clazz);
+        if (write != null) {
+            return write.op != Op.DELETE;
+        }
+        return genericDAO.isPersistentByLongId(id, clazz);
+    }
+
+    /**
+     * Return the queued instance, or delegate if it's not queued. If it's
+     * queued for deletion, the pending writes are flushed first, so the
+     * underlying DAO can respond as it does for non-existing instances.
+     */
+    @Override
+    public <E extends Persistable>
+            E load(Serializable id, Class<E> clazz) {
+        Write write = lookup(id, clazz);
+        if (write != null && write.op != Op.DELETE) {
+            return clazz.cast(write.entity);
+        }
+        if (write != null) {
+            flush();
+        }
+        return genericDAO.load(id, clazz);
+    }
+
+
+    ///// Flush and delegate to genericDAO /////
+
+    @Override
+    public Long count(Class<? extends Persistable> clazz) {
+        flushBefore(clazz);
+        return genericDAO.count(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByExample(E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.findByExample(exampleInstance, includeProperties, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.findByNaturalKey(naturalKey, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.findByProperty(property, value, paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getAll(Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.getAll(clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.getPaginated(paging, clazz);
+    }
+
+    @Override
+    public <E extends Persistable>
+            EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz) {
+        flushBefore(clazz);
+        return genericDAO.scrollAll(chunkSize, clazz);
+    }
+
+
+    ///// Internals /////
+
+    /**
+     * Queue the write, merged with the pending write of the same instance, if
+     * any. Blocks while the queue is full and the instance is not pending.
+     */
+    private void enqueue(Serializable id, Class<?> clazz, Op op, Persistable entity) {
+        if (id == null) {
+            throw new IllegalArgumentException("Instance of " + clazz.getName() + " has no identifier");
+        }
+        int size;
+        boolean interrupted = false;
+
+        lock.lock();
+        try {
+            Key key;
+            Write previous;
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("WriteBehindGenericDAO is closed");
+                }
+                throwBackgroundFailure();
+                key = bufferedKey(id, clazz);
+                previous = pending.get(key);
+                if (previous != null || pending.size() + inFlight.size() < maxPending) {
+                    break;
+                }
+                requestFlush();
+                try {
+                    notFull.await();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            Op merged = merge(previous != null ? previous.op : null, op, inFlight.get(key), key);
+            if (previous != null) {
+                coalesced.increment();
+            }
+
+            if (merged == null) {
+                pending.remove(key);
+            } else {
+                pending.put(key, new Write(merged, entity));
+            }
+            classes.add(key.clazz);
+            size = pending.size();
+        } finally {
+            lock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writes.increment();
+        if (size >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Merge the new write with the pending write of the same instance. A save
+     * and delete cancel out only if no write of the instance is in flight,
+     * since it may be stored by the time the next flush runs.
+     *
+     * @return the resulting operation, or <tt>null</tt> if they cancel out
+     */
+    private Op merge(Op previous, Op next, Write flying, Key key) {
+        switch (next) {
+            case DELETE:
+                return previous == Op.SAVE && flying == null ? null : Op.DELETE;
+            case SAVE:
+                return previous == null || previous == Op.SAVE ? Op.SAVE : Op.SAVE_OR_UPDATE;
+            case UPDATE:
+                if (previous == Op.DELETE || (previous == null && flying != null && flying.op == Op.DELETE)) {
+                    throw new IllegalStateException("Instance " + key + " is pending deletion");
+                }
+                return previous == null ? Op.UPDATE : previous;
+            default:
+                return previous == Op.SAVE ? Op.SAVE : Op.SAVE_OR_UPDATE;
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException ex) {
+                flushRequested.set(false);  // closed meanwhile, flushed by close()
+            }
+        }
+    }
+
+    /**
+     * Flush on the background thread; the failure is recorded to be thrown 
+     * to the next caller.
+     */
+    private void flushQuietly() {
+        // recorded under the flushLock, so a following flush() can't miss it
+        flushLock.lock();
+        try {
+            RuntimeException failure = flushPending();  // already logged
+            if (failure == null) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (backgroundFailure == null) {
+                    backgroundFailure = failure;
+                } else {
+                    backgroundFailure.addSuppressed(failure);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return the failure of the background flush wrapped in a new exception,
+     *         or <tt>null</tt>; it's cleared, so it's thrown only once
+     */
+    private RuntimeException takeBackgroundFailure() {
+        lock.lock();
+        try {
+            if (backgroundFailure == null) {
+                return null;
+            }
+            RuntimeException failure = new IllegalStateException(
+                    "Failed to flush pending writes in the background", backgroundFailure);
+            backgroundFailure = null;
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void throwBackgroundFailure() {
+        RuntimeException failure = takeBackgroundFailure();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Flush the pending writes if there are any of the given entity class,
+     * its subclass or superclass.
+     */
+    private void flushBefore(Class<?> clazz) {
+        boolean related = false;
+        lock.lock();
+        try {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return;
+            }
+            for (Class<?> queued : classes) {
+                if (clazz.isAssignableFrom(queued) || queued.isAssignableFrom(clazz)) {
+                    related = true;
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (related) {
+            flush();
+        }
+    }
+
+    private void flushIfPending(Serializable id, Class<?> clazz) {
+        if (lookup(id, clazz) != null) {
+            flush();
+        }
+    }
+
+    private Write lookup(Serializable id, Class<?> clazz) {
+        lock.lock();
+        try {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return null;
+            }
+            return buffered(bufferedKey(id, clazz));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the key of the pending (or in-flight) write of the instance with
+     * the given identifier of the given class or its subclass. If there's no
+     * such write, return the key for the given class. Must be called with the
+     * lock held.
+     */
+    private Key bufferedKey(Serializable id, Class<?> clazz) {
+        Key key = new Key(clazz, id);
+        if (buffered(key) != null) {
+            return key;
+        }
+        for (Class<?> queued : classes) {
+            if (queued != clazz && clazz.isAssignableFrom(queued)) {
+                Key subKey = new Key(queued, id);
+                if (buffered(subKey) != null) {
+                    return subKey;
+                }
+            }
+        }
+        return key;
+    }
+
+    private Write buffered(Key key) {
+        Write write = pending.get(key);
+        return write != null ? write : inFlight.get(key);
+    }
+
+    /**
+     * Send the writes to the underlying DAO, grouped by entity class.
+     *
+     * @return the first failure, or <tt>null</tt>
+     */
+    private RuntimeException write(List<Map.Entry<Key, Write>> batch) {
+        Map<Class<?>, Group> groups = new LinkedHashMap<Class<?>, Group>();
+
+        for (Map.Entry<Key, Write> entry : batch) {
+            Key key = entry.getKey();
+            Write write = entry.getValue();
+            Group group = groups.get(key.clazz);
+            if (group == null) {
+                group = new Group();
+                groups.put(key.clazz, group);
+            }
+            switch (write.op) {
+                case DELETE:
+                    if (write.entity != null) {
+                        group.deletes.add(write.entity);
+                    } else {
+                        group.deleteIds.add(key.id);
+                    }
+                    break;
+                case SAVE:
+                    group.saves.add(write.entity);
+                    break;
+                case UPDATE:
+                    group.updates.add(write.entity);
+                    break;
+                default:
+                    group.saveOrUpdates.add(write.entity);
+            }
+        }
+        RuntimeException failure = null;
+
+        for (Map.Entry<Class<?>, Group> entry : groups.entrySet()) {
+            final Class clazz = entry.getKey();
+            final Group group = entry.getValue();
+
+            failure = run(clazz, "delete", group.deleteIds.size(), failure, () -> {
+                for (Serializable id : group.deleteIds) {
+                    genericDAO.delete(id, clazz);
+                }
+            });
+            failure = run(clazz, "delete", group.deletes.size(), failure,
+                    () -> genericDAO.deleteAll(group.deletes, batchSize));
+            failure = run(clazz, "save", group.saves.size(), failure,
+                    () -> genericDAO.saveAll(group.saves, batchSize));
+            failure = run(clazz, "update", group.updates.size(), failure,
+                    () -> genericDAO.updateAll(group.updates, batchSize));
+            failure = run(clazz, "saveOrUpdate", group.saveOrUpdates.size(), failure,
+                    () -> genericDAO.saveOrUpdateAll(group.saveOrUpdates, batchSize));
+        }
+        return failure;
+    }
+
+    private RuntimeException run(Class<?> clazz, String operation, int count, RuntimeException failure,
+            Runnable task) {
+        if (count == 0) {
+            return failure;
+        }
+        try {
+            task.run();
+            flushed.add(count);
+
+        } catch (RuntimeException ex) {
+            failed.add(count);
+            LOG.error("Failed to {} {} pending instances of {}", new Object[]{ operation, count, clazz.getName(), ex });
+            if (failure == null) {
+                return ex;
+            }
+            failure.addSuppressed(ex);
+        }
+        return failure;
+    }
+
+
+    private enum Op { SAVE, UPDATE, SAVE_OR_UPDATE, DELETE }
+
+    private static final class Write {
+        final Op op;
+        final Persistable entity;
+
+        Write(Op op, Persistable entity) {
+            this.op = op;
+            this.entity = entity;
+        }
+    }
+
+    private static final class Key {
+        final Class<?> clazz;
+        final Serializable id;
+
+        Key(Class<?> clazz, Serializable id) {
+            this.clazz = clazz;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return clazz == other.clazz && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clazz.hashCode() + id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return clazz.getSimpleName() + "#" + id;
+        }
+    }
+
+    /** Writes of one entity class in a flush. */
+    private static final class Group {
+        final List<Serializable> deleteIds = new ArrayList<Serializable>();
+        final List<Persistable> deletes = new ArrayList<Persistable>();
+        final List<Persistable> saves = new ArrayList<Persistable>();
+        final List<Persistable> updates = new ArrayList<Persistable>();
+        final List<Persistable> saveOrUpdates = new ArrayList<Persistable>();
+    }
+}
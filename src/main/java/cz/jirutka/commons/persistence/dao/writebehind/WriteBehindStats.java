@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.writebehind;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of statistics of the {@link WriteBehindGenericDAO}.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+public class WriteBehindStats implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long writeCount;
+    private final long coalescedCount;
+    private final long flushedCount;
+    private final long failedCount;
+    private final int pendingCount;
+
+    
+    public WriteBehindStats(long writeCount, long coalescedCount, long flushedCount, 
+            long failedCount, int pendingCount) {
+        this.writeCount = writeCount;
+        this.coalescedCount = coalescedCount;
+        this.flushedCount = flushedCount;
+        this.failedCount = failedCount;
+        this.pendingCount = pendingCount;
+    }
+    
+    
+    /**
+     * @return number of writes that were queued
+     */
+    public long getWriteCount() { return writeCount; }
+    
+    /**
+     * @return number of queued writes that were merged into a pending write 
+     *         of the same instance
+     */
+    public long getCoalescedCount() { return coalescedCount; }
+    
+    /**
+     * @return number of writes that were successfully sent to the underlying
+     *         DAO
+     */
+    public long getFlushedCount() { return flushedCount; }
+    
+    /**
+     * @return number of writes that failed when sent to the underlying DAO
+     */
+    public long getFailedCount() { return failedCount; }
+    
+    /**
+     * @return number of writes that are waiting to be flushed or are being 
+     *         flushed right now
+     */
+    public int getPendingCount() { return pendingCount; }
+
+    
+    @Override
+    public String toString() {
+        return String.format("WriteBehindStats[writes=%d, coalesced=%d, flushed=%d, failed=%d, pending=%d]", 
+                writeCount, coalescedCount, flushedCount, failedCount, pendingCount);
+    }
+}
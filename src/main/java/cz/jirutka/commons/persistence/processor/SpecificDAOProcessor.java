@@ -0,0 +1,578 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.processor;
+
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.LongIdSpecificDAO;
+import cz.jirutka.commons.persistence.dao.RegisteredDAO;
+import cz.jirutka.commons.persistence.dao.SpecificDAO;
+import cz.jirutka.commons.persistence.dao.StaticSpecificDAORegistry;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation processor that collects implementations of the {@link
+ * SpecificDAO} annotated with {@link RegisteredDAO} and generates:
+ *
+ * <ul>
+ *   <li><tt>GeneratedSpecificDAORegistry</tt> - a {@link
+ *       StaticSpecificDAORegistry} with the entity classes resolved at build
+ *       time, so the registration and lookups don't use reflection,</li>
+ *   <li><tt>GeneratedGenericDAODispatcher</tt> - a {@link
+ *       cz.jirutka.commons.persistence.dao.GenericDAODispatcher
+ *       GenericDAODispatcher} that dispatches by a switch over the known
+ *       entity classes and calls the specific DAOs via their concrete types,
+ *       so every call site is monomorphic instead of a megamorphic call of the
+ *       <tt>SpecificDAO</tt> interface.</li>
+ * </ul>
+ *
+ * <p>Only concrete, public, non-generic DAO classes may be annotated. The
+ * classes are generated into the package given by the option <tt>-A{@value
+ * #PACKAGE_OPTION}=...</tt>, or into the longest common package of the found
+ * DAOs. Nothing is generated when there are no annotated DAOs in the 
+ * sources.</p>
+ *
+ * <p>The processor is not registered as a service in the main artifact, so
+ * it doesn't run on every compilation that has this library on the 
+ * classpath (i.e. test compilations that would generate another registry 
+ * shadowing the main one). It must be enabled explicitly, either by 
+ * <tt>-processor cz.jirutka.commons.persistence.processor.SpecificDAOProcessor</tt>,
+ * or by putting the artifact with the classifier <tt>processor</tt>, which 
+ * registers it as a service, together with the main artifact on the 
+ * <tt>-processorpath</tt> (<tt>annotationProcessorPaths</tt> of the 
+ * maven-compiler-plugin). The registry contains only the DAOs compiled 
+ * together, so it must be rebuilt after adding a DAO (not compiled 
+ * incrementally).</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-17
+ * @since 1.1
+ */
+@SupportedAnnotationTypes("cz.jirutka.commons.persistence.dao.RegisteredDAO")
+@SupportedOptions(SpecificDAOProcessor.PACKAGE_OPTION)
+public class SpecificDAOProcessor extends AbstractProcessor {
+    
+    /** Name of the option with the package of the generated classes. */
+    public static final String PACKAGE_OPTION = "commons.persistence.daoPackage";
+    
+    public static final String REGISTRY_NAME = "GeneratedSpecificDAORegistry";
+    public static final String DISPATCHER_NAME = "GeneratedGenericDAODispatcher";
+    
+    /** Methods of the GenericDAO overridden by the generated dispatcher. */
+    private static final DispatchedMethod[] METHODS = {
+        new DispatchedMethod("public Long count(Class<? extends Persistable> clazz)",
+                "clazz", "return dao.count();", "return super.count(clazz);"),
+        new DispatchedMethod("public void delete(Persistable entity)",
+                "entity.getClass()", "dao.delete((${entity}) entity);", "super.delete(entity);"),
+        new DispatchedMethod("public void delete(Serializable id, Class<? extends Persistable> clazz)",
+                "clazz", "dao.delete((${id}) id);", "super.delete(id, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> int deleteByExample("
+                        + "E exampleInstance, String[] includeProperties, Class<E> clazz)",
+                "clazz", "return dao.deleteByExample((${entity}) exampleInstance, includeProperties);",
+                "return super.deleteByExample(exampleInstance, includeProperties, clazz);"),
+        new DispatchedMethod("public int deleteByProperty("
+                        + "String property, Object value, Class<? extends Persistable> clazz)",
+                "clazz", "return dao.deleteByProperty(property, value);",
+                "return super.deleteByProperty(property, value, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> List<E> findByExample("
+                        + "E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz)",
+                "clazz", "return (List) dao.findByExample((${entity}) exampleInstance, includeProperties, paging);",
+                "return super.findByExample(exampleInstance, includeProperties, paging, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> E findByLongId(long id, Class<E> clazz)",
+                "clazz", "return (E) dao.findByPrimaryKey(id);", "return super.findByLongId(id, clazz);")
+                .longIdOnly(),
+        new DispatchedMethod("public <E extends Persistable> E findByNaturalKey(Object naturalKey, Class<E> clazz)",
+                "clazz", "return (E) dao.findByNaturalKey(naturalKey);",
+                "return super.findByNaturalKey(naturalKey, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz)",
+                "clazz", "return (E) dao.findByPrimaryKey((${id}) id);",
+                "return super.findByPrimaryKey(id, clazz);"),
+        new DispatchedMethod("public <ID extends Serializable, E extends Persistable> Map<ID, E> "
+                        + "findByPrimaryKeys(Collection<ID> ids, Class<E> clazz)",
+                "clazz", "return dao.findByPrimaryKeys((Collection) ids);",
+                "return super.findByPrimaryKeys(ids, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> List<E> findByProperty("
+                        + "String property, Object value, PagingOrdering paging, Class<E> clazz)",
+                "clazz", "return (List) dao.findByProperty(property, value, paging);",
+                "return super.findByProperty(property, value, paging, clazz);"),
+        new DispatchedMethod("public <E extends Persistable> List<E> getAll(Class<E> clazz)",
+                "clazz", "return (List) dao.getAll();", "return super.getAll(clazz);"),
+        new DispatchedMethod("public <E extends Persistable> List<E> getPaginated(PagingOrdering paging, Class<E> clazz)",
+                "clazz", "return (List) dao.getPaginated(paging);", "return super.getPaginated(paging, clazz);"),
+        new DispatchedMethod("public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz)",
+                "clazz", "return dao.isPersistent((${id}) id);", "return super.isPersistent(id, clazz);"),
+        new DispatchedMethod("public boolean isPersistentByLongId(long id, Class<? extends Persistable> clazz)",
+                "clazz", "return dao.isPersistent(id);", "return super.isPersistentByLongId(id, clazz);")
+                .longIdOnly(),
+        new DispatchedMethod("public <E extends Persistable> E load(Serializable id, Class<E> clazz)",
+                "clazz", "return (E) dao.load((${id}) id);", "return super.load(id, clazz);"),
+        new DispatchedMethod("public Serializable save(Persistable entity)",
+                "entity.getClass()", "return dao.save((${entity}) entity);", "return super.save(entity);"),
+        new DispatchedMethod("public void saveOrUpdate(Persistable entity)",
+                "entity.getClass()", "dao.saveOrUpdate((${entity}) entity);", "super.saveOrUpdate(entity);"),
+        new DispatchedMethod("public <E extends Persistable> EntityCursor<E> scrollAll(int chunkSize, Class<E> clazz)",
+                "clazz", "return (EntityCursor) dao.scrollAll(chunkSize);", "return super.scrollAll(chunkSize, clazz);"),
+        new DispatchedMethod("public void update(Persistable entity)",
+                "entity.getClass()", "dao.update((${entity}) entity);", "super.update(entity);"),
+        new DispatchedMethod("public <E extends Persistable> int updateByExample(E exampleInstance, "
+                        + "String[] includeProperties, Map<String, Object> values, Class<E> clazz)",
+                "clazz", "return dao.updateByExample((${entity}) exampleInstance, includeProperties, values);",
+                "return super.updateByExample(exampleInstance, includeProperties, values, clazz);"),
+        new DispatchedMethod("public int updateByProperty(String property, Object value, "
+                        + "Map<String, Object> values, Class<? extends Persistable> clazz)",
+                "clazz", "return dao.updateByProperty(property, value, values);",
+                "return super.updateByProperty(property, value, values, clazz);"),
+        new DispatchedMethod("public void updateProperties(Persistable entity, String... properties)",
+                "entity.getClass()", "dao.updateProperties((${entity}) entity, properties);",
+                "super.updateProperties(entity, properties);"),
+        new DispatchedMethod("public void updateProperties("
+                        + "Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz)",
+                "clazz", "dao.updateProperties((${id}) id, values);", "super.updateProperties(id, values, clazz);")
+    };
+    
+    private final List<DAOModel> daos = new ArrayList<DAOModel>();
+    private boolean generated;
+    
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        // generated in the first round, DAOs generated by other processors are not included
+        if (generated || round.processingOver()) {
+            return false;
+        }
+        TypeElement specificDAO = typeElement(SpecificDAO.class);
+        TypeElement marker = typeElement(RegisteredDAO.class);
+        if (specificDAO == null || marker == null) {
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(round.getElementsAnnotatedWith(marker))) {
+            collect(type, specificDAO);
+        }
+        if (!daos.isEmpty()) {
+            generate();
+            generated = true;
+        }
+        return false;
+    }
+    
+    
+    ///// Discovery /////
+    
+    private void collect(TypeElement type, TypeElement specificDAO) {
+        DeclaredType daoType = findSupertype(type.asType(), specificDAO);
+        
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty() || daoType == null) {
+            error(type, "@%s must annotate a concrete, non-generic implementation of %s",
+                    RegisteredDAO.class.getSimpleName(), SpecificDAO.class.getSimpleName());
+            return;
+        }
+        if (!isAccessible(type)) {
+            error(type, "%s is not public, so it cannot be included in the generated %s", type, REGISTRY_NAME);
+            return;
+        }
+        List<? extends TypeMirror> args = daoType.getTypeArguments();
+        if (args.size() != 2 || args.get(0).getKind() != TypeKind.DECLARED) {
+            error(type, "Cannot resolve entity class of %s, so it cannot be included in the generated %s",
+                    type, REGISTRY_NAME);
+            return;
+        }
+        TypeElement entity = (TypeElement) ((DeclaredType) args.get(0)).asElement();
+        if (!isAccessible(entity)) {
+            error(type, "Entity %s is not public, so %s cannot be included in the generated %s",
+                    entity, type, REGISTRY_NAME);
+            return;
+        }
+        for (DAOModel dao : daos) {
+            if (dao.entity.equals(entity)) {
+                error(type, "Entity %s has multiple specific DAOs: %s and %s", entity, dao.type, type);
+                return;
+            }
+        }
+        Types types = processingEnv.getTypeUtils();
+        TypeElement longIdDAO = typeElement(LongIdSpecificDAO.class);
+        
+        DAOModel dao = new DAOModel(type, entity, types.erasure(args.get(1)).toString());
+        dao.longId = longIdDAO != null && findSupertype(type.asType(), longIdDAO) != null;
+        dao.constructible = hasGenericDAOConstructor(type);
+        for (TypeMirror t = type.getSuperclass(); t.getKind() == TypeKind.DECLARED;
+                t = ((TypeElement) types.asElement(t)).getSuperclass()) {
+            dao.depth++;
+        }
+        daos.add(dao);
+    }
+    
+    /**
+     * @return the given type's supertype (or itself) that is a parameterization
+     *         of the target, or <tt>null</tt>
+     */
+    private DeclaredType findSupertype(TypeMirror type, TypeElement target) {
+        Types types = processingEnv.getTypeUtils();
+        
+        if (types.isSameType(types.erasure(type), types.erasure(target.asType()))) {
+            return (DeclaredType) type;
+        }
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            DeclaredType found = findSupertype(supertype, target);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+    
+    private boolean hasGenericDAOConstructor(TypeElement type) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror genericDAO = typeElement(GenericDAO.class).asType();
+        
+        for (ExecutableElement ctor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (ctor.getModifiers().contains(Modifier.PUBLIC) && ctor.getParameters().size() == 1
+                    && types.isSameType(ctor.getParameters().get(0).asType(), genericDAO)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return <tt>true</tt> if the type can be referenced from any package
+     */
+    private static boolean isAccessible(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            boolean nested = e.getEnclosingElement() instanceof TypeElement;
+            if (nested && e.getKind() == ElementKind.CLASS && !e.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    
+    ///// Generation /////
+    
+    private void generate() {
+        String pkg = processingEnv.getOptions().get(PACKAGE_OPTION);
+        if (pkg == null) {
+            pkg = commonPackage();
+            if (pkg.isEmpty()) {
+                warn(null, "The specific DAOs have no common package, specify it by -A%s=...; "
+                        + "%s is not generated", PACKAGE_OPTION, REGISTRY_NAME);
+                return;
+            }
+        }
+        // indexes ordered by the entity name, so the output is stable
+        Collections.sort(daos, new Comparator<DAOModel>() {
+            public int compare(DAOModel a, DAOModel b) {
+                return a.entityName().compareTo(b.entityName());
+            }
+        });
+        for (int i = 0; i < daos.size(); i++) {
+            daos.get(i).index = i;
+        }
+        Element[] origins = new Element[daos.size()];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = daos.get(i).type;
+        }
+        try {
+            write(pkg, REGISTRY_NAME, registrySource(pkg), origins);
+            write(pkg, DISPATCHER_NAME, dispatcherSource(pkg), origins);
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate " + REGISTRY_NAME + ": " + ex);
+        }
+    }
+    
+    private String registrySource(String pkg) {
+        StringBuilder out = new StringBuilder();
+        header(out, pkg);
+        out.append("import cz.jirutka.commons.persistence.dao.GenericDAO;\n")
+           .append("import cz.jirutka.commons.persistence.dao.SpecificDAO;\n")
+           .append("import cz.jirutka.commons.persistence.dao.StaticSpecificDAORegistry;\n")
+           .append("import java.util.IdentityHashMap;\n")
+           .append("import java.util.Map;\n\n")
+           .append("/**\n")
+           .append(" * Registry of the specific DAOs found at build time.\n")
+           .append(" */\n")
+           .append("@SuppressWarnings(\"rawtypes\")\n")
+           .append("public final class ").append(REGISTRY_NAME).append(" extends StaticSpecificDAORegistry {\n\n")
+           .append("    /** Indexes of the known entity classes. */\n")
+           .append("    private static final Map<Class<?>, Integer> INDEXES = new IdentityHashMap<Class<?>, Integer>(")
+           .append(daos.size()).append(");\n\n")
+           .append("    static {\n");
+        for (DAOModel dao : daos) {
+            out.append("        INDEXES.put(").append(dao.entityName()).append(".class, ").append(dao.index).append(");\n");
+        }
+        out.append("    }\n\n");
+        
+        for (DAOModel dao : daos) {
+            out.append("    /** DAO for ").append(dao.entityName()).append(". */\n")
+               .append("    volatile ").append(dao.typeName()).append(" dao").append(dao.index).append(";\n");
+        }
+        out.append("\n    public ").append(REGISTRY_NAME).append("() {\n    }\n\n")
+           .append("    /**\n")
+           .append("     * Create the registry with new instances of the DAOs that have a public\n")
+           .append("     * constructor with the {@link GenericDAO}; the others must be registered.\n")
+           .append("     */\n")
+           .append("    public ").append(REGISTRY_NAME).append("(GenericDAO genericDAO) {\n");
+        for (DAOModel dao : daos) {
+            if (dao.constructible) {
+                out.append("        this.dao").append(dao.index)
+                   .append(" = new ").append(dao.typeName()).append("(genericDAO);\n");
+            }
+        }
+        out.append("    }\n\n")
+           .append("    @Override\n")
+           .append("    protected int exactIndexOf(Class<?> entityClass) {\n")
+           .append("        Integer index = INDEXES.get(entityClass);\n")
+           .append("        return index != null ? index : -1;\n")
+           .append("    }\n\n")
+           .append("    @Override\n")
+           .append("    protected SpecificDAO daoAt(int index) {\n")
+           .append("        switch (index) {\n");
+        for (DAOModel dao : daos) {
+            out.append("            case ").append(dao.index).append(": return dao").append(dao.index).append(";\n");
+        }
+        out.append("            default: return null;\n")
+           .append("        }\n")
+           .append("    }\n\n")
+           .append("    @Override\n")
+           .append("    protected boolean registerKnown(SpecificDAO specificDAO) {\n");
+        
+        // subclasses first
+        List<DAOModel> bySpecificity = new ArrayList<DAOModel>(daos);
+        Collections.sort(bySpecificity, new Comparator<DAOModel>() {
+            public int compare(DAOModel a, DAOModel b) {
+                return b.depth - a.depth;
+            }
+        });
+        for (DAOModel dao : bySpecificity) {
+            out.append("        if (specificDAO instanceof ").append(dao.typeName()).append(") {\n")
+               .append("            this.dao").append(dao.index).append(" = (").append(dao.typeName()).append(") specificDAO;\n")
+               .append("            return true;\n")
+               .append("        }\n");
+        }
+        out.append("        return false;\n")
+           .append("    }\n")
+           .append("}\n");
+        
+        return out.toString();
+    }
+    
+    private String dispatcherSource(String pkg) {
+        StringBuilder out = new StringBuilder();
+        header(out, pkg);
+        out.append("import cz.jirutka.commons.persistence.Persistable;\n")
+           .append("import cz.jirutka.commons.persistence.dao.EntityCursor;\n")
+           .append("import cz.jirutka.commons.persistence.dao.GenericDAO;\n")
+           .append("import cz.jirutka.commons.persistence.dao.GenericDAODispatcher;\n")
+           .append("import cz.jirutka.commons.persistence.dao.PagingOrdering;\n")
+           .append("import java.io.Serializable;\n")
+           .append("import java.util.Collection;\n")
+           .append("import java.util.List;\n")
+           .append("import java.util.Map;\n\n")
+           .append("/**\n")
+           .append(" * Dispatcher to the specific DAOs found at build time, see {@link ")
+           .append(REGISTRY_NAME).append("}.\n")
+           .append(" */\n")
+           .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+           .append("public class ").append(DISPATCHER_NAME).append(" extends GenericDAODispatcher {\n\n")
+           .append("    private final ").append(REGISTRY_NAME).append(" registry;\n\n")
+           .append("    public ").append(DISPATCHER_NAME).append("(GenericDAO genericDAO, ")
+           .append(REGISTRY_NAME).append(" registry) {\n")
+           .append("        super(genericDAO, registry);\n")
+           .append("        this.registry = registry;\n")
+           .append("    }\n");
+        
+        for (DispatchedMethod method : METHODS) {
+            boolean any = false;
+            for (DAOModel dao : daos) {
+                any |= !method.longIdOnly || dao.longId;
+            }
+            if (!any) {
+                continue;
+            }
+            boolean isVoid = method.signature.startsWith("public void ");
+            out.append("\n    @Override\n")
+               .append("    ").append(method.signature).append(" {\n")
+               .append("        switch (registry.indexOf(").append(method.key).append(")) {\n");
+            
+            for (DAOModel dao : daos) {
+                if (method.longIdOnly && !dao.longId) {
+                    continue;
+                }
+                String call = method.call
+                        .replace("${entity}", dao.entityName())
+                        .replace("${id}", dao.idType);
+                out.append("            case ").append(dao.index).append(": {\n")
+                   .append("                ").append(dao.typeName()).append(" dao = registry.dao").append(dao.index).append(";\n")
+                   .append("                if (dao != null) {\n")
+                   .append("                    ").append(call).append("\n");
+                if (isVoid) {
+                    out.append("                    return;\n");
+                }
+                out.append("                }\n")
+                   .append("                break;\n")
+                   .append("            }\n");
+            }
+            out.append("        }\n")
+               .append("        ").append(method.fallback).append("\n")
+               .append("    }\n");
+        }
+        out.append("}\n");
+        
+        return out.toString();
+    }
+    
+    private void header(StringBuilder out, String pkg) {
+        out.append("// Generated by ").append(getClass().getName()).append(", do not edit.\n")
+           .append("package ").append(pkg).append(";\n\n");
+    }
+    
+    private void write(String pkg, String name, String source, Element[] origins) throws IOException {
+        Writer writer = processingEnv.getFiler().createSourceFile(pkg + "." + name, origins).openWriter();
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+    
+    private String commonPackage() {
+        String common = null;
+        
+        for (DAOModel dao : daos) {
+            String pkg = packageOf(dao.type);
+            if (common == null) {
+                common = pkg;
+            }
+            while (!(pkg.equals(common) || pkg.startsWith(common + ".") || common.isEmpty())) {
+                int dot = common.lastIndexOf('.');
+                common = dot > 0 ? common.substring(0, dot) : "";
+            }
+        }
+        return common;
+    }
+    
+    private String packageOf(Element element) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(element);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+    
+    private TypeElement typeElement(Class<?> clazz) {
+        return processingEnv.getElementUtils().getTypeElement(clazz.getCanonicalName());
+    }
+    
+    private void warn(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(format, args), element);
+    }
+    
+    private void error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+    
+    
+    /**
+     * Found specific DAO class.
+     */
+    private static final class DAOModel {
+        
+        final TypeElement type;
+        final TypeElement entity;
+        /** Erasure of the identifier type. */
+        final String idType;
+        
+        /** Whether it's a {@link LongIdSpecificDAO}. */
+        boolean longId;
+        /** Whether it has a public constructor with the {@link GenericDAO}. */
+        boolean constructible;
+        /** Number of superclasses. */
+        int depth;
+        int index;
+        
+        DAOModel(TypeElement type, TypeElement entity, String idType) {
+            this.type = type;
+            this.entity = entity;
+            this.idType = idType;
+        }
+        
+        String typeName() {
+            return type.getQualifiedName().toString();
+        }
+        
+        String entityName() {
+            return entity.getQualifiedName().toString();
+        }
+    }
+    
+    /**
+     * Template of a method of the generated dispatcher.
+     */
+    private static final class DispatchedMethod {
+        
+        final String signature;
+        /** Expression of the entity class to dispatch on. */
+        final String key;
+        /** Call of the specific DAO (<tt>dao</tt>) with placeholders. */
+        final String call;
+        /** Statement for the unknown classes. */
+        final String fallback;
+        /** Whether to dispatch only to {@link LongIdSpecificDAO}s. */
+        boolean longIdOnly;
+        
+        DispatchedMethod(String signature, String key, String call, String fallback) {
+            this.signature = signature;
+            this.key = key;
+            this.call = call;
+            this.fallback = fallback;
+        }
+        
+        DispatchedMethod longIdOnly() {
+            this.longIdOnly = true;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent hash map with primitive <tt>long</tt> keys, i.e. without boxing
+ * of the keys and without an entry object per mapping. It's intended for 
+ * indexes and caches keyed by numeric identifiers.
+ * 
+ * <p>The map is split into segments, each is an open-addressing hash table 
+ * with linear probing, i.e. an array of keys and an array of values. Reads 
+ * are lock-free, writes lock only one segment. Removed mappings leave a 
+ * marker in the table until the segment is rehashed. Iteration is weakly 
+ * consistent, like in the {@link java.util.concurrent.ConcurrentHashMap}.
+ * Null values are not permitted.</p>
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ * @version 2026-10-16
+ * @since 1.1
+ * @param <V> the value type
+ */
+public final class ConcurrentLongMap<V> {
+    
+    private static final int SEGMENTS_BITS = 4;
+    private static final int MIN_CAPACITY = 8;
+    private static final float MAX_LOAD = 0.7f;
+    
+    /** Marker of a removed mapping (the key stays in the table). */
+    private static final Object REMOVED = new Object();
+    
+    private final Segment<V>[] segments = new Segment[1 << SEGMENTS_BITS];
+    
+    
+    public ConcurrentLongMap() {
+        this(16);
+    }
+    
+    /**
+     * @param initialCapacity expected number of mappings
+     */
+    public ConcurrentLongMap(int initialCapacity) {
+        int perSegment = (int) ((initialCapacity >> SEGMENTS_BITS) / MAX_LOAD) + 1;
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(perSegment - 1) << 1);
+        
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<V>(capacity);
+        }
+    }
+    
+    
+    /**
+     * @param key the key
+     * @return the value mapped to the key, or <tt>null</tt>
+     */
+    public V get(long key) {
+        long hash = hash(key);
+        Table table = segmentFor(hash).table;
+        
+        for (int i = (int) hash & table.mask; ; i = (i + 1) & table.mask) {
+            Object value = table.values.get(i);
+            if (value == null) {
+                return null;
+            }
+            // the key is written before the value is published
+            if (table.keys[i] == key) {
+                return value != REMOVED ? (V) value : null;
+            }
+        }
+    }
+    
+    /**
+     * @param key the key
+     * @return <tt>true</tt> if there's a value mapped to the key
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * @param key the key
+     * @param value the value, not <tt>null</tt>
+     * @return the previous value, or <tt>null</tt>
+     */
+    public V put(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, false);
+    }
+    
+    /**
+     * @param key the key
+     * @param value the value, not <tt>null</tt>
+     * @return the current value (the given one is not put then), or 
+     *         <tt>null</tt> if the given value has been put
+     */
+    public V putIfAbsent(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, true);
+    }
+    
+    /**
+     * @param key the key
+     * @return the removed value, or <tt>null</tt>
+     */
+    public V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(hash, key, null);
+    }
+    
+    /**
+     * Remove the mapping only if the key is mapped to a value equal to the 
+     * given one.
+     * 
+     * @param key the key
+     * @param value the expected value
+     * @return <tt>true</tt> if the mapping has been removed
+     */
+    public boolean remove(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(hash, key, value) != null;
+    }
+    
+    /**
+     * Remove all mappings.
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+    
+    /**
+     * @return number of mappings
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * @return weakly consistent view of the values (read-only)
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public Iterator<V> iterator() { return new ValueIterator(); }
+            public int size() { return ConcurrentLongMap.this.size(); }
+        };
+    }
+    
+    
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENTS_BITS))];
+    }
+    
+    /** MurmurHash3 finalizer, identifiers are often sequential. */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+    
+    
+    private static final class Table {
+        
+        final long[] keys;
+        final AtomicReferenceArray<Object> values;
+        final int mask;
+        
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new AtomicReferenceArray<Object>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+    
+    private static final class Segment<V> {
+        
+        final int initialCapacity;
+        volatile Table table;
+        volatile int size;
+        
+        /** Number of occupied slots, including the removed ones. */
+        private int used;
+        
+        Segment(int capacity) {
+            this.initialCapacity = capacity;
+            this.table = new Table(capacity);
+        }
+        
+        synchronized V put(long hash, long key, V value, boolean onlyIfAbsent) {
+            if (value == null) {
+                throw new NullPointerException("value must not be null");
+            }
+            Table table = this.table;
+            int i = (int) hash & table.mask;
+            
+            for (Object current; (current = table.values.get(i)) != null; i = (i + 1) & table.mask) {
+                if (table.keys[i] == key) {
+                    if (current == REMOVED) {
+                        table.values.set(i, value);
+                        size++;
+                        return null;
+                    }
+                    if (!onlyIfAbsent) {
+                        table.values.set(i, value);
+                    }
+                    return (V) current;
+                }
+            }
+            table.keys[i] = key;
+            table.values.set(i, value);
+            size++;
+            
+            if (++used > table.keys.length * MAX_LOAD) {
+                rehash();
+            }
+            return null;
+        }
+        
+        synchronized V remove(long hash, long key, V expected) {
+            Table table = this.table;
+            
+            for (int i = (int) hash & table.mask; ; i = (i + 1) & table.mask) {
+                Object current = table.values.get(i);
+                if (current == null) {
+                    return null;
+                }
+                if (table.keys[i] == key) {
+                    if (current == REMOVED || (expected != null && !expected.equals(current))) {
+                        return null;
+                    }
+                    table.values.set(i, REMOVED);
+                    size--;
+                    return (V) current;
+                }
+            }
+        }
+        
+        synchronized void clear() {
+            table = new Table(initialCapacity);
+            size = 0;
+            used = 0;
+        }
+        
+        /**
+         * Copy the live mappings into a new table, at least twice as big as 
+         * the number of them, and publish it.
+         */
+        private void rehash() {
+            Table old = this.table;
+            int capacity = old.keys.length;
+            while (size >= capacity * MAX_LOAD / 2) {
+                capacity <<= 1;
+            }
+            Table table = new Table(capacity);
+            
+            for (int j = 0; j < old.keys.length; j++) {
+                Object value = old.values.get(j);
+                if (value != null && value != REMOVED) {
+                    long key = old.keys[j];
+                    int i = (int) hash(key) & table.mask;
+                    while (table.values.get(i) != null) {
+                        i = (i + 1) & table.mask;
+                    }
+                    table.keys[i] = key;
+                    table.values.lazySet(i, value);
+                }
+            }
+            this.table = table;
+            this.used = size;
+        }
+    }
+    
+    private final class ValueIterator implements Iterator<V> {
+        
+        private int segment = 0;
+        private int slot = 0;
+        private Table table = segments[0].table;
+        private V next;
+        
+        public boolean hasNext() {
+            while (next == null) {
+                if (slot == table.keys.length) {
+                    if (++segment == segments.length) {
+                        return false;
+                    }
+                    table = segments[segment].table;
+                    slot = 0;
+                } else {
+                    Object value = table.values.get(slot++);
+                    if (value != null && value != REMOVED) {
+                        next = (V) value;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V result = next;
+            next = null;
+            return result;
+        }
+    }
+}
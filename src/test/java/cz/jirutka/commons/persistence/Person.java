@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence;
+
+/**
+ * Simple entity for the tests.
+ *
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class Person implements Persistable {
+    
+    private Long id;
+    private String name;
+    private int age;
+    
+    
+    public Person() {
+    }
+    
+    public Person(Long id, String name, int age) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+    }
+    
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public int getAge() {
+        return age;
+    }
+    
+    public void setAge(int age) {
+        this.age = age;
+    }
+    
+    @Override
+    public String toString() {
+        return "Person#" + id + "(" + name + ", " + age + ")";
+    }
+    
+    
+    /**
+     * Subclass for the tests of polymorphic queries.
+     */
+    public static class Employee extends Person {
+        
+        public Employee() {
+        }
+        
+        public Employee(Long id, String name, int age) {
+            super(id, name, age);
+        }
+    }
+}
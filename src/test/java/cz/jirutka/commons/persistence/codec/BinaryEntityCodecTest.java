@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.codec;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class BinaryEntityCodecTest {
+    
+    @Test
+    public void roundTrip() {
+        AllTypes value = new AllTypes();
+        value.i = -42;
+        value.l = Long.MAX_VALUE;
+        value.b = true;
+        value.c = 'x';
+        value.d = 1.5;
+        value.f = -2.5f;
+        value.boxed = 7;
+        value.string = "žluťoučký kůň";
+        value.bytes = new byte[]{ 1, 2, 3 };
+        value.bigInteger = new BigInteger("-123456789012345678901234567890");
+        value.bigDecimal = new BigDecimal("-12345.6789");
+        value.uuid = UUID.randomUUID();
+        value.date = new Date(1234567890L);
+        value.localDate = LocalDate.of(2026, 10, 17);
+        value.instant = Instant.ofEpochSecond(1234567890L, 123);
+        value.unit = TimeUnit.HOURS;
+        value.list = new ArrayList<String>(Arrays.asList("a", "b"));
+        
+        BinaryEntityCodec<AllTypes> codec = BinaryEntityCodec.forClass(AllTypes.class);
+        AllTypes decoded = codec.decode(codec.encode(value));
+        
+        assertEquals(value.i, decoded.i);
+        assertEquals(value.l, decoded.l);
+        assertEquals(value.b, decoded.b);
+        assertEquals(value.c, decoded.c);
+        assertEquals(value.d, decoded.d, 0.0);
+        assertEquals(value.f, decoded.f, 0.0);
+        assertEquals(value.boxed, decoded.boxed);
+        assertNull(decoded.nullable);
+        assertEquals(value.string, decoded.string);
+        assertArrayEquals(value.bytes, decoded.bytes);
+        assertEquals(value.bigInteger, decoded.bigInteger);
+        assertEquals(value.bigDecimal, decoded.bigDecimal);
+        assertEquals(value.uuid, decoded.uuid);
+        assertEquals(value.date, decoded.date);
+        assertEquals(value.localDate, decoded.localDate);
+        assertEquals(value.instant, decoded.instant);
+        assertEquals(value.unit, decoded.unit);
+        assertEquals(value.list, decoded.list);
+        assertEquals(0, decoded.skipped);
+    }
+    
+    @Test
+    public void smallerThanJavaSerialization() {
+        Person person = new Person(1L, "name", 30);
+        
+        byte[] binary = BinaryEntityCodec.forClass(Person.class).encode(person);
+        byte[] serialized = JavaSerializationCodec.forClass(Person.class).encode(person);
+        
+        assertTrue(binary.length * 4 < serialized.length);
+    }
+    
+    @Test
+    public void roundTripSubclass() {
+        BinaryEntityCodec<Person> codec = BinaryEntityCodec.forClass(Person.class);
+        
+        Person decoded = codec.decode(codec.encode(new Employee(5L, "emp", 40)));
+        
+        assertEquals(Employee.class, decoded.getClass());
+        assertEquals(Long.valueOf(5), decoded.getId());
+        assertEquals("emp", decoded.getName());
+    }
+    
+    @Test
+    public void decodeRegionOfBuffer() {
+        BinaryEntityCodec<Person> codec = BinaryEntityCodec.forClass(Person.class);
+        byte[] encoded = codec.encode(new Person(1L, "name", 30));
+        
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 10);
+        buffer.position(7);
+        buffer.put(encoded);
+        
+        assertEquals("name", codec.decode(buffer, 7, encoded.length).getName());
+        assertEquals(7 + encoded.length, buffer.position());
+    }
+    
+    @Test
+    public void evolveSchema() {
+        V1 old = new V1();
+        old.id = 10;
+        old.count = 3;
+        old.removed = "gone";
+        old.retyped = "text";
+        old.unit = TimeUnit.SECONDS;
+        
+        V2 decoded = BinaryEntityCodec.forClass(V2.class).decode(
+                BinaryEntityCodec.forClass(V1.class).encode(old));
+        
+        assertEquals(Long.valueOf(10), decoded.id);
+        assertEquals(3L, decoded.count);
+        assertEquals("default", decoded.added);
+        assertEquals(-1, decoded.retyped);
+        assertEquals(Unit.SECONDS, decoded.unit);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTruncatedBytes() {
+        BinaryEntityCodec<Person> codec = BinaryEntityCodec.forClass(Person.class);
+        byte[] encoded = codec.encode(new Person(1L, "some longer name", 30));
+        
+        codec.decode(Arrays.copyOf(encoded, encoded.length - 3));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectInterface() {
+        BinaryEntityCodec.forClass(Runnable.class);
+    }
+    
+    
+    public static class AllTypes {
+        int i;
+        long l;
+        boolean b;
+        char c;
+        double d;
+        float f;
+        Integer boxed;
+        Long nullable;
+        String string;
+        byte[] bytes;
+        BigInteger bigInteger;
+        BigDecimal bigDecimal;
+        UUID uuid;
+        Date date;
+        LocalDate localDate;
+        Instant instant;
+        TimeUnit unit;
+        List<String> list;
+        transient int skipped;
+    }
+    
+    public static class V1 {
+        int id;
+        int count;
+        String removed;
+        String retyped;
+        TimeUnit unit;
+    }
+    
+    public static class V2 {
+        Long id;
+        long count;
+        String added = "default";
+        int retyped = -1;
+        Unit unit;
+    }
+    
+    public enum Unit { SECONDS, MINUTES }
+}
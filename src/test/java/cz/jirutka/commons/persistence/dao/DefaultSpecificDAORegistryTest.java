@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.io.Serializable;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class DefaultSpecificDAORegistryTest {
+    
+    private GenericDAO store;
+    private DefaultSpecificDAORegistry registry;
+    
+    
+    @Before
+    public void setUp() {
+        store = new InMemoryGenericDAO();
+        registry = new DefaultSpecificDAORegistry();
+    }
+    
+    
+    @Test
+    public void resolveExactClass() {
+        PersonDAO dao = new PersonDAO(store);
+        registry.register(dao);
+        
+        assertSame(dao, registry.getDAO(Person.class));
+        assertTrue(registry.containsDAO(Person.class));
+    }
+    
+    @Test
+    public void resolveNearestSuperclass() {
+        PersonDAO dao = new PersonDAO(store);
+        registry.register(dao);
+        
+        assertSame(dao, registry.getDAO(Employee.class));
+    }
+    
+    @Test
+    public void resolveInterface() {
+        SpecificDAO dao = new DelegatingSpecificDAO<Persistable, Serializable>(store, Persistable.class) {};
+        registry.register(dao);
+        
+        assertSame(dao, registry.getDAO(Person.class));
+    }
+    
+    @Test
+    public void resolveNothing() {
+        assertNull(registry.getDAO(Person.class));
+        assertFalse(registry.containsDAO(Person.class));
+    }
+    
+    @Test
+    public void discardMemoOnRegistration() {
+        PersonDAO personDAO = new PersonDAO(store);
+        registry.register(personDAO);
+        assertNull(registry.getDAO(Other.class));  // memoized miss
+        assertSame(personDAO, registry.getDAO(Employee.class));  // memoized hit
+        
+        EmployeeDAO employeeDAO = new EmployeeDAO(store);
+        SpecificDAO otherDAO = new DelegatingSpecificDAO<Other, Long>(store, Other.class) {};
+        registry.register(employeeDAO);
+        registry.register(otherDAO);
+        
+        assertSame(employeeDAO, registry.getDAO(Employee.class));
+        assertSame(otherDAO, registry.getDAO(Other.class));
+        assertSame(personDAO, registry.getDAO(Person.class));
+    }
+    
+    
+    public static class PersonDAO extends DelegatingSpecificDAO<Person, Long> {
+        public PersonDAO(GenericDAO genericDAO) {
+            super(genericDAO);
+        }
+    }
+    
+    public static class EmployeeDAO extends DelegatingSpecificDAO<Employee, Long> {
+        public EmployeeDAO(GenericDAO genericDAO) {
+            super(genericDAO);
+        }
+    }
+    
+    public static class Other implements Persistable {
+        public Long getId() {
+            return 1L;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.DefaultSpecificDAORegistryTest.PersonDAO;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The specific DAO is backed by another store than the generic DAO, so it's
+ * visible where the dispatcher has sent the call.
+ * 
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class GenericDAODispatcherTest {
+    
+    private final AtomicInteger specificBatches = new AtomicInteger();
+    private InMemoryGenericDAO specificStore;
+    private InMemoryGenericDAO genericStore;
+    private GenericDAODispatcher dispatcher;
+    
+    
+    @Before
+    public void setUp() {
+        // one table for the whole hierarchy of Person
+        final AtomicLong sequence = new AtomicLong(100);
+        specificStore = new InMemoryGenericDAO() {
+            public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+                specificBatches.incrementAndGet();
+                return super.saveAll(entities, batchSize);
+            }
+        };
+        specificStore.configure(Person.class, new TableSpec().idGenerator(() -> sequence.incrementAndGet()));
+        genericStore = new InMemoryGenericDAO().configure(Person.class, new TableSpec());
+        
+        DefaultSpecificDAORegistry registry = new DefaultSpecificDAORegistry();
+        registry.register(new PersonDAO(specificStore));
+        dispatcher = new GenericDAODispatcher(genericStore, registry);
+    }
+    
+    
+    @Test
+    public void dispatchToSpecificDAO() {
+        dispatcher.save(new Person(1L, "a", 1));
+        
+        assertTrue(specificStore.isPersistent(1L, Person.class));
+        assertFalse(genericStore.isPersistent(1L, Person.class));
+        assertEquals("a", dispatcher.findByPrimaryKey(1L, Person.class).getName());
+        assertEquals(Long.valueOf(1), dispatcher.count(Person.class));
+    }
+    
+    @Test
+    public void dispatchSubclassToSpecificDAO() {
+        dispatcher.save(new Employee(2L, "b", 1));
+        
+        assertTrue(specificStore.isPersistent(2L, Person.class));
+        assertTrue(dispatcher.isPersistent(2L, Employee.class));
+        assertFalse(genericStore.isPersistent(2L, Person.class));
+    }
+    
+    @Test
+    public void fallBackToGenericDAO() {
+        dispatcher.save(new DefaultSpecificDAORegistryTest.Other());
+        
+        assertTrue(genericStore.isPersistent(1L, DefaultSpecificDAORegistryTest.Other.class));
+        assertEquals(Long.valueOf(0), specificStore.count(DefaultSpecificDAORegistryTest.Other.class));
+    }
+    
+    @Test
+    public void splitBatchByClassAndKeepOrder() {
+        List<Persistable> entities = Arrays.<Persistable>asList(
+                new Person(null, "a", 1), new DefaultSpecificDAORegistryTest.Other(), 
+                new Person(null, "b", 1), new Employee(7L, "c", 1));
+        
+        List<Serializable> ids = dispatcher.saveAll(entities, 10);
+        
+        assertEquals(Arrays.<Serializable>asList(101L, 1L, 102L, 7L), ids);
+        assertEquals(2, specificBatches.get());  // Person and Employee
+        assertEquals(Long.valueOf(3), specificStore.count(Person.class));
+        assertEquals(Long.valueOf(1), genericStore.count(DefaultSpecificDAORegistryTest.Other.class));
+        
+        dispatcher.deleteAll(entities.subList(1, 4), 10);
+        
+        assertEquals(Long.valueOf(1), specificStore.count(Person.class));
+        assertEquals(Long.valueOf(0), genericStore.count(DefaultSpecificDAORegistryTest.Other.class));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the default methods of the {@link GenericDAO}.
+ * 
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class GenericDAOTest {
+    
+    private InMemoryGenericDAO store;
+    private BasicGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        final AtomicLong sequence = new AtomicLong(100);
+        store = new InMemoryGenericDAO().configure(Person.class, 
+                new TableSpec().idGenerator(() -> sequence.incrementAndGet()));
+        for (long i = 1; i <= 3; i++) {
+            store.save(new Person(i, "name" + i, (int) i));
+        }
+        dao = new BasicGenericDAO(store);
+    }
+    
+    
+    @Test
+    public void saveAll() {
+        List<Serializable> ids = dao.saveAll(Arrays.asList(
+                new Person(null, "a", 1), new Person(10L, "b", 1), new Person(null, "c", 1)), 0);
+        
+        assertEquals(Arrays.<Serializable>asList(101L, 10L, 102L), ids);
+        assertEquals(Arrays.asList("save", "save", "save"), dao.calls);
+        assertEquals(Long.valueOf(6), store.count(Person.class));
+    }
+    
+    @Test
+    public void updateAllAndSaveOrUpdateAll() {
+        dao.updateAll(Arrays.asList(new Person(1L, "x", 1), new Person(2L, "y", 2)), 0);
+        dao.saveOrUpdateAll(Arrays.asList(new Person(3L, "z", 3), new Person(20L, "new", 0)), 0);
+        
+        assertEquals(Arrays.asList("update", "update", "saveOrUpdate", "saveOrUpdate"), dao.calls);
+        assertEquals("y", store.findByPrimaryKey(2L, Person.class).getName());
+        assertEquals("z", store.findByPrimaryKey(3L, Person.class).getName());
+        assertTrue(store.isPersistent(20L, Person.class));
+    }
+    
+    @Test
+    public void deleteAll() {
+        dao.deleteAll(Arrays.asList(new Person(1L, "", 0), new Person(3L, "", 0)), 0);
+        
+        assertEquals(Arrays.asList("delete", "delete"), dao.calls);
+        assertEquals(Long.valueOf(1), store.count(Person.class));
+    }
+    
+    @Test
+    public void findByPrimaryKeys() {
+        Map<Long, Person> found = dao.findByPrimaryKeys(Arrays.asList(3L, 42L, 1L), Person.class);
+        
+        assertEquals(Arrays.asList(3L, 1L), new ArrayList<Long>(found.keySet()));
+        assertEquals("name3", found.get(3L).getName());
+        assertEquals(3, dao.calls.size());
+        assertTrue(dao.findByPrimaryKeys(Collections.<Long>emptyList(), Person.class).isEmpty());
+    }    
+    @Test
+    public void updatePropertiesOfEntity() {
+        Person detached = new Person(2L, "changed", 99);
+        
+        dao.updateProperties(detached, "name");
+        
+        Person stored = store.findByPrimaryKey(2L, Person.class);
+        assertEquals("changed", stored.getName());
+        assertEquals(2, stored.getAge());
+        assertEquals(Arrays.asList("findByPrimaryKey", "update"), dao.calls);
+    }
+    
+    @Test
+    public void updatePropertiesById() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("age", 50);
+        
+        dao.updateProperties(1L, values, Person.class);
+        
+        Person stored = store.findByPrimaryKey(1L, Person.class);
+        assertEquals(50, stored.getAge());
+        assertEquals("name1", stored.getName());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void updatePropertiesOfMissing() {
+        dao.updateProperties(42L, Collections.<String, Object>singletonMap("age", 1), Person.class);
+    }    
+    @Test
+    public void deleteByPropertyAndExample() {
+        store.save(new Person(4L, "name1", 4));
+        
+        assertEquals(2, dao.deleteByProperty("name", "name1", Person.class));
+        assertEquals(Long.valueOf(2), store.count(Person.class));
+        
+        assertEquals(1, dao.deleteByExample(new Person(null, "x", 3), new String[]{ "age" }, Person.class));
+        assertEquals(0, dao.deleteByProperty("name", "none", Person.class));
+        assertEquals(Long.valueOf(1), store.count(Person.class));
+    }
+    
+    @Test
+    public void updateByPropertyAndExample() {
+        Map<String, Object> values = Collections.<String, Object>singletonMap("age", 77);
+        
+        assertEquals(1, dao.updateByProperty("name", "name2", values, Person.class));
+        assertEquals(77, store.findByPrimaryKey(2L, Person.class).getAge());
+        assertEquals(1, dao.updateByExample(new Person(null, "name3", 0), new String[]{ "name" }, 
+                values, Person.class));
+        assertEquals(77, store.findByPrimaryKey(3L, Person.class).getAge());
+        assertEquals(1, store.findByPrimaryKey(1L, Person.class).getAge());
+        
+        dao.calls.clear();
+        assertEquals(0, dao.updateByProperty("name", "none", values, Person.class));
+        assertTrue(dao.calls.isEmpty());
+    }    
+    
+    /**
+     * Implements only the abstract methods, so the default ones are tested.
+     */
+    static class BasicGenericDAO implements GenericDAO {
+        
+        final List<String> calls = new ArrayList<String>();
+        final GenericDAO store;
+        
+        BasicGenericDAO(GenericDAO store) {
+            this.store = store;
+        }
+        
+        public Long count(Class<? extends Persistable> clazz) {
+            return store.count(clazz);
+        }
+        
+        public void delete(Persistable entity) {
+            calls.add("delete");
+            store.delete(entity);
+        }
+        
+        public void delete(Serializable id, Class<? extends Persistable> clazz) {
+            calls.add("delete");
+            store.delete(id, clazz);
+        }
+        
+        public <E extends Persistable> List<E> findByExample(
+                E exampleInstance, String[] includeProperties, PagingOrdering paging, Class<E> clazz) {
+            return store.findByExample(exampleInstance, includeProperties, paging, clazz);
+        }
+        
+        public <E extends Persistable> E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+            return store.findByNaturalKey(naturalKey, clazz);
+        }
+        
+        public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz) {
+            calls.add("findByPrimaryKey");
+            return store.findByPrimaryKey(id, clazz);
+        }
+        
+        public <E extends Persistable> List<E> findByProperty(
+                String property, Object value, PagingOrdering paging, Class<E> clazz) {
+            return store.findByProperty(property, value, paging, clazz);
+        }
+        
+        public <E extends Persistable> List<E> getAll(Class<E> clazz) {
+            return store.getAll(clazz);
+        }
+        
+        public <E extends Persistable> List<E> getPaginated(PagingOrdering paging, Class<E> clazz) {
+            return store.getPaginated(paging, clazz);
+        }
+        
+        public boolean isPersistent(Serializable id, Class<? extends Persistable> clazz) {
+            return store.isPersistent(id, clazz);
+        }
+        
+        public <E extends Persistable> E load(Serializable id, Class<E> clazz) {
+            return store.load(id, clazz);
+        }
+        
+        public Serializable save(Persistable entity) {
+            calls.add("save");
+            return store.save(entity);
+        }
+        
+        public void saveOrUpdate(Persistable entity) {
+            calls.add("saveOrUpdate");
+            store.saveOrUpdate(entity);
+        }
+        
+        public void update(Persistable entity) {
+            calls.add("update");
+            store.update(entity);
+        }
+    }
+}
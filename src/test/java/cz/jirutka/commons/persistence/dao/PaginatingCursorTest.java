@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class PaginatingCursorTest {
+    
+    @Test
+    public void pageByKeyset() {
+        InMemoryGenericDAO dao = new InMemoryGenericDAO();
+        for (long i = 25; i > 0; i--) {
+            dao.save(new Person(i, "name", 0));
+        }
+        final List<PagingOrdering> pagings = new ArrayList<PagingOrdering>();
+        
+        List<Long> ids = drain(new PaginatingCursor<Person>(10, paging -> {
+            pagings.add(paging);
+            return dao.getPaginated(paging, Person.class);
+        }));
+        
+        assertEquals(sequence(25), ids);
+        assertEquals(3, pagings.size());
+        assertFalse(pagings.get(0).isKeyset());
+        assertTrue(pagings.get(2).isKeyset());
+        assertEquals(0, pagings.get(2).getOffset());
+    }
+    
+    @Test(timeout = 10000)
+    public void fallBackToOffsetWhenAfterValuesIgnored() {
+        final List<Person> rows = new ArrayList<Person>();
+        for (long i = 1; i <= 25; i++) {
+            rows.add(new Person(i, "name", 0));
+        }
+        
+        List<Long> ids = drain(new PaginatingCursor<Person>(10, offsetOnly(rows)));
+        
+        assertEquals(sequence(25), ids);
+    }
+    
+    @Test
+    public void orderByGivenIdProperty() {
+        final List<PagingOrdering> pagings = new ArrayList<PagingOrdering>();
+        
+        drain(new PaginatingCursor<Person>(10, "key", paging -> {
+            pagings.add(paging);
+            return new ArrayList<Person>();
+        }));
+        
+        assertEquals("key", pagings.get(0).getIdProperty());
+        assertEquals("key", pagings.get(0).getOrdering().get(0).getPropertyName());
+    }
+    
+    @Test
+    public void stopAfterClose() {
+        List<Person> rows = new ArrayList<Person>();
+        for (long i = 1; i <= 5; i++) {
+            rows.add(new Person(i, "name", 0));
+        }
+        PaginatingCursor<Person> cursor = new PaginatingCursor<Person>(2, offsetOnly(rows));
+        
+        assertEquals(1L, cursor.next().getId().longValue());
+        cursor.close();
+        assertFalse(cursor.hasNext());
+    }
+    
+    
+    /**
+     * Loader that supports only the limit/offset pagination.
+     */
+    private static Function<PagingOrdering, List<Person>> offsetOnly(final List<Person> rows) {
+        return paging -> {
+            int from = Math.min(paging.getOffset(), rows.size());
+            int to = Math.min(from + paging.getLimit(), rows.size());
+            return new ArrayList<Person>(rows.subList(from, to));
+        };
+    }
+    
+    private static List<Long> drain(EntityCursor<Person> cursor) {
+        List<Long> ids = new ArrayList<Long>();
+        try {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().getId());
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+    
+    private static List<Long> sequence(int count) {
+        List<Long> result = new ArrayList<Long>(count);
+        for (long i = 1; i <= count; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+}
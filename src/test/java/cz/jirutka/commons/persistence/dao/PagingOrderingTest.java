@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Person;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class PagingOrderingTest {
+    
+    @Test
+    public void appendIdAsTieBreaker() {
+        PagingOrdering paging = new PagingOrdering().orderBy("age", OrderBy.DESC);
+        
+        assertEquals(Arrays.asList(new OrderBy("age", OrderBy.DESC), new OrderBy("id", OrderBy.DESC)), 
+                paging.getKeysetOrdering());
+        assertEquals(1, new PagingOrdering().orderBy("id").getKeysetOrdering().size());
+    }
+    
+    @Test
+    public void afterLastIdAndValues() {
+        PagingOrdering paging = new PagingOrdering().orderBy("age").after(7L, 30);
+        
+        assertTrue(paging.isKeyset());
+        assertEquals(Arrays.<Object>asList(30, 7L), paging.getAfterValues());
+        
+        paging = new PagingOrdering().orderBy("id").after(7L, 7L);
+        assertEquals(Arrays.<Object>asList(7L), paging.getAfterValues());
+    }
+    
+    @Test
+    public void afterLastRow() {
+        PagingOrdering paging = new PagingOrdering().orderBy("name").after(new Person(3L, "Kate", 20));
+        
+        assertEquals(Arrays.<Object>asList("Kate", 3L), paging.getAfterValues());
+    }
+    
+    @Test
+    public void continuationTokenRoundTrip() {
+        Person last = new Person(3L, "Kate", 20);
+        String token = new PagingOrdering().orderBy("name").orderBy("age").continuationToken(last);
+        
+        PagingOrdering next = new PagingOrdering().orderBy("name").orderBy("age").after(token);
+        
+        assertEquals(Arrays.<Object>asList("Kate", 20, 3L), next.getAfterValues());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTokenOfOtherOrdering() {
+        String token = new PagingOrdering().orderBy("name").continuationToken(new Person(3L, "Kate", 20));
+        new PagingOrdering().orderBy("age").after(token);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectMalformedToken() {
+        new PagingOrdering().orderBy("name").after("bm90IGEgdG9rZW4");
+    }
+    
+    @Test
+    public void encodeAllSupportedTypes() {
+        List<Object> values = Arrays.<Object>asList(null, "žluťoučký", 1L, 2, (short) 3, (byte) 4, 5.5, 6.5f, 
+                true, 'x', new BigDecimal("7.25"), new BigInteger("12345678901234567890"), 
+                new Date(1000), UUID.randomUUID());
+        
+        assertEquals(values, ContinuationTokens.decode(42, ContinuationTokens.encode(42, values)));
+    }
+    
+    @Test
+    public void encodeLongString() {
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'ř');
+        List<Object> values = Arrays.<Object>asList(new String(chars));
+        
+        assertEquals(values, ContinuationTokens.decode(1, ContinuationTokens.encode(1, values)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnsupportedType() {
+        ContinuationTokens.encode(1, Arrays.<Object>asList(new Object()));
+    }
+}
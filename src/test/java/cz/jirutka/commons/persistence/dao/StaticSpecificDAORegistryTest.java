@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class StaticSpecificDAORegistryTest {
+    
+    private GenericDAO store;
+    private PersonRegistry registry;
+    private PersonDAO personDAO;
+    
+    
+    @Before
+    public void setUp() {
+        store = new InMemoryGenericDAO();
+        registry = new PersonRegistry();
+        personDAO = new PersonDAO(store);
+    }
+    
+    
+    @Test
+    public void resolveKnownClassAndSubclass() {
+        assertEquals(-1, registry.indexOf(Person.class));
+        
+        registry.register(personDAO);
+        
+        assertEquals(0, registry.indexOf(Person.class));
+        assertEquals(0, registry.indexOf(Employee.class));
+        assertSame(personDAO, registry.getDAO(Employee.class));
+    }
+    
+    @Test
+    public void preferExactRuntimeRegistration() {
+        registry.register(personDAO);
+        assertEquals(0, registry.indexOf(Employee.class));  // memoized
+        
+        EmployeeDAO employeeDAO = new EmployeeDAO(store);
+        registry.register(employeeDAO);
+        
+        assertEquals(-1, registry.indexOf(Employee.class));
+        assertSame(employeeDAO, registry.getDAO(Employee.class));
+        assertSame(personDAO, registry.getDAO(Person.class));
+    }
+    
+    @Test
+    public void fallBackToRuntimeRegistration() {
+        EmployeeDAO employeeDAO = new EmployeeDAO(store);
+        registry.register(employeeDAO);
+        
+        assertTrue(registry.containsDAO(Employee.class));
+        assertFalse(registry.containsDAO(Person.class));
+    }
+    
+    
+    public static class PersonDAO extends DelegatingSpecificDAO<Person, Long> {
+        public PersonDAO(GenericDAO genericDAO) {
+            super(genericDAO);
+        }
+    }
+    
+    public static class EmployeeDAO extends DelegatingSpecificDAO<Employee, Long> {
+        public EmployeeDAO(GenericDAO genericDAO) {
+            super(genericDAO);
+        }
+    }
+    
+    /**
+     * Registry like the generated one, knowing only the {@link PersonDAO}.
+     */
+    static class PersonRegistry extends StaticSpecificDAORegistry {
+        
+        volatile PersonDAO dao0;
+        
+        protected int exactIndexOf(Class<?> entityClass) {
+            return entityClass == Person.class ? 0 : -1;
+        }
+        
+        protected SpecificDAO daoAt(int index) {
+            return index == 0 ? dao0 : null;
+        }
+        
+        protected boolean registerKnown(SpecificDAO specificDAO) {
+            if (specificDAO instanceof PersonDAO) {
+                dao0 = (PersonDAO) specificDAO;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class ExecutorAsyncGenericDAOTest {
+    
+    private InMemoryGenericDAO store;
+    private ManualExecutorService underlying;
+    private ExecutorAsyncGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        store = new InMemoryGenericDAO();
+        store.save(new Person(1L, "Alice", 30));
+        underlying = new ManualExecutorService();
+        dao = new ExecutorAsyncGenericDAO(store, underlying, 1);
+    }
+    
+    
+    @Test
+    public void runOperationOnExecutor() throws Exception {
+        CompletableFuture<Person> future = dao.findByPrimaryKey(1L, Person.class);
+        
+        assertFalse(future.isDone());
+        underlying.runAll();
+        
+        assertEquals("Alice", future.get().getName());
+    }
+    
+    @Test
+    public void findByLongId() throws Exception {
+        CompletableFuture<Person> found = dao.findByLongId(1L, Person.class);
+        CompletableFuture<Boolean> persistent = dao.isPersistentByLongId(2L, Person.class);
+        underlying.runAll();
+        
+        assertEquals("Alice", found.get().getName());
+        assertFalse(persistent.get());
+    }
+    
+    @Test
+    public void completeFailedOperationExceptionally() throws Exception {
+        CompletableFuture<Void> future = dao.delete((Person) null);
+        underlying.runAll();
+        
+        assertTrue(future.isCompletedExceptionally());
+    }
+    
+    @Test
+    public void completeRejectedQueuedOperationExceptionally() throws Exception {
+        CompletableFuture<Person> first = dao.findByPrimaryKey(1L, Person.class);
+        CompletableFuture<Person> queued = dao.findByPrimaryKey(1L, Person.class);
+        
+        underlying.rejecting = true;
+        underlying.runAll();
+        
+        assertEquals("Alice", first.get().getName());
+        assertTrue(queued.isDone());
+        try {
+            queued.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+    
+    
+    static class ManualExecutorService extends AbstractExecutorService {
+        
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        boolean rejecting;
+        
+        public void execute(Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        }
+        
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+        
+        public void shutdown() {
+        }
+        
+        public List<Runnable> shutdownNow() {
+            return tasks;
+        }
+        
+        public boolean isShutdown() {
+            return false;
+        }
+        
+        public boolean isTerminated() {
+            return false;
+        }
+        
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
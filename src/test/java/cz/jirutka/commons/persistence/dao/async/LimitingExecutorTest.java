@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class LimitingExecutorTest {
+    
+    private ManualExecutor underlying;
+    private List<Runnable> rejected;
+    private LimitingExecutor executor;
+    
+    
+    @Before
+    public void setUp() {
+        underlying = new ManualExecutor();
+        rejected = new ArrayList<Runnable>();
+        executor = new LimitingExecutor(underlying, 2, (task, ex) -> rejected.add(task));
+    }
+    
+    
+    @Test
+    public void queueTasksOverLimit() {
+        List<String> log = new ArrayList<String>();
+        for (String name : new String[]{ "a", "b", "c" }) {
+            executor.execute(() -> log.add(name));
+        }
+        
+        assertEquals(2, underlying.tasks.size());
+        assertEquals(2, executor.getRunningCount());
+        assertEquals(1, executor.getQueuedCount());
+        
+        underlying.runNext();
+        
+        assertEquals(2, underlying.tasks.size());
+        assertEquals(0, executor.getQueuedCount());
+        
+        underlying.runAll();
+        
+        assertEquals(Arrays.asList("a", "b", "c"), log);
+        assertEquals(0, executor.getRunningCount());
+    }
+    
+    @Test
+    public void throwOwnRejectedTask() {
+        underlying.rejecting = true;
+        try {
+            executor.execute(() -> {});
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+        assertEquals(0, executor.getRunningCount());
+        assertEquals(0, executor.getQueuedCount());
+        assertTrue(rejected.isEmpty());
+    }
+    
+    @Test
+    public void handOverRejectedQueuedTask() {
+        Runnable queued = () -> {};
+        executor.execute(() -> {});
+        executor.execute(() -> {});
+        executor.execute(queued);
+        
+        underlying.rejecting = true;
+        underlying.runNext();
+        
+        assertEquals(1, rejected.size());
+        assertSame(queued, rejected.get(0));
+        assertEquals(0, executor.getQueuedCount());
+        assertEquals(1, executor.getRunningCount());
+    }
+    
+    
+    static class ManualExecutor implements Executor {
+        
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        boolean rejecting;
+        
+        public void execute(Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        }
+        
+        void runNext() {
+            tasks.remove(0).run();
+        }
+        
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.batching;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class BatchingGenericDAOTest {
+    
+    private final List<Collection<?>> fetches = new CopyOnWriteArrayList<Collection<?>>();
+    private volatile RuntimeException failure;
+    
+    private ExecutorService executor;
+    private InMemoryGenericDAO store;
+    
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        
+        store = new InMemoryGenericDAO() {
+            public <ID extends Serializable, E extends Persistable> 
+                    Map<ID, E> findByPrimaryKeys(Collection<ID> ids, Class<E> clazz) {
+                fetches.add(new HashSet<ID>(ids));
+                if (failure != null) {
+                    throw failure;
+                }
+                return super.findByPrimaryKeys(ids, clazz);
+            }
+        };
+        for (long i = 1; i <= 10; i++) {
+            store.save(new Person(i, "name" + i, (int) i));
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    
+    @Test(timeout = 10000)
+    public void fetchFullBatchAtOnce() throws Exception {
+        // the window is long, so only the full batch triggers the fetch
+        final BatchingGenericDAO dao = new BatchingGenericDAO(store, 1, TimeUnit.HOURS, 4);
+        List<Future<Person>> results = new ArrayList<Future<Person>>();
+        for (final long id : new long[]{ 1, 2, 3, 42 }) {
+            results.add(executor.submit(() -> dao.findByPrimaryKey(id, Person.class)));
+        }
+        
+        assertEquals("name1", results.get(0).get().getName());
+        assertEquals("name3", results.get(2).get().getName());
+        assertNull(results.get(3).get());
+        assertEquals(Arrays.asList(new HashSet<Long>(Arrays.asList(1L, 2L, 3L, 42L))), fetches);
+    }
+    
+    @Test(timeout = 10000)
+    public void fetchAfterWindow() {
+        BatchingGenericDAO dao = new BatchingGenericDAO(store, 10, TimeUnit.MILLISECONDS, 100);
+        
+        assertEquals("name5", dao.findByPrimaryKey(5L, Person.class).getName());
+        assertEquals(1, fetches.size());
+    }
+    
+    @Test
+    public void scopeFetchesOnDispatch() {
+        BatchingGenericDAO dao = new BatchingGenericDAO(store, 1, TimeUnit.HOURS, 100);
+        CompletableFuture<Person> first, second, missing;
+        
+        try (BatchScope scope = dao.openScope()) {
+            first = scope.load(1L, Person.class);
+            second = scope.load(2L, Person.class);
+            missing = scope.load(42L, Person.class);
+            
+            assertTrue(fetches.isEmpty());
+            assertFalse(first.isDone());
+        }
+        assertEquals(1, fetches.size());
+        assertEquals("name1", first.join().getName());
+        assertEquals("name2", second.join().getName());
+        assertNull(missing.join());
+    }
+    
+    @Test
+    public void scopeDispatchesFullBatch() {
+        BatchingGenericDAO dao = new BatchingGenericDAO(store, 1, TimeUnit.HOURS, 2);
+        BatchScope scope = dao.openScope();
+        
+        CompletableFuture<Person> first = scope.load(1L, Person.class);
+        CompletableFuture<Person> second = scope.load(2L, Person.class);
+        CompletableFuture<Person> third = scope.load(3L, Person.class);
+        
+        assertTrue(first.isDone() && second.isDone());
+        assertFalse(third.isDone());
+        
+        scope.dispatch();
+        assertEquals("name3", third.join().getName());
+        assertEquals(2, fetches.size());
+    }
+    
+    @Test
+    public void scopeCompletesExceptionally() {
+        failure = new IllegalStateException("boom");
+        BatchingGenericDAO dao = new BatchingGenericDAO(store, 1, TimeUnit.HOURS, 100);
+        BatchScope scope = dao.openScope();
+        CompletableFuture<Person> future = scope.load(1L, Person.class);
+        
+        scope.dispatch();
+        
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(Collections.singletonList(new HashSet<Long>(Arrays.asList(1L))), fetches);
+    }
+}
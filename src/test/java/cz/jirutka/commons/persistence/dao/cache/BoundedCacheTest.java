@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class BoundedCacheTest {
+    
+    @Test
+    public void putAndGet() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 0);
+        
+        assertNull(cache.get("a"));
+        cache.put("a", "A", cache.stamp());
+        
+        assertEquals("A", cache.get("a"));
+        assertTrue(cache.contains("a"));
+        assertEquals(1, cache.stats().getHitCount());
+        assertEquals(1, cache.stats().getMissCount());
+    }
+    
+    @Test
+    public void ignoreStalePut() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 0);
+        
+        long stamp = cache.stamp();
+        cache.invalidate("other");  // a concurrent write while loading
+        cache.put("a", "stale", stamp);
+        
+        assertNull(cache.get("a"));
+        
+        stamp = cache.stamp();
+        cache.invalidateAll();
+        cache.put("a", "stale", stamp);
+        
+        assertNull(cache.get("a"));
+        
+        cache.put("a", "fresh", cache.stamp());
+        assertEquals("fresh", cache.get("a"));
+    }
+    
+    @Test
+    public void rejectInfrequentCandidate() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(2, 0);
+        for (String key : new String[]{ "a", "b" }) {
+            cache.get(key);
+            cache.put(key, key, cache.stamp());
+        }
+        
+        cache.put("cold", "cold", cache.stamp());
+        
+        assertFalse(cache.contains("cold"));
+        assertEquals(0, cache.stats().getEvictionCount());
+        assertEquals(1, cache.stats().getRejectionCount());
+        
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+        }
+        cache.put("hot", "hot", cache.stamp());
+        
+        assertTrue(cache.contains("hot"));
+        assertEquals(2, cache.stats().getSize());
+        assertEquals(1, cache.stats().getEvictionCount());
+        assertEquals(1, cache.stats().getRejectionCount());
+    }
+    
+    @Test
+    public void expireAfterWrite() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10, TimeUnit.MILLISECONDS.toNanos(1));
+        cache.put("a", "A", cache.stamp());
+        
+        Thread.sleep(20);
+        
+        assertNull(cache.get("a"));
+        assertFalse(cache.contains("a"));
+    }
+    
+    @Test
+    public void longKeys() {
+        BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10, 0, true);
+        cache.put(1L, "one", cache.stamp());
+        cache.put(2L, "two", cache.stamp());
+        
+        assertEquals("one", cache.get(1L));
+        assertEquals("two", cache.get(Long.valueOf(2)));
+        assertTrue(cache.contains(2L));
+        
+        cache.invalidate(1L);
+        assertNull(cache.get(1L));
+    }
+}
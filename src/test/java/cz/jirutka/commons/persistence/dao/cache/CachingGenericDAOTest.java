@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.cache;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.OrderBy;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class CachingGenericDAOTest {
+    
+    private final AtomicInteger finds = new AtomicInteger();
+    private final AtomicInteger naturalFinds = new AtomicInteger();
+    private volatile boolean failWrites = false;
+    
+    private InMemoryGenericDAO store;
+    private CachingGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        // returns copies, so the cached instances are detached as from an ORM
+        store = new InMemoryGenericDAO() {
+            public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz) {
+                finds.incrementAndGet();
+                return copy(super.findByPrimaryKey(id, clazz));
+            }
+            public <E extends Persistable> E findByNaturalKey(Object naturalKey, Class<E> clazz) {
+                naturalFinds.incrementAndGet();
+                return copy(super.findByNaturalKey(naturalKey, clazz));
+            }
+            public void update(Persistable entity) {
+                super.update(entity);
+                if (failWrites) {
+                    throw new IllegalStateException("failed after write");
+                }
+            }
+            public void saveOrUpdate(Persistable entity) {
+                super.saveOrUpdate(entity);
+                if (failWrites) {
+                    throw new IllegalStateException("failed after write");
+                }
+            }
+        };
+        store.configure(Person.class, new TableSpec().naturalKey("name"));
+        
+        for (long i = 1; i <= 5; i++) {
+            store.save(new Person(i, "name" + i, (int) i));
+        }
+        dao = new CachingGenericDAO(store, new CacheSpec(100));
+    }
+    
+    
+    @Test
+    public void cacheFoundInstance() {
+        Person person = dao.findByPrimaryKey(1L, Person.class);
+        
+        assertSame(person, dao.findByPrimaryKey(1L, Person.class));
+        assertEquals(1, finds.get());
+        assertEquals(1, dao.getStats(Person.class).getHitCount());
+        assertNull(dao.findByPrimaryKey(42L, Person.class));
+    }
+    
+    @Test
+    public void findByPrimaryKeysLoadsOnlyMissing() {
+        dao.findByPrimaryKey(1L, Person.class);
+        Map<Long, Person> found = dao.findByPrimaryKeys(Arrays.asList(1L, 2L, 42L), Person.class);
+        
+        assertEquals(Arrays.asList(1L, 2L), Arrays.asList(found.keySet().toArray()));
+        assertEquals(1, dao.getStats(Person.class).getHitCount());
+    }
+    
+    @Test
+    public void invalidateOnUpdate() {
+        dao.findByPrimaryKey(1L, Person.class);
+        dao.update(new Person(1L, "changed", 1));
+        
+        assertEquals("changed", dao.findByPrimaryKey(1L, Person.class).getName());
+    }
+    
+    @Test
+    public void invalidateOnDelete() {
+        dao.findByPrimaryKey(1L, Person.class);
+        dao.delete(1L, Person.class);
+        
+        assertNull(dao.findByPrimaryKey(1L, Person.class));
+    }
+    
+    @Test
+    public void evictOnFailedUpdate() {
+        dao.findByPrimaryKey(1L, Person.class);
+        failWrites = true;
+        try {
+            dao.update(new Person(1L, "changed", 1));
+            fail("should throw");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals("changed", dao.findByPrimaryKey(1L, Person.class).getName());
+    }
+    
+    @Test
+    public void evictOnFailedSaveOrUpdate() {
+        dao.findByPrimaryKey(1L, Person.class);
+        failWrites = true;
+        try {
+            dao.saveOrUpdate(new Person(1L, "changed", 1));
+            fail("should throw");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals("changed", dao.findByPrimaryKey(1L, Person.class).getName());
+    }
+    
+    @Test
+    public void refreshOnWrite() {
+        dao.configure(Person.class, new CacheSpec(100).refreshOnWrite(true));
+        dao.findByPrimaryKey(2L, Person.class);
+        Person person = new Person(2L, "refreshed", 2);
+        dao.update(person);
+        
+        assertSame(person, dao.findByPrimaryKey(2L, Person.class));
+        assertEquals(1, finds.get());
+    }
+    
+    @Test
+    public void bypassUnconfiguredClasses() {
+        CachingGenericDAO configured = new CachingGenericDAO(store);
+        configured.findByPrimaryKey(1L, Person.class);
+        configured.findByPrimaryKey(1L, Person.class);
+        
+        assertEquals(2, finds.get());
+        assertNull(configured.getStats(Person.class));
+    }
+    
+    @Test
+    public void cacheQueryResults() {
+        dao.configure(Person.class, new CacheSpec(100).queryCacheSize(10));
+        PagingOrdering paging = new PagingOrdering().orderBy("age", OrderBy.DESC).limit(2);
+        
+        List<Person> first = dao.getPaginated(paging, Person.class);
+        List<Person> second = dao.getPaginated(new PagingOrdering().orderBy("age", OrderBy.DESC).limit(2), Person.class);
+        
+        assertEquals(Arrays.asList(5L, 4L), ids(first));
+        assertEquals(ids(first), ids(second));
+        assertEquals(1, dao.getQueryStats(Person.class).getHitCount());
+        assertEquals(1, dao.findByProperty("name", "name3", null, Person.class).size());
+    }
+    
+    @Test
+    public void invalidateQueriesOnWrite() {
+        dao.configure(Person.class, new CacheSpec(100).queryCacheSize(10));
+        assertEquals(1, dao.findByProperty("name", "name3", null, Person.class).size());
+        
+        dao.save(new Person(6L, "name3", 6));
+        
+        assertEquals(Arrays.asList(3L, 6L), ids(dao.findByProperty("name", "name3", null, Person.class)));
+    }
+    
+    @Test
+    public void cacheNaturalKeys() {
+        dao.configure(Person.class, new CacheSpec(100).naturalKeyCacheSize(10)
+                .naturalKey((Person person) -> person.getName()));
+        
+        Person person = dao.findByNaturalKey("name1", Person.class);
+        
+        assertSame(person, dao.findByNaturalKey("name1", Person.class));
+        assertEquals(1, naturalFinds.get());
+        assertEquals(0, finds.get());
+    }
+    
+    @Test
+    public void rememberMissingNaturalKeys() {
+        dao.configure(Person.class, new CacheSpec(100).naturalKeyCacheSize(10)
+                .negativeNaturalKeyTtl(1, TimeUnit.HOURS));
+        
+        assertNull(dao.findByNaturalKey("none", Person.class));
+        assertNull(dao.findByNaturalKey("none", Person.class));
+        assertEquals(1, naturalFinds.get());
+        
+        dao.save(new Person(6L, "none", 6));
+        assertEquals(6L, dao.findByNaturalKey("none", Person.class).getId().longValue());
+    }
+    
+    @Test
+    public void verifyNaturalKeyAfterChange() {
+        dao.configure(Person.class, new CacheSpec(100).naturalKeyCacheSize(10)
+                .naturalKey((Person person) -> person.getName()));
+        dao.findByNaturalKey("name1", Person.class);
+        
+        dao.update(new Person(1L, "renamed", 1));
+        
+        assertNull(dao.findByNaturalKey("name1", Person.class));
+        assertEquals(1L, dao.findByNaturalKey("renamed", Person.class).getId().longValue());
+    }
+    
+    
+    private static List<Long> ids(List<Person> entities) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Person entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+    
+    private static <E> E copy(E entity) {
+        if (entity == null) {
+            return null;
+        }
+        Person person = (Person) entity;
+        return (E) new Person(person.getId(), person.getName(), person.getAge());
+    }
+}
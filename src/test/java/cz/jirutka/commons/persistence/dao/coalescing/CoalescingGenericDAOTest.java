@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.coalescing;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class CoalescingGenericDAOTest {
+    
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile RuntimeException failure;
+    
+    private ExecutorService executor;
+    private InMemoryGenericDAO store;
+    private CoalescingGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        
+        // the first lookup blocks until released, the others don't
+        store = new InMemoryGenericDAO() {
+            public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz) {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return super.findByPrimaryKey(id, clazz);
+            }
+        };
+        store.save(new Person(1L, "first", 1));
+        dao = new CoalescingGenericDAO(store);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    
+    @Test(timeout = 10000)
+    public void collapseConcurrentLookups() throws Exception {
+        List<Future<Person>> results = lookupConcurrently(5);
+        release.countDown();
+        
+        Person first = results.get(0).get();
+        for (Future<Person> result : results) {
+            assertSame(first, result.get());
+        }
+        assertEquals("first", first.getName());
+        assertEquals(1, calls.get());
+        assertEquals(1, dao.getStats(Person.class).getCallCount());
+        assertEquals(4, dao.getStats(Person.class).getCoalescedCount());
+    }
+    
+    @Test(timeout = 10000)
+    public void propagateFailure() throws Exception {
+        failure = new IllegalStateException("boom");
+        List<Future<Person>> results = lookupConcurrently(3);
+        release.countDown();
+        
+        for (Future<Person> result : results) {
+            try {
+                result.get();
+                fail("should throw");
+            } catch (ExecutionException ex) {
+                assertSame(failure, ex.getCause());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+    
+    @Test(timeout = 10000)
+    public void writeDetachesInFlightLookup() throws Exception {
+        Future<Person> stale = lookupConcurrently(1).get(0);
+        
+        dao.update(new Person(1L, "second", 2));
+        Person fresh = dao.findByPrimaryKey(1L, Person.class);
+        release.countDown();
+        
+        // the fresh lookup didn't wait for the stale one
+        assertEquals("second", fresh.getName());
+        assertEquals(2, calls.get());
+        stale.get();
+    }
+    
+    
+    /**
+     * Start the given number of lookups of the same instance and wait until
+     * all of them are in flight.
+     */
+    private List<Future<Person>> lookupConcurrently(int count) throws InterruptedException {
+        List<Future<Person>> results = new ArrayList<Future<Person>>();
+        results.add(executor.submit(() -> dao.findByPrimaryKey(1L, Person.class)));
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 1; i < count; i++) {
+            results.add(executor.submit(() -> dao.findByPrimaryKey(1L, Person.class)));
+        }
+        while (dao.getStats(Person.class).getCoalescedCount() < count - 1) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.mapped;
+
+import cz.jirutka.commons.persistence.Person;
+import java.io.File;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class MappedGenericDAOTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private MappedGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        dao = open(0);
+    }
+    
+    @After
+    public void tearDown() {
+        dao.close();
+    }
+    
+    
+    @Test
+    public void reopen() {
+        for (long i = 1; i <= 50; i++) {
+            dao.save(new Person(i, "name" + i, (int) i));
+        }
+        dao.delete(7L, Person.class);
+        dao.updateProperties(8L, Collections.<String, Object>singletonMap("name", "patched"), Person.class);
+        dao.close();
+        
+        dao = open(0);
+        
+        assertEquals(Long.valueOf(49), dao.count(Person.class));
+        assertNull(dao.findByPrimaryKey(7L, Person.class));
+        assertEquals("patched", dao.findByPrimaryKey(8L, Person.class).getName());
+        assertEquals(50, dao.findByPrimaryKey(50L, Person.class).getAge());
+    }
+    
+    @Test
+    public void compactRemovesDeadRecords() {
+        for (long i = 1; i <= 20; i++) {
+            dao.save(new Person(i, "name", 0));
+        }
+        for (int round = 1; round <= 20; round++) {
+            for (long i = 1; i <= 20; i++) {
+                dao.update(new Person(i, "name", round));
+            }
+        }
+        int before = segmentFiles();
+        
+        dao.compact();
+        
+        assertTrue("segments: " + before + " -> " + segmentFiles(), segmentFiles() < before);
+        assertEquals(Long.valueOf(20), dao.count(Person.class));
+        for (long i = 1; i <= 20; i++) {
+            assertEquals(20, dao.findByPrimaryKey(i, Person.class).getAge());
+        }
+        
+        dao.close();
+        dao = open(0);
+        
+        assertEquals(Long.valueOf(20), dao.count(Person.class));
+        assertEquals(20, dao.findByPrimaryKey(13L, Person.class).getAge());
+    }
+    
+    @Test
+    public void compactAutomatically() {
+        dao.close();
+        dao = open(0.5);
+        
+        for (int round = 1; round <= 500; round++) {
+            dao.saveOrUpdate(new Person(1L, "hot", round));
+        }
+        dao.save(new Person(2L, "cold", 0));
+        
+        assertTrue("segments: " + segmentFiles(), segmentFiles() <= 3);
+        assertEquals(500, dao.findByPrimaryKey(1L, Person.class).getAge());
+        assertEquals(Long.valueOf(2), dao.count(Person.class));
+    }
+    
+    @Test
+    public void bulkDeleteAndUpdate() {
+        for (long i = 1; i <= 10; i++) {
+            dao.save(new Person(i, i <= 4 ? "old" : "new", (int) (i % 3)));
+        }
+        
+        assertEquals(4, dao.deleteByProperty("name", "old", Person.class));
+        assertEquals(2, dao.updateByProperty("age", 0, Collections.<String, Object>singletonMap("name", "zero"), Person.class));
+        dao.close();
+        
+        dao = open(0);
+        
+        assertEquals(Long.valueOf(6), dao.count(Person.class));
+        assertEquals(2, dao.findByProperty("name", "zero", null, Person.class).size());
+    }
+    
+    
+    private MappedGenericDAO open(double compactionThreshold) {
+        MappedStoreSpec spec = new MappedStoreSpec()
+                .segmentSize(1024)
+                .compactionThreshold(compactionThreshold)
+                .initialCapacity(16);
+        return new MappedGenericDAO(folder.getRoot().toPath()).configure(Person.class, spec);
+    }
+    
+    private int segmentFiles() {
+        File[] files = folder.getRoot().listFiles((dir, name) -> name.endsWith(".seg"));
+        return files.length;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.memory;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same scenarios with and without secondary indexes, so both the 
+ * index lookups and the table scans are covered.
+ * 
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+@RunWith(Parameterized.class)
+public class InMemoryGenericDAOTest {
+    
+    private final boolean indexed;
+    private InMemoryGenericDAO dao;
+    
+    
+    public InMemoryGenericDAOTest(boolean indexed) {
+        this.indexed = indexed;
+    }
+    
+    @Parameters(name = "indexed={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[]{ true }, new Object[]{ false });
+    }
+    
+    @Before
+    public void setUp() {
+        final AtomicLong sequence = new AtomicLong(1000);
+        TableSpec spec = new TableSpec().idGenerator(() -> sequence.incrementAndGet());
+        if (indexed) {
+            spec.hashIndex("name").sortedIndex("age");
+        }
+        dao = new InMemoryGenericDAO().configure(Person.class, spec);
+        
+        for (long i = 1; i <= 10; i++) {
+            String name = i <= 4 ? "old" : "new";
+            dao.save(i % 2 == 0 ? new Employee(i, name, (int) (i % 3)) : new Person(i, name, (int) (i % 3)));
+        }
+    }
+    
+    
+    @Test
+    public void saveAndFind() {
+        Serializable id = dao.save(new Person(null, "generated", 1));
+        
+        assertEquals(1001L, id);
+        assertEquals("generated", dao.findByPrimaryKey(id, Person.class).getName());
+        assertTrue(dao.isPersistent(5L, Person.class));
+        assertNull(dao.findByPrimaryKey(42L, Person.class));
+        assertEquals(Long.valueOf(11), dao.count(Person.class));
+    }
+    
+    @Test
+    public void findByPropertyAfterUpdate() {
+        Person person = dao.findByPrimaryKey(1L, Person.class);
+        person.setName("renamed");
+        dao.update(person);
+        
+        assertEquals(ids(1L), ids(dao.findByProperty("name", "renamed", null, Person.class)));
+        assertEquals(ids(2L, 3L, 4L), ids(dao.findByProperty("name", "old", null, Person.class)));
+    }
+    
+    @Test
+    public void findBySubclass() {
+        assertEquals(ids(2L, 4L), ids(dao.findByProperty("name", "old", null, Employee.class)));
+        assertEquals(5, dao.getAll(Employee.class).size());
+    }
+    
+    @Test
+    public void getPaginatedOrdered() {
+        PagingOrdering paging = new PagingOrdering().orderBy("age").limit(4);
+        List<Person> page = dao.getPaginated(paging, Person.class);
+        
+        assertEquals(ids(3L, 6L, 9L, 1L), ids(page));
+        
+        page = dao.getPaginated(new PagingOrdering().orderBy("age").limit(4).after(page.get(3)), Person.class);
+        assertEquals(ids(4L, 7L, 10L, 2L), ids(page));
+    }
+    
+    @Test
+    public void scrollAllInIdOrder() {
+        List<Long> ids = new ArrayList<Long>();
+        try (EntityCursor<Person> cursor = dao.scrollAll(3, Person.class)) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().getId());
+            }
+        }
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), ids);
+    }
+    
+    @Test
+    public void updatePropertiesReplacesInstance() {
+        Person stored = dao.findByPrimaryKey(1L, Person.class);
+        dao.updateProperties(1L, Collections.<String, Object>singletonMap("name", "patched"), Person.class);
+        
+        assertEquals("old", stored.getName());
+        assertEquals("patched", dao.findByPrimaryKey(1L, Person.class).getName());
+        assertEquals(ids(1L), ids(dao.findByProperty("name", "patched", null, Person.class)));
+        assertFalse(ids(dao.findByProperty("name", "old", null, Person.class)).contains(1L));
+    }
+    
+    @Test
+    public void updatePropertiesIsAtomic() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("name", "patched");
+        values.put("age", "not a number");
+        try {
+            dao.updateProperties(1L, values, Person.class);
+            fail("should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertEquals("old", dao.findByPrimaryKey(1L, Person.class).getName());
+        assertTrue(dao.findByProperty("name", "patched", null, Person.class).isEmpty());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void updatePropertiesOfMissing() {
+        dao.updateProperties(42L, Collections.<String, Object>singletonMap("name", "x"), Person.class);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void updatePropertiesRejectsId() {
+        dao.updateProperties(1L, Collections.<String, Object>singletonMap("id", 7L), Person.class);
+    }
+    
+    @Test
+    public void bulkDeleteAndUpdate() {
+        assertEquals(2, dao.deleteByProperty("name", "old", Employee.class));
+        assertEquals(2, dao.deleteByProperty("name", "old", Person.class));
+        assertEquals(Long.valueOf(6), dao.count(Person.class));
+        assertTrue(dao.findByProperty("name", "old", null, Person.class).isEmpty());
+        
+        assertEquals(2, dao.updateByProperty("age", 0, Collections.<String, Object>singletonMap("name", "zero"), Person.class));
+        assertEquals(ids(6L, 9L), ids(dao.findByProperty("name", "zero", null, Person.class)));
+        
+        assertEquals(2, dao.deleteByExample(new Person(null, "new", 1), new String[]{ "name", "age" }, Person.class));
+        assertEquals(Long.valueOf(4), dao.count(Person.class));
+        assertEquals(0, dao.deleteByProperty("name", "none", Person.class));
+    }
+    
+    
+    private static List<Long> ids(Long... ids) {
+        return Arrays.asList(ids);
+    }
+    
+    private static List<Long> ids(List<? extends Person> entities) {
+        List<Long> ids = new ArrayList<Long>(entities.size());
+        for (Person entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+}
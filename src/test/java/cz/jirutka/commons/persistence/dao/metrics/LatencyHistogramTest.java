@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class LatencyHistogramTest {
+    
+    @Test
+    public void exactBucketsForSmallValues() {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.valueOf(LatencyHistogram.bucketOf(value)));
+        }
+    }
+    
+    @Test
+    public void bucketsAreMonotonicWithBoundedError() {
+        int previous = 0;
+        for (long value = 1; value < (1L << 41); value += 1 + value / 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long approx = LatencyHistogram.valueOf(bucket);
+            
+            assertTrue("bucket of " + value, bucket >= previous);
+            assertTrue("bucket of " + value, bucket < LatencyHistogram.BUCKETS);
+            assertTrue("value of " + value, Math.abs(approx - value) <= value / 16.0);
+            previous = bucket;
+        }
+    }
+    
+    @Test
+    public void largeValuesFallIntoLastBucket() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(1L << 41));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+    }
+    
+    @Test
+    public void snapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        histogram.record(-5);
+        
+        HistogramSnapshot snapshot = histogram.snapshot(false);
+        
+        assertEquals(1001, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(500000, snapshot.getPercentile(0.5), 500000 / 16.0);
+        assertEquals(990000, snapshot.getPercentile(0.99), 990000 / 16.0);
+        assertEquals(1000000, snapshot.getPercentile(1.0), 1000000 / 16.0);
+        assertTrue(snapshot.getPercentile(1.0) <= snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile(0.0));
+    }
+    
+    @Test
+    public void snapshotWithReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        
+        assertEquals(1, histogram.snapshot(true).getCount());
+        
+        HistogramSnapshot empty = histogram.snapshot(false);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMax());
+        assertEquals(0, empty.getPercentile(0.99));
+        assertEquals(0.0, empty.getMean(), 0.0);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.routing;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The stores are not replicated, so the name of the found instance tells 
+ * where the read has been sent.
+ * 
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class ReadWriteSplittingGenericDAOTest {
+    
+    private InMemoryGenericDAO primary;
+    private ReadWriteSplittingGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        primary = store("primary");
+        dao = new ReadWriteSplittingGenericDAO(primary, Arrays.asList(store("replica1"), store("replica2")));
+    }
+    
+    
+    @Test
+    public void readFromReplicasInTurn() {
+        assertEquals("replica1", nameOf(1L));
+        assertEquals("replica2", nameOf(1L));
+        assertEquals("replica1", nameOf(1L));
+    }
+    
+    @Test
+    public void readYourWrites() throws InterruptedException {
+        dao.update(new Person(1L, "primary", 0));
+        
+        assertEquals("primary", nameOf(1L));
+        assertEquals("primary", nameOf(1L));
+        
+        // other context still reads from the replicas
+        final AtomicReference<String> other = new AtomicReference<String>();
+        Thread thread = new Thread(() -> other.set(nameOf(1L)));
+        thread.start();
+        thread.join();
+        
+        assertTrue(other.get().startsWith("replica"));
+    }
+    
+    @Test
+    public void readYourWritesOfSubclass() {
+        dao.save(new Employee(10L, "employee", 0));
+        
+        assertEquals("primary", nameOf(1L));
+    }
+    
+    @Test
+    public void readFromReplicasAfterWindow() throws InterruptedException {
+        dao.readYourWritesWindow(1, TimeUnit.MILLISECONDS);
+        dao.delete(2L, Person.class);
+        Thread.sleep(20);
+        
+        assertTrue(nameOf(1L).startsWith("replica"));
+    }
+    
+    @Test
+    public void readFromReplicasAfterReset() {
+        dao.delete(2L, Person.class);
+        dao.resetContext();
+        
+        assertTrue(nameOf(1L).startsWith("replica"));
+    }
+    
+    @Test
+    public void readFromReplicasWithZeroWindow() {
+        dao.readYourWritesWindow(0, TimeUnit.SECONDS);
+        dao.delete(2L, Person.class);
+        
+        assertTrue(nameOf(1L).startsWith("replica"));
+    }
+    
+    @Test
+    public void loadFromPrimary() {
+        assertEquals("primary", dao.load(1L, Person.class).getName());
+    }
+    
+    @Test
+    public void readFromPrimaryWithoutReplicas() {
+        dao = new ReadWriteSplittingGenericDAO(primary, Collections.<GenericDAO>emptyList());
+        
+        assertEquals("primary", nameOf(1L));
+    }
+    
+    
+    private String nameOf(long id) {
+        return dao.findByPrimaryKey(id, Person.class).getName();
+    }
+    
+    private static InMemoryGenericDAO store(String name) {
+        InMemoryGenericDAO store = new InMemoryGenericDAO().configure(Person.class, new TableSpec());
+        store.save(new Person(1L, name, 0));
+        store.save(new Person(2L, name, 0));
+        return store;
+    }
+}
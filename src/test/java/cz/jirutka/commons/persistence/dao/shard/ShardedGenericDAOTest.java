@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.shard;
+
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.EntityCursor;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class ShardedGenericDAOTest {
+    
+    private ShardedGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        List<GenericDAO> shards = new ArrayList<GenericDAO>();
+        for (int i = 0; i < 3; i++) {
+            shards.add(new InMemoryGenericDAO());
+        }
+        dao = new ShardedGenericDAO(shards, ShardFunction.MODULO_HASH);
+        
+        for (long i = 30; i > 0; i--) {
+            dao.save(new Person(i, i <= 10 ? "old" : "new", (int) (i % 2)));
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        dao.close();
+    }
+    
+    
+    @Test
+    public void routeById() {
+        for (GenericDAO shard : dao.getShards()) {
+            assertEquals(Long.valueOf(10), shard.count(Person.class));
+        }
+        GenericDAO owner = dao.getShards().get(dao.shardFor(7L));
+        
+        assertEquals(7L, owner.findByPrimaryKey(7L, Person.class).getId().longValue());
+        assertEquals(7L, dao.findByPrimaryKey(7L, Person.class).getId().longValue());
+        assertTrue(dao.isPersistent(7L, Person.class));
+        assertEquals(Long.valueOf(30), dao.count(Person.class));
+    }
+    
+    @Test
+    public void findByPrimaryKeysAcrossShards() {
+        Map<Long, Person> found = dao.findByPrimaryKeys(Arrays.asList(1L, 2L, 3L, 42L), Person.class);
+        
+        assertEquals(3, found.size());
+        assertEquals(2L, found.get(2L).getId().longValue());
+        assertFalse(found.containsKey(42L));
+    }
+    
+    @Test
+    public void getPaginatedMergesShards() {
+        List<Long> ids = new ArrayList<Long>();
+        PagingOrdering paging = new PagingOrdering().limit(4).orderBy("age");
+        while (true) {
+            List<Person> page = dao.getPaginated(paging, Person.class);
+            for (Person person : page) {
+                ids.add(person.getId());
+            }
+            if (page.size() < 4) {
+                break;
+            }
+            paging = new PagingOrdering().limit(4).orderBy("age").after(page.get(page.size() - 1));
+        }
+        
+        List<Long> expected = new ArrayList<Long>();
+        for (long i = 2; i <= 30; i += 2) {
+            expected.add(i);
+        }
+        for (long i = 1; i <= 30; i += 2) {
+            expected.add(i);
+        }
+        assertEquals(expected, ids);
+    }
+    
+    @Test
+    public void scrollAllShards() {
+        List<Long> ids = new ArrayList<Long>();
+        try (EntityCursor<Person> cursor = dao.scrollAll(4, Person.class)) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().getId());
+            }
+        }
+        Collections.sort(ids);
+        
+        assertEquals(30, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, ids.get(i).longValue());
+        }
+    }
+    
+    @Test
+    public void bulkDeleteSumsShards() {
+        assertEquals(10, dao.deleteByProperty("name", "old", Person.class));
+        assertEquals(Long.valueOf(20), dao.count(Person.class));
+        assertTrue(dao.findByProperty("name", "old", null, Person.class).isEmpty());
+    }
+    
+    @Test
+    public void merge() {
+        List<List<Integer>> sources = Arrays.asList(
+                Arrays.asList(1, 4, 7), Arrays.asList(2, 5), Arrays.<Integer>asList(), Arrays.asList(3, 6));
+        
+        assertEquals(Arrays.asList(3, 4, 5), ShardedGenericDAO.merge(sources, Integer::compare, 2, 3));
+    }
+}
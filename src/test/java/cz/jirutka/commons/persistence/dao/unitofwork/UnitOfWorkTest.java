@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.unitofwork;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.dao.PagingOrdering;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class UnitOfWorkTest {
+    
+    private final List<String> log = new ArrayList<String>();
+    private final AtomicInteger finds = new AtomicInteger();
+    
+    private InMemoryGenericDAO store;
+    private UnitOfWork uow;
+    
+    
+    @Before
+    public void setUp() {
+        final AtomicLong sequence = new AtomicLong(1000);
+        store = new InMemoryGenericDAO().configure(Person.class, 
+                new TableSpec().idGenerator(() -> sequence.incrementAndGet()));
+        for (long i = 1; i <= 5; i++) {
+            store.save(new Person(i, "name" + i, 1));
+        }
+        uow = new UnitOfWork(new LoggingDAO());
+    }
+    
+    @After
+    public void tearDown() {
+        uow.close();
+    }
+    
+    
+    @Test
+    public void identityMap() {
+        Person person = uow.findByPrimaryKey(1L, Person.class);
+        
+        assertSame(person, uow.findByPrimaryKey(1L, Person.class));
+        assertEquals(1, finds.get());
+        assertTrue(uow.contains(person));
+        
+        List<Person> found = uow.findByProperty("age", 1, null, Person.class);
+        assertTrue(containsSame(found, person));
+    }
+    
+    @Test
+    public void trackDirtyProperties() {
+        Person person = uow.findByPrimaryKey(1L, Person.class);
+        assertTrue(uow.getDirtyProperties(person).isEmpty());
+        
+        person.setAge(42);
+        
+        assertEquals(Arrays.asList("age"), uow.getDirtyProperties(person));
+    }
+    
+    @Test
+    public void commitInOrder() {
+        Person first = uow.findByPrimaryKey(1L, Person.class);
+        first.setAge(42);
+        uow.update(first);
+        uow.update(uow.findByPrimaryKey(2L, Person.class));  // not dirty
+        uow.delete(uow.findByPrimaryKey(3L, Person.class));
+        uow.delete(4L, Person.class);
+        uow.save(new Person(20L, "new", 0));
+        uow.save(new Person(21L, "gone", 0));
+        uow.delete(new Person(21L, "gone", 0));
+        
+        assertNull(uow.findByPrimaryKey(3L, Person.class));
+        assertFalse(uow.isPersistent(4L, Person.class));
+        assertEquals("new", uow.findByPrimaryKey(20L, Person.class).getName());
+        assertTrue(log.isEmpty());
+        
+        uow.commit();
+        
+        assertEquals(Arrays.asList("saveAll[20]", "updateAll[1]", "deleteAll[3]", "delete4"), log);
+        assertEquals(42, store.findByPrimaryKey(1L, Person.class).getAge());
+        assertFalse(store.isPersistent(3L, Person.class));
+        assertFalse(store.isPersistent(4L, Person.class));
+        assertTrue(store.isPersistent(20L, Person.class));
+        assertFalse(store.isPersistent(21L, Person.class));
+        
+        log.clear();
+        uow.commit();
+        assertTrue(log.isEmpty());
+    }
+    
+    @Test
+    public void saveWithoutIdImmediately() {
+        Serializable id = uow.save(new Person(null, "generated", 0));
+        
+        assertEquals(1001L, id);
+        assertEquals(Arrays.asList("save"), log);
+    }
+    
+    @Test
+    public void updateDetachedAlways() {
+        uow.update(new Person(5L, "detached", 9));
+        uow.commit();
+        
+        assertEquals(Arrays.asList("updateAll[5]"), log);
+        assertEquals("detached", store.findByPrimaryKey(5L, Person.class).getName());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void rejectUpdateOfDeleted() {
+        uow.delete(4L, Person.class);
+        uow.update(new Person(4L, "x", 0));
+    }
+    
+    @Test
+    public void updatePropertiesWithoutLoading() {
+        uow.updateProperties(5L, Collections.<String, Object>singletonMap("name", "patched"), Person.class);
+        uow.updateProperties(5L, Collections.<String, Object>singletonMap("age", 3), Person.class);
+        assertEquals(0, finds.get());
+        
+        uow.commit();
+        
+        assertEquals(1, log.size());
+        assertTrue(log.get(0).startsWith("updateProperties5"));
+        assertEquals("patched", store.findByPrimaryKey(5L, Person.class).getName());
+        assertEquals(3, store.findByPrimaryKey(5L, Person.class).getAge());
+    }
+    
+    @Test
+    public void applyPendingPropertiesOnRead() {
+        uow.updateProperties(1L, Collections.<String, Object>singletonMap("age", 50), Person.class);
+        Person person = uow.findByPrimaryKey(1L, Person.class);
+        
+        assertEquals(50, person.getAge());
+        
+        person.setName("changed");
+        uow.commit();
+        
+        assertEquals(Arrays.asList("updateAll[1]"), log);
+        assertEquals(50, store.findByPrimaryKey(1L, Person.class).getAge());
+        assertEquals("changed", store.findByPrimaryKey(1L, Person.class).getName());
+    }
+    
+    
+    private static boolean containsSame(List<?> list, Object element) {
+        for (Object item : list) {
+            if (item == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String ids(Collection<? extends Persistable> entities) {
+        List<Serializable> ids = new ArrayList<Serializable>();
+        for (Persistable entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids.toString();
+    }
+    
+    private static <E> E copy(E entity) {
+        if (entity == null) {
+            return null;
+        }
+        Person person = (Person) entity;
+        return (E) new Person(person.getId(), person.getName(), person.getAge());
+    }
+    
+    
+    /**
+     * DAO that returns detached copies of the stored instances and logs the
+     * writes.
+     */
+    private class LoggingDAO extends InMemoryGenericDAO {
+        
+        public <E extends Persistable> E findByPrimaryKey(Serializable id, Class<E> clazz) {
+            finds.incrementAndGet();
+            return copy(store.findByPrimaryKey(id, clazz));
+        }
+        
+        public <E extends Persistable> 
+                List<E> findByProperty(String property, Object value, PagingOrdering paging, Class<E> clazz) {
+            List<E> result = new ArrayList<E>();
+            for (E entity : store.findByProperty(property, value, paging, clazz)) {
+                result.add(copy(entity));
+            }
+            return result;
+        }
+        
+        public Serializable save(Persistable entity) {
+            log.add("save");
+            return store.save(entity);
+        }
+        
+        public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+            log.add("saveAll" + ids(entities));
+            return store.saveAll(entities, batchSize);
+        }
+        
+        public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+            log.add("updateAll" + ids(entities));
+            store.updateAll(entities, batchSize);
+        }
+        
+        public void deleteAll(Collection<? extends Persistable> entities, int batchSize) {
+            log.add("deleteAll" + ids(entities));
+            store.deleteAll(entities, batchSize);
+        }
+        
+        public void delete(Serializable id, Class<? extends Persistable> clazz) {
+            log.add("delete" + id);
+            store.delete(id, clazz);
+        }
+        
+        public void updateProperties(Serializable id, Map<String, Object> values, Class<? extends Persistable> clazz) {
+            log.add("updateProperties" + id + values);
+            store.updateProperties(id, values, clazz);
+        }
+    }
+}
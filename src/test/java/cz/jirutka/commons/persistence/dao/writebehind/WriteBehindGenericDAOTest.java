@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.dao.writebehind;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.Person;
+import cz.jirutka.commons.persistence.Person.Employee;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import cz.jirutka.commons.persistence.dao.memory.TableSpec;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class WriteBehindGenericDAOTest {
+    
+    private final AtomicInteger updateAllCalls = new AtomicInteger();
+    private InMemoryGenericDAO store;
+    private WriteBehindGenericDAO dao;
+    
+    
+    @Before
+    public void setUp() {
+        store = new InMemoryGenericDAO() {
+            public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+                updateAllCalls.incrementAndGet();
+                super.updateAll(entities, batchSize);
+            }
+        };
+        final AtomicLong sequence = new AtomicLong(1000);
+        store.configure(Person.class, new TableSpec().idGenerator(() -> sequence.incrementAndGet()));
+        
+        for (long i = 1; i <= 5; i++) {
+            store.save(new Person(i, "name" + i, 1));
+        }
+        dao = new WriteBehindGenericDAO(store, 1000, 1, TimeUnit.HOURS, 5000);
+    }
+    
+    @After
+    public void tearDown() {
+        dao.close();
+    }
+    
+    
+    @Test
+    public void coalesceUpdates() {
+        for (int i = 0; i < 100; i++) {
+            dao.update(new Person(1L, "v" + i, i));
+        }
+        
+        assertEquals("name1", store.findByPrimaryKey(1L, Person.class).getName());
+        assertEquals("v99", dao.findByPrimaryKey(1L, Person.class).getName());
+        assertEquals(1, dao.getStats().getPendingCount());
+        
+        dao.flush();
+        
+        assertEquals("v99", store.findByPrimaryKey(1L, Person.class).getName());
+        assertEquals(1, updateAllCalls.get());
+        assertEquals(0, dao.getStats().getPendingCount());
+    }
+    
+    @Test
+    public void readsSeePendingWrites() {
+        dao.delete(2L, Person.class);
+        dao.save(new Person(11L, "s", 0));
+        dao.saveOrUpdate(new Person(11L, "s2", 0));
+        
+        assertNull(dao.findByPrimaryKey(2L, Person.class));
+        assertFalse(dao.isPersistent(2L, Person.class));
+        
+        Map<Long, Person> found = dao.findByPrimaryKeys(Arrays.asList(1L, 2L, 11L), Person.class);
+        assertEquals(2, found.size());
+        assertEquals("s2", found.get(11L).getName());
+        
+        assertEquals(Long.valueOf(5), dao.count(Person.class));
+        assertFalse(store.isPersistent(2L, Person.class));
+        assertEquals("s2", store.findByPrimaryKey(11L, Person.class).getName());
+    }
+    
+    @Test
+    public void saveAndDeleteCancel() {
+        dao.save(new Person(10L, "new", 0));
+        dao.delete(new Person(10L, "new", 0));
+        
+        assertEquals(0, dao.getStats().getPendingCount());
+    }
+    
+    @Test
+    public void mergeWritesOfSubclassInstance() {
+        dao.save(new Employee(20L, "e", 0));
+        dao.delete(new Person(20L, "e", 0));
+        
+        assertEquals(0, dao.getStats().getPendingCount());
+        assertNull(dao.findByPrimaryKey(20L, Person.class));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void rejectUpdateOfDeleted() {
+        dao.delete(2L, Person.class);
+        dao.update(new Person(2L, "x", 0));
+    }
+    
+    @Test
+    public void writeThroughWithoutId() {
+        Serializable id = dao.save(new Person(null, "generated", 0));
+        
+        assertEquals(1001L, id);
+        assertTrue(store.isPersistent(id, Person.class));
+    }
+    
+    @Test(timeout = 10000)
+    public void flushAfterInterval() throws InterruptedException {
+        dao.close();
+        dao = new WriteBehindGenericDAO(store, 1000, 20, TimeUnit.MILLISECONDS, 5000);
+        dao.update(new Person(3L, "timed", 0));
+        
+        while (!"timed".equals(store.findByPrimaryKey(3L, Person.class).getName())) {
+            Thread.sleep(10);
+        }
+    }
+    
+    @Test(timeout = 10000)
+    public void keepDeleteOfInstanceInFlight() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        InMemoryGenericDAO slow = new InMemoryGenericDAO() {
+            public List<Serializable> saveAll(Collection<? extends Persistable> entities, int batchSize) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return super.saveAll(entities, batchSize);
+            }
+        };
+        dao.close();
+        dao = new WriteBehindGenericDAO(slow, 1, 1, TimeUnit.HOURS, 10);
+        
+        dao.save(new Person(1L, "a", 0));
+        entered.await();
+        dao.save(new Person(1L, "b", 0));
+        dao.delete(1L, Person.class);
+        release.countDown();
+        dao.close();
+        
+        assertFalse(slow.isPersistent(1L, Person.class));
+    }
+    
+    @Test(timeout = 10000)
+    public void blockProducerWhenFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        InMemoryGenericDAO slow = new InMemoryGenericDAO() {
+            public void saveOrUpdateAll(Collection<? extends Persistable> entities, int batchSize) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                super.saveOrUpdateAll(entities, batchSize);
+            }
+        };
+        dao.close();
+        dao = new WriteBehindGenericDAO(slow, 10, 1, TimeUnit.HOURS, 20);
+        
+        Thread producer = new Thread(() -> {
+            for (long i = 100; i < 140; i++) {
+                dao.saveOrUpdate(new Person(i, "p", 0));
+            }
+        });
+        producer.start();
+        producer.join(200);
+        
+        assertTrue(producer.isAlive());
+        assertTrue(dao.getStats().getPendingCount() <= 20);
+        
+        release.countDown();
+        producer.join();
+        dao.close();
+        
+        assertEquals(Long.valueOf(40), slow.count(Person.class));
+    }
+    
+    @Test
+    public void rethrowFailedFlush() {
+        InMemoryGenericDAO failing = new InMemoryGenericDAO() {
+            public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        dao.close();
+        dao = new WriteBehindGenericDAO(failing, 10, 1, TimeUnit.HOURS, 20);
+        dao.update(new Person(1L, "x", 0));
+        
+        try {
+            dao.flush();
+            fail("should throw");
+        } catch (IllegalStateException ex) {
+            assertEquals("boom", ex.getMessage());
+        }
+        assertEquals(1, dao.getStats().getFailedCount());
+    }
+    
+    @Test(timeout = 10000)
+    public void rethrowBackgroundFailureOnFlush() throws InterruptedException {
+        dao.close();
+        dao = new WriteBehindGenericDAO(failingOnce(), 1, 1, TimeUnit.HOURS, 10);
+        dao.update(new Person(1L, "x", 0));
+        
+        while (dao.getStats().getFailedCount() == 0) {
+            Thread.sleep(10);
+        }
+        try {
+            dao.flush();
+            fail("should throw");
+        } catch (IllegalStateException ex) {
+            assertEquals("boom", ex.getCause().getMessage());
+        }
+        dao.flush();  // thrown only once
+    }
+    
+    @Test(timeout = 10000)
+    public void rethrowBackgroundFailureOnNextWrite() throws InterruptedException {
+        InMemoryGenericDAO failing = failingOnce();
+        dao.close();
+        dao = new WriteBehindGenericDAO(failing, 1, 1, TimeUnit.HOURS, 10);
+        dao.update(new Person(1L, "x", 0));
+        
+        IllegalStateException thrown = null;
+        while (thrown == null) {
+            try {
+                dao.update(new Person(2L, "y", 0));
+                Thread.sleep(10);
+            } catch (IllegalStateException ex) {
+                thrown = ex;
+            }
+        }
+        assertEquals("boom", thrown.getCause().getMessage());
+        
+        dao.update(new Person(2L, "z", 0));  // thrown only once
+        dao.close();
+        
+        assertEquals("z", failing.findByPrimaryKey(2L, Person.class).getName());
+        assertEquals("name1", failing.findByPrimaryKey(1L, Person.class).getName());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void rejectWritesWhenClosed() {
+        dao.close();
+        dao.update(new Person(1L, "x", 0));
+    }
+    
+    
+    private InMemoryGenericDAO failingOnce() {
+        final AtomicBoolean failed = new AtomicBoolean();
+        InMemoryGenericDAO failing = new InMemoryGenericDAO() {
+            public void updateAll(Collection<? extends Persistable> entities, int batchSize) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("boom");
+                }
+                super.updateAll(entities, batchSize);
+            }
+        };
+        for (long i = 1; i <= 2; i++) {
+            failing.save(new Person(i, "name" + i, 1));
+        }
+        return failing;
+    }
+}
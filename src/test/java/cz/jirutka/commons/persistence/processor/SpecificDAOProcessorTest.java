@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.processor;
+
+import cz.jirutka.commons.persistence.Persistable;
+import cz.jirutka.commons.persistence.dao.GenericDAO;
+import cz.jirutka.commons.persistence.dao.SpecificDAO;
+import cz.jirutka.commons.persistence.dao.StaticSpecificDAORegistry;
+import cz.jirutka.commons.persistence.dao.memory.InMemoryGenericDAO;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class SpecificDAOProcessorTest {
+    
+    private static final String ITEM = 
+            "package app.model;\n"
+            + "public class Item implements cz.jirutka.commons.persistence.Persistable {\n"
+            + "    public Long getId() { return 1L; }\n"
+            + "}\n";
+    private static final String NOTE = 
+            "package app.model;\n"
+            + "public class Note implements cz.jirutka.commons.persistence.Persistable {\n"
+            + "    public Long getId() { return 1L; }\n"
+            + "}\n";
+    private static final String ITEM_DAO = 
+            "package app.dao;\n"
+            + "import app.model.Item;\n"
+            + "import cz.jirutka.commons.persistence.dao.*;\n"
+            + "@RegisteredDAO\n"
+            + "public class ItemDAO extends DelegatingSpecificDAO<Item, Long> {\n"
+            + "    public int calls;\n"
+            + "    public ItemDAO(GenericDAO genericDAO) { super(genericDAO); }\n"
+            + "    @Override public Item findByPrimaryKey(Long id) { calls++; return super.findByPrimaryKey(id); }\n"
+            + "}\n";
+    private static final String NOTE_DAO = 
+            "package app.dao;\n"
+            + "import app.model.Note;\n"
+            + "import cz.jirutka.commons.persistence.dao.*;\n"
+            + "public class NoteDAO extends DelegatingSpecificDAO<Note, Long> {\n"
+            + "    public NoteDAO(GenericDAO genericDAO) { super(genericDAO); }\n"
+            + "}\n";
+    
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+    
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    
+    
+    @Test
+    public void generateForAnnotatedDAOsOnly() throws Exception {
+        File out = tmp.newFolder();
+        assertTrue(compile(out, ITEM, NOTE, ITEM_DAO, NOTE_DAO));
+        
+        ClassLoader loader = new URLClassLoader(new URL[]{ out.toURI().toURL() }, getClass().getClassLoader());
+        Class<? extends Persistable> item = loader.loadClass("app.model.Item").asSubclass(Persistable.class);
+        Class<? extends Persistable> note = loader.loadClass("app.model.Note").asSubclass(Persistable.class);
+        
+        StaticSpecificDAORegistry registry = (StaticSpecificDAORegistry) loader
+                .loadClass("app.dao." + SpecificDAOProcessor.REGISTRY_NAME).newInstance();
+        
+        GenericDAO store = new InMemoryGenericDAO();
+        SpecificDAO itemDAO = (SpecificDAO) loader.loadClass("app.dao.ItemDAO")
+                .getConstructor(GenericDAO.class).newInstance(store);
+        SpecificDAO noteDAO = (SpecificDAO) loader.loadClass("app.dao.NoteDAO")
+                .getConstructor(GenericDAO.class).newInstance(store);
+        registry.register(itemDAO);
+        registry.register(noteDAO);
+        
+        assertTrue(registry.indexOf(item) >= 0);
+        assertEquals(-1, registry.indexOf(note));
+        assertSame(itemDAO, registry.getDAO(item));
+        assertSame(noteDAO, registry.getDAO(note));
+        
+        GenericDAO dispatcher = (GenericDAO) loader.loadClass("app.dao." + SpecificDAOProcessor.DISPATCHER_NAME)
+                .getConstructor(GenericDAO.class, registry.getClass()).newInstance(store, registry);
+        dispatcher.findByPrimaryKey(1L, item);
+        
+        assertEquals(1, itemDAO.getClass().getField("calls").getInt(itemDAO));
+    }
+    
+    @Test
+    public void generateNothingWithoutAnnotation() throws Exception {
+        File out = tmp.newFolder();
+        assertTrue(compile(out, NOTE, NOTE_DAO));
+        
+        assertFalse(new File(out, "app/dao/" + SpecificDAOProcessor.REGISTRY_NAME + ".class").exists());
+    }
+    
+    @Test
+    public void rejectAnnotatedNonDAO() throws Exception {
+        String source = 
+                "package app.dao;\n"
+                + "@cz.jirutka.commons.persistence.dao.RegisteredDAO\n"
+                + "public class Helper {}\n";
+        
+        assertFalse(compile(tmp.newFolder(), source));
+        assertTrue(errors().contains("@RegisteredDAO must annotate"));
+    }
+    
+    @Test
+    public void rejectNonPublicDAO() throws Exception {
+        String source = ITEM_DAO.replace("public class ItemDAO", "class ItemDAO");
+        
+        assertFalse(compile(tmp.newFolder(), ITEM, source));
+        assertTrue(errors().contains("is not public"));
+    }
+    
+    
+    private boolean compile(File out, String... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (String source : sources) {
+            units.add(new Source(source));
+        }
+        List<String> options = Arrays.asList(
+                "-d", out.getPath(), "-s", out.getPath(), 
+                "-classpath", System.getProperty("java.class.path"));
+        
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, units);
+        task.setProcessors(Collections.singletonList(new SpecificDAOProcessor()));
+        
+        return task.call();
+    }
+    
+    private String errors() {
+        StringBuilder out = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                out.append(diagnostic.getMessage(null)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+    
+    
+    private static class Source extends SimpleJavaFileObject {
+        
+        private final String content;
+        
+        Source(String content) {
+            super(URI.create("string:///" + className(content).replace('.', '/') + Kind.SOURCE.extension), 
+                    Kind.SOURCE);
+            this.content = content;
+        }
+        
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+        
+        private static String className(String content) {
+            String pkg = content.substring("package ".length(), content.indexOf(';'));
+            int start = content.indexOf("class ") + "class ".length();
+            return pkg + '.' + content.substring(start, content.indexOf(' ', start));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012 Jakub Jirutka <jakub@jirutka.cz>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the  GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.jirutka.commons.persistence.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jakub Jirutka <jakub@jirutka.cz>
+ */
+public class ConcurrentLongMapTest {
+    
+    @Test
+    public void putGetAndRemove() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+        
+        assertNull(map.put(1L, "a"));
+        assertEquals("a", map.put(1L, "b"));
+        assertEquals("b", map.putIfAbsent(1L, "c"));
+        assertNull(map.putIfAbsent(-7L, "d"));
+        
+        assertEquals("b", map.get(1L));
+        assertEquals("d", map.get(-7L));
+        assertNull(map.get(2L));
+        assertTrue(map.containsKey(-7L));
+        assertEquals(2, map.size());
+        
+        assertFalse(map.remove(1L, "a"));
+        assertTrue(map.remove(1L, "b"));
+        assertEquals("d", map.remove(-7L));
+        assertNull(map.remove(-7L));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    public void growAndReuseRemovedSlots() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>(1);
+        
+        for (long i = 0; i < 10000; i++) {
+            map.put(i * 31, i);
+        }
+        for (long i = 0; i < 10000; i += 2) {
+            map.remove(i * 31);
+        }
+        for (long i = 0; i < 10000; i += 2) {
+            map.put(i * 31, -i);
+        }
+        
+        assertEquals(10000, map.size());
+        for (long i = 0; i < 10000; i++) {
+            assertEquals(Long.valueOf(i % 2 == 0 ? -i : i), map.get(i * 31));
+        }
+        assertEquals(10000, map.values().size());
+        
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(31L));
+    }
+    
+    @Test
+    public void iterateValues() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>();
+        for (long i = 1; i <= 100; i++) {
+            map.put(i, i);
+        }
+        map.remove(50L);
+        
+        Set<Long> values = new HashSet<Long>(map.values());
+        
+        assertEquals(99, values.size());
+        assertFalse(values.contains(50L));
+    }
+    
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        final ConcurrentLongMap<Long> map = new ConcurrentLongMap<Long>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        
+        for (int t = 0; t < 8; t++) {
+            final long base = t * 100000L;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (long i = 0; i < 5000; i++) {
+                    map.put(base + i, base + i);
+                }
+                for (long i = 0; i < 5000; i += 5) {
+                    map.remove(base + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(8 * 4000, map.size());
+        for (int t = 0; t < 8; t++) {
+            long base = t * 100000L;
+            assertNull(map.get(base));
+            assertEquals(Long.valueOf(base + 1), map.get(base + 1));
+        }
+    }
+}